@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.admin.cluster.node.stats;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.support.nodes.NodeOperationResponse;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.Nullable;
@@ -28,6 +29,7 @@ import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.http.HttpStats;
 import org.elasticsearch.indices.NodeIndicesStats;
+import org.elasticsearch.indices.fielddata.breaker.FieldDataBreakerStats;
 import org.elasticsearch.monitor.fs.FsStats;
 import org.elasticsearch.monitor.jvm.JvmStats;
 import org.elasticsearch.monitor.network.NetworkStats;
@@ -76,12 +78,16 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
     @Nullable
     private HttpStats http;
 
+    @Nullable
+    private FieldDataBreakerStats breaker;
+
     NodeStats() {
     }
 
     public NodeStats(DiscoveryNode node, long timestamp, @Nullable String hostname, @Nullable NodeIndicesStats indices,
                      @Nullable OsStats os, @Nullable ProcessStats process, @Nullable JvmStats jvm, @Nullable ThreadPoolStats threadPool, @Nullable NetworkStats network,
-                     @Nullable FsStats fs, @Nullable TransportStats transport, @Nullable HttpStats http) {
+                     @Nullable FsStats fs, @Nullable TransportStats transport, @Nullable HttpStats http,
+                     @Nullable FieldDataBreakerStats breaker) {
         super(node);
         this.timestamp = timestamp;
         this.hostname = hostname;
@@ -94,6 +100,7 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
         this.fs = fs;
         this.transport = transport;
         this.http = http;
+        this.breaker = breaker;
     }
 
     public long getTimestamp() {
@@ -171,6 +178,14 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
         return this.http;
     }
 
+    /**
+     * Field data circuit breaker statistics.
+     */
+    @Nullable
+    public FieldDataBreakerStats getBreaker() {
+        return this.breaker;
+    }
+
     public static NodeStats readNodeStats(StreamInput in) throws IOException {
         NodeStats nodeInfo = new NodeStats();
         nodeInfo.readFrom(in);
@@ -211,6 +226,9 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
         if (in.readBoolean()) {
             http = HttpStats.readHttpStats(in);
         }
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1) && in.readBoolean()) {
+            breaker = FieldDataBreakerStats.readFieldDataBreakerStats(in);
+        }
     }
 
     @Override
@@ -277,6 +295,14 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
             out.writeBoolean(true);
             http.writeTo(out);
         }
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            if (breaker == null) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                breaker.writeTo(out);
+            }
+        }
     }
 
     @Override
@@ -326,6 +352,9 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
         if (getHttp() != null) {
             getHttp().toXContent(builder, params);
         }
+        if (getBreaker() != null) {
+            getBreaker().toXContent(builder, params);
+        }
 
         return builder;
     }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.admin.cluster.node.stats;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.admin.indices.stats.CommonStatsFlags;
 import org.elasticsearch.action.support.nodes.NodesOperationRequest;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -40,6 +41,7 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
     private boolean fs;
     private boolean transport;
     private boolean http;
+    private boolean breaker;
 
     protected NodesStatsRequest() {
     }
@@ -65,6 +67,7 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
         this.fs = true;
         this.transport = true;
         this.http = true;
+        this.breaker = true;
         return this;
     }
 
@@ -81,6 +84,7 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
         this.fs = false;
         this.transport = false;
         this.http = false;
+        this.breaker = false;
         return this;
     }
 
@@ -225,6 +229,21 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
         return this;
     }
 
+    /**
+     * Should the node field data circuit breaker stats be returned.
+     */
+    public boolean breaker() {
+        return this.breaker;
+    }
+
+    /**
+     * Should the node field data circuit breaker stats be returned.
+     */
+    public NodesStatsRequest breaker(boolean breaker) {
+        this.breaker = breaker;
+        return this;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -237,6 +256,9 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
         fs = in.readBoolean();
         transport = in.readBoolean();
         http = in.readBoolean();
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            breaker = in.readBoolean();
+        }
     }
 
     @Override
@@ -251,6 +273,9 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
         out.writeBoolean(fs);
         out.writeBoolean(transport);
         out.writeBoolean(http);
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            out.writeBoolean(breaker);
+        }
     }
 
 }
@@ -130,6 +130,14 @@ public class NodesStatsRequestBuilder extends NodesOperationRequestBuilder<Nodes
         return this;
     }
 
+    /**
+     * Should the node field data circuit breaker stats be returned.
+     */
+    public NodesStatsRequestBuilder setBreaker(boolean breaker) {
+        request.breaker(breaker);
+        return this;
+    }
+
     @Override
     protected void doExecute(ActionListener<NodesStatsResponse> listener) {
         ((ClusterAdminClient) client).nodesStats(request, listener);
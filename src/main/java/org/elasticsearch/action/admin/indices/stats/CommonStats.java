@@ -27,6 +27,7 @@ import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.index.cache.filter.FilterCacheStats;
+import org.elasticsearch.index.cache.query.QueryCacheStats;
 import org.elasticsearch.index.cache.id.IdCacheStats;
 import org.elasticsearch.index.fielddata.FieldDataStats;
 import org.elasticsearch.index.flush.FlushStats;
@@ -99,6 +100,9 @@ public class CommonStats implements Streamable, ToXContent {
                 case Percolate:
                     percolate = new PercolateStats();
                     break;
+                case QueryCache:
+                    queryCache = new QueryCacheStats();
+                    break;
                 default:
                     throw new IllegalStateException("Unknown Flag: " + flag);
             }
@@ -153,6 +157,9 @@ public class CommonStats implements Streamable, ToXContent {
                 case Percolate:
                     percolate = indexShard.shardPercolateService().stats();
                     break;
+                case QueryCache:
+                    queryCache = indexShard.queryCacheStats();
+                    break;
                 default:
                     throw new IllegalStateException("Unknown Flag: " + flag);
             }
@@ -201,6 +208,9 @@ public class CommonStats implements Streamable, ToXContent {
     @Nullable
     public CompletionStats completion;
 
+    @Nullable
+    public QueryCacheStats queryCache;
+
     public void add(CommonStats stats) {
         if (docs == null) {
             if (stats.getDocs() != null) {
@@ -316,6 +326,14 @@ public class CommonStats implements Streamable, ToXContent {
         } else {
             completion.add(stats.getCompletion());
         }
+        if (queryCache == null) {
+            if (stats.getQueryCache() != null) {
+                queryCache = new QueryCacheStats();
+                queryCache.add(stats.getQueryCache());
+            }
+        } else {
+            queryCache.add(stats.getQueryCache());
+        }
     }
 
     @Nullable
@@ -388,6 +406,11 @@ public class CommonStats implements Streamable, ToXContent {
         return completion;
     }
 
+    @Nullable
+    public QueryCacheStats getQueryCache() {
+        return queryCache;
+    }
+
     public static CommonStats readCommonStats(StreamInput in) throws IOException {
         CommonStats stats = new CommonStats();
         stats.readFrom(in);
@@ -440,6 +463,11 @@ public class CommonStats implements Streamable, ToXContent {
                 completion = CompletionStats.readCompletionStats(in);
             }
         }
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            if (in.readBoolean()) {
+                queryCache = QueryCacheStats.readQueryCacheStats(in);
+            }
+        }
     }
 
     @Override
@@ -530,6 +558,14 @@ public class CommonStats implements Streamable, ToXContent {
                 completion.writeTo(out);
             }
         }
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            if (queryCache == null) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                queryCache.writeTo(out);
+            }
+        }
     }
 
     // note, requires a wrapping object
@@ -577,6 +613,9 @@ public class CommonStats implements Streamable, ToXContent {
         if (completion != null) {
             completion.toXContent(builder, params);
         }
+        if (queryCache != null) {
+            queryCache.toXContent(builder, params);
+        }
         return builder;
     }
 }
@@ -119,6 +119,11 @@ public class IndicesStatsRequestBuilder extends BroadcastOperationRequestBuilder
         return this;
     }
 
+    public IndicesStatsRequestBuilder setQueryCache(boolean queryCache) {
+        request.queryCache(queryCache);
+        return this;
+    }
+
     public IndicesStatsRequestBuilder setIdCache(boolean idCache) {
         request.idCache(idCache);
         return this;
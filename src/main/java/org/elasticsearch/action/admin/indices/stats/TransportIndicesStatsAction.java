@@ -173,6 +173,9 @@ public class TransportIndicesStatsAction extends TransportBroadcastOperationActi
         if (request.request.filterCache()) {
             flags.set(CommonStatsFlags.Flag.FilterCache);
         }
+        if (request.request.queryCache()) {
+            flags.set(CommonStatsFlags.Flag.QueryCache);
+        }
         if (request.request.idCache()) {
             flags.set(CommonStatsFlags.Flag.IdCache);
         }
@@ -0,0 +1,130 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.index.VersionType;
+
+import java.io.IOException;
+
+/**
+ * A compact binary alternative to the newline delimited bulk format, accepted wherever bulk data is added
+ * through {@link BulkRequest#add(BytesReference, boolean, String, String, String, Object, boolean)} (and so by
+ * the REST bulk endpoint). The data starts with {@link #HEADER}, followed by one entry per action:
+ * <pre>
+ * byte     action (index, create, delete, update)
+ * string?  index, type, id, routing, parent, timestamp
+ * long     ttl (-1 if not set)
+ * long     version
+ * byte     version type
+ * vint     retry on conflict
+ * vint     source length, followed by the source bytes (not for delete)
+ * </pre>
+ * The headers are read without any xcontent parsing and the sources are kept as slices of the bulk data. The
+ * source is the document (or the update request body) in any xcontent format.
+ */
+public final class BulkBinaryFormat {
+
+    static final byte[] HEADER = new byte[]{(byte) 0xEB, 'B', 'L', 'K'};
+
+    static final byte INDEX = 0;
+    static final byte CREATE = 1;
+    static final byte DELETE = 2;
+    static final byte UPDATE = 3;
+
+    private BulkBinaryFormat() {
+    }
+
+    /**
+     * Returns <tt>true</tt> if the data is in the binary bulk format.
+     */
+    public static boolean isBinary(BytesReference data) {
+        if (data.length() < HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; i++) {
+            if (data.get(i) != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds bulk data in the binary format.
+     */
+    public static class Builder {
+
+        private final BytesStreamOutput out = new BytesStreamOutput();
+
+        public Builder() {
+            try {
+                out.writeBytes(HEADER);
+            } catch (IOException e) {
+                // can't happen, writing to memory
+            }
+        }
+
+        public Builder index(@Nullable String index, @Nullable String type, @Nullable String id, BytesReference source) throws IOException {
+            return add(INDEX, index, type, id, null, null, null, -1, Versions.MATCH_ANY, VersionType.INTERNAL, 0, source);
+        }
+
+        public Builder create(@Nullable String index, @Nullable String type, @Nullable String id, BytesReference source) throws IOException {
+            return add(CREATE, index, type, id, null, null, null, -1, Versions.MATCH_ANY, VersionType.INTERNAL, 0, source);
+        }
+
+        public Builder delete(@Nullable String index, @Nullable String type, String id) throws IOException {
+            return add(DELETE, index, type, id, null, null, null, -1, Versions.MATCH_ANY, VersionType.INTERNAL, 0, null);
+        }
+
+        /**
+         * Adds an update, the source being the update request body (doc, script, upsert...).
+         */
+        public Builder update(@Nullable String index, @Nullable String type, String id, BytesReference source) throws IOException {
+            return add(UPDATE, index, type, id, null, null, null, -1, Versions.MATCH_ANY, VersionType.INTERNAL, 0, source);
+        }
+
+        public Builder add(byte action, @Nullable String index, @Nullable String type, @Nullable String id, @Nullable String routing,
+                           @Nullable String parent, @Nullable String timestamp, long ttl, long version, VersionType versionType,
+                           int retryOnConflict, @Nullable BytesReference source) throws IOException {
+            out.writeByte(action);
+            out.writeOptionalString(index);
+            out.writeOptionalString(type);
+            out.writeOptionalString(id);
+            out.writeOptionalString(routing);
+            out.writeOptionalString(parent);
+            out.writeOptionalString(timestamp);
+            out.writeLong(ttl);
+            out.writeLong(version);
+            out.writeByte(versionType.getValue());
+            out.writeVInt(retryOnConflict);
+            if (action != DELETE) {
+                out.writeBytesReference(source);
+            }
+            return this;
+        }
+
+        public BytesReference bytes() {
+            return out.bytes();
+        }
+    }
+}
@@ -31,6 +31,7 @@ import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lucene.uid.Versions;
@@ -246,6 +247,9 @@ public class BulkRequest extends ActionRequest<BulkRequest> {
     }
 
     public BulkRequest add(BytesReference data, boolean contentUnsafe, @Nullable String defaultIndex, @Nullable String defaultType, @Nullable String defaultRouting, @Nullable Object payload, boolean allowExplicitIndex) throws Exception {
+        if (BulkBinaryFormat.isBinary(data)) {
+            return addBinary(data, contentUnsafe, defaultIndex, defaultType, defaultRouting, payload, allowExplicitIndex);
+        }
         XContent xContent = XContentFactory.xContent(data);
         int from = 0;
         int length = data.length();
@@ -353,30 +357,8 @@ public class BulkRequest extends ActionRequest<BulkRequest> {
                                 .create(true)
                                 .source(data.slice(from, nextMarker - from), contentUnsafe), payload);
                     } else if ("update".equals(action)) {
-                        UpdateRequest updateRequest = new UpdateRequest(index, type, id).routing(routing).parent(parent).retryOnConflict(retryOnConflict)
-                                .version(version).versionType(versionType)
-                                .source(data.slice(from, nextMarker - from));
-
-                        IndexRequest upsertRequest = updateRequest.upsertRequest();
-                        if (upsertRequest != null) {
-                            upsertRequest.routing(routing);
-                            upsertRequest.parent(parent); // order is important, set it after routing, so it will set the routing
-                            upsertRequest.timestamp(timestamp);
-                            upsertRequest.ttl(ttl);
-                            upsertRequest.version(version);
-                            upsertRequest.versionType(versionType);
-                        }
-                        IndexRequest doc = updateRequest.doc();
-                        if (doc != null) {
-                            doc.routing(routing);
-                            doc.parent(parent); // order is important, set it after routing, so it will set the routing
-                            doc.timestamp(timestamp);
-                            doc.ttl(ttl);
-                            doc.version(version);
-                            doc.versionType(versionType);
-                        }
-
-                        internalAdd(updateRequest, payload);
+                        internalAdd(updateRequest(index, type, id, routing, parent, timestamp, ttl, version, versionType, retryOnConflict,
+                                data.slice(from, nextMarker - from)), payload);
                     }
                     // move pointers
                     from = nextMarker + 1;
@@ -388,6 +370,90 @@ public class BulkRequest extends ActionRequest<BulkRequest> {
         return this;
     }
 
+    private UpdateRequest updateRequest(String index, String type, String id, String routing, String parent, String timestamp, Long ttl,
+                                        long version, VersionType versionType, int retryOnConflict, BytesReference source) throws Exception {
+        UpdateRequest updateRequest = new UpdateRequest(index, type, id).routing(routing).parent(parent).retryOnConflict(retryOnConflict)
+                .version(version).versionType(versionType)
+                .source(source);
+
+        IndexRequest upsertRequest = updateRequest.upsertRequest();
+        if (upsertRequest != null) {
+            upsertRequest.routing(routing);
+            upsertRequest.parent(parent); // order is important, set it after routing, so it will set the routing
+            upsertRequest.timestamp(timestamp);
+            upsertRequest.ttl(ttl);
+            upsertRequest.version(version);
+            upsertRequest.versionType(versionType);
+        }
+        IndexRequest doc = updateRequest.doc();
+        if (doc != null) {
+            doc.routing(routing);
+            doc.parent(parent); // order is important, set it after routing, so it will set the routing
+            doc.timestamp(timestamp);
+            doc.ttl(ttl);
+            doc.version(version);
+            doc.versionType(versionType);
+        }
+        return updateRequest;
+    }
+
+    /**
+     * Adds data in the {@link BulkBinaryFormat}. Action headers are read straight from the stream and sources are
+     * slices of the data, no xcontent parsing is done.
+     */
+    private BulkRequest addBinary(BytesReference data, boolean contentUnsafe, @Nullable String defaultIndex, @Nullable String defaultType, @Nullable String defaultRouting, @Nullable Object payload, boolean allowExplicitIndex) throws Exception {
+        BytesReference bytes = data.hasArray() ? data : data.toBytesArray();
+        int end = bytes.arrayOffset() + bytes.length();
+        BytesStreamInput in = new BytesStreamInput(bytes.array(), bytes.arrayOffset() + BulkBinaryFormat.HEADER.length, bytes.length() - BulkBinaryFormat.HEADER.length, false);
+        while (in.position() < end) {
+            byte action = in.readByte();
+            String index = in.readOptionalString();
+            if (index == null) {
+                index = defaultIndex;
+            } else if (!allowExplicitIndex) {
+                throw new ElasticSearchIllegalArgumentException("explicit index in bulk is not allowed");
+            }
+            String type = in.readOptionalString();
+            if (type == null) {
+                type = defaultType;
+            }
+            String id = in.readOptionalString();
+            String routing = in.readOptionalString();
+            if (routing == null) {
+                routing = defaultRouting;
+            }
+            String parent = in.readOptionalString();
+            String timestamp = in.readOptionalString();
+            long ttlValue = in.readLong();
+            Long ttl = ttlValue > 0 ? ttlValue : null;
+            long version = in.readLong();
+            VersionType versionType = VersionType.fromValue(in.readByte());
+            int retryOnConflict = in.readVInt();
+
+            if (action == BulkBinaryFormat.DELETE) {
+                add(new DeleteRequest(index, type, id).routing(routing).parent(parent).version(version).versionType(versionType), payload);
+                continue;
+            }
+            int sourceLength = in.readVInt();
+            if (sourceLength < 0 || sourceLength > end - in.position()) {
+                throw new ElasticSearchIllegalArgumentException("truncated source for bulk action [" + action + "]");
+            }
+            // a slice of the bulk data
+            BytesReference source = in.readBytesReference(sourceLength);
+            if (action == BulkBinaryFormat.INDEX || action == BulkBinaryFormat.CREATE) {
+                // order is important, we set parent after routing, so routing will be set to parent if not set explicitly
+                internalAdd(new IndexRequest(index, type, id).routing(routing).parent(parent).timestamp(timestamp).ttl(ttl).version(version).versionType(versionType)
+                        .create(action == BulkBinaryFormat.CREATE)
+                        .source(source, contentUnsafe), payload);
+            } else if (action == BulkBinaryFormat.UPDATE) {
+                internalAdd(updateRequest(index, type, id, routing, parent, timestamp, ttl, version, versionType, retryOnConflict, source), payload);
+            } else {
+                throw new ElasticSearchIllegalArgumentException("unknown bulk action [" + action + "]");
+            }
+        }
+        return this;
+    }
+
     /**
      * Sets the consistency level of write. Defaults to {@link org.elasticsearch.action.WriteConsistencyLevel#DEFAULT}
      */
@@ -22,6 +22,7 @@ package org.elasticsearch.action.bulk;
 import com.google.common.collect.Sets;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.ElasticSearchIllegalStateException;
+import org.elasticsearch.ElasticSearchInterruptedException;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionRequest;
@@ -47,6 +48,8 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.engine.DocumentAlreadyExistsException;
@@ -57,6 +60,7 @@ import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.mapper.SourceToParse;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.service.IndexShard;
+import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -65,6 +69,10 @@ import org.elasticsearch.transport.TransportService;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Performs the index operation.
@@ -74,6 +82,9 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
     private final MappingUpdatedAction mappingUpdatedAction;
     private final UpdateHelper updateHelper;
     private final boolean allowIdGeneration;
+    private final boolean parallelParsing;
+    private final int parallelParsingConcurrency;
+    private final int parallelParsingMinItems;
 
     @Inject
     public TransportShardBulkAction(Settings settings, TransportService transportService, ClusterService clusterService,
@@ -83,6 +94,9 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         this.mappingUpdatedAction = mappingUpdatedAction;
         this.updateHelper = updateHelper;
         this.allowIdGeneration = settings.getAsBoolean("action.allow_id_generation", true);
+        this.parallelParsing = componentSettings.getAsBoolean("parallel_parsing", false);
+        this.parallelParsingConcurrency = componentSettings.getAsInt("parallel_parsing.concurrency", EsExecutors.boundedNumberOfProcessors(settings));
+        this.parallelParsingMinItems = componentSettings.getAsInt("parallel_parsing.min_items", 16);
     }
 
     @Override
@@ -130,6 +144,15 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         return state.blocks().indexBlockedException(ClusterBlockLevel.WRITE, request.index());
     }
 
+    @Override
+    protected void prepareForRetry(BulkShardRequest request) {
+        for (BulkItemRequest item : request.items()) {
+            if (item != null && item.request() instanceof IndexRequest) {
+                ((IndexRequest) item.request()).canHaveDuplicates(true);
+            }
+        }
+    }
+
     @Override
     protected ShardIterator shards(ClusterState clusterState, BulkShardRequest request) {
         return clusterState.routingTable().index(request.index()).shard(request.shardId()).shardsIt();
@@ -144,12 +167,23 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
 
         BulkItemResponse[] responses = new BulkItemResponse[request.items().length];
         long[] preVersions = new long[request.items().length];
+        Object[] preparedOps = null;
+        if (parallelParsing && parallelParsingConcurrency > 1 && request.items().length >= parallelParsingMinItems) {
+            preparedOps = prepareIndexOperations(request.items(), indexShard);
+        }
         for (int requestIndex = 0; requestIndex < request.items().length; requestIndex++) {
             BulkItemRequest item = request.items()[requestIndex];
             if (item.request() instanceof IndexRequest) {
                 IndexRequest indexRequest = (IndexRequest) item.request();
                 try {
-                    WriteResult result = shardIndexOperation(request, indexRequest, clusterState, indexShard, true);
+                    Engine.IndexingOperation preparedOp = null;
+                    if (preparedOps != null) {
+                        if (preparedOps[requestIndex] instanceof Throwable) {
+                            throw (Throwable) preparedOps[requestIndex];
+                        }
+                        preparedOp = (Engine.IndexingOperation) preparedOps[requestIndex];
+                    }
+                    WriteResult result = shardIndexOperation(request, indexRequest, clusterState, indexShard, true, preparedOp);
                     // add the response
                     IndexResponse indexResponse = result.response();
                     responses[requestIndex] = new BulkItemResponse(item.id(), indexRequest.opType().lowercase(), indexResponse);
@@ -336,6 +370,10 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
             }
         }
 
+        if (indexShard.translog().durability() == Translog.Durability.REQUEST) {
+            indexShard.translog().ensureSynced();
+        }
+
         if (request.refresh()) {
             try {
                 indexShard.refresh(new Engine.Refresh("refresh_flag_bulk").force(false));
@@ -347,6 +385,90 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         return new PrimaryResponse<BulkShardResponse, BulkShardRequest>(shardRequest.request, response, ops);
     }
 
+    /**
+     * Parses the index requests of the bulk into engine operations, on up to <tt>parallel_parsing.concurrency</tt>
+     * threads of the bulk_parse pool, the calling thread included. The slot of each index request holds its prepared
+     * operation, or the failure to prepare it, which is rethrown when the item is executed so it is handled like any
+     * other item failure. Versions are only resolved when the operations are then applied to the engine, one after
+     * the other in request order.
+     */
+    private Object[] prepareIndexOperations(final BulkItemRequest[] items, final IndexShard indexShard) {
+        final Object[] preparedOps = new Object[items.length];
+        parseInParallel(items.length, new ItemParser() {
+            @Override
+            public void parse(int item) {
+                try {
+                    if (items[item].request() instanceof IndexRequest) {
+                        preparedOps[item] = prepareIndexOperation((IndexRequest) items[item].request(), indexShard);
+                    }
+                } catch (Throwable t) {
+                    preparedOps[item] = t;
+                }
+            }
+        }, threadPool.executor(ThreadPool.Names.BULK_PARSE), parallelParsingConcurrency);
+        return preparedOps;
+    }
+
+    /**
+     * Parses a single item of a bulk, see {@link #parseInParallel(int, ItemParser, Executor, int)}.
+     */
+    static interface ItemParser {
+
+        void parse(int item);
+    }
+
+    /**
+     * Parses all the items, pulled from a shared cursor by the calling thread and by up to <tt>concurrency - 1</tt>
+     * helpers forked to the executor. Helpers the executor rejects are not retried, and helpers that only start once
+     * all items are taken exit right away, so a saturated pool degrades to parsing inline and this never waits on a
+     * queued task.
+     */
+    static void parseInParallel(final int numItems, final ItemParser itemParser, Executor executor, int concurrency) {
+        final AtomicInteger cursor = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(numItems);
+        Runnable parser = new Runnable() {
+            @Override
+            public void run() {
+                int i;
+                while ((i = cursor.getAndIncrement()) < numItems) {
+                    try {
+                        itemParser.parse(i);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }
+        };
+        for (int i = 1; i < concurrency; i++) {
+            try {
+                executor.execute(parser);
+            } catch (EsRejectedExecutionException e) {
+                // the pool is saturated, the calling thread will parse what is left
+                break;
+            } catch (RejectedExecutionException e) {
+                break;
+            }
+        }
+        parser.run();
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticSearchInterruptedException("interrupted while parsing bulk items", e);
+        }
+    }
+
+    private Engine.IndexingOperation prepareIndexOperation(IndexRequest indexRequest, IndexShard indexShard) {
+        SourceToParse sourceToParse = SourceToParse.source(SourceToParse.Origin.PRIMARY, indexRequest.source()).type(indexRequest.type()).id(indexRequest.id())
+                .routing(indexRequest.routing()).parent(indexRequest.parent()).timestamp(indexRequest.timestamp()).ttl(indexRequest.ttl());
+        if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
+            return indexShard.prepareIndex(sourceToParse).version(indexRequest.version()).versionType(indexRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
+        } else {
+            return indexShard.prepareCreate(sourceToParse).version(indexRequest.version()).versionType(indexRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY)
+                    .autoGeneratedIdTimestamp(indexRequest.autoGeneratedIdTimestamp()).canHaveDuplicates(indexRequest.canHaveDuplicates());
+        }
+    }
+
     static class WriteResult {
 
         final Object response;
@@ -369,7 +491,7 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
     }
 
     private WriteResult shardIndexOperation(BulkShardRequest request, IndexRequest indexRequest, ClusterState clusterState,
-                                            IndexShard indexShard, boolean processed) {
+                                            IndexShard indexShard, boolean processed, Engine.IndexingOperation preparedOp) {
 
         // validate, if routing is required, that we got routing
         MappingMetaData mappingMd = clusterState.metaData().index(request.index()).mappingOrDefault(indexRequest.type());
@@ -383,23 +505,18 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
             indexRequest.process(clusterState.metaData(), indexRequest.index(), mappingMd, allowIdGeneration);
         }
 
-        SourceToParse sourceToParse = SourceToParse.source(SourceToParse.Origin.PRIMARY, indexRequest.source()).type(indexRequest.type()).id(indexRequest.id())
-                .routing(indexRequest.routing()).parent(indexRequest.parent()).timestamp(indexRequest.timestamp()).ttl(indexRequest.ttl());
-
         long version;
         boolean created;
-        Engine.IndexingOperation op;
+        Engine.IndexingOperation op = preparedOp != null ? preparedOp : prepareIndexOperation(indexRequest, indexShard);
         if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
-            Engine.Index index = indexShard.prepareIndex(sourceToParse).version(indexRequest.version()).versionType(indexRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
+            Engine.Index index = (Engine.Index) op;
             indexShard.index(index);
             version = index.version();
-            op = index;
             created = index.created();
         } else {
-            Engine.Create create = indexShard.prepareCreate(sourceToParse).version(indexRequest.version()).versionType(indexRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
+            Engine.Create create = (Engine.Create) op;
             indexShard.create(create);
             version = create.version();
-            op = create;
             created = true;
         }
         long preVersion = indexRequest.version();
@@ -485,7 +602,7 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
             case INDEX:
                 IndexRequest indexRequest = translate.action();
                 try {
-                    WriteResult result = shardIndexOperation(bulkShardRequest, indexRequest, clusterState, indexShard, false);
+                    WriteResult result = shardIndexOperation(bulkShardRequest, indexRequest, clusterState, indexShard, false, null);
                     return new UpdateResult(translate, indexRequest, result);
                 } catch (Throwable t) {
                     t = ExceptionsHelper.unwrapCause(t);
@@ -534,7 +651,8 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
                         Engine.Index index = indexShard.prepareIndex(sourceToParse).version(indexRequest.version()).origin(Engine.Operation.Origin.REPLICA);
                         indexShard.index(index);
                     } else {
-                        Engine.Create create = indexShard.prepareCreate(sourceToParse).version(indexRequest.version()).origin(Engine.Operation.Origin.REPLICA);
+                        Engine.Create create = indexShard.prepareCreate(sourceToParse).version(indexRequest.version()).origin(Engine.Operation.Origin.REPLICA)
+                                .autoGeneratedIdTimestamp(indexRequest.autoGeneratedIdTimestamp()).canHaveDuplicates(indexRequest.canHaveDuplicates());
                         indexShard.create(create);
                     }
                 } catch (Throwable e) {
@@ -551,6 +669,10 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
             }
         }
 
+        if (indexShard.translog().durability() == Translog.Durability.REQUEST) {
+            indexShard.translog().ensureSynced();
+        }
+
         if (request.refresh()) {
             try {
                 indexShard.refresh(new Engine.Refresh("refresh_flag_bulk").force(false));
@@ -42,6 +42,7 @@ import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.shard.service.IndexShard;
+import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.indices.IndexAlreadyExistsException;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -185,6 +186,10 @@ public class TransportDeleteAction extends TransportShardReplicationOperationAct
         // update the request with teh version so it will go to the replicas
         request.version(delete.version());
 
+        if (indexShard.translog().durability() == Translog.Durability.REQUEST) {
+            indexShard.translog().ensureSynced();
+        }
+
         if (request.refresh()) {
             try {
                 indexShard.refresh(new Engine.Refresh("refresh_flag_delete").force(false));
@@ -206,6 +211,10 @@ public class TransportDeleteAction extends TransportShardReplicationOperationAct
 
         indexShard.delete(delete);
 
+        if (indexShard.translog().durability() == Translog.Durability.REQUEST) {
+            indexShard.translog().ensureSynced();
+        }
+
         if (request.refresh()) {
             try {
                 indexShard.refresh(new Engine.Refresh("refresh_flag_delete").force(false));
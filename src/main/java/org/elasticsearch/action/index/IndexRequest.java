@@ -24,6 +24,7 @@ import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.ElasticSearchGenerationException;
 import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.ElasticSearchParseException;
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionRequestValidationException;
 import org.elasticsearch.action.RoutingMissingException;
 import org.elasticsearch.action.support.replication.ShardReplicationOperationRequest;
@@ -133,6 +134,9 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
     private long version = Versions.MATCH_ANY;
     private VersionType versionType = VersionType.INTERNAL;
 
+    private long autoGeneratedIdTimestamp = -1;
+    private boolean canHaveDuplicates = false;
+
     private XContentType contentType = Requests.INDEX_CONTENT_TYPE;
 
     public IndexRequest() {
@@ -538,6 +542,26 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
         return this.versionType;
     }
 
+    /**
+     * The time the id of the document was generated at by {@link #process(MetaData, String, MappingMetaData, boolean)},
+     * <tt>-1</tt> if the id was provided.
+     */
+    public long autoGeneratedIdTimestamp() {
+        return this.autoGeneratedIdTimestamp;
+    }
+
+    /**
+     * Marks the request as being retried, it might have been executed already.
+     */
+    public IndexRequest canHaveDuplicates(boolean canHaveDuplicates) {
+        this.canHaveDuplicates = canHaveDuplicates;
+        return this;
+    }
+
+    public boolean canHaveDuplicates() {
+        return this.canHaveDuplicates;
+    }
+
     public void process(MetaData metaData, String aliasOrIndex, @Nullable MappingMetaData mappingMd, boolean allowIdGeneration) throws ElasticSearchException {
         // resolve the routing if needed
         routing(metaData.resolveIndexRouting(routing, aliasOrIndex));
@@ -592,6 +616,7 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
         if (allowIdGeneration) {
             if (id == null) {
                 id(Strings.randomBase64UUID());
+                autoGeneratedIdTimestamp = System.currentTimeMillis();
                 // since we generate the id, change it to CREATE
                 opType(IndexRequest.OpType.CREATE);
             }
@@ -619,6 +644,10 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
         refresh = in.readBoolean();
         version = in.readLong();
         versionType = VersionType.fromValue(in.readByte());
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            autoGeneratedIdTimestamp = in.readLong();
+            canHaveDuplicates = in.readBoolean();
+        }
     }
 
     @Override
@@ -635,6 +664,10 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
         out.writeBoolean(refresh);
         out.writeLong(version);
         out.writeByte(versionType.getValue());
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            out.writeLong(autoGeneratedIdTimestamp);
+            out.writeBoolean(canHaveDuplicates);
+        }
     }
 
     @Override
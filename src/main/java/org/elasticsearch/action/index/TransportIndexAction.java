@@ -44,6 +44,7 @@ import org.elasticsearch.index.mapper.DocumentMapper;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.mapper.SourceToParse;
 import org.elasticsearch.index.shard.service.IndexShard;
+import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.indices.IndexAlreadyExistsException;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -173,6 +174,11 @@ public class TransportIndexAction extends TransportShardReplicationOperationActi
         return state.blocks().indexBlockedException(ClusterBlockLevel.WRITE, request.index());
     }
 
+    @Override
+    protected void prepareForRetry(IndexRequest request) {
+        request.canHaveDuplicates(true);
+    }
+
     @Override
     protected ShardIterator shards(ClusterState clusterState, IndexRequest request) {
         return clusterService.operationRouting()
@@ -214,7 +220,9 @@ public class TransportIndexAction extends TransportShardReplicationOperationActi
             Engine.Create create = indexShard.prepareCreate(sourceToParse)
                     .version(request.version())
                     .versionType(request.versionType())
-                    .origin(Engine.Operation.Origin.PRIMARY);
+                    .origin(Engine.Operation.Origin.PRIMARY)
+                    .autoGeneratedIdTimestamp(request.autoGeneratedIdTimestamp())
+                    .canHaveDuplicates(request.canHaveDuplicates());
             if (create.parsedDoc().mappingsModified()) {
                 updateMappingOnMaster(request, indexMetaData);
             }
@@ -223,6 +231,10 @@ public class TransportIndexAction extends TransportShardReplicationOperationActi
             op = create;
             created = true;
         }
+        if (indexShard.translog().durability() == Translog.Durability.REQUEST) {
+            indexShard.translog().ensureSynced();
+        }
+
         if (request.refresh()) {
             try {
                 indexShard.refresh(new Engine.Refresh("refresh_flag_index").force(false));
@@ -252,9 +264,15 @@ public class TransportIndexAction extends TransportShardReplicationOperationActi
         } else {
             Engine.Create create = indexShard.prepareCreate(sourceToParse)
                     .version(request.version())
-                    .origin(Engine.Operation.Origin.REPLICA);
+                    .origin(Engine.Operation.Origin.REPLICA)
+                    .autoGeneratedIdTimestamp(request.autoGeneratedIdTimestamp())
+                    .canHaveDuplicates(request.canHaveDuplicates());
             indexShard.create(create);
         }
+        if (indexShard.translog().durability() == Translog.Durability.REQUEST) {
+            indexShard.translog().ensureSynced();
+        }
+
         if (request.refresh()) {
             try {
                 indexShard.refresh(new Engine.Refresh("refresh_flag_index").force(false));
@@ -509,6 +509,15 @@ public class SearchRequestBuilder extends ActionRequestBuilder<SearchRequest, Se
         return this;
     }
 
+    /**
+     * Sets the sort values of the last hit of the previous page, only hits sorting after them
+     * will be returned.
+     */
+    public SearchRequestBuilder setSearchAfter(Object... values) {
+        sourceBuilder().searchAfter(values);
+        return this;
+    }
+
     /**
      * Adds the fields to load and return as part of the search request. If none are specified,
      * the source of the document will be returned.
@@ -155,6 +155,12 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
         return transportAction() + "/replica";
     }
 
+    /**
+     * Called before the request is retried on the primary. The previous attempt might have been executed already.
+     */
+    protected void prepareForRetry(Request request) {
+    }
+
     protected boolean retryPrimaryException(Throwable e) {
         return TransportActions.isShardNotAvailableException(e);
     }
@@ -487,6 +493,8 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
                 return;
             }
 
+            prepareForRetry(request);
+
             // make it threaded operation so we fork on the discovery listener thread
             request.beforeLocalFork();
             request.operationThreaded(true);
@@ -55,6 +55,7 @@ import org.elasticsearch.index.Index;
 import org.elasticsearch.index.mapper.DocumentMapper;
 import org.elasticsearch.index.mapper.MapperParsingException;
 import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.merge.policy.NumericFieldSorter;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.indices.IndexAlreadyExistsException;
 import org.elasticsearch.indices.IndicesService;
@@ -292,6 +293,12 @@ public class MetaDataCreateIndexService extends AbstractComponent {
                         MappingMetaData mappingMd = new MappingMetaData(mapper);
                         mappingsMetaData.put(mapper.type(), mappingMd);
                     }
+                    try {
+                        NumericFieldSorter.validate(actualIndexSettings, mappingsMetaData.values());
+                    } catch (Exception e) {
+                        failureReason = "failed to validate the segment sort field";
+                        throw e;
+                    }
 
                     final IndexMetaData.Builder indexMetaDataBuilder = IndexMetaData.builder(request.index).settings(actualIndexSettings);
                     for (MappingMetaData mappingMd : mappingsMetaData.values()) {
@@ -39,6 +39,7 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.merge.policy.NumericFieldSorter;
 import org.elasticsearch.index.settings.IndexDynamicSettings;
 
 import java.util.*;
@@ -309,6 +310,14 @@ public class MetaDataUpdateSettingsService extends AbstractComponent implements
                 }
 
                 if (!closeIndices.isEmpty()) {
+                    if (closeSettings.get(NumericFieldSorter.INDEX_MERGE_POLICY_SORT_FIELD) != null
+                            || closeSettings.get(NumericFieldSorter.INDEX_MERGE_POLICY_SORT_ORDER) != null) {
+                        for (String index : closeIndices) {
+                            IndexMetaData indexMetaData = currentState.metaData().index(index);
+                            Settings updatedSettings = ImmutableSettings.settingsBuilder().put(indexMetaData.settings()).put(closeSettings).build();
+                            NumericFieldSorter.validate(updatedSettings, indexMetaData.mappings().values());
+                        }
+                    }
                     String[] indices = closeIndices.toArray(new String[closeIndices.size()]);
                     metaDataBuilder.updateSettings(closeSettings, indices);
                 }
@@ -66,7 +66,7 @@ public class ByteBufferBytesReference implements BytesReference {
 
     @Override
     public StreamInput streamInput() {
-        return new ByteBufferStreamInput(buffer);
+        return new ByteBufferStreamInput(buffer.duplicate());
     }
 
     @Override
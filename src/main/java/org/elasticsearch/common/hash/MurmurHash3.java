@@ -0,0 +1,185 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.hash;
+
+/**
+ * MurmurHash3 hashing functions.
+ */
+public enum MurmurHash3 {
+    ;
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    /**
+     * A 128-bits hash.
+     */
+    public static class Hash128 {
+        /** lower 64 bits part **/
+        public long h1;
+        /** higher 64 bits part **/
+        public long h2;
+    }
+
+    private static long getblock(byte[] key, int offset, int index) {
+        int i_8 = index << 3;
+        int blockOffset = offset + i_8;
+        return ((long) key[blockOffset + 0] & 0xff) + (((long) key[blockOffset + 1] & 0xff) << 8) +
+                (((long) key[blockOffset + 2] & 0xff) << 16) + (((long) key[blockOffset + 3] & 0xff) << 24) +
+                (((long) key[blockOffset + 4] & 0xff) << 32) + (((long) key[blockOffset + 5] & 0xff) << 40) +
+                (((long) key[blockOffset + 6] & 0xff) << 48) + (((long) key[blockOffset + 7] & 0xff) << 56);
+    }
+
+    /**
+     * The final mix of MurmurHash3, which is a good enough 64-bits hash function on its own and can be used to hash
+     * numeric values.
+     */
+    public static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * Compute the hash of the MurmurHash3_x64_128 hashing function.
+     */
+    public static Hash128 hash128(byte[] key, int offset, int length, long seed, Hash128 hash) {
+        hash128(key, offset, length, seed, false, hash);
+        return hash;
+    }
+
+    /**
+     * The lower 64 bits of {@link #hash128(byte[], int, int, long, Hash128)}, except that the bytes of the tail (the last
+     * <tt>length % 16</tt> bytes) are sign extended. This is how the bloom filters of the postings format have always
+     * hashed their terms, since their hashes are persisted it must not change.
+     */
+    public static long hash64SignExtendedTail(byte[] key, int offset, int length, long seed) {
+        return hash128(key, offset, length, seed, true, null);
+    }
+
+    private static long tailByte(byte b, boolean signExtend) {
+        return signExtend ? (long) b : (long) b & 0xff;
+    }
+
+    /**
+     * Returns the lower 64 bits of the hash, and fills <tt>hash</tt> with the whole hash if it is not <tt>null</tt>.
+     */
+    private static long hash128(byte[] key, int offset, int length, long seed, boolean signExtendTail, Hash128 hash) {
+        long h1 = seed;
+        long h2 = seed;
+
+        if (length >= 16) {
+            final int len16 = length & 0xFFFFFFF0; // higher multiple of 16 that is lower than or equal to length
+            final int end = offset + len16;
+            for (int i = offset; i < end; i += 16) {
+                long k1 = getblock(key, i, 0);
+                long k2 = getblock(key, i, 1);
+
+                k1 *= C1;
+                k1 = Long.rotateLeft(k1, 31);
+                k1 *= C2;
+                h1 ^= k1;
+
+                h1 = Long.rotateLeft(h1, 27);
+                h1 += h2;
+                h1 = h1 * 5 + 0x52dce729;
+
+                k2 *= C2;
+                k2 = Long.rotateLeft(k2, 33);
+                k2 *= C1;
+                h2 ^= k2;
+
+                h2 = Long.rotateLeft(h2, 31);
+                h2 += h1;
+                h2 = h2 * 5 + 0x38495ab5;
+            }
+        }
+
+        // Advance offset to the unprocessed tail of the data.
+        offset += length & 0xFFFFFFF0; // higher multiple of 16 that is lower than or equal to length
+
+        long k1 = 0;
+        long k2 = 0;
+
+        switch (length & 15) {
+            case 15:
+                k2 ^= tailByte(key[offset + 14], signExtendTail) << 48;
+            case 14:
+                k2 ^= tailByte(key[offset + 13], signExtendTail) << 40;
+            case 13:
+                k2 ^= tailByte(key[offset + 12], signExtendTail) << 32;
+            case 12:
+                k2 ^= tailByte(key[offset + 11], signExtendTail) << 24;
+            case 11:
+                k2 ^= tailByte(key[offset + 10], signExtendTail) << 16;
+            case 10:
+                k2 ^= tailByte(key[offset + 9], signExtendTail) << 8;
+            case 9:
+                k2 ^= tailByte(key[offset + 8], signExtendTail) << 0;
+                k2 *= C2;
+                k2 = Long.rotateLeft(k2, 33);
+                k2 *= C1;
+                h2 ^= k2;
+
+            case 8:
+                k1 ^= tailByte(key[offset + 7], signExtendTail) << 56;
+            case 7:
+                k1 ^= tailByte(key[offset + 6], signExtendTail) << 48;
+            case 6:
+                k1 ^= tailByte(key[offset + 5], signExtendTail) << 40;
+            case 5:
+                k1 ^= tailByte(key[offset + 4], signExtendTail) << 32;
+            case 4:
+                k1 ^= tailByte(key[offset + 3], signExtendTail) << 24;
+            case 3:
+                k1 ^= tailByte(key[offset + 2], signExtendTail) << 16;
+            case 2:
+                k1 ^= tailByte(key[offset + 1], signExtendTail) << 8;
+            case 1:
+                k1 ^= tailByte(key[offset], signExtendTail);
+                k1 *= C1;
+                k1 = Long.rotateLeft(k1, 31);
+                k1 *= C2;
+                h1 ^= k1;
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+
+        h1 += h2;
+        h2 += h1;
+
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+
+        h1 += h2;
+        h2 += h1;
+
+        if (hash != null) {
+            hash.h1 = h1;
+            hash.h2 = h2;
+        }
+        return h1;
+    }
+
+}
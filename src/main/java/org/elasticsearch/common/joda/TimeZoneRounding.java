@@ -30,6 +30,15 @@ public abstract class TimeZoneRounding {
 
     public abstract long calc(long utcMillis);
 
+    /**
+     * Whether {@link #calc(long)} never decreases when its argument increases. When it is the case, the
+     * values that round to the same key form a contiguous range, so the rounding of a value can be resolved
+     * by looking up precomputed boundaries.
+     */
+    public boolean isMonotonic() {
+        return false;
+    }
+
     public static Builder builder(DateTimeField field) {
         return new Builder(field);
     }
@@ -158,6 +167,11 @@ public abstract class TimeZoneRounding {
         public long calc(long utcMillis) {
             return field.roundFloor(utcMillis);
         }
+
+        @Override
+        public boolean isMonotonic() {
+            return true;
+        }
     }
 
     static class DayTimeZoneRoundingFloor extends TimeZoneRounding {
@@ -194,6 +208,11 @@ public abstract class TimeZoneRounding {
         public long calc(long utcMillis) {
             return ((utcMillis / interval) * interval);
         }
+
+        @Override
+        public boolean isMonotonic() {
+            return true;
+        }
     }
 
 
@@ -259,6 +278,11 @@ public abstract class TimeZoneRounding {
         public long calc(long utcMillis) {
             return timeZoneRounding.calc((long) (factor * utcMillis));
         }
+
+        @Override
+        public boolean isMonotonic() {
+            return factor > 0 && timeZoneRounding.isMonotonic();
+        }
     }
 
     static class PrePostTimeZoneRounding extends TimeZoneRounding {
@@ -278,5 +302,10 @@ public abstract class TimeZoneRounding {
         public long calc(long utcMillis) {
             return postOffset + timeZoneRounding.calc(utcMillis + preOffset);
         }
+
+        @Override
+        public boolean isMonotonic() {
+            return timeZoneRounding.isMonotonic();
+        }
     }
 }
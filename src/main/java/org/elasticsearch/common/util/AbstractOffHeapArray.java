@@ -0,0 +1,90 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.util;
+
+import org.apache.lucene.store.bytebuffer.ByteBufferAllocator;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Common implementation for arrays that live outside of the Java heap, in direct byte buffers sliced into
+ * fixed-size pages. The memory is released as soon as {@link #close()} is called, so the array must not be
+ * accessed anymore after that.
+ */
+abstract class AbstractOffHeapArray {
+
+    static final int PAGE_SHIFT = 20;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    protected final ByteBuffer[] pages;
+    private final long sizeInBytes;
+    private boolean closed;
+
+    protected AbstractOffHeapArray(long sizeInBytes) {
+        this.sizeInBytes = sizeInBytes;
+        final long numPages = (sizeInBytes + PAGE_MASK) >>> PAGE_SHIFT;
+        if (numPages > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Can't allocate " + sizeInBytes + " bytes off heap");
+        }
+        pages = new ByteBuffer[(int) numPages];
+        try {
+            for (int i = 0; i < pages.length; ++i) {
+                // the last page is only as large as needed
+                final int pageSize = i == pages.length - 1 ? (int) (sizeInBytes - ((long) i << PAGE_SHIFT)) : PAGE_SIZE;
+                pages[i] = ByteBuffer.allocateDirect(pageSize).order(ByteOrder.nativeOrder());
+            }
+        } catch (OutOfMemoryError e) {
+            close();
+            throw e;
+        }
+    }
+
+    static int pageIndex(long byteIndex) {
+        return (int) (byteIndex >>> PAGE_SHIFT);
+    }
+
+    static int indexInPage(long byteIndex) {
+        return (int) (byteIndex & PAGE_MASK);
+    }
+
+    /**
+     * The number of bytes allocated off heap for this array.
+     */
+    public final long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * Releases the memory of this array. Calling this method more than once is a no-op.
+     */
+    public final synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (int i = 0; i < pages.length; ++i) {
+            if (pages[i] != null) {
+                ByteBufferAllocator.Cleaner.clean(pages[i]);
+                pages[i] = null;
+            }
+        }
+    }
+}
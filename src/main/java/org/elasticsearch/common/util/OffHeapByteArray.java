@@ -0,0 +1,82 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.util;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A byte array stored off heap. Reads copy the bytes into a {@link BytesRef} since the
+ * data can't be referenced directly from the Java heap.
+ */
+public final class OffHeapByteArray extends AbstractOffHeapArray {
+
+    public OffHeapByteArray(long size) {
+        super(size);
+    }
+
+    public long size() {
+        return sizeInBytes();
+    }
+
+    /**
+     * Write <code>len</code> bytes from <code>buf</code> at <code>index</code>.
+     */
+    public void set(long index, byte[] buf, int offset, int len) {
+        assert index >= 0 && index + len <= size();
+        while (len > 0) {
+            final ByteBuffer page = pages[pageIndex(index)];
+            final int indexInPage = indexInPage(index);
+            final int chunk = Math.min(len, page.capacity() - indexInPage);
+            for (int i = 0; i < chunk; ++i) {
+                page.put(indexInPage + i, buf[offset + i]);
+            }
+            index += chunk;
+            offset += chunk;
+            len -= chunk;
+        }
+    }
+
+    /**
+     * Fill <code>ref</code> with the <code>len</code> bytes stored at <code>index</code>, growing its
+     * array if needed.
+     */
+    public void get(long index, int len, BytesRef ref) {
+        assert index >= 0 && index + len <= size();
+        if (ref.bytes.length < len) {
+            ref.bytes = new byte[ArrayUtil.oversize(len, 1)];
+        }
+        ref.offset = 0;
+        ref.length = len;
+        int offset = 0;
+        while (len > 0) {
+            final ByteBuffer page = pages[pageIndex(index)];
+            final int indexInPage = indexInPage(index);
+            final int chunk = Math.min(len, page.capacity() - indexInPage);
+            for (int i = 0; i < chunk; ++i) {
+                ref.bytes[offset + i] = page.get(indexInPage + i);
+            }
+            index += chunk;
+            offset += chunk;
+            len -= chunk;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.util;
+
+import org.apache.lucene.util.packed.PackedInts;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An array of non-negative longs stored off heap, using 1, 2, 4 or 8 bytes per value depending on the
+ * largest value it needs to hold. Values never straddle two pages since the page size is a multiple of
+ * the number of bytes per value.
+ */
+public final class OffHeapLongArray extends AbstractOffHeapArray {
+
+    private final long size;
+    private final int shift;
+
+    /**
+     * Create a new array of <code>size</code> values in <code>[0, maxValue]</code>. A negative
+     * <code>maxValue</code> means that the values can use all 64 bits.
+     */
+    public OffHeapLongArray(long size, long maxValue) {
+        super(size << shiftFor(maxValue));
+        this.size = size;
+        this.shift = shiftFor(maxValue);
+    }
+
+    private static int shiftFor(long maxValue) {
+        final int bitsRequired = maxValue < 0 ? 64 : PackedInts.bitsRequired(maxValue);
+        if (bitsRequired <= 8) {
+            return 0;
+        } else if (bitsRequired <= 16) {
+            return 1;
+        } else if (bitsRequired <= 32) {
+            return 2;
+        } else {
+            return 3;
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * The number of bytes used per value.
+     */
+    public int bytesPerValue() {
+        return 1 << shift;
+    }
+
+    public long get(long index) {
+        assert index >= 0 && index < size;
+        final long byteIndex = index << shift;
+        final ByteBuffer page = pages[pageIndex(byteIndex)];
+        final int offset = indexInPage(byteIndex);
+        switch (shift) {
+            case 0:
+                return page.get(offset) & 0xFFL;
+            case 1:
+                return page.getShort(offset) & 0xFFFFL;
+            case 2:
+                return page.getInt(offset) & 0xFFFFFFFFL;
+            default:
+                return page.getLong(offset);
+        }
+    }
+
+    public void set(long index, long value) {
+        assert index >= 0 && index < size;
+        assert shift == 3 || (value >>> (8 << shift)) == 0 : "value " + value + " needs more than " + (1 << shift) + " bytes";
+        final long byteIndex = index << shift;
+        final ByteBuffer page = pages[pageIndex(byteIndex)];
+        final int offset = indexInPage(byteIndex);
+        switch (shift) {
+            case 0:
+                page.put(offset, (byte) value);
+                break;
+            case 1:
+                page.putShort(offset, (short) value);
+                break;
+            case 2:
+                page.putInt(offset, (int) value);
+                break;
+            default:
+                page.putLong(offset, value);
+        }
+    }
+}
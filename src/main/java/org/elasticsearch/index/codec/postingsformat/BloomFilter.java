@@ -26,6 +26,7 @@ import org.apache.lucene.store.DataOutput;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.hash.MurmurHash3;
 import org.elasticsearch.common.unit.SizeValue;
 
 import java.io.IOException;
@@ -204,7 +205,7 @@ public class BloomFilter {
     }
 
     public boolean put(BytesRef value) {
-        long hash64 = hash3_x64_128(value.bytes, value.offset, value.length, 0);
+        long hash64 = MurmurHash3.hash64SignExtendedTail(value.bytes, value.offset, value.length, 0);
         int hash1 = (int) hash64;
         int hash2 = (int) (hash64 >>> 32);
         boolean bitsChanged = false;
@@ -219,7 +220,7 @@ public class BloomFilter {
     }
 
     public boolean mightContain(BytesRef value) {
-        long hash64 = hash3_x64_128(value.bytes, value.offset, value.length, 0);
+        long hash64 = MurmurHash3.hash64SignExtendedTail(value.bytes, value.offset, value.length, 0);
         int hash1 = (int) hash64;
         int hash2 = (int) (hash64 >>> 32);
         for (int i = 1; i <= numHashFunctions; i++) {
@@ -300,139 +301,6 @@ public class BloomFilter {
         return (long) (-n * Math.log(p) / (Math.log(2) * Math.log(2)));
     }
 
-    // START : MURMUR 3_128
-
-    protected static long getblock(byte[] key, int offset, int index) {
-        int i_8 = index << 3;
-        int blockOffset = offset + i_8;
-        return ((long) key[blockOffset + 0] & 0xff) + (((long) key[blockOffset + 1] & 0xff) << 8) +
-                (((long) key[blockOffset + 2] & 0xff) << 16) + (((long) key[blockOffset + 3] & 0xff) << 24) +
-                (((long) key[blockOffset + 4] & 0xff) << 32) + (((long) key[blockOffset + 5] & 0xff) << 40) +
-                (((long) key[blockOffset + 6] & 0xff) << 48) + (((long) key[blockOffset + 7] & 0xff) << 56);
-    }
-
-    protected static long rotl64(long v, int n) {
-        return ((v << n) | (v >>> (64 - n)));
-    }
-
-    protected static long fmix(long k) {
-        k ^= k >>> 33;
-        k *= 0xff51afd7ed558ccdL;
-        k ^= k >>> 33;
-        k *= 0xc4ceb9fe1a85ec53L;
-        k ^= k >>> 33;
-
-        return k;
-    }
-
-    public static long hash3_x64_128(byte[] key, int offset, int length, long seed) {
-        final int nblocks = length >> 4; // Process as 128-bit blocks.
-
-        long h1 = seed;
-        long h2 = seed;
-
-        long c1 = 0x87c37b91114253d5L;
-        long c2 = 0x4cf5ad432745937fL;
-
-        //----------
-        // body
-
-        for (int i = 0; i < nblocks; i++) {
-            long k1 = getblock(key, offset, i * 2 + 0);
-            long k2 = getblock(key, offset, i * 2 + 1);
-
-            k1 *= c1;
-            k1 = rotl64(k1, 31);
-            k1 *= c2;
-            h1 ^= k1;
-
-            h1 = rotl64(h1, 27);
-            h1 += h2;
-            h1 = h1 * 5 + 0x52dce729;
-
-            k2 *= c2;
-            k2 = rotl64(k2, 33);
-            k2 *= c1;
-            h2 ^= k2;
-
-            h2 = rotl64(h2, 31);
-            h2 += h1;
-            h2 = h2 * 5 + 0x38495ab5;
-        }
-
-        //----------
-        // tail
-
-        // Advance offset to the unprocessed tail of the data.
-        offset += nblocks * 16;
-
-        long k1 = 0;
-        long k2 = 0;
-
-        switch (length & 15) {
-            case 15:
-                k2 ^= ((long) key[offset + 14]) << 48;
-            case 14:
-                k2 ^= ((long) key[offset + 13]) << 40;
-            case 13:
-                k2 ^= ((long) key[offset + 12]) << 32;
-            case 12:
-                k2 ^= ((long) key[offset + 11]) << 24;
-            case 11:
-                k2 ^= ((long) key[offset + 10]) << 16;
-            case 10:
-                k2 ^= ((long) key[offset + 9]) << 8;
-            case 9:
-                k2 ^= ((long) key[offset + 8]) << 0;
-                k2 *= c2;
-                k2 = rotl64(k2, 33);
-                k2 *= c1;
-                h2 ^= k2;
-
-            case 8:
-                k1 ^= ((long) key[offset + 7]) << 56;
-            case 7:
-                k1 ^= ((long) key[offset + 6]) << 48;
-            case 6:
-                k1 ^= ((long) key[offset + 5]) << 40;
-            case 5:
-                k1 ^= ((long) key[offset + 4]) << 32;
-            case 4:
-                k1 ^= ((long) key[offset + 3]) << 24;
-            case 3:
-                k1 ^= ((long) key[offset + 2]) << 16;
-            case 2:
-                k1 ^= ((long) key[offset + 1]) << 8;
-            case 1:
-                k1 ^= ((long) key[offset]);
-                k1 *= c1;
-                k1 = rotl64(k1, 31);
-                k1 *= c2;
-                h1 ^= k1;
-        }
-
-        //----------
-        // finalization
-
-        h1 ^= length;
-        h2 ^= length;
-
-        h1 += h2;
-        h2 += h1;
-
-        h1 = fmix(h1);
-        h2 = fmix(h2);
-
-        h1 += h2;
-        h2 += h1;
-
-        //return (new long[]{h1, h2});
-        // SAME AS GUAVA, they take the first long out of the 128bit
-        return h1;
-    }
-
-    // END: MURMUR 3_128
-
     // Note: We use this instead of java.util.BitSet because we need access to the long[] data field
     static class BitArray {
         final long[] data;
@@ -0,0 +1,323 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.codec.postingsformat;
+
+import org.apache.lucene.codecs.*;
+import org.apache.lucene.index.*;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
+import org.elasticsearch.index.fielddata.ordinals.OrdinalsBuilder;
+import org.elasticsearch.index.fielddata.ordinals.PersistedOrdinals;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * A {@link PostingsFormat} that computes the field data ordinals of every field when a segment is
+ * flushed or merged and stores them in an additional ".ord" file next to the postings. All other
+ * postings data is written by a delegate {@link PostingsFormat}.
+ * <p/>
+ * The terms returned for a field are {@link PersistedOrdinalsTerms}, which field data uses to read
+ * the ordinals back instead of rebuilding them from the postings of every term. Ordinals are
+ * computed the same way as field data does, term ordinals are assigned in term order, starting at
+ * 1 and including deleted documents, so that both approaches give the same ordinals.
+ */
+public final class PersistedOrdinalsPostingsFormat extends PostingsFormat {
+
+    public static final String ORDINALS_CODEC_NAME = "XPersistedOrdinals";
+    public static final int ORDINALS_CODEC_VERSION = 1;
+
+    /**
+     * Extension of the ordinals file
+     */
+    static final String ORDINALS_EXTENSION = "ord";
+
+    private PostingsFormat delegatePostingsFormat;
+
+    /**
+     * @param delegatePostingsFormat The PostingsFormat that records the postings.
+     */
+    public PersistedOrdinalsPostingsFormat(PostingsFormat delegatePostingsFormat) {
+        super(ORDINALS_CODEC_NAME);
+        this.delegatePostingsFormat = delegatePostingsFormat;
+    }
+
+    // Used only by core Lucene at read-time via Service Provider instantiation -
+    // do not use at Write-time in application code.
+    public PersistedOrdinalsPostingsFormat() {
+        super(ORDINALS_CODEC_NAME);
+    }
+
+    @Override
+    public FieldsConsumer fieldsConsumer(SegmentWriteState state) throws IOException {
+        if (delegatePostingsFormat == null) {
+            throw new UnsupportedOperationException("Error - " + getClass().getName()
+                    + " has been constructed without a choice of PostingsFormat");
+        }
+        return new OrdinalsFieldsConsumer(delegatePostingsFormat.fieldsConsumer(state), state);
+    }
+
+    @Override
+    public FieldsProducer fieldsProducer(SegmentReadState state) throws IOException {
+        return new OrdinalsFieldsProducer(state);
+    }
+
+    public PostingsFormat getDelegate() {
+        return this.delegatePostingsFormat;
+    }
+
+    static final class OrdinalsFieldsProducer extends FieldsProducer {
+
+        private final FieldsProducer delegateFieldsProducer;
+        private final IndexInput ordinalsIn;
+        private final Map<String, Long> ordinalsPointers = new HashMap<String, Long>();
+
+        OrdinalsFieldsProducer(SegmentReadState state) throws IOException {
+            final String ordinalsFileName = IndexFileNames.segmentFileName(
+                    state.segmentInfo.name, state.segmentSuffix, ORDINALS_EXTENSION);
+            IndexInput in = null;
+            FieldsProducer delegate = null;
+            boolean success = false;
+            try {
+                in = state.directory.openInput(ordinalsFileName, state.context);
+                CodecUtil.checkHeader(in, ORDINALS_CODEC_NAME, ORDINALS_CODEC_VERSION, ORDINALS_CODEC_VERSION);
+                delegate = PostingsFormat.forName(in.readString()).fieldsProducer(state);
+                // the pointers of the ordinals of every field are stored at the end of the file
+                in.seek(in.length() - RamUsageEstimator.NUM_BYTES_LONG);
+                in.seek(in.readLong());
+                final int numFields = in.readVInt();
+                for (int i = 0; i < numFields; i++) {
+                    final FieldInfo fieldInfo = state.fieldInfos.fieldInfo(in.readVInt());
+                    ordinalsPointers.put(fieldInfo.name, in.readVLong());
+                }
+                success = true;
+            } finally {
+                if (!success) {
+                    IOUtils.closeWhileHandlingException(in, delegate);
+                }
+            }
+            this.ordinalsIn = in;
+            this.delegateFieldsProducer = delegate;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return delegateFieldsProducer.iterator();
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOUtils.close(ordinalsIn, delegateFieldsProducer);
+        }
+
+        @Override
+        public Terms terms(String field) throws IOException {
+            final Terms result = delegateFieldsProducer.terms(field);
+            final Long ordinalsPointer = ordinalsPointers.get(field);
+            if (result == null || ordinalsPointer == null) {
+                return result;
+            }
+            return new PersistedOrdinalsTerms(result, ordinalsIn, ordinalsPointer);
+        }
+
+        @Override
+        public int size() {
+            return delegateFieldsProducer.size();
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return delegateFieldsProducer.ramBytesUsed() + RamUsageEstimator.sizeOf(this);
+        }
+    }
+
+    /**
+     * {@link Terms} of a field whose ordinals have been persisted when the segment was written.
+     */
+    public static final class PersistedOrdinalsTerms extends FilterAtomicReader.FilterTerms {
+
+        private final IndexInput ordinalsIn;
+        private final long ordinalsPointer;
+
+        PersistedOrdinalsTerms(Terms in, IndexInput ordinalsIn, long ordinalsPointer) {
+            super(in);
+            this.ordinalsIn = ordinalsIn;
+            this.ordinalsPointer = ordinalsPointer;
+        }
+
+        /**
+         * Reads the persisted ordinals of this field, ordinals follow the order of the terms of
+         * this field and start at 1.
+         */
+        public Ordinals loadOrdinals(Settings settings) throws IOException {
+            // clone so that concurrent loads don't share the file pointer
+            final IndexInput in = ordinalsIn.clone();
+            in.seek(ordinalsPointer);
+            return PersistedOrdinals.read(in, settings);
+        }
+    }
+
+    final class OrdinalsFieldsConsumer extends FieldsConsumer {
+
+        private final FieldsConsumer delegateFieldsConsumer;
+        private final SegmentWriteState state;
+        private final IndexOutput ordinalsOut;
+        private final Map<FieldInfo, Long> ordinalsPointers = new LinkedHashMap<FieldInfo, Long>();
+
+        OrdinalsFieldsConsumer(FieldsConsumer fieldsConsumer, SegmentWriteState state) throws IOException {
+            this.delegateFieldsConsumer = fieldsConsumer;
+            this.state = state;
+            final String ordinalsFileName = IndexFileNames.segmentFileName(
+                    state.segmentInfo.name, state.segmentSuffix, ORDINALS_EXTENSION);
+            boolean success = false;
+            IndexOutput out = null;
+            try {
+                out = state.directory.createOutput(ordinalsFileName, state.context);
+                CodecUtil.writeHeader(out, ORDINALS_CODEC_NAME, ORDINALS_CODEC_VERSION);
+                // remember the name of the postings format we will delegate to
+                out.writeString(delegatePostingsFormat.getName());
+                success = true;
+            } finally {
+                if (!success) {
+                    IOUtils.closeWhileHandlingException(out, fieldsConsumer);
+                }
+            }
+            this.ordinalsOut = out;
+        }
+
+        @Override
+        public TermsConsumer addField(FieldInfo field) throws IOException {
+            final OrdinalsBuilder builder = new OrdinalsBuilder(state.segmentInfo.getDocCount());
+            return new OrdinalsTermsConsumer(delegateFieldsConsumer.addField(field), field, builder);
+        }
+
+        void writeOrdinals(FieldInfo field, OrdinalsBuilder builder) throws IOException {
+            ordinalsPointers.put(field, ordinalsOut.getFilePointer());
+            PersistedOrdinals.write(builder, ordinalsOut);
+        }
+
+        @Override
+        public void close() throws IOException {
+            boolean success = false;
+            try {
+                delegateFieldsConsumer.close();
+                final long pointersStart = ordinalsOut.getFilePointer();
+                ordinalsOut.writeVInt(ordinalsPointers.size());
+                for (Map.Entry<FieldInfo, Long> entry : ordinalsPointers.entrySet()) {
+                    ordinalsOut.writeVInt(entry.getKey().number);
+                    ordinalsOut.writeVLong(entry.getValue());
+                }
+                ordinalsOut.writeLong(pointersStart);
+                success = true;
+            } finally {
+                if (success) {
+                    IOUtils.close(ordinalsOut);
+                } else {
+                    IOUtils.closeWhileHandlingException(ordinalsOut);
+                }
+            }
+        }
+
+        final class OrdinalsTermsConsumer extends TermsConsumer {
+
+            private final TermsConsumer delegateTermsConsumer;
+            private final FieldInfo field;
+            private final OrdinalsBuilder builder;
+            private final OrdinalsPostingsConsumer postingsConsumer = new OrdinalsPostingsConsumer();
+
+            OrdinalsTermsConsumer(TermsConsumer termsConsumer, FieldInfo field, OrdinalsBuilder builder) {
+                this.delegateTermsConsumer = termsConsumer;
+                this.field = field;
+                this.builder = builder;
+            }
+
+            @Override
+            public PostingsConsumer startTerm(BytesRef text) throws IOException {
+                postingsConsumer.reset(delegateTermsConsumer.startTerm(text));
+                return postingsConsumer;
+            }
+
+            @Override
+            public void finishTerm(BytesRef text, TermStats stats) throws IOException {
+                // a term only gets an ordinal if it makes it to the terms dictionary
+                assert stats.docFreq == postingsConsumer.numDocs;
+                builder.nextOrdinal();
+                for (int i = 0; i < postingsConsumer.numDocs; i++) {
+                    builder.addDoc(postingsConsumer.docs[i]);
+                }
+                delegateTermsConsumer.finishTerm(text, stats);
+            }
+
+            @Override
+            public void finish(long sumTotalTermFreq, long sumDocFreq, int docCount) throws IOException {
+                try {
+                    delegateTermsConsumer.finish(sumTotalTermFreq, sumDocFreq, docCount);
+                    writeOrdinals(field, builder);
+                } finally {
+                    builder.close();
+                }
+            }
+
+            @Override
+            public Comparator<BytesRef> getComparator() throws IOException {
+                return delegateTermsConsumer.getComparator();
+            }
+        }
+    }
+
+    /**
+     * Buffers the documents of the current term, since the term only gets an ordinal once it is
+     * known to be finished.
+     */
+    static final class OrdinalsPostingsConsumer extends PostingsConsumer {
+
+        private PostingsConsumer delegatePostingsConsumer;
+        int[] docs = new int[16];
+        int numDocs;
+
+        void reset(PostingsConsumer postingsConsumer) {
+            this.delegatePostingsConsumer = postingsConsumer;
+            this.numDocs = 0;
+        }
+
+        @Override
+        public void startDoc(int docID, int freq) throws IOException {
+            docs = ArrayUtil.grow(docs, numDocs + 1);
+            docs[numDocs++] = docID;
+            delegatePostingsConsumer.startDoc(docID, freq);
+        }
+
+        @Override
+        public void addPosition(int position, BytesRef payload, int startOffset, int endOffset) throws IOException {
+            delegatePostingsConsumer.addPosition(position, payload, startOffset, endOffset);
+        }
+
+        @Override
+        public void finishDoc() throws IOException {
+            delegatePostingsConsumer.finishDoc();
+        }
+    }
+}
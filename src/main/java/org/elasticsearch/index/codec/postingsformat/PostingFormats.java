@@ -51,6 +51,10 @@ import org.elasticsearch.common.collect.MapBuilder;
  * <li><b>bloom_pulsing</b>: a postings format that combines the advantages of
  * <b>bloom</b> and <b>pulsing</b> to further improve lookup performance</li>
  * <p/>
+ * <li><b>persisted_ordinals</b>: a postings format that computes field data
+ * ordinals when segments are flushed or merged and stores them on disk, so
+ * that loading field data doesn't need to rebuild them from the postings</li>
+ * <p/>
  * <li><b>default</b>: the default Elasticsearch postings format offering best
  * general purpose performance. This format is used if no postings format is
  * specified in the field mapping.</li>
@@ -75,6 +79,7 @@ public class PostingFormats {
 
         buildInPostingFormatsX.put("bloom_pulsing", new PreBuiltPostingsFormatProvider.Factory("bloom_pulsing", wrapInBloom(PostingsFormat.forName("Pulsing41"))));
         buildInPostingFormatsX.put("bloom_default", new PreBuiltPostingsFormatProvider.Factory("bloom_default", wrapInBloom(PostingsFormat.forName("Lucene41"))));
+        buildInPostingFormatsX.put("persisted_ordinals", new PreBuiltPostingsFormatProvider.Factory("persisted_ordinals", new PersistedOrdinalsPostingsFormat(PostingsFormat.forName("Lucene41"))));
 
         builtInPostingFormats = buildInPostingFormatsX.immutableMap();
     }
@@ -379,6 +379,8 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
         private long version = Versions.MATCH_ANY;
         private VersionType versionType = VersionType.INTERNAL;
         private Origin origin = Origin.PRIMARY;
+        private long autoGeneratedIdTimestamp = -1;
+        private boolean canHaveDuplicates = false;
 
         private long startTime;
         private long endTime;
@@ -461,6 +463,30 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
             return this.doc.parent();
         }
 
+        /**
+         * The time the id of the document was generated at, <tt>-1</tt> if the id was not auto generated.
+         */
+        public long autoGeneratedIdTimestamp() {
+            return this.autoGeneratedIdTimestamp;
+        }
+
+        public Create autoGeneratedIdTimestamp(long autoGeneratedIdTimestamp) {
+            this.autoGeneratedIdTimestamp = autoGeneratedIdTimestamp;
+            return this;
+        }
+
+        /**
+         * <tt>true</tt> if the operation is a retry, and so might have been applied already.
+         */
+        public boolean canHaveDuplicates() {
+            return this.canHaveDuplicates;
+        }
+
+        public Create canHaveDuplicates(boolean canHaveDuplicates) {
+            this.canHaveDuplicates = canHaveDuplicates;
+            return this;
+        }
+
         @Override
         public List<Document> docs() {
             return this.doc.docs();
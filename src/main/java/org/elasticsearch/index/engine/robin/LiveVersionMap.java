@@ -0,0 +1,152 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine.robin;
+
+import com.carrotsearch.hppc.ObjectObjectOpenHashMap;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.cluster.routing.operation.hash.djb.DjbHashFunction;
+import org.elasticsearch.common.metrics.CounterMetric;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps the uids of documents changed since the last refresh to their latest {@link RobinEngine.VersionValue}.
+ * <p/>
+ * The map is split into stripes, each one an open addressed hash map guarded by its own monitor. The stripe
+ * monitor is also the per uid lock the engine holds while it resolves and applies a version, so that a
+ * lookup and the update that follows it happen atomically without a second lock. Keys are copied once when
+ * a uid is first added and reused on later updates of the same uid.
+ * <p/>
+ * The (approximate) memory used by the entries is reported to the provided {@link CounterMetric}.
+ */
+final class LiveVersionMap {
+
+    // the BytesRef key and its array header, the VersionValue and the key/value slots in the hash table
+    static final long BYTES_PER_ENTRY = RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + RamUsageEstimator.NUM_BYTES_OBJECT_REF + 2 * RamUsageEstimator.NUM_BYTES_INT
+            + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER
+            + RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + 2 * RamUsageEstimator.NUM_BYTES_LONG + 1 + RamUsageEstimator.NUM_BYTES_OBJECT_REF
+            + 2 * RamUsageEstimator.NUM_BYTES_OBJECT_REF + 1;
+
+    private static final class Stripe {
+        final ObjectObjectOpenHashMap<BytesRef, RobinEngine.VersionValue> map = new ObjectObjectOpenHashMap<BytesRef, RobinEngine.VersionValue>();
+    }
+
+    private final Stripe[] stripes;
+
+    private final CounterMetric ramBytesUsed;
+
+    LiveVersionMap(int numberOfStripes, CounterMetric ramBytesUsed) {
+        this.stripes = new Stripe[numberOfStripes];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.ramBytesUsed = ramBytesUsed;
+    }
+
+    /**
+     * Returns the lock guarding the provided uid. Operations on a uid should be done while holding its lock.
+     */
+    Object lock(BytesRef uid) {
+        return stripe(uid);
+    }
+
+    RobinEngine.VersionValue get(BytesRef uid) {
+        Stripe stripe = stripe(uid);
+        synchronized (stripe) {
+            return stripe.map.get(uid);
+        }
+    }
+
+    void put(BytesRef uid, RobinEngine.VersionValue versionValue) {
+        Stripe stripe = stripe(uid);
+        synchronized (stripe) {
+            if (stripe.map.containsKey(uid)) {
+                stripe.map.lset(versionValue);
+            } else {
+                stripe.map.put(BytesRef.deepCopyOf(uid), versionValue);
+                ramBytesUsed.inc(BYTES_PER_ENTRY + uid.length);
+            }
+        }
+    }
+
+    /**
+     * Removes the values that were added before the provided time. Deletes are kept around until they are older
+     * than <tt>gcDeletesInMillis</tt>, and only if <tt>gcDeletes</tt> is set.
+     */
+    void prune(long time, boolean gcDeletes, long gcDeletesInMillis) {
+        List<BytesRef> toRemove = new ArrayList<BytesRef>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                final ObjectObjectOpenHashMap<BytesRef, RobinEngine.VersionValue> map = stripe.map;
+                if (map.isEmpty()) {
+                    continue;
+                }
+                final boolean[] allocated = map.allocated;
+                final Object[] keys = map.keys;
+                final Object[] values = map.values;
+                for (int i = 0; i < allocated.length; i++) {
+                    if (!allocated[i]) {
+                        continue;
+                    }
+                    RobinEngine.VersionValue versionValue = (RobinEngine.VersionValue) values[i];
+                    if (time - versionValue.time() <= 0) {
+                        continue; // its a newer value, from after/during we refreshed, don't clear it
+                    }
+                    if (!versionValue.delete() || (gcDeletes && (time - versionValue.time()) > gcDeletesInMillis)) {
+                        toRemove.add((BytesRef) keys[i]);
+                    }
+                }
+                for (BytesRef uid : toRemove) {
+                    stripe.map.remove(uid);
+                    ramBytesUsed.dec(BYTES_PER_ENTRY + uid.length);
+                }
+                toRemove.clear();
+            }
+        }
+    }
+
+    void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                long released = 0;
+                final boolean[] allocated = stripe.map.allocated;
+                final Object[] keys = stripe.map.keys;
+                for (int i = 0; i < allocated.length; i++) {
+                    if (allocated[i]) {
+                        released += BYTES_PER_ENTRY + ((BytesRef) keys[i]).length;
+                    }
+                }
+                stripe.map.clear();
+                ramBytesUsed.dec(released);
+            }
+        }
+    }
+
+    private Stripe stripe(BytesRef uid) {
+        int hash = DjbHashFunction.DJB_HASH(uid.bytes, uid.offset, uid.length);
+        // abs returns Integer.MIN_VALUE, so we need to protect against it...
+        if (hash == Integer.MIN_VALUE) {
+            hash = 0;
+        }
+        return stripes[Math.abs(hash) % stripes.length];
+    }
+}
@@ -22,6 +22,7 @@ package org.elasticsearch.index.engine.robin;
 import com.google.common.collect.Lists;
 import org.apache.lucene.index.*;
 import org.apache.lucene.index.IndexWriter.IndexReaderWarmer;
+import org.apache.lucene.index.sorter.SortingMergePolicy;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SearcherFactory;
@@ -32,12 +33,12 @@ import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.ElasticSearchIllegalStateException;
-import org.elasticsearch.cluster.routing.operation.hash.djb.DjbHashFunction;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Preconditions;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.inject.Inject;
-import org.elasticsearch.common.lucene.HashedBytesRef;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.search.XFilteredQuery;
 import org.elasticsearch.common.lucene.uid.Versions;
@@ -45,7 +46,6 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
-import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.analysis.AnalysisService;
@@ -58,6 +58,7 @@ import org.elasticsearch.index.mapper.Uid;
 import org.elasticsearch.index.merge.OnGoingMerge;
 import org.elasticsearch.index.merge.policy.IndexUpgraderMergePolicy;
 import org.elasticsearch.index.merge.policy.MergePolicyProvider;
+import org.elasticsearch.index.merge.policy.NumericFieldSorter;
 import org.elasticsearch.index.merge.scheduler.MergeSchedulerProvider;
 import org.elasticsearch.index.search.nested.IncludeNestedDocsQuery;
 import org.elasticsearch.index.settings.IndexSettings;
@@ -74,7 +75,6 @@ import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -95,6 +95,8 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
     private volatile int termIndexDivisor;
     private volatile int indexConcurrency;
     private volatile boolean compoundOnFlush = true;
+    private volatile boolean concurrentFlush = false;
+    private volatile boolean optimizeAutoGeneratedId = true;
 
     private long gcDeletesInMillis;
     private volatile boolean enableGcDeletes = true;
@@ -114,6 +116,8 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
     private final AnalysisService analysisService;
     private final SimilarityService similarityService;
     private final CodecService codecService;
+    @Nullable
+    private final NumericFieldSorter segmentSorter;
 
 
     private final ReadWriteLock rwl = new ReentrantReadWriteLock();
@@ -140,11 +144,8 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
     private final RecoveryCounter onGoingRecoveries = new RecoveryCounter();
 
 
-    // A uid (in the form of BytesRef) to the version map
-    // we use the hashed variant since we iterate over it and check removal and additions on existing keys
-    private final ConcurrentMap<HashedBytesRef, VersionValue> versionMap;
-
-    private final Object[] dirtyLocks;
+    // A uid (in the form of BytesRef) to the version map, its stripes also act as the per uid locks
+    private final LiveVersionMap versionMap;
 
     private final Object refreshMutex = new Object();
 
@@ -157,6 +158,10 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
 
     private final AtomicLong translogIdGenerator = new AtomicLong();
 
+    // highest auto generated id timestamp seen on a create that may have been sent more than once,
+    // creates with a timestamp at or below it always go through the version lookup
+    private final AtomicLong maxUnsafeAutoIdTimestamp = new AtomicLong(-1);
+
     private SegmentInfos lastCommittedSegmentInfos;
 
     @Inject
@@ -188,13 +193,18 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         this.analysisService = analysisService;
         this.similarityService = similarityService;
         this.codecService = codecService;
+        NumericFieldSorter segmentSorter = NumericFieldSorter.fromSettings(indexSettings);
+        if (segmentSorter != null && indexSettings.getAsVersion(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT).before(Version.V_1_0_0_Beta1)) {
+            // older indices may still have versions in payloads, which need the upgrading merges
+            logger.warn("ignoring [{}], only supported on indices created on or after [{}]", NumericFieldSorter.INDEX_MERGE_POLICY_SORT_FIELD, Version.V_1_0_0_Beta1);
+            segmentSorter = null;
+        }
+        this.segmentSorter = segmentSorter;
         this.compoundOnFlush = indexSettings.getAsBoolean(INDEX_COMPOUND_ON_FLUSH, this.compoundOnFlush);
+        this.concurrentFlush = indexSettings.getAsBoolean(INDEX_CONCURRENT_FLUSH, this.concurrentFlush);
+        this.optimizeAutoGeneratedId = indexSettings.getAsBoolean(INDEX_OPTIMIZE_AUTO_GENERATED_ID, this.optimizeAutoGeneratedId);
         this.indexConcurrency = indexSettings.getAsInt(INDEX_INDEX_CONCURRENCY, Math.max(IndexWriterConfig.DEFAULT_MAX_THREAD_STATES, (int) (EsExecutors.boundedNumberOfProcessors(indexSettings) * 0.65)));
-        this.versionMap = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
-        this.dirtyLocks = new Object[indexConcurrency * 50]; // we multiply it to have enough...
-        for (int i = 0; i < dirtyLocks.length; i++) {
-            dirtyLocks[i] = new Object();
-        }
+        this.versionMap = new LiveVersionMap(indexConcurrency * 50, indexingService.versionMapMemory()); // we multiply it to have enough...
 
         this.indexSettingsService.addListener(applySettings);
 
@@ -316,7 +326,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         rwl.readLock().lock();
         try {
             if (get.realtime()) {
-                VersionValue versionValue = versionMap.get(versionKey(get.uid()));
+                VersionValue versionValue = versionMap.get(get.uid().bytes());
                 if (versionValue != null) {
                     if (versionValue.delete()) {
                         return GetResult.NOT_EXISTS;
@@ -402,8 +412,19 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
     }
 
     private void innerCreate(Create create, IndexWriter writer) throws IOException {
-        synchronized (dirtyLock(create.uid())) {
-            HashedBytesRef versionKey = versionKey(create.uid());
+        synchronized (versionMap.lock(create.uid().bytes())) {
+            BytesRef versionKey = create.uid().bytes();
+            if (canOptimizeAddDocument(create)) {
+                // the id was generated on the primary and this request was never retried, no other copy of
+                // this document can exist, so skip the version map / index lookup and just append it
+                long updatedVersion = create.versionType().updateVersion(Versions.NOT_FOUND, create.version());
+                create.version(updatedVersion);
+                addDocs(create, writer);
+                Translog.Location translogLocation = translog.add(new Translog.Create(create));
+                versionMap.put(versionKey, new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation));
+                indexingService.postCreateUnderLock(create);
+                return;
+            }
             final long currentVersion;
             VersionValue versionValue = versionMap.get(versionKey);
             if (versionValue == null) {
@@ -430,6 +451,9 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 if (VersionType.EXTERNAL.isVersionConflict(currentVersion, expectedVersion)) {
                     if (create.origin() == Operation.Origin.RECOVERY) {
                         return;
+                    } else if (isRetriedAutoGeneratedIdCreate(create) && currentVersion == expectedVersion) {
+                        // the primary already replicated this create to us before it was retried
+                        return;
                     } else {
                         throw new VersionConflictEngineException(shardId, create.type(), create.id(), currentVersion, expectedVersion);
                     }
@@ -442,6 +466,10 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 if (!versionValue.delete()) {
                     if (create.origin() == Operation.Origin.RECOVERY) {
                         return;
+                    } else if (isRetriedAutoGeneratedIdCreate(create)) {
+                        // a previous attempt of this very request already made it in
+                        create.version(currentVersion);
+                        return;
                     } else {
                         throw new DocumentAlreadyExistsException(shardId, create.type(), create.id());
                     }
@@ -450,6 +478,9 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 // its not deleted, its already there
                 if (create.origin() == Operation.Origin.RECOVERY) {
                     return;
+                } else if (isRetriedAutoGeneratedIdCreate(create)) {
+                    create.version(currentVersion);
+                    return;
                 } else {
                     throw new DocumentAlreadyExistsException(shardId, create.type(), create.id());
                 }
@@ -457,11 +488,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
 
             create.version(updatedVersion);
 
-            if (create.docs().size() > 1) {
-                writer.addDocuments(create.docs(), create.analyzer());
-            } else {
-                writer.addDocument(create.docs().get(0), create.analyzer());
-            }
+            addDocs(create, writer);
             Translog.Location translogLocation = translog.add(new Translog.Create(create));
 
             versionMap.put(versionKey, new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation));
@@ -470,6 +497,41 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
+    /**
+     * Returns <tt>true</tt> if the create can be appended to the index without checking for an existing
+     * document. This is only safe for ids generated on the primary by a request that was never retried,
+     * and whose timestamp is newer than any retried auto generated id create seen so far.
+     */
+    private boolean canOptimizeAddDocument(Create create) {
+        if (create.autoGeneratedIdTimestamp() < 0) {
+            return false;
+        }
+        if (create.canHaveDuplicates()) {
+            long timestamp = create.autoGeneratedIdTimestamp();
+            long current;
+            while ((current = maxUnsafeAutoIdTimestamp.get()) < timestamp) {
+                if (maxUnsafeAutoIdTimestamp.compareAndSet(current, timestamp)) {
+                    break;
+                }
+            }
+            return false;
+        }
+        return optimizeAutoGeneratedId && create.origin() == Operation.Origin.PRIMARY
+                && create.autoGeneratedIdTimestamp() > maxUnsafeAutoIdTimestamp.get();
+    }
+
+    private static boolean isRetriedAutoGeneratedIdCreate(Create create) {
+        return create.autoGeneratedIdTimestamp() >= 0 && create.canHaveDuplicates();
+    }
+
+    private static void addDocs(Create create, IndexWriter writer) throws IOException {
+        if (create.docs().size() > 1) {
+            writer.addDocuments(create.docs(), create.analyzer());
+        } else {
+            writer.addDocument(create.docs().get(0), create.analyzer());
+        }
+    }
+
     @Override
     public void index(Index index) throws EngineException {
         rwl.readLock().lock();
@@ -499,8 +561,8 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
     }
 
     private void innerIndex(Index index, IndexWriter writer) throws IOException {
-        synchronized (dirtyLock(index.uid())) {
-            HashedBytesRef versionKey = versionKey(index.uid());
+        synchronized (versionMap.lock(index.uid().bytes())) {
+            BytesRef versionKey = index.uid().bytes();
             final long currentVersion;
             VersionValue versionValue = versionMap.get(versionKey);
             if (versionValue == null) {
@@ -590,9 +652,9 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
     }
 
     private void innerDelete(Delete delete, IndexWriter writer) throws IOException {
-        synchronized (dirtyLock(delete.uid())) {
+        synchronized (versionMap.lock(delete.uid().bytes())) {
             final long currentVersion;
-            HashedBytesRef versionKey = versionKey(delete.uid());
+            BytesRef versionKey = delete.uid().bytes();
             VersionValue versionValue = versionMap.get(versionKey);
             if (versionValue == null) {
                 currentVersion = loadCurrentVersionFromIndex(delete.uid());
@@ -772,6 +834,22 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         flushLock.lock();
         try {
             if (flush.type() == Flush.Type.NEW_WRITER) {
+                boolean committed = false;
+                if (concurrentFlush) {
+                    // commit and hand off to a new translog generation under the read lock first, so the bulk of
+                    // the segment flushing and fsync'ing happens while indexing operations keep on going. The write
+                    // lock below then only needs to swap the writer, flushing the operations that raced the commit
+                    rwl.readLock().lock();
+                    try {
+                        ensureOpen();
+                        if (onGoingRecoveries.get() > 0) {
+                            throw new FlushNotAllowedEngineException(shardId, "Recovery is in progress, flush is not allowed");
+                        }
+                        committed = commitTranslog(flush);
+                    } finally {
+                        rwl.readLock().unlock();
+                    }
+                }
                 rwl.writeLock().lock();
                 try {
                     ensureOpen();
@@ -789,7 +867,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
 
                         // commit on a just opened writer will commit even if there are no changes done to it
                         // we rely on that for the commit data translog id key
-                        if (flushNeeded || flush.force()) {
+                        if (flushNeeded || (flush.force() && !committed)) {
                             flushNeeded = false;
                             long translogId = translogIdGenerator.incrementAndGet();
                             indexWriter.setCommitData(MapBuilder.<String, String>newMapBuilder().put(Translog.TRANSLOG_ID_KEY, Long.toString(translogId)).map());
@@ -827,32 +905,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                         throw new FlushNotAllowedEngineException(shardId, "Recovery is in progress, flush is not allowed");
                     }
 
-                    if (flushNeeded || flush.force()) {
-                        flushNeeded = false;
-                        try {
-                            long translogId = translogIdGenerator.incrementAndGet();
-                            translog.newTransientTranslog(translogId);
-                            indexWriter.setCommitData(MapBuilder.<String, String>newMapBuilder().put(Translog.TRANSLOG_ID_KEY, Long.toString(translogId)).map());
-                            indexWriter.commit();
-                            refreshVersioningTable(threadPool.estimatedTimeInMillis());
-                            // we need to move transient to current only after we refresh
-                            // so items added to current will still be around for realtime get
-                            // when tans overrides it
-                            translog.makeTransientCurrent();
-                        } catch (OutOfMemoryError e) {
-                            translog.revertTransient();
-                            failEngine(e);
-                            throw new FlushFailedEngineException(shardId, e);
-                        } catch (IllegalStateException e) {
-                            if (e.getMessage().contains("OutOfMemoryError")) {
-                                failEngine(e);
-                            }
-                            throw new FlushFailedEngineException(shardId, e);
-                        } catch (Throwable e) {
-                            translog.revertTransient();
-                            throw new FlushFailedEngineException(shardId, e);
-                        }
-                    }
+                    commitTranslog(flush);
                 } finally {
                     rwl.readLock().unlock();
                 }
@@ -908,6 +961,42 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
+    /**
+     * Commits the current writer and moves to a new translog, without closing the writer. Operations keep on
+     * going into the transient translog while the commit happens. Must be called under the read lock and
+     * the flush lock. Returns <tt>true</tt> if a commit actually happened.
+     */
+    private boolean commitTranslog(Flush flush) throws FlushFailedEngineException {
+        if (!flushNeeded && !flush.force()) {
+            return false;
+        }
+        flushNeeded = false;
+        try {
+            long translogId = translogIdGenerator.incrementAndGet();
+            translog.newTransientTranslog(translogId);
+            indexWriter.setCommitData(MapBuilder.<String, String>newMapBuilder().put(Translog.TRANSLOG_ID_KEY, Long.toString(translogId)).map());
+            indexWriter.commit();
+            refreshVersioningTable(threadPool.estimatedTimeInMillis());
+            // we need to move transient to current only after we refresh
+            // so items added to current will still be around for realtime get
+            // when tans overrides it
+            translog.makeTransientCurrent();
+            return true;
+        } catch (OutOfMemoryError e) {
+            translog.revertTransient();
+            failEngine(e);
+            throw new FlushFailedEngineException(shardId, e);
+        } catch (IllegalStateException e) {
+            if (e.getMessage().contains("OutOfMemoryError")) {
+                failEngine(e);
+            }
+            throw new FlushFailedEngineException(shardId, e);
+        } catch (Throwable e) {
+            translog.revertTransient();
+            throw new FlushFailedEngineException(shardId, e);
+        }
+    }
+
     private void ensureOpen() {
         if (indexWriter == null) {
             throw new EngineClosedException(shardId, failedEngine);
@@ -917,25 +1006,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
     private void refreshVersioningTable(long time) {
         // we need to refresh in order to clear older version values
         refresh(new Refresh("version_table").force(true));
-        for (Map.Entry<HashedBytesRef, VersionValue> entry : versionMap.entrySet()) {
-            HashedBytesRef uid = entry.getKey();
-            synchronized (dirtyLock(uid.bytes)) { // can we do it without this lock on each value? maybe batch to a set and get the lock once per set?
-                VersionValue versionValue = versionMap.get(uid);
-                if (versionValue == null) {
-                    continue;
-                }
-                if (time - versionValue.time() <= 0) {
-                    continue; // its a newer value, from after/during we refreshed, don't clear it
-                }
-                if (versionValue.delete()) {
-                    if (enableGcDeletes && (time - versionValue.time()) > gcDeletesInMillis) {
-                        versionMap.remove(uid);
-                    }
-                } else {
-                    versionMap.remove(uid);
-                }
-            }
-        }
+        versionMap.prune(time, enableGcDeletes, gcDeletesInMillis);
     }
 
     @Override
@@ -1272,23 +1343,6 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
-    private HashedBytesRef versionKey(Term uid) {
-        return new HashedBytesRef(uid.bytes());
-    }
-
-    private Object dirtyLock(BytesRef uid) {
-        int hash = DjbHashFunction.DJB_HASH(uid.bytes, uid.offset, uid.length);
-        // abs returns Integer.MIN_VALUE, so we need to protect against it...
-        if (hash == Integer.MIN_VALUE) {
-            hash = 0;
-        }
-        return dirtyLocks[Math.abs(hash) % dirtyLocks.length];
-    }
-
-    private Object dirtyLock(Term uid) {
-        return dirtyLock(uid.bytes());
-    }
-
     private long loadCurrentVersionFromIndex(Term uid) throws IOException {
         Searcher searcher = acquireSearcher("load_version");
         try {
@@ -1325,6 +1379,11 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             // Give us the opportunity to upgrade old segments while performing
             // background merges
             mergePolicy = new IndexUpgraderMergePolicy(mergePolicy);
+            if (segmentSorter != null) {
+                // keeps merged segments sorted so that the query phase can stop collecting them early. It creates its own
+                // merges, which skips the upgrade of payload versions, so this is only done for recent indices
+                mergePolicy = new SortingMergePolicy(mergePolicy, segmentSorter);
+            }
             config.setMergePolicy(mergePolicy);
             config.setSimilarity(similarityService.similarity());
             config.setRAMBufferSizeMB(indexingBufferSize.mbFrac());
@@ -1375,6 +1434,8 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
     public static final String INDEX_COMPOUND_ON_FLUSH = "index.compound_on_flush";
     public static final String INDEX_GC_DELETES = "index.gc_deletes";
     public static final String INDEX_FAIL_ON_MERGE_FAILURE = "index.fail_on_merge_failure";
+    public static final String INDEX_CONCURRENT_FLUSH = "index.concurrent_flush";
+    public static final String INDEX_OPTIMIZE_AUTO_GENERATED_ID = "index.optimize_auto_generated_id";
 
     class ApplySettings implements IndexSettingsService.Listener {
 
@@ -1393,6 +1454,18 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 indexWriter.getConfig().setUseCompoundFile(compoundOnFlush);
             }
 
+            final boolean concurrentFlush = settings.getAsBoolean(INDEX_CONCURRENT_FLUSH, RobinEngine.this.concurrentFlush);
+            if (concurrentFlush != RobinEngine.this.concurrentFlush) {
+                logger.info("updating {} from [{}] to [{}]", RobinEngine.INDEX_CONCURRENT_FLUSH, RobinEngine.this.concurrentFlush, concurrentFlush);
+                RobinEngine.this.concurrentFlush = concurrentFlush;
+            }
+
+            final boolean optimizeAutoGeneratedId = settings.getAsBoolean(INDEX_OPTIMIZE_AUTO_GENERATED_ID, RobinEngine.this.optimizeAutoGeneratedId);
+            if (optimizeAutoGeneratedId != RobinEngine.this.optimizeAutoGeneratedId) {
+                logger.info("updating {} from [{}] to [{}]", RobinEngine.INDEX_OPTIMIZE_AUTO_GENERATED_ID, RobinEngine.this.optimizeAutoGeneratedId, optimizeAutoGeneratedId);
+                RobinEngine.this.optimizeAutoGeneratedId = optimizeAutoGeneratedId;
+            }
+
             int termIndexInterval = settings.getAsInt(INDEX_TERM_INDEX_INTERVAL, RobinEngine.this.termIndexInterval);
             int termIndexDivisor = settings.getAsInt(INDEX_TERM_INDEX_DIVISOR, RobinEngine.this.termIndexDivisor); // IndexReader#DEFAULT_TERMS_INDEX_DIVISOR
             int indexConcurrency = settings.getAsInt(INDEX_INDEX_CONCURRENCY, RobinEngine.this.indexConcurrency);
@@ -1557,7 +1630,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
 
                     if (newSearcher != null) {
                         IndicesWarmer.WarmerContext context = new IndicesWarmer.WarmerContext(shardId,
-                                new SimpleSearcher("warmer", newSearcher));
+                                new SimpleSearcher("warmer", newSearcher), reader);
                         warmer.warm(context);
                     }
                 } catch (Throwable e) {
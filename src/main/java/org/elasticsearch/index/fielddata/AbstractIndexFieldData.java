@@ -1,5 +1,6 @@
 package org.elasticsearch.index.fielddata;
 
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.IndexReader;
 import org.elasticsearch.ElasticSearchException;
@@ -8,7 +9,9 @@ import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.search.internal.SearchContext;
 
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -51,9 +54,20 @@ public abstract class AbstractIndexFieldData<FD extends AtomicFieldData> extends
     public final FD load(AtomicReaderContext context) {
         try {
             FD fd = cache.load(context, this);
+            if (fd instanceof AtomicFieldData.RefCounted) {
+                final SearchContext searchContext = SearchContext.current();
+                // keep the field data until the search is done, and load it again if the cache released it meanwhile
+                while (searchContext != null && !searchContext.acquireFieldData((AtomicFieldData.RefCounted) fd)) {
+                    fd = cache.load(context, this);
+                }
+            }
             updateHighestSeenValuesCount(fd.getNumberUniqueValues());
             return fd;
         } catch (Throwable e) {
+            if ((e instanceof ExecutionException || e instanceof UncheckedExecutionException) && e.getCause() != null) {
+                // unwrap loading failures of the cache, like a tripped field data circuit breaker
+                e = e.getCause();
+            }
             if (e instanceof ElasticSearchException) {
                 throw (ElasticSearchException) e;
             } else {
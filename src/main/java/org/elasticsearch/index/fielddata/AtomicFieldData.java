@@ -71,6 +71,25 @@ public interface AtomicFieldData<Script extends ScriptDocValues> {
      */
     void close();
 
+    /**
+     * Field data holding resources that can't be released while searches still read them, like off heap memory.
+     * The cache holds the first reference and releases it with {@link #close()}, searches acquire one for as long
+     * as their {@link org.elasticsearch.search.internal.SearchContext} lives. The resources are released with the
+     * last reference.
+     */
+    interface RefCounted {
+
+        /**
+         * Acquires a reference, returns <code>false</code> if the field data has already been released.
+         */
+        boolean tryIncRef();
+
+        /**
+         * Releases a reference acquired with {@link #tryIncRef()}.
+         */
+        void decRef();
+    }
+
     interface WithOrdinals<Script extends ScriptDocValues> extends AtomicFieldData<Script> {
 
         /**
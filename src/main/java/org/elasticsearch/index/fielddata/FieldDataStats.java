@@ -20,6 +20,7 @@
 package org.elasticsearch.index.fielddata;
 
 import com.carrotsearch.hppc.ObjectLongOpenHashMap;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -37,6 +38,7 @@ public class FieldDataStats implements Streamable, ToXContent {
 
     long memorySize;
     long evictions;
+    long globalOrdinalsMemorySize;
     @Nullable
     ObjectLongOpenHashMap<String> fields;
 
@@ -45,14 +47,20 @@ public class FieldDataStats implements Streamable, ToXContent {
     }
 
     public FieldDataStats(long memorySize, long evictions, @Nullable ObjectLongOpenHashMap<String> fields) {
+        this(memorySize, evictions, 0, fields);
+    }
+
+    public FieldDataStats(long memorySize, long evictions, long globalOrdinalsMemorySize, @Nullable ObjectLongOpenHashMap<String> fields) {
         this.memorySize = memorySize;
         this.evictions = evictions;
+        this.globalOrdinalsMemorySize = globalOrdinalsMemorySize;
         this.fields = fields;
     }
 
     public void add(FieldDataStats stats) {
         this.memorySize += stats.memorySize;
         this.evictions += stats.evictions;
+        this.globalOrdinalsMemorySize += stats.globalOrdinalsMemorySize;
         if (stats.fields != null) {
             if (fields == null) fields = new ObjectLongOpenHashMap<String>();
             final boolean[] states = stats.fields.allocated;
@@ -78,6 +86,17 @@ public class FieldDataStats implements Streamable, ToXContent {
         return this.evictions;
     }
 
+    /**
+     * The memory taken by the shard level global ordinals built on top of the per segment field data.
+     */
+    public long getGlobalOrdinalsMemorySizeInBytes() {
+        return this.globalOrdinalsMemorySize;
+    }
+
+    public ByteSizeValue getGlobalOrdinalsMemorySize() {
+        return new ByteSizeValue(globalOrdinalsMemorySize);
+    }
+
     @Nullable
     public ObjectLongOpenHashMap<String> getFields() {
         return fields;
@@ -93,6 +112,9 @@ public class FieldDataStats implements Streamable, ToXContent {
     public void readFrom(StreamInput in) throws IOException {
         memorySize = in.readVLong();
         evictions = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            globalOrdinalsMemorySize = in.readVLong();
+        }
         if (in.readBoolean()) {
             int size = in.readVInt();
             fields = new ObjectLongOpenHashMap<String>(size);
@@ -106,6 +128,9 @@ public class FieldDataStats implements Streamable, ToXContent {
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(memorySize);
         out.writeVLong(evictions);
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            out.writeVLong(globalOrdinalsMemorySize);
+        }
         if (fields == null) {
             out.writeBoolean(false);
         } else {
@@ -128,6 +153,7 @@ public class FieldDataStats implements Streamable, ToXContent {
         builder.startObject(Fields.FIELDDATA);
         builder.byteSizeField(Fields.MEMORY_SIZE_IN_BYTES, Fields.MEMORY_SIZE, memorySize);
         builder.field(Fields.EVICTIONS, getEvictions());
+        builder.byteSizeField(Fields.GLOBAL_ORDINALS_MEMORY_SIZE_IN_BYTES, Fields.GLOBAL_ORDINALS_MEMORY_SIZE, globalOrdinalsMemorySize);
         if (fields != null) {
             builder.startObject(Fields.FIELDS);
             final boolean[] states = fields.allocated;
@@ -151,6 +177,8 @@ public class FieldDataStats implements Streamable, ToXContent {
         static final XContentBuilderString MEMORY_SIZE = new XContentBuilderString("memory_size");
         static final XContentBuilderString MEMORY_SIZE_IN_BYTES = new XContentBuilderString("memory_size_in_bytes");
         static final XContentBuilderString EVICTIONS = new XContentBuilderString("evictions");
+        static final XContentBuilderString GLOBAL_ORDINALS_MEMORY_SIZE = new XContentBuilderString("global_ordinals_memory_size");
+        static final XContentBuilderString GLOBAL_ORDINALS_MEMORY_SIZE_IN_BYTES = new XContentBuilderString("global_ordinals_memory_size_in_bytes");
         static final XContentBuilderString FIELDS = new XContentBuilderString("fields");
     }
 }
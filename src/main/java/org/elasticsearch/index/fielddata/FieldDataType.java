@@ -29,10 +29,11 @@ public class FieldDataType {
 
     private static final String LOADING_KEY = "loading";
     private static final String EAGER_LOADING_VALUE = "eager";
+    private static final String EAGER_GLOBAL_ORDINALS_LOADING_VALUE = "eager_global_ordinals";
     private static final String LAZY_LOADING_VALUE = "lazy";
 
     public static enum Loading {
-        LAZY, EAGER;
+        LAZY, EAGER, EAGER_GLOBAL_ORDINALS;
     }
 
     public static final String FORMAT_KEY = "format";
@@ -60,6 +61,8 @@ public class FieldDataType {
             this.loading = Loading.LAZY;
         } else if (loading.equals(EAGER_LOADING_VALUE)) {
             this.loading = Loading.EAGER;
+        } else if (loading.equals(EAGER_GLOBAL_ORDINALS_LOADING_VALUE)) {
+            this.loading = Loading.EAGER_GLOBAL_ORDINALS;
         } else {
             throw new MapperParsingException("Unknown [" + LOADING_KEY + "] value: [" + loading + "]");
         }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.fielddata;
 
+import com.google.common.base.Predicate;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalListener;
@@ -31,6 +32,7 @@ import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardUtils;
 import org.elasticsearch.index.shard.service.IndexShard;
+import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
 
 import java.util.concurrent.Callable;
 
@@ -68,12 +70,18 @@ public interface IndexFieldDataCache {
         private final IndexService indexService;
         private final FieldMapper.Names fieldNames;
         private final FieldDataType fieldDataType;
+        private final CircuitBreakerService breakerService;
+        @Nullable
+        private final SegmentsFieldDataLoader segmentsLoader;
         private final Cache<Key, AtomicFieldData> cache;
 
-        protected FieldBased(@Nullable IndexService indexService, FieldMapper.Names fieldNames, FieldDataType fieldDataType, CacheBuilder cache) {
+        protected FieldBased(@Nullable IndexService indexService, FieldMapper.Names fieldNames, FieldDataType fieldDataType, CircuitBreakerService breakerService,
+                             @Nullable SegmentsFieldDataLoader segmentsLoader, CacheBuilder cache) {
             this.indexService = indexService;
             this.fieldNames = fieldNames;
             this.fieldDataType = fieldDataType;
+            this.breakerService = breakerService;
+            this.segmentsLoader = segmentsLoader;
             cache.removalListener(this);
             this.cache = cache.build();
         }
@@ -82,16 +90,34 @@ public interface IndexFieldDataCache {
         public void onRemoval(RemovalNotification<Key, AtomicFieldData> notification) {
             if (notification.getKey() != null) {
                 long sizeInBytes = notification.getKey().sizeInBytes;
+                if (sizeInBytes != -1) {
+                    breakerService.getBreaker().addWithoutBreaking(-sizeInBytes);
+                }
                 if (sizeInBytes == -1 && notification.getValue() != null) {
                     sizeInBytes = notification.getValue().getMemorySizeInBytes();
                 }
-                notification.getKey().listener.onUnload(fieldNames, fieldDataType, notification.wasEvicted(), sizeInBytes, notification.getValue());
+                if (notification.getKey().listener != null) {
+                    notification.getKey().listener.onUnload(fieldNames, fieldDataType, notification.wasEvicted(), sizeInBytes, notification.getValue());
+                }
+            }
+            if (notification.getValue() != null) {
+                // releases the resources of the field data once the searches that acquired it are done
+                notification.getValue().close();
             }
         }
 
         @Override
         public <FD extends AtomicFieldData, IFD extends IndexFieldData<FD>> FD load(final AtomicReaderContext context, final IFD indexFieldData) throws Exception {
             final Key key = new Key(context.reader().getCoreCacheKey());
+            if (segmentsLoader != null && cache.getIfPresent(key) == null) {
+                // a new segment, the other new segments of the reader get loaded in parallel
+                segmentsLoader.loadOtherSegments(context, indexFieldData, new Predicate<Object>() {
+                    @Override
+                    public boolean apply(Object coreCacheKey) {
+                        return cache.getIfPresent(new Key(coreCacheKey)) != null;
+                    }
+                });
+            }
             //noinspection unchecked
             return (FD) cache.get(key, new Callable<AtomicFieldData>() {
                 @Override
@@ -102,22 +128,34 @@ public interface IndexFieldDataCache {
 
                     AtomicFieldData fieldData = indexFieldData.loadDirect(context);
                     key.sizeInBytes = fieldData.getMemorySizeInBytes();
-
-                    if (indexService != null) {
-                        ShardId shardId = ShardUtils.extractShardId(context.reader());
-                        if (shardId != null) {
-                            IndexShard shard = indexService.shard(shardId.id());
-                            if (shard != null) {
-                                key.listener = shard.fieldData();
+                    breakerService.getBreaker().addWithoutBreaking(key.sizeInBytes);
+
+                    boolean success = false;
+                    try {
+                        if (indexService != null) {
+                            ShardId shardId = ShardUtils.extractShardId(context.reader());
+                            if (shardId != null) {
+                                IndexShard shard = indexService.shard(shardId.id());
+                                if (shard != null) {
+                                    key.listener = shard.fieldData();
+                                }
                             }
                         }
-                    }
 
-                    if (key.listener != null) {
-                        key.listener.onLoad(fieldNames, fieldDataType, fieldData);
-                    }
+                        if (key.listener != null) {
+                            key.listener.onLoad(fieldNames, fieldDataType, fieldData);
+                        }
 
-                    return fieldData;
+                        success = true;
+                        return fieldData;
+                    } finally {
+                        if (!success) {
+                            // not cached, so the removal listener won't release it
+                            breakerService.getBreaker().addWithoutBreaking(-key.sizeInBytes);
+                            key.sizeInBytes = -1;
+                            fieldData.close();
+                        }
+                    }
                 }
             });
         }
@@ -139,6 +177,7 @@ public interface IndexFieldDataCache {
 
         @Override
         public void onClose(Object coreCacheKey) {
+            // nothing can use the field data of a closed segment anymore, so release it right away
             cache.invalidate(new Key(coreCacheKey));
         }
 
@@ -169,15 +208,17 @@ public interface IndexFieldDataCache {
 
     static class Resident extends FieldBased {
 
-        public Resident(@Nullable IndexService indexService, FieldMapper.Names fieldNames, FieldDataType fieldDataType) {
-            super(indexService, fieldNames, fieldDataType, CacheBuilder.newBuilder());
+        public Resident(@Nullable IndexService indexService, FieldMapper.Names fieldNames, FieldDataType fieldDataType, CircuitBreakerService breakerService,
+                        @Nullable SegmentsFieldDataLoader segmentsLoader) {
+            super(indexService, fieldNames, fieldDataType, breakerService, segmentsLoader, CacheBuilder.newBuilder());
         }
     }
 
     static class Soft extends FieldBased {
 
-        public Soft(@Nullable IndexService indexService, FieldMapper.Names fieldNames, FieldDataType fieldDataType) {
-            super(indexService, fieldNames, fieldDataType, CacheBuilder.newBuilder().softValues());
+        public Soft(@Nullable IndexService indexService, FieldMapper.Names fieldNames, FieldDataType fieldDataType, CircuitBreakerService breakerService,
+                    @Nullable SegmentsFieldDataLoader segmentsLoader) {
+            super(indexService, fieldNames, fieldDataType, breakerService, segmentsLoader, CacheBuilder.newBuilder().softValues());
         }
     }
 }
@@ -19,9 +19,17 @@
 
 package org.elasticsearch.index.fielddata;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.ImmutableMap;
+import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.inject.Inject;
@@ -30,13 +38,23 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinals;
 import org.elasticsearch.index.fielddata.plain.*;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.shard.ShardUtils;
+import org.elasticsearch.index.shard.service.IndexShard;
+import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
 import org.elasticsearch.indices.fielddata.cache.IndicesFieldDataCache;
+import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 
 /**
  */
@@ -72,35 +90,53 @@ public class IndexFieldDataService extends AbstractIndexComponent {
                 .put(Tuple.tuple("string", "paged_bytes"), new PagedBytesIndexFieldData.Builder())
                 .put(Tuple.tuple("string", "fst"), new FSTBytesIndexFieldData.Builder())
                 .put(Tuple.tuple("string", "doc_values"), new DocValuesIndexFieldData.Builder())
+                .put(Tuple.tuple("string", "off_heap"), new OffHeapBytesIndexFieldData.Builder())
                 .put(Tuple.tuple("float", "array"), new FloatArrayIndexFieldData.Builder())
                 .put(Tuple.tuple("float", "doc_values"), new DocValuesIndexFieldData.Builder().numericType(IndexNumericFieldData.NumericType.FLOAT))
+                .put(Tuple.tuple("float", "off_heap"), new OffHeapNumericIndexFieldData.Builder().setNumericType(IndexNumericFieldData.NumericType.FLOAT))
                 .put(Tuple.tuple("double", "array"), new DoubleArrayIndexFieldData.Builder())
                 .put(Tuple.tuple("double", "doc_values"), new DocValuesIndexFieldData.Builder().numericType(IndexNumericFieldData.NumericType.DOUBLE))
+                .put(Tuple.tuple("double", "off_heap"), new OffHeapNumericIndexFieldData.Builder().setNumericType(IndexNumericFieldData.NumericType.DOUBLE))
                 .put(Tuple.tuple("byte", "array"), new PackedArrayIndexFieldData.Builder().setNumericType(IndexNumericFieldData.NumericType.BYTE))
                 .put(Tuple.tuple("byte", "doc_values"), new DocValuesIndexFieldData.Builder().numericType(IndexNumericFieldData.NumericType.BYTE))
+                .put(Tuple.tuple("byte", "off_heap"), new OffHeapNumericIndexFieldData.Builder().setNumericType(IndexNumericFieldData.NumericType.BYTE))
                 .put(Tuple.tuple("short", "array"), new PackedArrayIndexFieldData.Builder().setNumericType(IndexNumericFieldData.NumericType.SHORT))
                 .put(Tuple.tuple("short", "doc_values"), new DocValuesIndexFieldData.Builder().numericType(IndexNumericFieldData.NumericType.SHORT))
+                .put(Tuple.tuple("short", "off_heap"), new OffHeapNumericIndexFieldData.Builder().setNumericType(IndexNumericFieldData.NumericType.SHORT))
                 .put(Tuple.tuple("int", "array"), new PackedArrayIndexFieldData.Builder().setNumericType(IndexNumericFieldData.NumericType.INT))
                 .put(Tuple.tuple("int", "doc_values"), new DocValuesIndexFieldData.Builder().numericType(IndexNumericFieldData.NumericType.INT))
+                .put(Tuple.tuple("int", "off_heap"), new OffHeapNumericIndexFieldData.Builder().setNumericType(IndexNumericFieldData.NumericType.INT))
                 .put(Tuple.tuple("long", "array"), new PackedArrayIndexFieldData.Builder().setNumericType(IndexNumericFieldData.NumericType.LONG))
                 .put(Tuple.tuple("long", "doc_values"), new DocValuesIndexFieldData.Builder().numericType(IndexNumericFieldData.NumericType.LONG))
+                .put(Tuple.tuple("long", "off_heap"), new OffHeapNumericIndexFieldData.Builder().setNumericType(IndexNumericFieldData.NumericType.LONG))
                 .put(Tuple.tuple("geo_point", "array"), new GeoPointDoubleArrayIndexFieldData.Builder())
                 .immutableMap();
     }
 
     private final IndicesFieldDataCache indicesFieldDataCache;
+    private final CircuitBreakerService breakerService;
+    @Nullable
+    private final ThreadPool threadPool;
     private final ConcurrentMap<String, IndexFieldData<?>> loadedFieldData = ConcurrentCollections.newConcurrentMap();
+    private final GlobalOrdinalsCache globalOrdinalsCache = new GlobalOrdinalsCache();
 
     IndexService indexService;
 
     public IndexFieldDataService(Index index) {
-        this(index, ImmutableSettings.Builder.EMPTY_SETTINGS, new IndicesFieldDataCache(ImmutableSettings.Builder.EMPTY_SETTINGS));
+        this(index, new CircuitBreakerService(ImmutableSettings.Builder.EMPTY_SETTINGS));
+    }
+
+    private IndexFieldDataService(Index index, CircuitBreakerService breakerService) {
+        this(index, ImmutableSettings.Builder.EMPTY_SETTINGS, new IndicesFieldDataCache(ImmutableSettings.Builder.EMPTY_SETTINGS, breakerService), breakerService, null);
     }
 
     @Inject
-    public IndexFieldDataService(Index index, @IndexSettings Settings indexSettings, IndicesFieldDataCache indicesFieldDataCache) {
+    public IndexFieldDataService(Index index, @IndexSettings Settings indexSettings, IndicesFieldDataCache indicesFieldDataCache, CircuitBreakerService breakerService,
+                                 @Nullable ThreadPool threadPool) {
         super(index, indexSettings);
         this.indicesFieldDataCache = indicesFieldDataCache;
+        this.breakerService = breakerService;
+        this.threadPool = threadPool;
     }
 
     // we need to "inject" the index service to not create cyclic dep
@@ -115,6 +151,7 @@ public class IndexFieldDataService extends AbstractIndexComponent {
             }
             loadedFieldData.clear();
         }
+        globalOrdinalsCache.clear();
     }
 
     public void clearField(String fieldName) {
@@ -124,12 +161,27 @@ public class IndexFieldDataService extends AbstractIndexComponent {
                 fieldData.clear();
             }
         }
+        globalOrdinalsCache.clear(fieldName);
     }
 
     public void clear(IndexReader reader) {
         for (IndexFieldData<?> indexFieldData : loadedFieldData.values()) {
             indexFieldData.clear(reader);
         }
+        globalOrdinalsCache.clear(reader.getCoreCacheKey());
+    }
+
+    /**
+     * Returns the {@link GlobalOrdinals} of the field for the provided top level reader, building them if needed.
+     * They are cached for as long as the reader is open.
+     */
+    public GlobalOrdinals getGlobalOrdinals(IndexFieldData.WithOrdinals<?> indexFieldData, IndexReader reader) {
+        return globalOrdinalsCache.load(indexFieldData, reader);
+    }
+
+    @Nullable
+    private SegmentsFieldDataLoader segmentsLoader() {
+        return threadPool == null ? null : new SegmentsFieldDataLoader(threadPool.executor(ThreadPool.Names.FIELDDATA));
     }
 
     public <IFD extends IndexFieldData<?>> IFD getForField(FieldMapper<?> mapper) {
@@ -169,20 +221,131 @@ public class IndexFieldDataService extends AbstractIndexComponent {
                     // this means changing the node level settings is simple, just set the bounds there
                     String cacheType = type.getSettings().get("cache", indexSettings.get("index.fielddata.cache", "node"));
                     if ("resident".equals(cacheType)) {
-                        cache = new IndexFieldDataCache.Resident(indexService, fieldNames, type);
+                        cache = new IndexFieldDataCache.Resident(indexService, fieldNames, type, breakerService, segmentsLoader());
                     } else if ("soft".equals(cacheType)) {
-                        cache = new IndexFieldDataCache.Soft(indexService, fieldNames, type);
+                        cache = new IndexFieldDataCache.Soft(indexService, fieldNames, type, breakerService, segmentsLoader());
                     } else if ("node".equals(cacheType)) {
                         cache = indicesFieldDataCache.buildIndexFieldDataCache(indexService, index, fieldNames, type);
                     } else {
                         throw new ElasticSearchIllegalArgumentException("cache type not supported [" + cacheType + "] for field [" + fieldNames.fullName() + "]");
                     }
 
-                    fieldData = builder.build(index, indexSettings, fieldNames, type, cache);
+                    fieldData = builder.build(index, indexSettings, fieldNames, type, cache, breakerService);
                     loadedFieldData.put(fieldNames.indexName(), fieldData);
                 }
             }
         }
         return (IFD) fieldData;
     }
+
+    /**
+     * Caches global ordinals per field and top level reader. The entries of a reader are removed when it gets
+     * closed, so that the ordinals of the readers superseded by a refresh don't stay around.
+     */
+    class GlobalOrdinalsCache implements RemovalListener<GlobalOrdinalsCache.Key, GlobalOrdinals> {
+
+        private final Cache<Key, GlobalOrdinals> cache = CacheBuilder.newBuilder().removalListener(this).build();
+
+        GlobalOrdinals load(final IndexFieldData.WithOrdinals<?> indexFieldData, final IndexReader reader) {
+            final List<AtomicReaderContext> leaves = reader.leaves();
+            final Key key = new Key(indexFieldData.getFieldNames(), reader.getCoreCacheKey());
+            try {
+                return cache.get(key, new Callable<GlobalOrdinals>() {
+                    @Override
+                    public GlobalOrdinals call() throws Exception {
+                        // fails if the reader is already closed, which would leave the entry behind
+                        reader.addReaderClosedListener(new IndexReader.ReaderClosedListener() {
+                            @Override
+                            public void onClose(IndexReader reader) {
+                                cache.invalidate(key);
+                            }
+                        });
+                        final List<BytesValues.WithOrdinals> segmentValues = new ArrayList<BytesValues.WithOrdinals>(leaves.size());
+                        for (AtomicReaderContext leaf : leaves) {
+                            segmentValues.add(indexFieldData.load(leaf).getBytesValues(false));
+                        }
+                        final GlobalOrdinals globalOrdinals = GlobalOrdinals.build(segmentValues, PackedInts.DEFAULT);
+                        key.sizeInBytes = globalOrdinals.getMemorySizeInBytes();
+                        key.listener = shardFieldData(leaves);
+                        if (key.listener != null) {
+                            key.listener.onGlobalOrdinalsLoad(key.fieldNames, key.sizeInBytes);
+                        }
+                        return globalOrdinals;
+                    }
+                });
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof ElasticSearchException) {
+                    throw (ElasticSearchException) e.getCause();
+                }
+                throw new ElasticSearchException("failed to build global ordinals for [" + indexFieldData.getFieldNames().fullName() + "]", e.getCause());
+            }
+        }
+
+        @Nullable
+        private ShardFieldData shardFieldData(List<AtomicReaderContext> leaves) {
+            if (indexService == null || leaves.isEmpty()) {
+                return null;
+            }
+            ShardId shardId = ShardUtils.extractShardId(leaves.get(0).reader());
+            if (shardId == null) {
+                return null;
+            }
+            IndexShard shard = indexService.shard(shardId.id());
+            return shard == null ? null : shard.fieldData();
+        }
+
+        void clear() {
+            cache.invalidateAll();
+        }
+
+        void clear(String fieldName) {
+            for (Key key : cache.asMap().keySet()) {
+                if (key.fieldNames.indexName().equals(fieldName)) {
+                    cache.invalidate(key);
+                }
+            }
+        }
+
+        void clear(Object readerKey) {
+            for (Key key : cache.asMap().keySet()) {
+                if (key.readerKey == readerKey) {
+                    cache.invalidate(key);
+                }
+            }
+        }
+
+        @Override
+        public void onRemoval(RemovalNotification<Key, GlobalOrdinals> notification) {
+            Key key = notification.getKey();
+            if (key != null && key.listener != null) {
+                key.listener.onGlobalOrdinalsUnload(key.fieldNames, key.sizeInBytes);
+            }
+        }
+
+        final class Key {
+            final FieldMapper.Names fieldNames;
+            final Object readerKey;
+            @Nullable
+            ShardFieldData listener; // optional stats listener
+            long sizeInBytes = -1;
+
+            Key(FieldMapper.Names fieldNames, Object readerKey) {
+                this.fieldNames = fieldNames;
+                this.readerKey = readerKey;
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                if (this == o) return true;
+                if (o == null || getClass() != o.getClass()) return false;
+                Key key = (Key) o;
+                return fieldNames.indexName().equals(key.fieldNames.indexName()) && readerKey == key.readerKey;
+            }
+
+            @Override
+            public int hashCode() {
+                return 31 * fieldNames.indexName().hashCode() + System.identityHashCode(readerKey);
+            }
+        }
+    }
 }
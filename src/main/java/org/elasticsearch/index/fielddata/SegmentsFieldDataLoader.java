@@ -0,0 +1,121 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata;
+
+import com.google.common.base.Predicate;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Loads the field data of the segments of a reader in parallel. When a segment misses the cache, the other
+ * segments of its reader that are not loaded yet are loaded on an executor instead of one by one as the
+ * search reaches them.
+ * <p/>
+ * Loads are de-duplicated: a segment is scheduled at most once at a time, and the cache makes a search that
+ * reaches a segment which is still being loaded wait for that load instead of starting another one.
+ * <p/>
+ * The loads scheduled here go through the cache too, and miss it by definition. They don't fan out again:
+ * the segments of their reader are already scheduled by the load that scheduled them.
+ */
+public class SegmentsFieldDataLoader {
+
+    private static final ESLogger logger = Loggers.getLogger(SegmentsFieldDataLoader.class);
+
+    /** Set while the current thread runs a load scheduled by {@link #loadOtherSegments}. */
+    private static final ThreadLocal<Boolean> inScheduledLoad = new ThreadLocal<Boolean>();
+
+    private final Executor executor;
+    private final ConcurrentMap<Object, Boolean> scheduled = ConcurrentCollections.newConcurrentMap();
+
+    public SegmentsFieldDataLoader(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Schedules the loading of the segments of the reader <code>context</code> belongs to, except for
+     * <code>context</code> itself which the caller loads, and except for the segments whose core cache
+     * key is already loaded according to <code>isLoaded</code>. Does nothing when called from a load
+     * scheduled by this method.
+     */
+    public void loadOtherSegments(AtomicReaderContext context, final IndexFieldData<?> indexFieldData, Predicate<Object> isLoaded) {
+        if (inScheduledLoad.get() != null) {
+            return;
+        }
+        final List<AtomicReaderContext> leaves = ReaderUtil.getTopLevelContext(context).leaves();
+        if (leaves.size() <= 1) {
+            return;
+        }
+        final Object coreCacheKey = context.reader().getCoreCacheKey();
+        for (final AtomicReaderContext leaf : leaves) {
+            final Object leafCoreCacheKey = leaf.reader().getCoreCacheKey();
+            if (leafCoreCacheKey == coreCacheKey || isLoaded.apply(leafCoreCacheKey)) {
+                continue;
+            }
+            if (scheduled.putIfAbsent(leafCoreCacheKey, Boolean.TRUE) != null) {
+                continue;
+            }
+            // the searcher of the caller may be released before the load runs, keep the segment open until then
+            final AtomicReader reader = leaf.reader();
+            if (!reader.tryIncRef()) {
+                scheduled.remove(leafCoreCacheKey);
+                continue;
+            }
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        inScheduledLoad.set(Boolean.TRUE);
+                        try {
+                            indexFieldData.load(leaf);
+                        } catch (Throwable t) {
+                            // the search loads the segment again, and gets the failure, once it reaches it
+                            logger.debug("failed to load field data for [{}] in parallel", t, indexFieldData.getFieldNames().fullName());
+                        } finally {
+                            inScheduledLoad.remove();
+                            scheduled.remove(leafCoreCacheKey);
+                            decRef(reader);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // the search loads the segment itself once it reaches it
+                scheduled.remove(leafCoreCacheKey);
+                decRef(reader);
+            }
+        }
+    }
+
+    private static void decRef(AtomicReader reader) {
+        try {
+            reader.decRef();
+        } catch (Throwable t) {
+            logger.debug("failed to release reader", t);
+        }
+    }
+}
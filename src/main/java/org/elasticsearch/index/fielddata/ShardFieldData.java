@@ -40,6 +40,7 @@ public class ShardFieldData extends AbstractIndexShardComponent implements Index
 
     final CounterMetric evictionsMetric = new CounterMetric();
     final CounterMetric totalMetric = new CounterMetric();
+    final CounterMetric globalOrdinalsMetric = new CounterMetric();
 
     final ConcurrentMap<String, CounterMetric> perFieldTotals = ConcurrentCollections.newConcurrentMap();
 
@@ -60,7 +61,7 @@ public class ShardFieldData extends AbstractIndexShardComponent implements Index
                 }
             }
         }
-        return new FieldDataStats(totalMetric.count(), evictionsMetric.count(), fieldTotals);
+        return new FieldDataStats(totalMetric.count(), evictionsMetric.count(), globalOrdinalsMetric.count(), fieldTotals);
     }
 
     @Override
@@ -98,4 +99,14 @@ public class ShardFieldData extends AbstractIndexShardComponent implements Index
             }
         }
     }
+
+    public void onGlobalOrdinalsLoad(FieldMapper.Names fieldNames, long sizeInBytes) {
+        globalOrdinalsMetric.inc(sizeInBytes);
+    }
+
+    public void onGlobalOrdinalsUnload(FieldMapper.Names fieldNames, long sizeInBytes) {
+        if (sizeInBytes != -1) {
+            globalOrdinalsMetric.dec(sizeInBytes);
+        }
+    }
 }
@@ -41,6 +41,17 @@ public class LongValuesComparatorSource extends IndexFieldData.XFieldComparatorS
         this.sortMode = sortMode;
     }
 
+    public SortMode sortMode() {
+        return sortMode;
+    }
+
+    /**
+     * Returns <tt>true</tt> if documents without a value sort last, which is the default.
+     */
+    public boolean sortMissingLast() {
+        return sortMissingLast(missingValue);
+    }
+
     @Override
     public SortField.Type reducedType() {
         return SortField.Type.LONG;
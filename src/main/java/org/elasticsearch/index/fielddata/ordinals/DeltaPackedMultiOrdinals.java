@@ -0,0 +1,197 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.LongsRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.packed.AppendingDeltaPackedLongBuffer;
+import org.apache.lucene.util.packed.MonotonicAppendingLongBuffer;
+import org.apache.lucene.util.packed.PackedInts;
+
+/**
+ * {@link Ordinals} implementation which favors memory over speed for multi-valued fields. The first
+ * ordinal of every document is stored in a packed array, the following ordinals of a document are
+ * stored as the delta with the previous ordinal of the same document. Deltas are packed in small
+ * blocks that each use the number of bits required by their own values, so that documents with many
+ * values, whose ordinals are close to each other, don't increase the number of bits needed to store
+ * the ordinals of other documents.
+ */
+public class DeltaPackedMultiOrdinals implements Ordinals {
+
+    private static final int OFFSETS_PAGE_SIZE = 1024;
+    private static final int DELTAS_PAGE_SIZE = 128;
+    private static final int INIT_PAGE_COUNT = 16;
+
+    private final boolean multiValued;
+    private final long numOrds;
+    // first ordinal of every document, 0 if it has no value
+    private final PackedInts.Mutable firstOrds;
+    // end offset of the deltas of every document
+    private final MonotonicAppendingLongBuffer endOffsets;
+    private final AppendingDeltaPackedLongBuffer deltas;
+
+    public DeltaPackedMultiOrdinals(OrdinalsBuilder builder, float acceptableOverheadRatio) {
+        multiValued = builder.getNumMultiValuesDocs() > 0;
+        numOrds = builder.getNumOrds();
+        firstOrds = PackedInts.getMutable(builder.maxDoc(), PackedInts.bitsRequired(numOrds), acceptableOverheadRatio);
+        endOffsets = new MonotonicAppendingLongBuffer(INIT_PAGE_COUNT, OFFSETS_PAGE_SIZE, acceptableOverheadRatio);
+        deltas = new AppendingDeltaPackedLongBuffer(INIT_PAGE_COUNT, DELTAS_PAGE_SIZE, acceptableOverheadRatio);
+        for (int i = 0; i < builder.maxDoc(); ++i) {
+            final LongsRef docOrds = builder.docOrds(i);
+            if (docOrds.length > 0) {
+                long previousOrd = docOrds.longs[docOrds.offset];
+                firstOrds.set(i, previousOrd);
+                for (int j = 1; j < docOrds.length; ++j) {
+                    final long ord = docOrds.longs[docOrds.offset + j];
+                    deltas.add(ord - previousOrd);
+                    previousOrd = ord;
+                }
+            }
+            endOffsets.add(deltas.size());
+        }
+        assert deltas.size() == builder.getTotalNumOrds() - builder.getNumDocsWithValue();
+    }
+
+    @Override
+    public long getMemorySizeInBytes() {
+        return firstOrds.ramBytesUsed() + endOffsets.ramBytesUsed() + deltas.ramBytesUsed();
+    }
+
+    @Override
+    public boolean isMultiValued() {
+        return multiValued;
+    }
+
+    @Override
+    public int getNumDocs() {
+        return firstOrds.size();
+    }
+
+    @Override
+    public long getNumOrds() {
+        return numOrds;
+    }
+
+    @Override
+    public long getMaxOrd() {
+        return numOrds + 1;
+    }
+
+    @Override
+    public Ordinals.Docs ordinals() {
+        return new Docs(this);
+    }
+
+    static class Docs implements Ordinals.Docs {
+
+        private final DeltaPackedMultiOrdinals ordinals;
+        private final PackedInts.Reader firstOrds;
+        private final MonotonicAppendingLongBuffer endOffsets;
+        private final AppendingDeltaPackedLongBuffer deltas;
+        private final LongsRef longsScratch;
+        private long offset;
+        private long limit;
+        private boolean first;
+        private long currentOrd;
+
+        Docs(DeltaPackedMultiOrdinals ordinals) {
+            this.ordinals = ordinals;
+            this.firstOrds = ordinals.firstOrds;
+            this.endOffsets = ordinals.endOffsets;
+            this.deltas = ordinals.deltas;
+            this.longsScratch = new LongsRef(16);
+        }
+
+        @Override
+        public Ordinals ordinals() {
+            return this.ordinals;
+        }
+
+        @Override
+        public int getNumDocs() {
+            return ordinals.getNumDocs();
+        }
+
+        @Override
+        public long getNumOrds() {
+            return ordinals.getNumOrds();
+        }
+
+        @Override
+        public long getMaxOrd() {
+            return ordinals.getMaxOrd();
+        }
+
+        @Override
+        public boolean isMultiValued() {
+            return ordinals.isMultiValued();
+        }
+
+        @Override
+        public long getOrd(int docId) {
+            return currentOrd = firstOrds.get(docId);
+        }
+
+        @Override
+        public LongsRef getOrds(int docId) {
+            final int numValues = setDocument(docId);
+            if (longsScratch.longs.length < numValues) {
+                longsScratch.longs = new long[ArrayUtil.oversize(numValues, RamUsageEstimator.NUM_BYTES_LONG)];
+            }
+            for (int i = 0; i < numValues; ++i) {
+                longsScratch.longs[i] = nextOrd();
+            }
+            longsScratch.offset = 0;
+            longsScratch.length = numValues;
+            return longsScratch;
+        }
+
+        @Override
+        public long nextOrd() {
+            if (first) {
+                first = false;
+            } else {
+                assert offset < limit;
+                currentOrd += deltas.get(offset++);
+            }
+            return currentOrd;
+        }
+
+        @Override
+        public int setDocument(int docId) {
+            currentOrd = firstOrds.get(docId);
+            if (currentOrd == 0) {
+                first = false;
+                offset = limit = 0;
+                return 0;
+            }
+            first = true;
+            offset = docId > 0 ? endOffsets.get(docId - 1) : 0;
+            limit = endOffsets.get(docId);
+            return 1 + (int) (limit - offset);
+        }
+
+        @Override
+        public long currentOrd() {
+            return currentOrd;
+        }
+    }
+}
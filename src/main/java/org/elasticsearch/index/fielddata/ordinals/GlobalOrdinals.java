@@ -0,0 +1,186 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.PriorityQueue;
+import org.apache.lucene.util.packed.AppendingPackedLongBuffer;
+import org.apache.lucene.util.packed.MonotonicAppendingLongBuffer;
+import org.elasticsearch.index.fielddata.BytesValues;
+
+import java.util.List;
+
+/**
+ * Maps the ordinals of each segment of a top level reader to ordinals that are unique across all of its segments
+ * (global ordinals). Global ordinals follow the term order, which allows to count into a single flat array and only
+ * look up the terms of the ordinals that end up being returned.
+ * <p/>
+ * Just like segment ordinals, {@link Ordinals#MISSING_ORDINAL} is the global ordinal of a missing value.
+ */
+public class GlobalOrdinals {
+
+    private static final int PAGE_SIZE = 1024;
+    private static final int INIT_PAGE_COUNT = 16;
+
+    private final MonotonicAppendingLongBuffer[] segmentToGlobalOrds;
+    // for each global ordinal, the first segment that has the term and the distance to its ordinal in that segment
+    private final AppendingPackedLongBuffer firstSegments;
+    private final AppendingPackedLongBuffer firstSegmentOrdDeltas;
+    private final long maxOrd;
+
+    private GlobalOrdinals(MonotonicAppendingLongBuffer[] segmentToGlobalOrds, AppendingPackedLongBuffer firstSegments,
+                           AppendingPackedLongBuffer firstSegmentOrdDeltas, long maxOrd) {
+        this.segmentToGlobalOrds = segmentToGlobalOrds;
+        this.firstSegments = firstSegments;
+        this.firstSegmentOrdDeltas = firstSegmentOrdDeltas;
+        this.maxOrd = maxOrd;
+    }
+
+    /**
+     * The number of global ordinals, excluding the {@link Ordinals#MISSING_ORDINAL} ordinal.
+     */
+    public long getNumOrds() {
+        return maxOrd - 1;
+    }
+
+    /**
+     * The number of global ordinals, including the {@link Ordinals#MISSING_ORDINAL} ordinal.
+     */
+    public long getMaxOrd() {
+        return maxOrd;
+    }
+
+    /**
+     * The number of segments this instance was built for.
+     */
+    public int getNumSegments() {
+        return segmentToGlobalOrds.length;
+    }
+
+    /**
+     * Returns the global ordinal of the provided ordinal of the segment with the given index (the ord of its leaf).
+     */
+    public long getGlobalOrd(int segment, long segmentOrd) {
+        return segmentToGlobalOrds[segment].get(segmentOrd);
+    }
+
+    /**
+     * Returns the index of a segment holding the term of the provided global ordinal.
+     */
+    public int getFirstSegment(long globalOrd) {
+        assert globalOrd >= Ordinals.MIN_ORDINAL && globalOrd < maxOrd;
+        return (int) firstSegments.get(globalOrd - 1);
+    }
+
+    /**
+     * Returns the ordinal of the term of the provided global ordinal within {@link #getFirstSegment(long)}.
+     */
+    public long getFirstSegmentOrd(long globalOrd) {
+        assert globalOrd >= Ordinals.MIN_ORDINAL && globalOrd < maxOrd;
+        return globalOrd - firstSegmentOrdDeltas.get(globalOrd - 1);
+    }
+
+    /**
+     * The memory size the global ordinals take.
+     */
+    public long getMemorySizeInBytes() {
+        long size = firstSegments.ramBytesUsed() + firstSegmentOrdDeltas.ramBytesUsed();
+        for (MonotonicAppendingLongBuffer segmentToGlobalOrd : segmentToGlobalOrds) {
+            size += segmentToGlobalOrd.ramBytesUsed();
+        }
+        return size;
+    }
+
+    /**
+     * Builds the global ordinals of the provided segment values, given in the order of the leaves of the top
+     * level reader.
+     */
+    public static GlobalOrdinals build(List<BytesValues.WithOrdinals> segmentValues, float acceptableOverheadRatio) {
+        final MonotonicAppendingLongBuffer[] segmentToGlobalOrds = new MonotonicAppendingLongBuffer[segmentValues.size()];
+        final AppendingPackedLongBuffer firstSegments = new AppendingPackedLongBuffer(INIT_PAGE_COUNT, PAGE_SIZE, acceptableOverheadRatio);
+        final AppendingPackedLongBuffer firstSegmentOrdDeltas = new AppendingPackedLongBuffer(INIT_PAGE_COUNT, PAGE_SIZE, acceptableOverheadRatio);
+
+        final SegmentTermsQueue queue = new SegmentTermsQueue(segmentValues.size());
+        for (int i = 0; i < segmentValues.size(); i++) {
+            segmentToGlobalOrds[i] = new MonotonicAppendingLongBuffer(INIT_PAGE_COUNT, PAGE_SIZE, acceptableOverheadRatio);
+            segmentToGlobalOrds[i].add(Ordinals.MISSING_ORDINAL);
+            final SegmentTerms segmentTerms = new SegmentTerms(i, segmentValues.get(i));
+            if (segmentTerms.next()) {
+                queue.add(segmentTerms);
+            }
+        }
+
+        final BytesRef current = new BytesRef();
+        long globalOrd = Ordinals.MISSING_ORDINAL;
+        while (queue.size() > 0) {
+            SegmentTerms top = queue.top();
+            globalOrd++;
+            current.copyBytes(top.current);
+            firstSegments.add(top.segment);
+            firstSegmentOrdDeltas.add(globalOrd - top.ord);
+            do {
+                segmentToGlobalOrds[top.segment].add(globalOrd);
+                if (top.next()) {
+                    top = queue.updateTop();
+                } else {
+                    // we are done with this segment
+                    queue.pop();
+                    top = queue.top();
+                }
+            } while (top != null && current.equals(top.current));
+        }
+        return new GlobalOrdinals(segmentToGlobalOrds, firstSegments, firstSegmentOrdDeltas, globalOrd + 1);
+    }
+
+    private static final class SegmentTerms {
+
+        final int segment;
+        final BytesValues.WithOrdinals values;
+        final long maxOrd;
+        long ord = Ordinals.MISSING_ORDINAL;
+        BytesRef current;
+
+        SegmentTerms(int segment, BytesValues.WithOrdinals values) {
+            this.segment = segment;
+            this.values = values;
+            this.maxOrd = values.ordinals().getMaxOrd();
+        }
+
+        boolean next() {
+            if (++ord >= maxOrd) {
+                return false;
+            }
+            current = values.getValueByOrd(ord);
+            return true;
+        }
+    }
+
+    private static final class SegmentTermsQueue extends PriorityQueue<SegmentTerms> {
+
+        SegmentTermsQueue(int size) {
+            super(size);
+        }
+
+        @Override
+        protected boolean lessThan(SegmentTerms a, SegmentTerms b) {
+            final int cmp = a.current.compareTo(b.current);
+            return cmp < 0 || (cmp == 0 && a.segment < b.segment);
+        }
+    }
+}
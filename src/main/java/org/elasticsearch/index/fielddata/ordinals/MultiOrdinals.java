@@ -76,6 +76,28 @@ public class MultiOrdinals implements Ordinals {
         assert ords.size() == builder.getTotalNumOrds() : ords.size() + " != " + builder.getTotalNumOrds();
     }
 
+    /**
+     * Creates ordinals from the end offset of the ordinals of every document and the (1-based) ordinals themselves.
+     */
+    public MultiOrdinals(PackedInts.Reader docEndOffsets, PackedInts.Reader docOrds, long numOrds, float acceptableOverheadRatio) {
+        this.numOrds = numOrds;
+        endOffsets = new MonotonicAppendingLongBuffer(OFFSET_INIT_PAGE_COUNT, OFFSETS_PAGE_SIZE, acceptableOverheadRatio);
+        ords = new AppendingPackedLongBuffer(OFFSET_INIT_PAGE_COUNT, OFFSETS_PAGE_SIZE, acceptableOverheadRatio);
+        boolean multiValued = false;
+        long lastEndOffset = 0;
+        for (int i = 0; i < docEndOffsets.size(); ++i) {
+            final long endOffset = docEndOffsets.get(i);
+            multiValued |= endOffset - lastEndOffset > 1;
+            endOffsets.add(endOffset);
+            lastEndOffset = endOffset;
+        }
+        assert lastEndOffset == docOrds.size();
+        for (int i = 0; i < docOrds.size(); ++i) {
+            ords.add(docOrds.get(i) - 1);
+        }
+        this.multiValued = multiValued;
+    }
+
     @Override
     public long getMemorySizeInBytes() {
         return endOffsets.ramBytesUsed() + ords.ramBytesUsed();
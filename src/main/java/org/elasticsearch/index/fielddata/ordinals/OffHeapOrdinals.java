@@ -0,0 +1,249 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.LongsRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.util.OffHeapLongArray;
+
+/**
+ * {@link Ordinals} implementation which stores the ordinals outside of the Java heap. Single valued
+ * fields store one ordinal per document, multi valued fields store the end offset of every document
+ * in addition to the ordinals. The memory is released on {@link #close()}.
+ */
+public class OffHeapOrdinals implements Ordinals {
+
+    private final boolean multiValued;
+    private final int numDocs;
+    private final long numOrds;
+    // for multi-valued fields only, the end offset of the ordinals of every document
+    @Nullable
+    private final OffHeapLongArray endOffsets;
+    private final OffHeapLongArray ords;
+
+    public OffHeapOrdinals(OrdinalsBuilder builder) {
+        multiValued = builder.getNumMultiValuesDocs() > 0;
+        numDocs = builder.maxDoc();
+        numOrds = builder.getNumOrds();
+        if (multiValued) {
+            final long totalNumOrds = builder.getTotalNumOrds();
+            endOffsets = new OffHeapLongArray(numDocs, totalNumOrds);
+            ords = new OffHeapLongArray(totalNumOrds, numOrds);
+            long endOffset = 0;
+            for (int i = 0; i < numDocs; ++i) {
+                final LongsRef docOrds = builder.docOrds(i);
+                for (int j = 0; j < docOrds.length; ++j) {
+                    ords.set(endOffset + j, docOrds.longs[docOrds.offset + j]);
+                }
+                endOffset += docOrds.length;
+                endOffsets.set(i, endOffset);
+            }
+            assert endOffset == totalNumOrds;
+        } else {
+            endOffsets = null;
+            ords = new OffHeapLongArray(numDocs, numOrds);
+            final PackedInts.Reader firstOrdinals = builder.getFirstOrdinals();
+            for (int i = 0; i < numDocs; ++i) {
+                ords.set(i, firstOrdinals.get(i));
+            }
+        }
+    }
+
+    @Override
+    public long getMemorySizeInBytes() {
+        long size = ords.sizeInBytes();
+        if (endOffsets != null) {
+            size += endOffsets.sizeInBytes();
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isMultiValued() {
+        return multiValued;
+    }
+
+    @Override
+    public int getNumDocs() {
+        return numDocs;
+    }
+
+    @Override
+    public long getNumOrds() {
+        return numOrds;
+    }
+
+    @Override
+    public long getMaxOrd() {
+        return numOrds + 1;
+    }
+
+    @Override
+    public Ordinals.Docs ordinals() {
+        if (multiValued) {
+            return new MultiDocs(this, endOffsets, ords);
+        } else {
+            return new SingleDocs(this, ords);
+        }
+    }
+
+    /**
+     * Releases the off heap memory of these ordinals, they must not be used anymore afterwards.
+     */
+    public void close() {
+        ords.close();
+        if (endOffsets != null) {
+            endOffsets.close();
+        }
+    }
+
+    static abstract class AbstractDocs implements Ordinals.Docs {
+
+        protected final OffHeapOrdinals parent;
+        protected final LongsRef longsScratch = new LongsRef(1);
+        protected long currentOrd;
+
+        AbstractDocs(OffHeapOrdinals parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public final Ordinals ordinals() {
+            return parent;
+        }
+
+        @Override
+        public final int getNumDocs() {
+            return parent.getNumDocs();
+        }
+
+        @Override
+        public final long getNumOrds() {
+            return parent.getNumOrds();
+        }
+
+        @Override
+        public final long getMaxOrd() {
+            return parent.getMaxOrd();
+        }
+
+        @Override
+        public final boolean isMultiValued() {
+            return parent.isMultiValued();
+        }
+
+        @Override
+        public final long currentOrd() {
+            return currentOrd;
+        }
+    }
+
+    static final class SingleDocs extends AbstractDocs {
+
+        private final OffHeapLongArray ords;
+
+        SingleDocs(OffHeapOrdinals parent, OffHeapLongArray ords) {
+            super(parent);
+            this.ords = ords;
+        }
+
+        @Override
+        public long getOrd(int docId) {
+            return currentOrd = ords.get(docId);
+        }
+
+        @Override
+        public LongsRef getOrds(int docId) {
+            currentOrd = ords.get(docId);
+            longsScratch.offset = 0;
+            longsScratch.length = (int) Math.min(currentOrd, 1);
+            longsScratch.longs[0] = currentOrd;
+            return longsScratch;
+        }
+
+        @Override
+        public long nextOrd() {
+            assert currentOrd > 0;
+            return currentOrd;
+        }
+
+        @Override
+        public int setDocument(int docId) {
+            currentOrd = ords.get(docId);
+            return (int) Math.min(currentOrd, 1);
+        }
+    }
+
+    static final class MultiDocs extends AbstractDocs {
+
+        private final OffHeapLongArray endOffsets;
+        private final OffHeapLongArray ords;
+        private long offset;
+        private long limit;
+
+        MultiDocs(OffHeapOrdinals parent, OffHeapLongArray endOffsets, OffHeapLongArray ords) {
+            super(parent);
+            this.endOffsets = endOffsets;
+            this.ords = ords;
+        }
+
+        @Override
+        public long getOrd(int docId) {
+            final long startOffset = docId > 0 ? endOffsets.get(docId - 1) : 0;
+            final long endOffset = endOffsets.get(docId);
+            if (startOffset == endOffset) {
+                return currentOrd = MISSING_ORDINAL;
+            } else {
+                return currentOrd = ords.get(startOffset);
+            }
+        }
+
+        @Override
+        public LongsRef getOrds(int docId) {
+            final long startOffset = docId > 0 ? endOffsets.get(docId - 1) : 0;
+            final long endOffset = endOffsets.get(docId);
+            final int numValues = (int) (endOffset - startOffset);
+            if (longsScratch.longs.length < numValues) {
+                longsScratch.longs = new long[ArrayUtil.oversize(numValues, RamUsageEstimator.NUM_BYTES_LONG)];
+            }
+            for (int i = 0; i < numValues; ++i) {
+                longsScratch.longs[i] = ords.get(startOffset + i);
+            }
+            longsScratch.offset = 0;
+            longsScratch.length = numValues;
+            return longsScratch;
+        }
+
+        @Override
+        public long nextOrd() {
+            assert offset < limit;
+            return currentOrd = ords.get(offset++);
+        }
+
+        @Override
+        public int setDocument(int docId) {
+            offset = docId > 0 ? endOffsets.get(docId - 1) : 0;
+            limit = endOffsets.get(docId);
+            return (int) (limit - offset);
+        }
+    }
+}
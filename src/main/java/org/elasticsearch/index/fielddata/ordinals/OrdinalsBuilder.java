@@ -395,7 +395,11 @@ public final class OrdinalsBuilder implements Closeable {
      */
     public Ordinals build(Settings settings) {
         final float acceptableOverheadRatio = settings.getAsFloat("acceptable_overhead_ratio", PackedInts.FASTEST);
-        if (numMultiValuedDocs > 0 || MultiOrdinals.significantlySmallerThanSinglePackedOrdinals(maxDoc, numDocsWithValue, getNumOrds(), acceptableOverheadRatio)) {
+        final boolean sparse = MultiOrdinals.significantlySmallerThanSinglePackedOrdinals(maxDoc, numDocsWithValue, getNumOrds(), acceptableOverheadRatio);
+        if (numMultiValuedDocs > 0 && !sparse && acceptableOverheadRatio < PackedInts.FAST) {
+            // memory matters more than speed, delta-encode the ordinals of every document
+            return new DeltaPackedMultiOrdinals(this, acceptableOverheadRatio);
+        } else if (numMultiValuedDocs > 0 || sparse) {
             // MultiOrdinals can be smaller than SinglePackedOrdinals for sparse fields
             return new MultiOrdinals(this, acceptableOverheadRatio);
         } else {
@@ -0,0 +1,99 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.util.LongsRef;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.common.settings.Settings;
+
+import java.io.IOException;
+
+/**
+ * Serializes ordinals so that they can be computed once when a segment is written and read back
+ * instead of being rebuilt from the terms and postings when field data gets loaded.
+ * <p/>
+ * Single valued fields are stored as one packed ordinal per document, multi valued fields as the
+ * packed end offset of every document followed by the packed ordinals of all documents.
+ */
+public final class PersistedOrdinals {
+
+    private static final byte SINGLE_VALUED = 0;
+    private static final byte MULTI_VALUED = 1;
+
+    private PersistedOrdinals() {
+    }
+
+    /**
+     * Writes the ordinals held by the given builder.
+     */
+    public static void write(OrdinalsBuilder builder, DataOutput out) throws IOException {
+        final int maxDoc = builder.maxDoc();
+        final long numOrds = builder.getNumOrds();
+        out.writeVLong(numOrds);
+        if (builder.isMultiValued()) {
+            out.writeByte(MULTI_VALUED);
+            final int totalNumOrds = builder.getTotalNumOrds();
+            final PackedInts.Writer endOffsets = PackedInts.getWriter(out, maxDoc, PackedInts.bitsRequired(totalNumOrds), PackedInts.FAST);
+            long endOffset = 0;
+            for (int i = 0; i < maxDoc; ++i) {
+                endOffset += builder.docOrds(i).length;
+                endOffsets.add(endOffset);
+            }
+            endOffsets.finish();
+            final PackedInts.Writer ords = PackedInts.getWriter(out, totalNumOrds, PackedInts.bitsRequired(numOrds), PackedInts.FAST);
+            for (int i = 0; i < maxDoc; ++i) {
+                final LongsRef docOrds = builder.docOrds(i);
+                for (int j = 0; j < docOrds.length; ++j) {
+                    ords.add(docOrds.longs[docOrds.offset + j]);
+                }
+            }
+            ords.finish();
+        } else {
+            out.writeByte(SINGLE_VALUED);
+            final PackedInts.Reader firstOrdinals = builder.getFirstOrdinals();
+            final PackedInts.Writer ords = PackedInts.getWriter(out, maxDoc, PackedInts.bitsRequired(numOrds), PackedInts.FAST);
+            for (int i = 0; i < maxDoc; ++i) {
+                ords.add(firstOrdinals.get(i));
+            }
+            ords.finish();
+        }
+    }
+
+    /**
+     * Reads ordinals previously written with {@link #write(OrdinalsBuilder, DataOutput)}.
+     */
+    public static Ordinals read(DataInput in, Settings settings) throws IOException {
+        final long numOrds = in.readVLong();
+        final byte type = in.readByte();
+        switch (type) {
+            case SINGLE_VALUED:
+                return new SinglePackedOrdinals(PackedInts.getReader(in), numOrds);
+            case MULTI_VALUED:
+                final float acceptableOverheadRatio = settings.getAsFloat("acceptable_overhead_ratio", PackedInts.FASTEST);
+                final PackedInts.Reader endOffsets = PackedInts.getReader(in);
+                final PackedInts.Reader ords = PackedInts.getReader(in);
+                return new MultiOrdinals(endOffsets, ords, numOrds, acceptableOverheadRatio);
+            default:
+                throw new IOException("Unknown persisted ordinals type [" + type + "]");
+        }
+    }
+}
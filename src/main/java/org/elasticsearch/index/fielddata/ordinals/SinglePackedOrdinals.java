@@ -44,6 +44,15 @@ public class SinglePackedOrdinals implements Ordinals {
         this.reader = reader;
     }
 
+    /**
+     * Creates ordinals on top of an existing reader that maps every doc ID to its ordinal, or 0 if it has no value.
+     */
+    public SinglePackedOrdinals(PackedInts.Reader reader, long numOrds) {
+        this.numOrds = numOrds;
+        this.maxOrd = numOrds + 1;
+        this.reader = reader;
+    }
+
     @Override
     public long getMemorySizeInBytes() {
         if (size == -1) {
@@ -0,0 +1,231 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.fielddata.plain;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.util.OffHeapByteArray;
+import org.elasticsearch.common.util.OffHeapLongArray;
+import org.elasticsearch.index.fielddata.AtomicFieldData;
+import org.elasticsearch.index.fielddata.ScriptDocValues;
+import org.elasticsearch.index.fielddata.ordinals.EmptyOrdinals;
+import org.elasticsearch.index.fielddata.ordinals.OffHeapOrdinals;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
+
+/**
+ * String field data stored outside of the Java heap: the bytes of the unique terms of the segment, the
+ * offset of every term in these bytes, and {@link OffHeapOrdinals}. The memory is released once the field
+ * data is closed and the searches that acquired it are done, see {@link AtomicFieldData.RefCounted}.
+ */
+public class OffHeapBytesAtomicFieldData implements AtomicFieldData.WithOrdinals<ScriptDocValues.Strings>, AtomicFieldData.RefCounted {
+
+    public static OffHeapBytesAtomicFieldData empty(int numDocs) {
+        return new Empty(numDocs);
+    }
+
+    private final OffHeapByteArray bytes;
+    // the bytes of ordinal i are between offsets i and i + 1, the missing ordinal 0 has no bytes
+    private final OffHeapLongArray termOrdToBytesOffset;
+    private final OffHeapOrdinals ordinals;
+
+    private OffHeapLongArray hashes;
+
+    private final FieldDataRefCount refCount = new FieldDataRefCount() {
+        @Override
+        protected void release() {
+            releaseMemory();
+        }
+    };
+
+    public OffHeapBytesAtomicFieldData(OffHeapByteArray bytes, OffHeapLongArray termOrdToBytesOffset, OffHeapOrdinals ordinals) {
+        this.bytes = bytes;
+        this.termOrdToBytesOffset = termOrdToBytesOffset;
+        this.ordinals = ordinals;
+    }
+
+    @Override
+    public boolean isMultiValued() {
+        return ordinals.isMultiValued();
+    }
+
+    @Override
+    public boolean isValuesOrdered() {
+        return true;
+    }
+
+    @Override
+    public int getNumDocs() {
+        return ordinals.getNumDocs();
+    }
+
+    @Override
+    public long getNumberUniqueValues() {
+        return ordinals.getNumOrds();
+    }
+
+    @Override
+    public synchronized long getMemorySizeInBytes() {
+        long size = bytes.sizeInBytes() + termOrdToBytesOffset.sizeInBytes() + ordinals.getMemorySizeInBytes();
+        if (hashes != null) {
+            size += hashes.sizeInBytes();
+        }
+        return size;
+    }
+
+    private synchronized OffHeapLongArray getHashes() {
+        if (hashes == null) {
+            final long maxOrd = ordinals.getMaxOrd();
+            final OffHeapLongArray hashes = new OffHeapLongArray(maxOrd, 0xFFFFFFFFL);
+            final BytesRef scratch = new BytesRef();
+            for (long ord = 0; ord < maxOrd; ++ord) {
+                fill(bytes, termOrdToBytesOffset, ord, scratch);
+                hashes.set(ord, scratch.hashCode() & 0xFFFFFFFFL);
+            }
+            this.hashes = hashes;
+        }
+        return hashes;
+    }
+
+    static void fill(OffHeapByteArray bytes, OffHeapLongArray termOrdToBytesOffset, long ord, BytesRef ref) {
+        final long start = termOrdToBytesOffset.get(ord);
+        bytes.get(start, (int) (termOrdToBytesOffset.get(ord + 1) - start), ref);
+    }
+
+    @Override
+    public BytesValues.WithOrdinals getBytesValues(boolean needsHashes) {
+        if (needsHashes) {
+            return new HashedBytesValues(getHashes(), bytes, termOrdToBytesOffset, ordinals.ordinals());
+        } else {
+            return new BytesValues(bytes, termOrdToBytesOffset, ordinals.ordinals());
+        }
+    }
+
+    @Override
+    public ScriptDocValues.Strings getScriptValues() {
+        return new ScriptDocValues.Strings(getBytesValues(false));
+    }
+
+    @Override
+    public boolean tryIncRef() {
+        return refCount.tryIncRef();
+    }
+
+    @Override
+    public void decRef() {
+        refCount.decRef();
+    }
+
+    @Override
+    public void close() {
+        refCount.close();
+    }
+
+    private synchronized void releaseMemory() {
+        bytes.close();
+        termOrdToBytesOffset.close();
+        ordinals.close();
+        if (hashes != null) {
+            hashes.close();
+        }
+    }
+
+    static class BytesValues extends org.elasticsearch.index.fielddata.BytesValues.WithOrdinals {
+
+        protected final OffHeapByteArray bytes;
+        protected final OffHeapLongArray termOrdToBytesOffset;
+
+        BytesValues(OffHeapByteArray bytes, OffHeapLongArray termOrdToBytesOffset, Ordinals.Docs ordinals) {
+            super(ordinals);
+            this.bytes = bytes;
+            this.termOrdToBytesOffset = termOrdToBytesOffset;
+        }
+
+        @Override
+        public final BytesRef getValueByOrd(long ord) {
+            assert ord != Ordinals.MISSING_ORDINAL;
+            fill(bytes, termOrdToBytesOffset, ord, scratch);
+            return scratch;
+        }
+
+        @Override
+        public final BytesRef nextValue() {
+            fill(bytes, termOrdToBytesOffset, ordinals.nextOrd(), scratch);
+            return scratch;
+        }
+    }
+
+    static final class HashedBytesValues extends BytesValues {
+
+        private final OffHeapLongArray hashes;
+
+        HashedBytesValues(OffHeapLongArray hashes, OffHeapByteArray bytes, OffHeapLongArray termOrdToBytesOffset, Ordinals.Docs ordinals) {
+            super(bytes, termOrdToBytesOffset, ordinals);
+            this.hashes = hashes;
+        }
+
+        @Override
+        public int currentValueHash() {
+            assert ordinals.currentOrd() >= 0;
+            return (int) hashes.get(ordinals.currentOrd());
+        }
+    }
+
+    private final static class Empty extends OffHeapBytesAtomicFieldData {
+
+        private final Ordinals ordinals;
+
+        Empty(int numDocs) {
+            super(null, null, null);
+            this.ordinals = new EmptyOrdinals(numDocs);
+        }
+
+        @Override
+        public boolean isMultiValued() {
+            return false;
+        }
+
+        @Override
+        public int getNumDocs() {
+            return ordinals.getNumDocs();
+        }
+
+        @Override
+        public long getNumberUniqueValues() {
+            return 0;
+        }
+
+        @Override
+        public long getMemorySizeInBytes() {
+            return 0;
+        }
+
+        @Override
+        public BytesValues.WithOrdinals getBytesValues(boolean needsHashes) {
+            return new EmptyByteValuesWithOrdinals(ordinals.ordinals());
+        }
+
+        @Override
+        public ScriptDocValues.Strings getScriptValues() {
+            return ScriptDocValues.EMPTY_STRINGS;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
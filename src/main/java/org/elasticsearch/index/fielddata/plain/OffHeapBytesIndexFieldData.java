@@ -0,0 +1,124 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.fielddata.plain;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.OffHeapByteArray;
+import org.elasticsearch.common.util.OffHeapLongArray;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.FieldDataType;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexFieldDataCache;
+import org.elasticsearch.index.fielddata.ordinals.OffHeapOrdinals;
+import org.elasticsearch.index.fielddata.ordinals.OrdinalsBuilder;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.fielddata.breaker.MemoryCircuitBreaker;
+
+/**
+ * Loads string field data into off heap memory, see {@link OffHeapBytesAtomicFieldData}. The terms are
+ * iterated twice: once to size the bytes and offsets, and once to fill them and build the ordinals.
+ */
+public class OffHeapBytesIndexFieldData extends AbstractBytesIndexFieldData<OffHeapBytesAtomicFieldData> {
+
+    public static class Builder implements IndexFieldData.Builder {
+
+        @Override
+        public IndexFieldData<OffHeapBytesAtomicFieldData> build(Index index, @IndexSettings Settings indexSettings, FieldMapper.Names fieldNames, FieldDataType type, IndexFieldDataCache cache, CircuitBreakerService breakerService) {
+            return new OffHeapBytesIndexFieldData(index, indexSettings, fieldNames, type, cache, breakerService);
+        }
+    }
+
+    private final CircuitBreakerService breakerService;
+
+    public OffHeapBytesIndexFieldData(Index index, @IndexSettings Settings indexSettings, FieldMapper.Names fieldNames, FieldDataType fieldDataType, IndexFieldDataCache cache, CircuitBreakerService breakerService) {
+        super(index, indexSettings, fieldNames, fieldDataType, cache);
+        this.breakerService = breakerService;
+    }
+
+    @Override
+    public OffHeapBytesAtomicFieldData loadDirect(AtomicReaderContext context) throws Exception {
+        AtomicReader reader = context.reader();
+
+        Terms terms = reader.terms(getFieldNames().indexName());
+        if (terms == null) {
+            return OffHeapBytesAtomicFieldData.empty(reader.maxDoc());
+        }
+
+        // first pass to size the off heap arrays
+        long numTerms = 0;
+        long numBytes = 0;
+        long sumDocFreq = 0;
+        TermsEnum termsEnum = filter(terms, reader);
+        for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+            numTerms++;
+            numBytes += term.length;
+            sumDocFreq += termsEnum.docFreq();
+        }
+
+        // reserve the term bytes, offsets and ordinals before anything gets allocated
+        final MemoryCircuitBreaker breaker = breakerService.getBreaker();
+        final long reserved = numBytes + PagedBytesIndexFieldData.estimateOrdinalsBytes(numTerms + 1, sumDocFreq, terms.getDocCount(), reader.maxDoc());
+        breaker.addEstimateBytesAndMaybeBreak(reserved);
+        try {
+            return loadDirect(reader, terms, numTerms, numBytes);
+        } finally {
+            // the loaded field data is accounted for by the cache that holds it
+            breaker.addWithoutBreaking(-reserved);
+        }
+    }
+
+    private OffHeapBytesAtomicFieldData loadDirect(AtomicReader reader, Terms terms, long numTerms, long numBytes) throws Exception {
+        final OffHeapByteArray bytes = new OffHeapByteArray(numBytes);
+        // ord 0 is reserved for missing values, and has no bytes
+        final OffHeapLongArray termOrdToBytesOffset = new OffHeapLongArray(numTerms + 2, numBytes);
+        boolean success = false;
+        final float acceptableTransientOverheadRatio = fieldDataType.getSettings().getAsFloat("acceptable_transient_overhead_ratio", OrdinalsBuilder.DEFAULT_ACCEPTABLE_OVERHEAD_RATIO);
+        OrdinalsBuilder builder = new OrdinalsBuilder(numTerms, reader.maxDoc(), acceptableTransientOverheadRatio);
+        try {
+            long offset = 0;
+            TermsEnum termsEnum = filter(terms, reader);
+            DocsEnum docsEnum = null;
+            for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                final long termOrd = builder.nextOrdinal();
+                assert termOrd <= numTerms;
+                bytes.set(offset, term.bytes, term.offset, term.length);
+                offset += term.length;
+                termOrdToBytesOffset.set(termOrd + 1, offset);
+                docsEnum = termsEnum.docs(null, docsEnum, DocsEnum.FLAG_NONE);
+                for (int docId = docsEnum.nextDoc(); docId != DocsEnum.NO_MORE_DOCS; docId = docsEnum.nextDoc()) {
+                    builder.addDoc(docId);
+                }
+            }
+            assert offset == numBytes;
+            final OffHeapBytesAtomicFieldData fieldData = new OffHeapBytesAtomicFieldData(bytes, termOrdToBytesOffset, new OffHeapOrdinals(builder));
+            success = true;
+            return fieldData;
+        } finally {
+            if (!success) {
+                bytes.close();
+                termOrdToBytesOffset.close();
+            }
+            builder.close();
+        }
+    }
+}
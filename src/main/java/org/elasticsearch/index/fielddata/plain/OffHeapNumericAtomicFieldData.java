@@ -0,0 +1,165 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.fielddata.plain;
+
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.common.util.OffHeapLongArray;
+import org.elasticsearch.index.fielddata.AbstractAtomicNumericFieldData;
+import org.elasticsearch.index.fielddata.AtomicFieldData;
+import org.elasticsearch.index.fielddata.DoubleValues;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData.NumericType;
+import org.elasticsearch.index.fielddata.LongValues;
+import org.elasticsearch.index.fielddata.ordinals.OffHeapOrdinals;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
+
+/**
+ * Numeric field data stored outside of the Java heap: the unique values of the segment, in their sortable
+ * long (or int for floats) form relative to the smallest one, and {@link OffHeapOrdinals} pointing at them.
+ * The memory is released once the field data is closed and the searches that acquired it are done, see
+ * {@link AtomicFieldData.RefCounted}.
+ */
+public class OffHeapNumericAtomicFieldData extends AbstractAtomicNumericFieldData implements AtomicFieldData.RefCounted {
+
+    private final NumericType numericType;
+    private final OffHeapLongArray values;
+    private final long minValue;
+    private final OffHeapOrdinals ordinals;
+
+    private final FieldDataRefCount refCount = new FieldDataRefCount() {
+        @Override
+        protected void release() {
+            values.close();
+            ordinals.close();
+        }
+    };
+
+    /**
+     * @param values   the value of ordinal <code>i + 1</code> minus <code>minValue</code> at index <code>i</code>
+     * @param minValue the smallest value, in sortable form
+     */
+    public OffHeapNumericAtomicFieldData(NumericType numericType, OffHeapLongArray values, long minValue, OffHeapOrdinals ordinals) {
+        super(numericType.isFloatingPoint());
+        this.numericType = numericType;
+        this.values = values;
+        this.minValue = minValue;
+        this.ordinals = ordinals;
+    }
+
+    @Override
+    public boolean isMultiValued() {
+        return ordinals.isMultiValued();
+    }
+
+    @Override
+    public boolean isValuesOrdered() {
+        return true;
+    }
+
+    @Override
+    public int getNumDocs() {
+        return ordinals.getNumDocs();
+    }
+
+    @Override
+    public long getNumberUniqueValues() {
+        return ordinals.getNumOrds();
+    }
+
+    @Override
+    public long getMemorySizeInBytes() {
+        return values.sizeInBytes() + ordinals.getMemorySizeInBytes();
+    }
+
+    @Override
+    public LongValues getLongValues() {
+        return new OffHeapLongValues(numericType, values, minValue, ordinals.ordinals());
+    }
+
+    @Override
+    public DoubleValues getDoubleValues() {
+        return new OffHeapDoubleValues(numericType, values, minValue, ordinals.ordinals());
+    }
+
+    @Override
+    public boolean tryIncRef() {
+        return refCount.tryIncRef();
+    }
+
+    @Override
+    public void decRef() {
+        refCount.decRef();
+    }
+
+    @Override
+    public void close() {
+        refCount.close();
+    }
+
+    static double toDouble(NumericType numericType, long sortableValue) {
+        switch (numericType) {
+            case FLOAT:
+                return NumericUtils.sortableIntToFloat((int) sortableValue);
+            case DOUBLE:
+                return NumericUtils.sortableLongToDouble(sortableValue);
+            default:
+                return sortableValue;
+        }
+    }
+
+    static class OffHeapLongValues extends LongValues.WithOrdinals {
+
+        private final NumericType numericType;
+        private final OffHeapLongArray values;
+        private final long minValue;
+
+        OffHeapLongValues(NumericType numericType, OffHeapLongArray values, long minValue, Ordinals.Docs ordinals) {
+            super(ordinals);
+            this.numericType = numericType;
+            this.values = values;
+            this.minValue = minValue;
+        }
+
+        @Override
+        public long getValueByOrd(long ord) {
+            assert ord != Ordinals.MISSING_ORDINAL;
+            final long value = minValue + values.get(ord - 1);
+            return numericType.isFloatingPoint() ? (long) toDouble(numericType, value) : value;
+        }
+    }
+
+    static class OffHeapDoubleValues extends DoubleValues.WithOrdinals {
+
+        private final NumericType numericType;
+        private final OffHeapLongArray values;
+        private final long minValue;
+
+        OffHeapDoubleValues(NumericType numericType, OffHeapLongArray values, long minValue, Ordinals.Docs ordinals) {
+            super(ordinals);
+            this.numericType = numericType;
+            this.values = values;
+            this.minValue = minValue;
+        }
+
+        @Override
+        public double getValueByOrd(long ord) {
+            assert ord != Ordinals.MISSING_ORDINAL;
+            return toDouble(numericType, minValue + values.get(ord - 1));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.fielddata.plain;
+
+import com.google.common.base.Preconditions;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.OffHeapLongArray;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.*;
+import org.elasticsearch.index.fielddata.fieldcomparator.DoubleValuesComparatorSource;
+import org.elasticsearch.index.fielddata.fieldcomparator.FloatValuesComparatorSource;
+import org.elasticsearch.index.fielddata.fieldcomparator.LongValuesComparatorSource;
+import org.elasticsearch.index.fielddata.fieldcomparator.SortMode;
+import org.elasticsearch.index.fielddata.ordinals.OffHeapOrdinals;
+import org.elasticsearch.index.fielddata.ordinals.OrdinalsBuilder;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.fielddata.breaker.MemoryCircuitBreaker;
+
+/**
+ * Loads numeric field data into off heap memory, see {@link OffHeapNumericAtomicFieldData}. The terms are
+ * iterated twice: once to size the values array, and once to fill it and build the ordinals.
+ */
+public class OffHeapNumericIndexFieldData extends AbstractIndexFieldData<AtomicNumericFieldData> implements IndexNumericFieldData<AtomicNumericFieldData> {
+
+    public static class Builder implements IndexFieldData.Builder {
+
+        private NumericType numericType;
+
+        public Builder setNumericType(NumericType numericType) {
+            this.numericType = numericType;
+            return this;
+        }
+
+        @Override
+        public IndexFieldData<AtomicNumericFieldData> build(Index index, @IndexSettings Settings indexSettings, FieldMapper.Names fieldNames, FieldDataType type, IndexFieldDataCache cache, CircuitBreakerService breakerService) {
+            return new OffHeapNumericIndexFieldData(index, indexSettings, fieldNames, type, cache, numericType, breakerService);
+        }
+    }
+
+    private final NumericType numericType;
+    private final CircuitBreakerService breakerService;
+
+    public OffHeapNumericIndexFieldData(Index index, @IndexSettings Settings indexSettings, FieldMapper.Names fieldNames, FieldDataType fieldDataType, IndexFieldDataCache cache, NumericType numericType, CircuitBreakerService breakerService) {
+        super(index, indexSettings, fieldNames, fieldDataType, cache);
+        Preconditions.checkNotNull(numericType);
+        this.numericType = numericType;
+        this.breakerService = breakerService;
+    }
+
+    @Override
+    public NumericType getNumericType() {
+        return numericType;
+    }
+
+    @Override
+    public boolean valuesOrdered() {
+        return true;
+    }
+
+    @Override
+    public AtomicNumericFieldData loadDirect(AtomicReaderContext context) throws Exception {
+        AtomicReader reader = context.reader();
+        Terms terms = reader.terms(getFieldNames().indexName());
+        if (terms == null) {
+            return PackedArrayAtomicFieldData.empty(reader.maxDoc());
+        }
+        final boolean indexedAsLong = numericType.requiredBits() > 32;
+
+        // first pass to find out the number of unique values and their range, the encoded values are
+        // sorted so the first and last terms hold the min and max
+        long numValues = 0;
+        long minValue = 0;
+        long maxValue = 0;
+        long sumDocFreq = 0;
+        TermsEnum termsEnum = numericType.wrapTermsEnum(terms.iterator(null));
+        for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+            final long value = indexedAsLong ? NumericUtils.prefixCodedToLong(term) : NumericUtils.prefixCodedToInt(term);
+            if (numValues++ == 0) {
+                minValue = value;
+            }
+            maxValue = value;
+            sumDocFreq += termsEnum.docFreq();
+        }
+
+        // reserve the values and ordinals before anything gets allocated, the values take at most a long
+        // each, like the term offsets the estimate accounts for
+        final MemoryCircuitBreaker breaker = breakerService.getBreaker();
+        final long reserved = PagedBytesIndexFieldData.estimateOrdinalsBytes(numValues, sumDocFreq, terms.getDocCount(), reader.maxDoc());
+        breaker.addEstimateBytesAndMaybeBreak(reserved);
+        try {
+            return loadDirect(reader, terms, numValues, minValue, maxValue);
+        } finally {
+            // the loaded field data is accounted for by the cache that holds it
+            breaker.addWithoutBreaking(-reserved);
+        }
+    }
+
+    private AtomicNumericFieldData loadDirect(AtomicReader reader, Terms terms, long numValues, long minValue, long maxValue) throws Exception {
+        final boolean indexedAsLong = numericType.requiredBits() > 32;
+        final OffHeapLongArray values = new OffHeapLongArray(numValues, maxValue - minValue);
+        boolean success = false;
+        final float acceptableTransientOverheadRatio = fieldDataType.getSettings().getAsFloat("acceptable_transient_overhead_ratio", OrdinalsBuilder.DEFAULT_ACCEPTABLE_OVERHEAD_RATIO);
+        OrdinalsBuilder builder = new OrdinalsBuilder(numValues, reader.maxDoc(), acceptableTransientOverheadRatio);
+        try {
+            BytesRefIterator iter = builder.buildFromTerms(numericType.wrapTermsEnum(terms.iterator(null)));
+            long i = 0;
+            for (BytesRef term = iter.next(); term != null; term = iter.next()) {
+                final long value = indexedAsLong ? NumericUtils.prefixCodedToLong(term) : NumericUtils.prefixCodedToInt(term);
+                values.set(i++, value - minValue);
+            }
+            assert i == numValues;
+            final OffHeapNumericAtomicFieldData fieldData = new OffHeapNumericAtomicFieldData(numericType, values, minValue, new OffHeapOrdinals(builder));
+            success = true;
+            return fieldData;
+        } finally {
+            if (!success) {
+                values.close();
+            }
+            builder.close();
+        }
+    }
+
+    @Override
+    public XFieldComparatorSource comparatorSource(@Nullable Object missingValue, SortMode sortMode) {
+        switch (numericType) {
+            case FLOAT:
+                return new FloatValuesComparatorSource(this, missingValue, sortMode);
+            case DOUBLE:
+                return new DoubleValuesComparatorSource(this, missingValue, sortMode);
+            default:
+                return new LongValuesComparatorSource(this, missingValue, sortMode);
+        }
+    }
+}
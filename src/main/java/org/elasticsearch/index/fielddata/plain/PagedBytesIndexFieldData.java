@@ -22,9 +22,12 @@ package org.elasticsearch.index.fielddata.plain;
 import org.apache.lucene.index.*;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.PagedBytes;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.lucene.util.packed.MonotonicAppendingLongBuffer;
+import org.apache.lucene.util.packed.PackedInts;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.index.codec.postingsformat.PersistedOrdinalsPostingsFormat;
 import org.elasticsearch.index.fielddata.FieldDataType;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldDataCache;
@@ -32,21 +35,29 @@ import org.elasticsearch.index.fielddata.ordinals.Ordinals;
 import org.elasticsearch.index.fielddata.ordinals.OrdinalsBuilder;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.fielddata.breaker.MemoryCircuitBreaker;
 
 /**
  */
 public class PagedBytesIndexFieldData extends AbstractBytesIndexFieldData<PagedBytesAtomicFieldData> {
 
+    private static final long TERM_BYTES_RESERVATION_CHUNK = 1 << 20;
+
     public static class Builder implements IndexFieldData.Builder {
 
         @Override
-        public IndexFieldData<PagedBytesAtomicFieldData> build(Index index, @IndexSettings Settings indexSettings, FieldMapper.Names fieldNames, FieldDataType type, IndexFieldDataCache cache) {
-            return new PagedBytesIndexFieldData(index, indexSettings, fieldNames, type, cache);
+        public IndexFieldData<PagedBytesAtomicFieldData> build(Index index, @IndexSettings Settings indexSettings, FieldMapper.Names fieldNames, FieldDataType type, IndexFieldDataCache cache, CircuitBreakerService breakerService) {
+            return new PagedBytesIndexFieldData(index, indexSettings, fieldNames, type, cache, breakerService);
         }
     }
 
-    public PagedBytesIndexFieldData(Index index, @IndexSettings Settings indexSettings, FieldMapper.Names fieldNames, FieldDataType fieldDataType, IndexFieldDataCache cache) {
+    private final CircuitBreakerService breakerService;
+
+    public PagedBytesIndexFieldData(Index index, @IndexSettings Settings indexSettings, FieldMapper.Names fieldNames, FieldDataType fieldDataType, IndexFieldDataCache cache,
+                                    CircuitBreakerService breakerService) {
         super(index, indexSettings, fieldNames, fieldDataType, cache);
+        this.breakerService = breakerService;
     }
 
     @Override
@@ -58,39 +69,104 @@ public class PagedBytesIndexFieldData extends AbstractBytesIndexFieldData<PagedB
             return PagedBytesAtomicFieldData.empty(reader.maxDoc());
         }
 
-        final PagedBytes bytes = new PagedBytes(15);
-
-        final MonotonicAppendingLongBuffer termOrdToBytesOffset = new MonotonicAppendingLongBuffer();
-        termOrdToBytesOffset.add(0); // first ord is reserved for missing values
-        final long numTerms;
-        if (regex == null && frequency == null) {
-            numTerms = terms.size();
-        } else {
-            numTerms = -1;
-        }
-        final float acceptableTransientOverheadRatio = fieldDataType.getSettings().getAsFloat("acceptable_transient_overhead_ratio", OrdinalsBuilder.DEFAULT_ACCEPTABLE_OVERHEAD_RATIO);
-        OrdinalsBuilder builder = new OrdinalsBuilder(numTerms, reader.maxDoc(), acceptableTransientOverheadRatio);
+        // reserve the ordinals and term offsets before anything gets allocated, the term bytes are
+        // reserved in chunks while they are copied since there is no statistic for their sum
+        final MemoryCircuitBreaker breaker = breakerService.getBreaker();
+        long reserved = estimateOrdinalsBytes(terms.size(), terms.getSumDocFreq(), terms.getDocCount(), reader.maxDoc());
+        breaker.addEstimateBytesAndMaybeBreak(reserved);
         try {
-            // 0 is reserved for "unset"
-            bytes.copyUsingLengthPrefix(new BytesRef());
-            TermsEnum termsEnum = filter(terms, reader);
-            DocsEnum docsEnum = null;
-            for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
-                final long termOrd = builder.nextOrdinal();
-                assert termOrd == termOrdToBytesOffset.size();
-                termOrdToBytesOffset.add(bytes.copyUsingLengthPrefix(term));
-                docsEnum = termsEnum.docs(null, docsEnum, DocsEnum.FLAG_NONE);
-                for (int docId = docsEnum.nextDoc(); docId != DocsEnum.NO_MORE_DOCS; docId = docsEnum.nextDoc()) {
-                    builder.addDoc(docId);
-                }
+            final PagedBytes bytes = new PagedBytes(15);
+
+            final MonotonicAppendingLongBuffer termOrdToBytesOffset = new MonotonicAppendingLongBuffer();
+            termOrdToBytesOffset.add(0); // first ord is reserved for missing values
+            final long numTerms;
+            if (regex == null && frequency == null) {
+                numTerms = terms.size();
+            } else {
+                numTerms = -1;
+            }
+            final float acceptableTransientOverheadRatio = fieldDataType.getSettings().getAsFloat("acceptable_transient_overhead_ratio", OrdinalsBuilder.DEFAULT_ACCEPTABLE_OVERHEAD_RATIO);
+            // ordinals persisted by the postings format can only be used as-is if no terms are filtered out
+            final Ordinals persistedOrdinals;
+            if (regex == null && frequency == null && terms instanceof PersistedOrdinalsPostingsFormat.PersistedOrdinalsTerms) {
+                persistedOrdinals = ((PersistedOrdinalsPostingsFormat.PersistedOrdinalsTerms) terms).loadOrdinals(fieldDataType.getSettings());
+            } else {
+                persistedOrdinals = null;
             }
-            final long sizePointer = bytes.getPointer();
-            PagedBytes.Reader bytesReader = bytes.freeze(true);
-            final Ordinals ordinals = builder.build(fieldDataType.getSettings());
+            final OrdinalsBuilder builder = persistedOrdinals == null ? new OrdinalsBuilder(numTerms, reader.maxDoc(), acceptableTransientOverheadRatio) : null;
+            try {
+                // 0 is reserved for "unset"
+                bytes.copyUsingLengthPrefix(new BytesRef());
+                long termBytesUsed = 0;
+                long termBytesReserved = 0;
+                TermsEnum termsEnum = filter(terms, reader);
+                DocsEnum docsEnum = null;
+                for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                    termBytesUsed += term.length + 2; // at most 2 bytes of length prefix
+                    if (termBytesUsed > termBytesReserved) {
+                        final long chunk = Math.max(TERM_BYTES_RESERVATION_CHUNK, termBytesUsed - termBytesReserved);
+                        breaker.addEstimateBytesAndMaybeBreak(chunk);
+                        reserved += chunk;
+                        termBytesReserved += chunk;
+                    }
+                    termOrdToBytesOffset.add(bytes.copyUsingLengthPrefix(term));
+                    if (builder == null) {
+                        continue;
+                    }
+                    final long termOrd = builder.nextOrdinal();
+                    assert termOrd == termOrdToBytesOffset.size() - 1;
+                    docsEnum = termsEnum.docs(null, docsEnum, DocsEnum.FLAG_NONE);
+                    for (int docId = docsEnum.nextDoc(); docId != DocsEnum.NO_MORE_DOCS; docId = docsEnum.nextDoc()) {
+                        builder.addDoc(docId);
+                    }
+                }
+                final long sizePointer = bytes.getPointer();
+                PagedBytes.Reader bytesReader = bytes.freeze(true);
+                final Ordinals ordinals;
+                if (builder == null) {
+                    assert persistedOrdinals.getNumOrds() == termOrdToBytesOffset.size() - 1;
+                    ordinals = persistedOrdinals;
+                } else {
+                    ordinals = builder.build(fieldDataType.getSettings());
+                }
 
-            return new PagedBytesAtomicFieldData(bytesReader, sizePointer, termOrdToBytesOffset, ordinals);
+                return new PagedBytesAtomicFieldData(bytesReader, sizePointer, termOrdToBytesOffset, ordinals);
+            } finally {
+                if (builder != null) {
+                    builder.close();
+                }
+            }
         } finally {
-            builder.close();
+            // the loaded field data is accounted for by the cache that holds it
+            breaker.addWithoutBreaking(-reserved);
+        }
+    }
+
+    /**
+     * Estimates the memory needed to build the ordinals and term offsets of a segment from its terms
+     * statistics, taking into account that the {@link OrdinalsBuilder} and the built ordinals are
+     * both alive at the end of the load. Unknown statistics (<tt>-1</tt>) fall back to upper bounds.
+     */
+    static long estimateOrdinalsBytes(long numTerms, long sumDocFreq, int docCount, int maxDoc) {
+        if (docCount < 0) {
+            docCount = maxDoc;
+        }
+        if (sumDocFreq < 0) {
+            sumDocFreq = docCount;
+        }
+        if (numTerms < 0) {
+            numTerms = sumDocFreq;
+        }
+        final int bitsPerOrd = PackedInts.bitsRequired(numTerms + 1);
+        final long extraOrds = Math.max(0, sumDocFreq - docCount);
+        final long ordinalsBytes = ((maxDoc + extraOrds) * bitsPerOrd + 7) / 8;
+        long estimate = 2 * ordinalsBytes;
+        if (extraOrds > 0) {
+            // positions of the multi-valued docs while building, and per document offsets once built
+            estimate += 2L * maxDoc * RamUsageEstimator.NUM_BYTES_INT;
         }
+        // term ord to bytes offsets
+        estimate += (numTerms + 1) * RamUsageEstimator.NUM_BYTES_LONG;
+        return estimate;
     }
 }
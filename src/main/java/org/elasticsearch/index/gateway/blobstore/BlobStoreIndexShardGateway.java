@@ -477,7 +477,7 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
                             if ((si.position() + opSize) > bos.size()) {
                                 break;
                             }
-                            Translog.Operation operation = TranslogStreams.readTranslogOperation(si);
+                            Translog.Operation operation = TranslogStreams.readTranslogOperation(si, opSize);
                             if ((si.position() - curPos) != opSize) {
                                 logger.warn("mismatch in size, expected [{}], got [{}]", opSize, si.position() - curPos);
                             }
@@ -49,6 +49,8 @@ import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 import java.util.concurrent.ScheduledFuture;
 
@@ -208,11 +210,23 @@ public class LocalIndexShardGateway extends AbstractIndexShardComponent implemen
         try {
             fs = new FileInputStream(recoveringTranslogFile);
             InputStreamStreamInput si = new InputStreamStreamInput(fs);
+            MappedByteBuffer mapped = null;
+            if (translog.mmapSnapshots() && recoveringTranslogFile.length() <= Integer.MAX_VALUE) {
+                mapped = fs.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, recoveringTranslogFile.length());
+            }
             while (true) {
                 Translog.Operation operation;
                 try {
-                    int opSize = si.readInt();
-                    operation = TranslogStreams.readTranslogOperation(si);
+                    if (mapped != null) {
+                        operation = TranslogStreams.readTranslogOperation(mapped);
+                        if (operation == null) {
+                            // not properly written the last op
+                            break;
+                        }
+                    } else {
+                        int opSize = si.readInt();
+                        operation = TranslogStreams.readTranslogOperation(si, opSize);
+                    }
                 } catch (EOFException e) {
                     // ignore, not properly written the last op
                     break;
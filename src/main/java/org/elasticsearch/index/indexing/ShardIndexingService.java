@@ -20,11 +20,13 @@
 package org.elasticsearch.index.indexing;
 
 import com.google.common.collect.ImmutableMap;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.indexing.slowlog.ShardSlowLogIndexingService;
 import org.elasticsearch.index.settings.IndexSettings;
@@ -46,6 +48,10 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
 
     private volatile Map<String, StatsHolder> typesStats = ImmutableMap.of();
 
+    private final CounterMetric versionMapMemory = new CounterMetric();
+
+    private volatile ByteSizeValue indexBufferSize;
+
     private CopyOnWriteArrayList<IndexingOperationListener> listeners = null;
 
     @Inject
@@ -60,20 +66,20 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
      * <tt>_all</tt> for all types.
      */
     public IndexingStats stats(String... types) {
-        IndexingStats.Stats total = totalStats.stats();
+        IndexingStats.Stats total = totalStats.stats(versionMapMemory.count());
         Map<String, IndexingStats.Stats> typesSt = null;
         if (types != null && types.length > 0) {
             if (types.length == 1 && types[0].equals("_all")) {
                 typesSt = new HashMap<String, IndexingStats.Stats>(typesStats.size());
                 for (Map.Entry<String, StatsHolder> entry : typesStats.entrySet()) {
-                    typesSt.put(entry.getKey(), entry.getValue().stats());
+                    typesSt.put(entry.getKey(), entry.getValue().stats(0));
                 }
             } else {
                 typesSt = new HashMap<String, IndexingStats.Stats>(types.length);
                 for (String type : types) {
                     StatsHolder statsHolder = typesStats.get(type);
                     if (statsHolder != null) {
-                        typesSt.put(type, statsHolder.stats());
+                        typesSt.put(type, statsHolder.stats(0));
                     }
                 }
             }
@@ -81,6 +87,26 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
         return new IndexingStats(total, typesSt);
     }
 
+    /**
+     * The memory used by the engine to keep track of the versions of documents changed since the last refresh.
+     */
+    public CounterMetric versionMapMemory() {
+        return versionMapMemory;
+    }
+
+    /**
+     * The indexing buffer currently allocated to the shard by the {@link org.elasticsearch.indices.memory.IndexingMemoryController},
+     * <tt>null</tt> if none was allocated yet.
+     */
+    @Nullable
+    public ByteSizeValue indexBufferSize() {
+        return indexBufferSize;
+    }
+
+    public void indexBufferSize(ByteSizeValue indexBufferSize) {
+        this.indexBufferSize = indexBufferSize;
+    }
+
     public synchronized void addListener(IndexingOperationListener listener) {
         if (listeners == null) {
             listeners = new CopyOnWriteArrayList<IndexingOperationListener>();
@@ -286,10 +312,11 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
         public final CounterMetric indexCurrent = new CounterMetric();
         public final CounterMetric deleteCurrent = new CounterMetric();
 
-        public IndexingStats.Stats stats() {
+        public IndexingStats.Stats stats(long versionMapMemoryInBytes) {
             return new IndexingStats.Stats(
                     indexMetric.count(), TimeUnit.NANOSECONDS.toMillis(indexMetric.sum()), indexCurrent.count(),
-                    deleteMetric.count(), TimeUnit.NANOSECONDS.toMillis(deleteMetric.sum()), deleteCurrent.count());
+                    deleteMetric.count(), TimeUnit.NANOSECONDS.toMillis(deleteMetric.sum()), deleteCurrent.count(),
+                    versionMapMemoryInBytes);
         }
 
         public long totalCurrent() {
@@ -310,8 +310,13 @@ public class DateFieldMapper extends NumberFieldMapper<Long> {
     }
 
     public long parseToMilliseconds(Object value, @Nullable QueryParseContext context, boolean includeUpper) {
-        long now = context == null ? System.currentTimeMillis() : context.nowInMillis();
-        return includeUpper && roundCeil ? dateMathParser.parseRoundCeil(convertToString(value), now) : dateMathParser.parse(convertToString(value), now);
+        String strValue = convertToString(value);
+        long now = 0;
+        if (strValue.startsWith("now")) {
+            // only resolved when used, requests that depend on it can't be cached
+            now = context == null ? System.currentTimeMillis() : context.nowInMillis();
+        }
+        return includeUpper && roundCeil ? dateMathParser.parseRoundCeil(strValue, now) : dateMathParser.parse(strValue, now);
     }
 
     @Override
@@ -0,0 +1,253 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.merge.policy;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.DocsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.index.sorter.Sorter;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntroSorter;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.mapper.MapperService;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A {@link Sorter} that orders the documents of merged segments by the value of a <tt>long</tt> based
+ * numeric field (<tt>long</tt> or <tt>date</tt>), read from its indexed terms. When a document has several
+ * values the lowest one is used for ascending order and the highest one for descending order, and documents
+ * without a value are put last, the same way a search request sorting on this field would order them.
+ */
+public class NumericFieldSorter extends Sorter {
+
+    public static final String INDEX_MERGE_POLICY_SORT_FIELD = "index.merge.policy.sort.field";
+    public static final String INDEX_MERGE_POLICY_SORT_ORDER = "index.merge.policy.sort.order";
+
+    private final String field;
+    private final boolean reverse;
+
+    public NumericFieldSorter(String field, boolean reverse) {
+        this.field = field;
+        this.reverse = reverse;
+    }
+
+    /**
+     * Returns the sorter configured for the index, or <tt>null</tt> if segments should not be sorted.
+     */
+    public static NumericFieldSorter fromSettings(Settings indexSettings) {
+        String field = indexSettings.get(INDEX_MERGE_POLICY_SORT_FIELD);
+        if (field == null) {
+            return null;
+        }
+        String order = indexSettings.get(INDEX_MERGE_POLICY_SORT_ORDER, "desc");
+        if ("desc".equals(order)) {
+            return new NumericFieldSorter(field, true);
+        } else if ("asc".equals(order)) {
+            return new NumericFieldSorter(field, false);
+        }
+        throw new ElasticSearchIllegalArgumentException("[" + INDEX_MERGE_POLICY_SORT_ORDER + "] must be either [asc] or [desc], got [" + order + "]");
+    }
+
+    /**
+     * Checks that the sort field configured in the index settings, if any, is mapped as a <tt>long</tt> or a
+     * <tt>date</tt> field in the provided mappings, the only types its indexed terms can be read as.
+     */
+    public static void validate(Settings indexSettings, Iterable<MappingMetaData> mappings) {
+        NumericFieldSorter sorter = fromSettings(indexSettings);
+        if (sorter == null) {
+            return;
+        }
+        boolean mapped = false;
+        for (MappingMetaData mapping : mappings) {
+            if (MapperService.DEFAULT_MAPPING.equals(mapping.type())) {
+                continue;
+            }
+            String type;
+            try {
+                type = fieldType(mapping.sourceAsMap(), sorter.field());
+            } catch (IOException e) {
+                throw new ElasticSearchIllegalArgumentException("failed to parse mapping [" + mapping.type() + "]", e);
+            }
+            if (type == null) {
+                continue;
+            }
+            if (!"long".equals(type) && !"date".equals(type)) {
+                throw new ElasticSearchIllegalArgumentException("[" + INDEX_MERGE_POLICY_SORT_FIELD + "] must be a long or date field, ["
+                        + sorter.field() + "] is mapped as [" + type + "] in type [" + mapping.type() + "]");
+            }
+            mapped = true;
+        }
+        if (!mapped) {
+            throw new ElasticSearchIllegalArgumentException("[" + INDEX_MERGE_POLICY_SORT_FIELD + "] must be a long or date field, ["
+                    + sorter.field() + "] is not mapped");
+        }
+    }
+
+    /**
+     * Returns the type of the field at the provided path of a mapping, or <tt>null</tt> if it isn't mapped.
+     */
+    @SuppressWarnings("unchecked")
+    private static String fieldType(Map<String, Object> mapping, String field) {
+        Map<String, Object> current = mapping;
+        for (String name : Strings.splitStringToArray(field, '.')) {
+            Object properties = current.get("properties");
+            if (!(properties instanceof Map)) {
+                return null;
+            }
+            Object fieldMapping = ((Map<String, Object>) properties).get(name);
+            if (!(fieldMapping instanceof Map)) {
+                return null;
+            }
+            current = (Map<String, Object>) fieldMapping;
+        }
+        Object type = current.get("type");
+        return type == null ? "object" : type.toString();
+    }
+
+    public String field() {
+        return field;
+    }
+
+    public boolean reverse() {
+        return reverse;
+    }
+
+    @Override
+    public DocMap sort(AtomicReader reader) throws IOException {
+        final int maxDoc = reader.maxDoc();
+        final long[] values = new long[maxDoc];
+        // missing values sort last
+        Arrays.fill(values, reverse ? Long.MIN_VALUE : Long.MAX_VALUE);
+        final Terms terms = reader.terms(field);
+        if (terms != null) {
+            final boolean[] seen = new boolean[maxDoc];
+            // only full precision terms, in ascending order of value
+            final TermsEnum termsEnum = NumericUtils.filterPrefixCodedLongs(terms.iterator(null));
+            DocsEnum docsEnum = null;
+            for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                final long value = NumericUtils.prefixCodedToLong(term);
+                docsEnum = termsEnum.docs(null, docsEnum, DocsEnum.FLAG_NONE);
+                for (int doc = docsEnum.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docsEnum.nextDoc()) {
+                    // ascending keeps the first (lowest) value, descending the last (highest) one
+                    if (reverse || !seen[doc]) {
+                        values[doc] = value;
+                        seen[doc] = true;
+                    }
+                }
+            }
+        }
+
+        boolean sorted = true;
+        for (int doc = 1; doc < maxDoc; doc++) {
+            if (compareValues(values[doc - 1], values[doc]) > 0) {
+                sorted = false;
+                break;
+            }
+        }
+        if (sorted) {
+            return null;
+        }
+
+        final int[] newToOld = new int[maxDoc];
+        for (int doc = 0; doc < maxDoc; doc++) {
+            newToOld[doc] = doc;
+        }
+        new IntroSorter() {
+            private long pivotValue;
+            private int pivotDoc;
+
+            @Override
+            protected void swap(int i, int j) {
+                final int tmp = newToOld[i];
+                newToOld[i] = newToOld[j];
+                newToOld[j] = tmp;
+            }
+
+            @Override
+            protected int compare(int i, int j) {
+                return compareDocs(values[newToOld[i]], newToOld[i], values[newToOld[j]], newToOld[j]);
+            }
+
+            @Override
+            protected void setPivot(int i) {
+                pivotDoc = newToOld[i];
+                pivotValue = values[pivotDoc];
+            }
+
+            @Override
+            protected int comparePivot(int j) {
+                return compareDocs(pivotValue, pivotDoc, values[newToOld[j]], newToOld[j]);
+            }
+        }.sort(0, maxDoc);
+
+        final int[] oldToNew = new int[maxDoc];
+        for (int doc = 0; doc < maxDoc; doc++) {
+            oldToNew[newToOld[doc]] = doc;
+        }
+        return new DocMap() {
+            @Override
+            public int oldToNew(int docID) {
+                return oldToNew[docID];
+            }
+
+            @Override
+            public int newToOld(int docID) {
+                return newToOld[docID];
+            }
+
+            @Override
+            public int size() {
+                return maxDoc;
+            }
+        };
+    }
+
+    private int compareValues(long value1, long value2) {
+        final int cmp = value1 < value2 ? -1 : (value1 == value2 ? 0 : 1);
+        return reverse ? -cmp : cmp;
+    }
+
+    private int compareDocs(long value1, int doc1, long value2, int doc2) {
+        final int cmp = compareValues(value1, value2);
+        if (cmp != 0) {
+            return cmp;
+        }
+        // keep the index order on ties
+        return doc1 - doc2;
+    }
+
+    @Override
+    public String getID() {
+        return "NumericFieldSorter(" + field + "," + (reverse ? "desc" : "asc") + ")";
+    }
+
+    @Override
+    public String toString() {
+        return getID();
+    }
+}
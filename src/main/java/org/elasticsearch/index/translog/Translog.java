@@ -20,6 +20,7 @@
 package org.elasticsearch.index.translog;
 
 import org.apache.lucene.index.Term;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.ElasticSearchIllegalStateException;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
@@ -46,6 +47,8 @@ public interface Translog extends IndexShardComponent, CloseableIndexComponent {
 
     public static final String TRANSLOG_ID_KEY = "translog_id";
 
+    public static final String INDEX_TRANSLOG_DURABILITY = "index.translog.durability";
+
     void updateBuffer(ByteSizeValue bufferSize);
 
     void closeWithDelete();
@@ -126,10 +129,41 @@ public interface Translog extends IndexShardComponent, CloseableIndexComponent {
      */
     void sync();
 
+    /**
+     * Ensures all the operations added so far are sync'ed to disk before returning. Concurrent callers
+     * are grouped on a single fsync, the first one to get in syncs the operations of all of them.
+     */
+    void ensureSynced() throws TranslogException;
+
     boolean syncNeeded();
 
+    /**
+     * Returns the durability requested for operations added to this translog.
+     */
+    Durability durability();
+
     void syncOnEachOperation(boolean syncOnEachOperation);
 
+    static enum Durability {
+        /**
+         * Operations are sync'ed in the background, on an interval.
+         */
+        ASYNC,
+        /**
+         * Operations are sync'ed before the request adding them is acknowledged.
+         */
+        REQUEST;
+
+        public static Durability fromString(String durability) throws ElasticSearchIllegalArgumentException {
+            if (ASYNC.name().equalsIgnoreCase(durability)) {
+                return ASYNC;
+            } else if (REQUEST.name().equalsIgnoreCase(durability)) {
+                return REQUEST;
+            }
+            throw new ElasticSearchIllegalArgumentException("No translog durability [" + durability + "]");
+        }
+    }
+
     static class Location {
         public final long translogId;
         public final long translogLocation;
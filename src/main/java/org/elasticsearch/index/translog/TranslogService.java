@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.translog;
 
+import jsr166y.ThreadLocalRandom;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
@@ -33,6 +34,7 @@ import org.elasticsearch.index.shard.IllegalIndexShardStateException;
 import org.elasticsearch.index.shard.IndexShardState;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.service.IndexShard;
+import org.elasticsearch.indices.flush.IndicesFlushScheduler;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.util.concurrent.ScheduledFuture;
@@ -52,6 +54,8 @@ public class TranslogService extends AbstractIndexShardComponent {
 
     private final Translog translog;
 
+    private final IndicesFlushScheduler flushScheduler;
+
     private int flushThresholdOperations;
 
     private ByteSizeValue flushThresholdSize;
@@ -67,12 +71,14 @@ public class TranslogService extends AbstractIndexShardComponent {
     private final ApplySettings applySettings = new ApplySettings();
 
     @Inject
-    public TranslogService(ShardId shardId, @IndexSettings Settings indexSettings, IndexSettingsService indexSettingsService, ThreadPool threadPool, IndexShard indexShard, Translog translog) {
+    public TranslogService(ShardId shardId, @IndexSettings Settings indexSettings, IndexSettingsService indexSettingsService, ThreadPool threadPool, IndexShard indexShard, Translog translog,
+                           IndicesFlushScheduler flushScheduler) {
         super(shardId, indexSettings);
         this.threadPool = threadPool;
         this.indexSettingsService = indexSettingsService;
         this.indexShard = indexShard;
         this.translog = translog;
+        this.flushScheduler = flushScheduler;
 
         this.flushThresholdOperations = componentSettings.getAsInt("flush_threshold_ops", componentSettings.getAsInt("flush_threshold", 5000));
         this.flushThresholdSize = componentSettings.getAsBytesSize("flush_threshold_size", new ByteSizeValue(200, ByteSizeUnit.MB));
@@ -82,7 +88,9 @@ public class TranslogService extends AbstractIndexShardComponent {
 
         logger.debug("interval [{}], flush_threshold_ops [{}], flush_threshold_size [{}], flush_threshold_period [{}]", interval, flushThresholdOperations, flushThresholdSize, flushThresholdPeriod);
 
-        this.future = threadPool.schedule(interval, ThreadPool.Names.SAME, new TranslogBasedFlush());
+        // stagger the first check, so the shards of the node don't check (and flush) at the same time
+        TimeValue firstInterval = timeValueMillis(interval.millis() + ThreadLocalRandom.current().nextLong(Math.max(1, interval.millis())));
+        this.future = threadPool.schedule(firstInterval, ThreadPool.Names.SAME, new TranslogBasedFlush());
 
         indexSettingsService.addListener(applySettings);
     }
@@ -179,7 +187,7 @@ public class TranslogService extends AbstractIndexShardComponent {
         }
 
         private void asyncFlushAndReschedule() {
-            threadPool.executor(ThreadPool.Names.FLUSH).execute(new Runnable() {
+            flushScheduler.flush(shardId, translog.translogSizeInBytes(), new Runnable() {
                 @Override
                 public void run() {
                     try {
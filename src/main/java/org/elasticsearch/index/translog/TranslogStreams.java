@@ -19,19 +19,51 @@
 
 package org.elasticsearch.index.translog;
 
+import org.elasticsearch.common.bytes.ByteBufferBytesReference;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.lzf.LZFCompressor;
 import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
 
 /**
  *
  */
 public class TranslogStreams {
 
+    /**
+     * Marks an operation written as an LZF compressed block, followed by the CRC32 of the compressed bytes and
+     * the compressed bytes themselves. It never collides with a {@link Translog.Operation.Type} id, so files
+     * (and single files) mixing plain and compressed operations can be read.
+     */
+    static final byte COMPRESSED_BLOCK = 0x40;
+
+    // the compressed bytes of a block whose length can't be checked against its operation size are read by chunks of
+    // this size, so that a corrupted length fails on the missing bytes rather than on allocating them
+    private static final int UNCHECKED_BLOCK_CHUNK_SIZE = 8192;
+
+    private static final LZFCompressor compressor = new LZFCompressor();
+
     public static Translog.Operation readTranslogOperation(StreamInput in) throws IOException {
-        Translog.Operation.Type type = Translog.Operation.Type.fromId(in.readByte());
+        return readTranslogOperation(in, -1);
+    }
+
+    /**
+     * Reads an operation of the provided size (without its size header), which bounds the length of a compressed block.
+     * A negative size means that the size is not known.
+     */
+    public static Translog.Operation readTranslogOperation(StreamInput in, int opSize) throws IOException {
+        byte id = in.readByte();
+        if (id == COMPRESSED_BLOCK) {
+            in = readCompressedBlock(in, opSize);
+            id = in.readByte();
+        }
+        Translog.Operation.Type type = Translog.Operation.Type.fromId(id);
         Translog.Operation operation;
         switch (type) {
             case CREATE:
@@ -53,10 +85,37 @@ public class TranslogStreams {
         return operation;
     }
 
+    /**
+     * Reads the next operation, prefixed with its size, from the buffer and moves the buffer position past it.
+     * The operation is read from a slice of the buffer, so the bytes it references (like the source) are not
+     * copied. Returns <tt>null</tt>, leaving the position as is, if the buffer does not hold a complete operation.
+     */
+    public static Translog.Operation readTranslogOperation(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 4) {
+            return null;
+        }
+        int opSize = buffer.getInt(buffer.position());
+        if (opSize < 0 || buffer.remaining() - 4 < opSize) {
+            return null;
+        }
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(buffer.position() + 4);
+        slice.limit(buffer.position() + 4 + opSize);
+        Translog.Operation operation = readTranslogOperation(new ByteBufferBytesReference(slice).streamInput(), opSize);
+        buffer.position(buffer.position() + 4 + opSize);
+        return operation;
+    }
+
     public static Translog.Source readSource(byte[] data) throws IOException {
         BytesStreamInput in = new BytesStreamInput(data, false);
         in.readInt(); // the size header
-        Translog.Operation.Type type = Translog.Operation.Type.fromId(in.readByte());
+        StreamInput opIn = in;
+        byte id = opIn.readByte();
+        if (id == COMPRESSED_BLOCK) {
+            opIn = readCompressedBlock(opIn, data.length - 4);
+            id = opIn.readByte();
+        }
+        Translog.Operation.Type type = Translog.Operation.Type.fromId(id);
         Translog.Operation operation;
         switch (type) {
             case CREATE:
@@ -74,11 +133,58 @@ public class TranslogStreams {
             default:
                 throw new IOException("No type for [" + type + "]");
         }
-        return operation.readSource(in);
+        return operation.readSource(opIn);
     }
 
     public static void writeTranslogOperation(StreamOutput out, Translog.Operation op) throws IOException {
         out.writeByte(op.opType().id());
         op.writeTo(out);
     }
+
+    /**
+     * Writes the operation as a checksummed LZF block, readable by {@link #readTranslogOperation(StreamInput)}.
+     */
+    public static void writeCompressedTranslogOperation(StreamOutput out, Translog.Operation op) throws IOException {
+        BytesStreamOutput opOut = new BytesStreamOutput();
+        writeTranslogOperation(opOut, op);
+        BytesReference bytes = opOut.bytes();
+        byte[] compressed = compressor.compress(bytes.array(), bytes.arrayOffset(), bytes.length());
+        CRC32 checksum = new CRC32();
+        checksum.update(compressed, 0, compressed.length);
+        out.writeByte(COMPRESSED_BLOCK);
+        out.writeInt((int) checksum.getValue());
+        out.writeVInt(compressed.length);
+        out.writeBytes(compressed);
+    }
+
+    private static StreamInput readCompressedBlock(StreamInput in, int opSize) throws IOException {
+        int expectedChecksum = in.readInt();
+        int length = in.readVInt();
+        // the block marker, the checksum and at least one byte of length come first
+        if (length < 0 || (opSize >= 0 && length > opSize - 6)) {
+            throw new IOException("translog block length [" + length + "] is out of bounds for an operation of [" + opSize + "] bytes");
+        }
+        byte[] compressed;
+        if (opSize >= 0 || length <= UNCHECKED_BLOCK_CHUNK_SIZE) {
+            compressed = new byte[length];
+            in.readBytes(compressed, 0, length);
+        } else {
+            BytesStreamOutput out = new BytesStreamOutput(UNCHECKED_BLOCK_CHUNK_SIZE);
+            byte[] chunk = new byte[UNCHECKED_BLOCK_CHUNK_SIZE];
+            for (int remaining = length; remaining > 0; ) {
+                int chunkLength = Math.min(remaining, chunk.length);
+                in.readBytes(chunk, 0, chunkLength);
+                out.writeBytes(chunk, 0, chunkLength);
+                remaining -= chunkLength;
+            }
+            compressed = out.bytes().toBytes();
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(compressed, 0, length);
+        if ((int) checksum.getValue() != expectedChecksum) {
+            throw new IOException("translog block checksum mismatch, expected [" + expectedChecksum + "], got [" + (int) checksum.getValue() + "]");
+        }
+        byte[] uncompressed = compressor.uncompress(compressed, 0, length);
+        return new BytesStreamInput(uncompressed, false);
+    }
 }
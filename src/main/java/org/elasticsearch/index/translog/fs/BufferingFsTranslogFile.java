@@ -26,6 +26,8 @@ public class BufferingFsTranslogFile implements FsTranslogFile {
 
     private volatile long lastSyncPosition = 0;
 
+    private final Object syncMutex = new Object();
+
     private byte[] buffer;
     private int bufferCount;
 
@@ -104,14 +106,14 @@ public class BufferingFsTranslogFile implements FsTranslogFile {
     }
 
     @Override
-    public FsChannelSnapshot snapshot() throws TranslogException {
+    public FsChannelSnapshot snapshot(boolean mmap) throws TranslogException {
         rwl.writeLock().lock();
         try {
             flushBuffer();
             if (!raf.increaseRefCount()) {
                 return null;
             }
-            return new FsChannelSnapshot(this.id, raf, lastWrittenPosition, operationCounter);
+            return new FsChannelSnapshot(this.id, raf, lastWrittenPosition, operationCounter, mmap);
         } catch (IOException e) {
             throw new TranslogException(shardId, "failed to flush", e);
         } finally {
@@ -127,21 +129,40 @@ public class BufferingFsTranslogFile implements FsTranslogFile {
     @Override
     public void sync() {
         try {
-            // check if we really need to sync here...
-            long last = lastPosition;
-            if (last == lastSyncPosition) {
+            ensureSynced();
+        } catch (Exception e) {
+            // ignore
+        }
+    }
+
+    @Override
+    public void ensureSynced() throws IOException {
+        long target;
+        rwl.readLock().lock();
+        try {
+            target = lastPosition;
+        } finally {
+            rwl.readLock().unlock();
+        }
+        // check if we really need to sync here...
+        if (target <= lastSyncPosition) {
+            return;
+        }
+        synchronized (syncMutex) {
+            // a sync that ran while we were waiting might have covered our operations
+            if (target <= lastSyncPosition) {
                 return;
             }
-            lastSyncPosition = last;
+            long last;
             rwl.writeLock().lock();
             try {
+                last = lastPosition;
                 flushBuffer();
             } finally {
                 rwl.writeLock().unlock();
             }
             raf.channel().force(false);
-        } catch (Exception e) {
-            // ignore
+            lastSyncPosition = last;
         }
     }
 
@@ -29,6 +29,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 
 /**
@@ -52,12 +53,26 @@ public class FsChannelSnapshot implements Translog.Snapshot {
 
     private ByteBuffer cacheBuffer;
 
+    private final boolean mmap;
+
+    private MappedByteBuffer mappedBuffer;
+
     public FsChannelSnapshot(long id, RafReference raf, long length, int totalOperations) throws FileNotFoundException {
+        this(id, raf, length, totalOperations, false);
+    }
+
+    /**
+     * @param mmap if set, operations are read from a memory mapped view of the file and reference its bytes
+     *             instead of being copied out of the channel. Files too large to be mapped at once are read
+     *             through the channel.
+     */
+    public FsChannelSnapshot(long id, RafReference raf, long length, int totalOperations, boolean mmap) throws FileNotFoundException {
         this.id = id;
         this.raf = raf;
         this.channel = raf.raf().getChannel();
         this.length = length;
         this.totalOperations = totalOperations;
+        this.mmap = mmap && length <= Integer.MAX_VALUE;
     }
 
     @Override
@@ -92,6 +107,9 @@ public class FsChannelSnapshot implements Translog.Snapshot {
 
     @Override
     public boolean hasNext() {
+        if (mmap) {
+            return hasNextMapped();
+        }
         try {
             if (position > length) {
                 return false;
@@ -120,7 +138,28 @@ public class FsChannelSnapshot implements Translog.Snapshot {
             channel.read(cacheBuffer, position);
             cacheBuffer.flip();
             position += opSize;
-            lastOperationRead = TranslogStreams.readTranslogOperation(new BytesStreamInput(cacheBuffer.array(), 0, opSize, true));
+            lastOperationRead = TranslogStreams.readTranslogOperation(new BytesStreamInput(cacheBuffer.array(), 0, opSize, true), opSize);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private boolean hasNextMapped() {
+        try {
+            if (position > length) {
+                return false;
+            }
+            if (mappedBuffer == null) {
+                mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            }
+            mappedBuffer.position(position);
+            Translog.Operation operation = TranslogStreams.readTranslogOperation(mappedBuffer);
+            if (operation == null) {
+                return false;
+            }
+            position = mappedBuffer.position();
+            lastOperationRead = operation;
             return true;
         } catch (Exception e) {
             return false;
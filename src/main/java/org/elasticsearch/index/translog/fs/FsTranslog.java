@@ -47,6 +47,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 public class FsTranslog extends AbstractIndexShardComponent implements Translog {
 
     public static final String INDEX_TRANSLOG_FS_TYPE = "index.translog.fs.type";
+    public static final String INDEX_TRANSLOG_FS_COMPRESS = "index.translog.fs.compress";
 
     class ApplySettings implements IndexSettingsService.Listener {
         @Override
@@ -56,6 +57,16 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
                 logger.info("updating type from [{}] to [{}]", FsTranslog.this.type, type);
                 FsTranslog.this.type = type;
             }
+            Durability durability = Durability.fromString(settings.get(INDEX_TRANSLOG_DURABILITY, FsTranslog.this.durability.name()));
+            if (durability != FsTranslog.this.durability) {
+                logger.info("updating durability from [{}] to [{}]", FsTranslog.this.durability, durability);
+                FsTranslog.this.durability = durability;
+            }
+            boolean compress = settings.getAsBoolean(INDEX_TRANSLOG_FS_COMPRESS, FsTranslog.this.compress);
+            if (compress != FsTranslog.this.compress) {
+                logger.info("updating compress from [{}] to [{}]", FsTranslog.this.compress, compress);
+                FsTranslog.this.compress = compress;
+            }
         }
     }
 
@@ -69,6 +80,12 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
 
     private FsTranslogFile.Type type;
 
+    private volatile Durability durability;
+
+    private final boolean mmapSnapshots;
+
+    private volatile boolean compress;
+
     private boolean syncOnEachOperation = false;
 
     private volatile int bufferSize;
@@ -90,6 +107,9 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         this.type = FsTranslogFile.Type.fromString(componentSettings.get("type", FsTranslogFile.Type.BUFFERED.name()));
         this.bufferSize = (int) componentSettings.getAsBytesSize("buffer_size", ByteSizeValue.parseBytesSizeValue("64k")).bytes(); // Not really interesting, updated by IndexingMemoryController...
         this.transientBufferSize = (int) componentSettings.getAsBytesSize("transient_buffer_size", ByteSizeValue.parseBytesSizeValue("8k")).bytes();
+        this.durability = Durability.fromString(indexSettings.get(INDEX_TRANSLOG_DURABILITY, Durability.ASYNC.name()));
+        this.mmapSnapshots = componentSettings.getAsBoolean("mmap_snapshots", false);
+        this.compress = componentSettings.getAsBoolean("compress", false);
 
         indexSettingsService.addListener(applySettings);
     }
@@ -101,6 +121,9 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         FileSystemUtils.mkdirs(location);
 
         this.type = FsTranslogFile.Type.fromString(componentSettings.get("type", FsTranslogFile.Type.BUFFERED.name()));
+        this.durability = Durability.fromString(indexSettings.get(INDEX_TRANSLOG_DURABILITY, Durability.ASYNC.name()));
+        this.mmapSnapshots = componentSettings.getAsBoolean("mmap_snapshots", false);
+        this.compress = componentSettings.getAsBoolean("compress", false);
     }
 
     @Override
@@ -154,6 +177,20 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         return locations;
     }
 
+    /**
+     * Returns <tt>true</tt> if translog files are read through memory mapping when replayed.
+     */
+    public boolean mmapSnapshots() {
+        return mmapSnapshots;
+    }
+
+    /**
+     * Returns <tt>true</tt> if operations are written as checksummed LZF compressed blocks.
+     */
+    public boolean compress() {
+        return compress;
+    }
+
     @Override
     public long currentId() {
         FsTranslogFile current1 = this.current;
@@ -332,7 +369,11 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         try {
             BytesStreamOutput out = new BytesStreamOutput();
             out.writeInt(0); // marker for the size...
-            TranslogStreams.writeTranslogOperation(out, operation);
+            if (compress) {
+                TranslogStreams.writeCompressedTranslogOperation(out, operation);
+            } else {
+                TranslogStreams.writeTranslogOperation(out, operation);
+            }
             out.flush();
 
             int size = out.size();
@@ -362,7 +403,7 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
     @Override
     public FsChannelSnapshot snapshot() throws TranslogException {
         while (true) {
-            FsChannelSnapshot snapshot = current.snapshot();
+            FsChannelSnapshot snapshot = current.snapshot(mmapSnapshots);
             if (snapshot != null) {
                 return snapshot;
             }
@@ -388,6 +429,36 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         current1.sync();
     }
 
+    @Override
+    public void ensureSynced() throws TranslogException {
+        // operations added while a transient translog exists go to both, sync both. Operations that only made
+        // it to a translog that has since been replaced are part of the commit that replaced it, so a translog
+        // getting closed under us is fine
+        FsTranslogFile trans = this.trans;
+        FsTranslogFile current1 = this.current;
+        if (trans != null) {
+            ensureSynced(trans);
+        }
+        if (current1 != null) {
+            ensureSynced(current1);
+        }
+    }
+
+    private void ensureSynced(FsTranslogFile file) throws TranslogException {
+        try {
+            file.ensureSynced();
+        } catch (ClosedChannelException e) {
+            // ignore
+        } catch (IOException e) {
+            throw new TranslogException(shardId, "failed to sync translog [" + file.id() + "]", e);
+        }
+    }
+
+    @Override
+    public Durability durability() {
+        return this.durability;
+    }
+
     @Override
     public boolean syncNeeded() {
         FsTranslogFile current1 = this.current;
@@ -67,7 +67,11 @@ public interface FsTranslogFile {
 
     void close(boolean delete) throws TranslogException;
 
-    FsChannelSnapshot snapshot() throws TranslogException;
+    /**
+     * Returns a snapshot on this file, <tt>null</tt> if it failed to snapshot. When <tt>mmap</tt> is set, the
+     * snapshot reads operations from a memory mapped view of the file.
+     */
+    FsChannelSnapshot snapshot(boolean mmap) throws TranslogException;
 
     void reuse(FsTranslogFile other) throws TranslogException;
 
@@ -75,5 +79,11 @@ public interface FsTranslogFile {
 
     void sync();
 
+    /**
+     * Syncs all the operations added so far, throwing an exception if the sync failed. Concurrent callers
+     * wait on the same sync instead of each issuing their own.
+     */
+    void ensureSynced() throws IOException;
+
     boolean syncNeeded();
 }
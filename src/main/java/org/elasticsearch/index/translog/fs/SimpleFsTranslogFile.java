@@ -41,6 +41,8 @@ public class SimpleFsTranslogFile implements FsTranslogFile {
 
     private volatile long lastSyncPosition = 0;
 
+    private final Object syncMutex = new Object();
+
     public SimpleFsTranslogFile(ShardId shardId, long id, RafReference raf) throws IOException {
         this.shardId = shardId;
         this.id = id;
@@ -79,15 +81,12 @@ public class SimpleFsTranslogFile implements FsTranslogFile {
         raf.decreaseRefCount(delete);
     }
 
-    /**
-     * Returns a snapshot on this file, <tt>null</tt> if it failed to snapshot.
-     */
-    public FsChannelSnapshot snapshot() throws TranslogException {
+    public FsChannelSnapshot snapshot(boolean mmap) throws TranslogException {
         try {
             if (!raf.increaseRefCount()) {
                 return null;
             }
-            return new FsChannelSnapshot(this.id, raf, lastWrittenPosition.get(), operationCounter.get());
+            return new FsChannelSnapshot(this.id, raf, lastWrittenPosition.get(), operationCounter.get(), mmap);
         } catch (Exception e) {
             throw new TranslogException(shardId, "Failed to snapshot", e);
         }
@@ -100,15 +99,27 @@ public class SimpleFsTranslogFile implements FsTranslogFile {
 
     public void sync() {
         try {
-            // check if we really need to sync here...
-            long last = lastWrittenPosition.get();
-            if (last == lastSyncPosition) {
+            ensureSynced();
+        } catch (Exception e) {
+            // ignore
+        }
+    }
+
+    @Override
+    public void ensureSynced() throws IOException {
+        // check if we really need to sync here...
+        long target = lastWrittenPosition.get();
+        if (target <= lastSyncPosition) {
+            return;
+        }
+        synchronized (syncMutex) {
+            // a sync that ran while we were waiting might have covered our operations
+            if (target <= lastSyncPosition) {
                 return;
             }
-            lastSyncPosition = last;
+            long last = lastWrittenPosition.get();
             raf.channel().force(false);
-        } catch (Exception e) {
-            // ignore
+            lastSyncPosition = last;
         }
     }
 
@@ -33,6 +33,7 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.*;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.gateway.Gateway;
 import org.elasticsearch.index.*;
@@ -205,13 +206,20 @@ public class InternalIndicesService extends AbstractLifecycleComponent<IndicesSe
             }
         }
 
+        Map<ShardId, ByteSizeValue> shardIndexBuffers = null;
+        if (flags.isSet(Flag.Indexing)) {
+            shardIndexBuffers = new HashMap<ShardId, ByteSizeValue>();
+        }
         for (IndexService indexService : indices.values()) {
             for (IndexShard indexShard : indexService) {
                 CommonStats indexStas = new CommonStats(indexShard, flags);
                 stats.add(indexStas);
+                if (shardIndexBuffers != null && indexShard.indexingService().indexBufferSize() != null) {
+                    shardIndexBuffers.put(indexShard.shardId(), indexShard.indexingService().indexBufferSize());
+                }
             }
         }
-        return new NodeIndicesStats(stats);
+        return new NodeIndicesStats(stats, shardIndexBuffers);
     }
 
 
@@ -19,15 +19,18 @@
 
 package org.elasticsearch.indices;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.admin.indices.stats.CommonStats;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
 import org.elasticsearch.index.cache.filter.FilterCacheStats;
+import org.elasticsearch.index.cache.query.QueryCacheStats;
 import org.elasticsearch.index.cache.id.IdCacheStats;
 import org.elasticsearch.index.fielddata.FieldDataStats;
 import org.elasticsearch.index.flush.FlushStats;
@@ -38,10 +41,13 @@ import org.elasticsearch.index.percolator.stats.PercolateStats;
 import org.elasticsearch.index.refresh.RefreshStats;
 import org.elasticsearch.index.search.stats.SearchStats;
 import org.elasticsearch.index.shard.DocsStats;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.StoreStats;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Global information on indices stats running on a specific node.
@@ -50,11 +56,18 @@ public class NodeIndicesStats implements Streamable, Serializable, ToXContent {
 
     private CommonStats stats;
 
+    private Map<ShardId, ByteSizeValue> shardIndexBuffers;
+
     NodeIndicesStats() {
     }
 
     public NodeIndicesStats(CommonStats stats) {
+        this(stats, null);
+    }
+
+    public NodeIndicesStats(CommonStats stats, @Nullable Map<ShardId, ByteSizeValue> shardIndexBuffers) {
         this.stats = stats;
+        this.shardIndexBuffers = shardIndexBuffers;
     }
 
     @Nullable
@@ -112,11 +125,24 @@ public class NodeIndicesStats implements Streamable, Serializable, ToXContent {
         return stats.getFilterCache();
     }
 
+    @Nullable
+    public QueryCacheStats getQueryCache() {
+        return stats.getQueryCache();
+    }
+
     @Nullable
     public IdCacheStats getIdCache() {
         return stats.getIdCache();
     }
 
+    /**
+     * The indexing buffer allocated to each shard on the node, <tt>null</tt> if indexing stats were not requested.
+     */
+    @Nullable
+    public Map<ShardId, ByteSizeValue> getShardIndexBuffers() {
+        return shardIndexBuffers;
+    }
+
     public static NodeIndicesStats readIndicesStats(StreamInput in) throws IOException {
         NodeIndicesStats stats = new NodeIndicesStats();
         stats.readFrom(in);
@@ -126,22 +152,57 @@ public class NodeIndicesStats implements Streamable, Serializable, ToXContent {
     @Override
     public void readFrom(StreamInput in) throws IOException {
         stats = CommonStats.readCommonStats(in);
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1) && in.readBoolean()) {
+            int size = in.readVInt();
+            shardIndexBuffers = new HashMap<ShardId, ByteSizeValue>(size);
+            for (int i = 0; i < size; i++) {
+                shardIndexBuffers.put(ShardId.readShardId(in), ByteSizeValue.readBytesSizeValue(in));
+            }
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         stats.writeTo(out);
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            if (shardIndexBuffers == null) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                out.writeVInt(shardIndexBuffers.size());
+                for (Map.Entry<ShardId, ByteSizeValue> entry : shardIndexBuffers.entrySet()) {
+                    entry.getKey().writeTo(out);
+                    entry.getValue().writeTo(out);
+                }
+            }
+        }
     }
 
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.INDICES);
         stats.toXContent(builder, params);
+        if (shardIndexBuffers != null && !shardIndexBuffers.isEmpty()) {
+            builder.startArray(Fields.INDEX_BUFFERS);
+            for (Map.Entry<ShardId, ByteSizeValue> entry : shardIndexBuffers.entrySet()) {
+                builder.startObject();
+                builder.field(Fields.INDEX, entry.getKey().index().name());
+                builder.field(Fields.SHARD, entry.getKey().id());
+                builder.byteSizeField(Fields.SIZE_IN_BYTES, Fields.SIZE, entry.getValue());
+                builder.endObject();
+            }
+            builder.endArray();
+        }
         builder.endObject();
         return builder;
     }
 
     static final class Fields {
         static final XContentBuilderString INDICES = new XContentBuilderString("indices");
+        static final XContentBuilderString INDEX_BUFFERS = new XContentBuilderString("index_buffers");
+        static final XContentBuilderString INDEX = new XContentBuilderString("index");
+        static final XContentBuilderString SHARD = new XContentBuilderString("shard");
+        static final XContentBuilderString SIZE = new XContentBuilderString("size");
+        static final XContentBuilderString SIZE_IN_BYTES = new XContentBuilderString("size_in_bytes");
     }
 }
@@ -0,0 +1,330 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.cache.query;
+
+import com.carrotsearch.hppc.ObjectOpenHashSet;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import org.apache.lucene.index.IndexReader;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.cache.recycler.CacheRecycler;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.recycler.Recycler;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.cache.query.ShardQueryCache;
+import org.elasticsearch.monitor.jvm.JvmInfo;
+import org.elasticsearch.node.settings.NodeSettingsService;
+import org.elasticsearch.search.facet.InternalFacets;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.search.query.QueryPhase;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A node level cache of shard query phase results, keyed on the request and the point in time
+ * reader of the shard. Only <tt>count</tt> requests, which are typically used for facets only
+ * requests, are cached and only on indices that enable it with {@link #INDEX_CACHE_QUERY_ENABLE}.
+ * <p/>
+ * Entries are invalidated when the reader they were computed on is closed, which happens on refresh
+ * once the previous reader is released. Requests that resolve <tt>now</tt>, for example in a date range,
+ * are not cached since their results depend on when they are executed.
+ */
+public class IndicesQueryCache extends AbstractComponent implements RemovalListener<IndicesQueryCache.Key, BytesReference>, IndexReader.ReaderClosedListener {
+
+    public static final String INDEX_CACHE_QUERY_ENABLE = "index.cache.query.enable";
+    public static final String INDICES_CACHE_QUERY_SIZE = "indices.cache.query.size";
+    public static final String INDICES_CACHE_QUERY_EXPIRE = "indices.cache.query.expire";
+
+    private final ThreadPool threadPool;
+    private final CacheRecycler cacheRecycler;
+
+    private volatile Cache<Key, BytesReference> cache;
+
+    private volatile String size;
+    private volatile long sizeInBytes;
+    private volatile TimeValue expire;
+
+    private final TimeValue cleanInterval;
+
+    private final Set<Object> readersKeysToClean = ConcurrentCollections.newConcurrentSet();
+
+    private volatile boolean closed;
+
+    class ApplySettings implements NodeSettingsService.Listener {
+        @Override
+        public void onRefreshSettings(Settings settings) {
+            boolean replace = false;
+            String size = settings.get(INDICES_CACHE_QUERY_SIZE, IndicesQueryCache.this.size);
+            if (!size.equals(IndicesQueryCache.this.size)) {
+                logger.info("updating [indices.cache.query.size] from [{}] to [{}]", IndicesQueryCache.this.size, size);
+                IndicesQueryCache.this.size = size;
+                replace = true;
+            }
+            TimeValue expire = settings.getAsTime(INDICES_CACHE_QUERY_EXPIRE, IndicesQueryCache.this.expire);
+            if (!Objects.equal(expire, IndicesQueryCache.this.expire)) {
+                logger.info("updating [indices.cache.query.expire] from [{}] to [{}]", IndicesQueryCache.this.expire, expire);
+                IndicesQueryCache.this.expire = expire;
+                replace = true;
+            }
+            if (replace) {
+                Cache<Key, BytesReference> oldCache = IndicesQueryCache.this.cache;
+                computeSizeInBytes();
+                buildCache();
+                oldCache.invalidateAll();
+            }
+        }
+    }
+
+    @Inject
+    public IndicesQueryCache(Settings settings, ThreadPool threadPool, CacheRecycler cacheRecycler, NodeSettingsService nodeSettingsService) {
+        super(settings);
+        this.threadPool = threadPool;
+        this.cacheRecycler = cacheRecycler;
+        this.size = componentSettings.get("size", "1%");
+        this.expire = componentSettings.getAsTime("expire", null);
+        this.cleanInterval = componentSettings.getAsTime("clean_interval", TimeValue.timeValueSeconds(60));
+        computeSizeInBytes();
+        buildCache();
+        logger.debug("using [node] query cache with size [{}], actual_size [{}], expire [{}], clean_interval [{}]",
+                size, new ByteSizeValue(sizeInBytes), expire, cleanInterval);
+
+        nodeSettingsService.addListener(new ApplySettings());
+        threadPool.schedule(cleanInterval, ThreadPool.Names.SAME, new ReaderCleaner());
+    }
+
+    private void buildCache() {
+        CacheBuilder<Key, BytesReference> cacheBuilder = CacheBuilder.newBuilder()
+                .removalListener(this)
+                .maximumWeight(sizeInBytes).weigher(new QueryCacheWeigher());
+
+        // defaults to 4, but this is a busy map for all indices, increase it a bit
+        cacheBuilder.concurrencyLevel(16);
+
+        if (expire != null) {
+            cacheBuilder.expireAfterAccess(expire.millis(), TimeUnit.MILLISECONDS);
+        }
+
+        cache = cacheBuilder.build();
+    }
+
+    private void computeSizeInBytes() {
+        if (size.endsWith("%")) {
+            double percent = Double.parseDouble(size.substring(0, size.length() - 1));
+            sizeInBytes = (long) ((percent / 100) * JvmInfo.jvmInfo().getMem().getHeapMax().bytes());
+        } else {
+            sizeInBytes = ByteSizeValue.parseBytesSizeValue(size).bytes();
+        }
+    }
+
+    public void close() {
+        closed = true;
+        cache.invalidateAll();
+    }
+
+    /**
+     * Returns <tt>true</tt> if the query phase result of the request can be cached.
+     */
+    public boolean canCache(ShardSearchRequest request, SearchContext context) {
+        if (request.searchType() != SearchType.COUNT || request.scroll() != null) {
+            return false;
+        }
+        if (context.nowInMillisUsed()) {
+            // resolved while parsing the request
+            return false;
+        }
+        return context.indexShard().indexSettings().getAsBoolean(INDEX_CACHE_QUERY_ENABLE, false);
+    }
+
+    /**
+     * Loads the query phase result of the request into the context, from the cache if it was already
+     * computed on the same reader, or by executing the query phase and caching its result.
+     */
+    public void loadIntoContext(ShardSearchRequest request, SearchContext context, QueryPhase queryPhase) throws Exception {
+        ShardQueryCache shardQueryCache = context.indexShard().queryCache();
+        IndexReader reader = context.searcher().getIndexReader();
+        Key key = new Key(shardQueryCache, reader.getCoreCacheKey(), requestBytes(request));
+        BytesReference value = cache.getIfPresent(key);
+        if (value != null) {
+            shardQueryCache.onHit();
+            QuerySearchResult cached = QuerySearchResult.readQuerySearchResult(value.streamInput());
+            QuerySearchResult result = context.queryResult();
+            result.from(cached.from());
+            result.size(cached.size());
+            result.topDocs(cached.topDocs());
+            result.facets((InternalFacets) cached.facets());
+            result.suggest(cached.suggest());
+            result.searchTimedOut(cached.searchTimedOut());
+            return;
+        }
+        shardQueryCache.onMiss();
+        queryPhase.execute(context);
+        if (context.queryResult().searchTimedOut()) {
+            // partial results are not cached
+            return;
+        }
+        if (context.nowInMillisUsed()) {
+            // resolved while executing the request, the result is only valid for this request
+            return;
+        }
+        BytesStreamOutput out = new BytesStreamOutput();
+        context.queryResult().writeTo(out);
+        value = out.bytes().copyBytesArray();
+        // clean up the entries of this reader once it gets closed, the listener is only registered once
+        reader.addReaderClosedListener(this);
+        cache.put(key, value);
+        shardQueryCache.onCached(key, value);
+    }
+
+    private static BytesReference requestBytes(ShardSearchRequest request) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeBytesReference(request.source());
+        out.writeBytesReference(request.extraSource());
+        out.writeStringArray(request.types());
+        out.writeStringArrayNullable(request.filteringAliases());
+        return out.bytes().copyBytesArray();
+    }
+
+    @Override
+    public void onClose(IndexReader reader) {
+        readersKeysToClean.add(reader.getCoreCacheKey());
+    }
+
+    @Override
+    public void onRemoval(RemovalNotification<Key, BytesReference> notification) {
+        if (notification.getKey() == null) {
+            return;
+        }
+        notification.getKey().shardCache.onRemoval(notification);
+    }
+
+    public static class QueryCacheWeigher implements Weigher<Key, BytesReference> {
+
+        @Override
+        public int weigh(Key key, BytesReference value) {
+            return (int) Math.min(key.ramBytesUsed() + value.length(), Integer.MAX_VALUE);
+        }
+    }
+
+    public static class Key {
+        public final ShardQueryCache shardCache; // use as identity equality
+        public final Object readerKey;
+        public final BytesReference request;
+
+        Key(ShardQueryCache shardCache, Object readerKey, BytesReference request) {
+            this.shardCache = shardCache;
+            this.readerKey = readerKey;
+            this.request = request;
+        }
+
+        public long ramBytesUsed() {
+            return request.length();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            if (readerKey != key.readerKey) return false;
+            if (shardCache != key.shardCache) return false;
+            if (!request.equals(key.request)) return false;
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = shardCache.hashCode();
+            result = 31 * result + readerKey.hashCode();
+            result = 31 * result + request.hashCode();
+            return result;
+        }
+    }
+
+    /**
+     * Removes the entries of closed readers, iterating over all the entries is expensive so it is
+     * done periodically for all the readers closed in the meantime.
+     */
+    class ReaderCleaner implements Runnable {
+
+        @Override
+        public void run() {
+            if (closed) {
+                return;
+            }
+            if (readersKeysToClean.isEmpty()) {
+                schedule();
+                return;
+            }
+            try {
+                threadPool.executor(ThreadPool.Names.GENERIC).execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        Recycler.V<ObjectOpenHashSet<Object>> keys = cacheRecycler.hashSet(-1);
+                        try {
+                            for (Iterator<Object> it = readersKeysToClean.iterator(); it.hasNext(); ) {
+                                keys.v().add(it.next());
+                                it.remove();
+                            }
+                            cache.cleanUp();
+                            if (!keys.v().isEmpty()) {
+                                for (Iterator<Key> it = cache.asMap().keySet().iterator(); it.hasNext(); ) {
+                                    Key key = it.next();
+                                    if (keys.v().contains(key.readerKey)) {
+                                        // same as invalidate
+                                        it.remove();
+                                    }
+                                }
+                            }
+                            schedule();
+                        } finally {
+                            keys.release();
+                        }
+                    }
+                });
+            } catch (EsRejectedExecutionException ex) {
+                logger.debug("Can not run ReaderCleaner - execution rejected", ex);
+            }
+        }
+
+        private void schedule() {
+            try {
+                threadPool.schedule(cleanInterval, ThreadPool.Names.SAME, this);
+            } catch (EsRejectedExecutionException ex) {
+                logger.debug("Can not schedule ReaderCleaner - execution rejected", ex);
+            }
+        }
+    }
+}
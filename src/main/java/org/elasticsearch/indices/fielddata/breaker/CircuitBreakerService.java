@@ -0,0 +1,94 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.fielddata.breaker;
+
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.monitor.jvm.JvmInfo;
+import org.elasticsearch.node.settings.NodeSettingsService;
+
+/**
+ * Node level service holding the field data {@link MemoryCircuitBreaker}. Field data loaders
+ * reserve an estimate of what they are about to allocate, and the caches release the memory
+ * once the field data is evicted.
+ */
+public class CircuitBreakerService extends AbstractComponent {
+
+    public static final String FIELDDATA_BREAKER_LIMIT = "indices.fielddata.breaker.limit";
+    public static final String FIELDDATA_BREAKER_OVERHEAD = "indices.fielddata.breaker.overhead";
+
+    public static final String DEFAULT_FIELDDATA_BREAKER_LIMIT = "80%";
+    public static final double DEFAULT_FIELDDATA_OVERHEAD_CONSTANT = 1.03;
+
+    private final MemoryCircuitBreaker breaker;
+
+    private volatile String limit;
+
+    public CircuitBreakerService(Settings settings) {
+        super(settings);
+        this.limit = settings.get(FIELDDATA_BREAKER_LIMIT, DEFAULT_FIELDDATA_BREAKER_LIMIT);
+        double overhead = settings.getAsDouble(FIELDDATA_BREAKER_OVERHEAD, DEFAULT_FIELDDATA_OVERHEAD_CONSTANT);
+        this.breaker = new MemoryCircuitBreaker(computeLimit(limit), overhead, logger);
+        logger.debug("using field data breaker with limit [{}], actual_limit [{}], overhead [{}]", limit, computeLimit(limit), overhead);
+    }
+
+    @Inject
+    public CircuitBreakerService(Settings settings, NodeSettingsService nodeSettingsService) {
+        this(settings);
+        nodeSettingsService.addListener(new ApplySettings());
+    }
+
+    public MemoryCircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    public FieldDataBreakerStats stats() {
+        return new FieldDataBreakerStats(breaker.getMaximum(), breaker.getUsed(), breaker.getOverhead(), breaker.getTrippedCount());
+    }
+
+    private static ByteSizeValue computeLimit(String limit) {
+        if (limit.equals("-1")) {
+            return new ByteSizeValue(-1);
+        } else if (limit.endsWith("%")) {
+            double percent = Double.parseDouble(limit.substring(0, limit.length() - 1));
+            return new ByteSizeValue((long) ((percent / 100) * JvmInfo.jvmInfo().getMem().getHeapMax().bytes()));
+        } else {
+            return ByteSizeValue.parseBytesSizeValue(limit);
+        }
+    }
+
+    class ApplySettings implements NodeSettingsService.Listener {
+        @Override
+        public void onRefreshSettings(Settings settings) {
+            String limit = settings.get(FIELDDATA_BREAKER_LIMIT, CircuitBreakerService.this.limit);
+            if (!limit.equals(CircuitBreakerService.this.limit)) {
+                logger.info("updating [{}] from [{}] to [{}]", FIELDDATA_BREAKER_LIMIT, CircuitBreakerService.this.limit, limit);
+                CircuitBreakerService.this.limit = limit;
+                breaker.setLimit(computeLimit(limit));
+            }
+            double overhead = settings.getAsDouble(FIELDDATA_BREAKER_OVERHEAD, breaker.getOverhead());
+            if (overhead != breaker.getOverhead()) {
+                logger.info("updating [{}] from [{}] to [{}]", FIELDDATA_BREAKER_OVERHEAD, breaker.getOverhead(), overhead);
+                breaker.setOverhead(overhead);
+            }
+        }
+    }
+}
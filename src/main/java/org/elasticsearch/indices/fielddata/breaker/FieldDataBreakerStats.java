@@ -0,0 +1,127 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.fielddata.breaker;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ * Node level statistics of the field data circuit breaker.
+ */
+public class FieldDataBreakerStats implements Streamable, ToXContent {
+
+    long maximum;
+    long estimated;
+    double overhead;
+    long trippedCount;
+
+    FieldDataBreakerStats() {
+    }
+
+    public FieldDataBreakerStats(long maximum, long estimated, double overhead, long trippedCount) {
+        this.maximum = maximum;
+        this.estimated = estimated;
+        this.overhead = overhead;
+        this.trippedCount = trippedCount;
+    }
+
+    /**
+     * The configured limit, <tt>-1</tt> if the breaker is disabled.
+     */
+    public long getMaximumSizeInBytes() {
+        return this.maximum;
+    }
+
+    public ByteSizeValue getMaximumSize() {
+        return new ByteSizeValue(maximum);
+    }
+
+    /**
+     * The current estimate of the memory used by field data on the node.
+     */
+    public long getEstimatedSizeInBytes() {
+        return this.estimated;
+    }
+
+    public ByteSizeValue getEstimatedSize() {
+        return new ByteSizeValue(estimated);
+    }
+
+    public double getOverhead() {
+        return this.overhead;
+    }
+
+    /**
+     * The number of field data loads that were refused by the breaker.
+     */
+    public long getTrippedCount() {
+        return this.trippedCount;
+    }
+
+    public static FieldDataBreakerStats readFieldDataBreakerStats(StreamInput in) throws IOException {
+        FieldDataBreakerStats stats = new FieldDataBreakerStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        maximum = in.readLong();
+        estimated = in.readVLong();
+        overhead = in.readDouble();
+        trippedCount = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeLong(maximum);
+        out.writeVLong(estimated);
+        out.writeDouble(overhead);
+        out.writeVLong(trippedCount);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.FIELDDATA_BREAKER);
+        builder.field(Fields.MAXIMUM_SIZE_IN_BYTES, maximum);
+        builder.field(Fields.MAXIMUM_SIZE, new ByteSizeValue(maximum).toString());
+        builder.byteSizeField(Fields.ESTIMATED_SIZE_IN_BYTES, Fields.ESTIMATED_SIZE, estimated);
+        builder.field(Fields.OVERHEAD, overhead);
+        builder.field(Fields.TRIPPED, trippedCount);
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString FIELDDATA_BREAKER = new XContentBuilderString("fielddata_breaker");
+        static final XContentBuilderString MAXIMUM_SIZE = new XContentBuilderString("maximum_size");
+        static final XContentBuilderString MAXIMUM_SIZE_IN_BYTES = new XContentBuilderString("maximum_size_in_bytes");
+        static final XContentBuilderString ESTIMATED_SIZE = new XContentBuilderString("estimated_size");
+        static final XContentBuilderString ESTIMATED_SIZE_IN_BYTES = new XContentBuilderString("estimated_size_in_bytes");
+        static final XContentBuilderString OVERHEAD = new XContentBuilderString("overhead");
+        static final XContentBuilderString TRIPPED = new XContentBuilderString("tripped");
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.fielddata.breaker;
+
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.unit.ByteSizeValue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A breaker that keeps track of an estimate of the memory used by field data and refuses
+ * further reservations once the estimate, multiplied by the overhead constant, would exceed
+ * the limit. A negative limit disables breaking while still keeping track of the usage.
+ */
+public class MemoryCircuitBreaker {
+
+    private final ESLogger logger;
+    private final AtomicLong used = new AtomicLong();
+    private final AtomicLong trippedCount = new AtomicLong();
+
+    private volatile long memoryBytesLimit;
+    private volatile double overheadConstant;
+
+    public MemoryCircuitBreaker(ByteSizeValue limit, double overheadConstant, ESLogger logger) {
+        this.memoryBytesLimit = limit.bytes();
+        this.overheadConstant = overheadConstant;
+        this.logger = logger;
+    }
+
+    /**
+     * Adds the given number of bytes to the estimate, or throws a {@link CircuitBreakingException}
+     * and leaves the estimate untouched if that would exceed the limit.
+     *
+     * @return the new estimate
+     */
+    public long addEstimateBytesAndMaybeBreak(long bytes) throws CircuitBreakingException {
+        final long limit = memoryBytesLimit;
+        if (limit < 0) {
+            return used.addAndGet(bytes);
+        }
+        long currentUsed;
+        long newUsed;
+        do {
+            currentUsed = used.get();
+            newUsed = currentUsed + bytes;
+            final long newUsedWithOverhead = (long) (newUsed * overheadConstant);
+            if (bytes > 0 && newUsedWithOverhead > limit) {
+                trippedCount.incrementAndGet();
+                logger.warn("field data would be larger than limit of [{}/{}] (estimated [{}/{}], reserving [{}/{}])",
+                        limit, new ByteSizeValue(limit), currentUsed, new ByteSizeValue(currentUsed), bytes, new ByteSizeValue(bytes));
+                throw new CircuitBreakingException("Data too large, data would be [" + newUsedWithOverhead + "] bytes, which is larger than the limit of [" + limit + "] bytes");
+            }
+        } while (!used.compareAndSet(currentUsed, newUsed));
+        return newUsed;
+    }
+
+    /**
+     * Adds the given number of bytes, which may be negative to release a reservation, without
+     * checking the limit.
+     *
+     * @return the new estimate
+     */
+    public long addWithoutBreaking(long bytes) {
+        final long newUsed = used.addAndGet(bytes);
+        assert newUsed >= 0 : "field data breaker estimate went negative [" + newUsed + "]";
+        return newUsed;
+    }
+
+    public void setLimit(ByteSizeValue limit) {
+        this.memoryBytesLimit = limit.bytes();
+    }
+
+    public void setOverhead(double overheadConstant) {
+        this.overheadConstant = overheadConstant;
+    }
+
+    public long getUsed() {
+        return used.get();
+    }
+
+    public long getMaximum() {
+        return memoryBytesLimit;
+    }
+
+    public double getOverhead() {
+        return overheadConstant;
+    }
+
+    public long getTrippedCount() {
+        return trippedCount.get();
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.indices.fielddata.cache;
 
+import com.google.common.base.Predicate;
 import com.google.common.cache.*;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.SegmentReader;
@@ -33,12 +34,15 @@ import org.elasticsearch.index.fielddata.AtomicFieldData;
 import org.elasticsearch.index.fielddata.FieldDataType;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldDataCache;
+import org.elasticsearch.index.fielddata.SegmentsFieldDataLoader;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardUtils;
 import org.elasticsearch.index.shard.service.IndexShard;
+import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
 import org.elasticsearch.monitor.jvm.JvmInfo;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
@@ -47,6 +51,10 @@ import java.util.concurrent.TimeUnit;
  */
 public class IndicesFieldDataCache extends AbstractComponent implements RemovalListener<IndicesFieldDataCache.Key, AtomicFieldData> {
 
+    private final CircuitBreakerService breakerService;
+    @Nullable
+    private final ThreadPool threadPool;
+
     Cache<Key, AtomicFieldData> cache;
 
     private volatile String size;
@@ -54,9 +62,15 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
     private volatile TimeValue expire;
 
 
+    public IndicesFieldDataCache(Settings settings, CircuitBreakerService breakerService) {
+        this(settings, breakerService, null);
+    }
+
     @Inject
-    public IndicesFieldDataCache(Settings settings) {
+    public IndicesFieldDataCache(Settings settings, CircuitBreakerService breakerService, @Nullable ThreadPool threadPool) {
         super(settings);
+        this.breakerService = breakerService;
+        this.threadPool = threadPool;
         this.size = componentSettings.get("size", "-1");
         this.expire = componentSettings.getAsTime("expire", null);
         computeSizeInBytes();
@@ -94,12 +108,19 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
     }
 
     public IndexFieldDataCache buildIndexFieldDataCache(@Nullable IndexService indexService, Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType) {
-        return new IndexFieldCache(indexService, index, fieldNames, fieldDataType);
+        final SegmentsFieldDataLoader segmentsLoader = threadPool == null ? null : new SegmentsFieldDataLoader(threadPool.executor(ThreadPool.Names.FIELDDATA));
+        return new IndexFieldCache(indexService, index, fieldNames, fieldDataType, segmentsLoader);
     }
 
     @Override
     public void onRemoval(RemovalNotification<Key, AtomicFieldData> notification) {
-        if (notification.getKey() != null && notification.getKey().listener != null) {
+        if (notification.getKey() == null) {
+            return;
+        }
+        if (notification.getKey().sizeInBytes != -1) {
+            breakerService.getBreaker().addWithoutBreaking(-notification.getKey().sizeInBytes);
+        }
+        if (notification.getKey().listener != null) {
             IndexFieldCache indexCache = notification.getKey().indexCache;
             long sizeInBytes = notification.getKey().sizeInBytes;
             if (sizeInBytes == -1 && notification.getValue() != null) {
@@ -107,6 +128,10 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
             }
             notification.getKey().listener.onUnload(indexCache.fieldNames, indexCache.fieldDataType, notification.wasEvicted(), sizeInBytes, notification.getValue());
         }
+        if (notification.getValue() != null) {
+            // releases the resources of the field data once the searches that acquired it are done
+            notification.getValue().close();
+        }
     }
 
     public static class FieldDataWeigher implements Weigher<Key, AtomicFieldData> {
@@ -128,17 +153,29 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
         final Index index;
         final FieldMapper.Names fieldNames;
         final FieldDataType fieldDataType;
+        @Nullable
+        private final SegmentsFieldDataLoader segmentsLoader;
 
-        IndexFieldCache(@Nullable IndexService indexService, Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType) {
+        IndexFieldCache(@Nullable IndexService indexService, Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, @Nullable SegmentsFieldDataLoader segmentsLoader) {
             this.indexService = indexService;
             this.index = index;
             this.fieldNames = fieldNames;
             this.fieldDataType = fieldDataType;
+            this.segmentsLoader = segmentsLoader;
         }
 
         @Override
         public <FD extends AtomicFieldData, IFD extends IndexFieldData<FD>> FD load(final AtomicReaderContext context, final IFD indexFieldData) throws Exception {
             final Key key = new Key(this, context.reader().getCoreCacheKey());
+            if (segmentsLoader != null && cache.getIfPresent(key) == null) {
+                // a new segment, the other new segments of the reader get loaded in parallel
+                segmentsLoader.loadOtherSegments(context, indexFieldData, new Predicate<Object>() {
+                    @Override
+                    public boolean apply(Object coreCacheKey) {
+                        return cache.getIfPresent(new Key(IndexFieldCache.this, coreCacheKey)) != null;
+                    }
+                });
+            }
             //noinspection unchecked
             return (FD) cache.get(key, new Callable<AtomicFieldData>() {
                 @Override
@@ -147,28 +184,43 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
                         ((SegmentReader) context.reader()).addCoreClosedListener(IndexFieldCache.this);
                     }
                     AtomicFieldData fieldData = indexFieldData.loadDirect(context);
-
-                    if (indexService != null) {
-                        ShardId shardId = ShardUtils.extractShardId(context.reader());
-                        if (shardId != null) {
-                            IndexShard shard = indexService.shard(shardId.id());
-                            if (shard != null) {
-                                key.listener = shard.fieldData();
+                    key.sizeInBytes = fieldData.getMemorySizeInBytes();
+                    breakerService.getBreaker().addWithoutBreaking(key.sizeInBytes);
+
+                    boolean success = false;
+                    try {
+                        if (indexService != null) {
+                            ShardId shardId = ShardUtils.extractShardId(context.reader());
+                            if (shardId != null) {
+                                IndexShard shard = indexService.shard(shardId.id());
+                                if (shard != null) {
+                                    key.listener = shard.fieldData();
+                                }
                             }
                         }
-                    }
 
-                    if (key.listener != null) {
-                        key.listener.onLoad(fieldNames, fieldDataType, fieldData);
-                    }
+                        if (key.listener != null) {
+                            key.listener.onLoad(fieldNames, fieldDataType, fieldData);
+                        }
 
-                    return fieldData;
+                        success = true;
+                        return fieldData;
+                    } finally {
+                        if (!success) {
+                            // not cached, so the removal listener won't release it
+                            breakerService.getBreaker().addWithoutBreaking(-key.sizeInBytes);
+                            key.sizeInBytes = -1;
+                            fieldData.close();
+                        }
+                    }
                 }
             });
         }
 
         @Override
         public void onClose(Object coreKey) {
+            // nothing can use the field data of a closed segment anymore, so release it right away
+            // instead of waiting for GC, which matters for field data that lives off heap
             cache.invalidate(new Key(this, coreKey));
         }
 
@@ -0,0 +1,184 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.flush;
+
+import org.apache.lucene.store.RateLimiter;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.settings.NodeSettingsService;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.PriorityQueue;
+
+/**
+ * Runs the translog triggered flushes of all the shards on the node on the {@link ThreadPool.Names#FLUSH} pool,
+ * allowing at most <tt>indices.flush.max_concurrent</tt> of them to run at the same time (shards with the largest
+ * translog going first) and, if <tt>indices.flush.max_bytes_per_sec</tt> is set, delaying each flush so that the
+ * translog bytes flushed by the node stay under that rate. Both default to <tt>0</tt>, no limit.
+ */
+public class IndicesFlushScheduler extends AbstractComponent {
+
+    public static final String INDICES_FLUSH_MAX_CONCURRENT = "indices.flush.max_concurrent";
+    public static final String INDICES_FLUSH_MAX_BYTES_PER_SEC = "indices.flush.max_bytes_per_sec";
+
+    class ApplySettings implements NodeSettingsService.Listener {
+        @Override
+        public void onRefreshSettings(Settings settings) {
+            int maxConcurrent = settings.getAsInt(INDICES_FLUSH_MAX_CONCURRENT, IndicesFlushScheduler.this.maxConcurrent);
+            if (maxConcurrent != IndicesFlushScheduler.this.maxConcurrent) {
+                logger.info("updating [{}] from [{}] to [{}]", INDICES_FLUSH_MAX_CONCURRENT, IndicesFlushScheduler.this.maxConcurrent, maxConcurrent);
+                IndicesFlushScheduler.this.maxConcurrent = maxConcurrent;
+                dispatch();
+            }
+            ByteSizeValue maxBytesPerSec = settings.getAsBytesSize(INDICES_FLUSH_MAX_BYTES_PER_SEC, IndicesFlushScheduler.this.maxBytesPerSec);
+            if (!maxBytesPerSec.equals(IndicesFlushScheduler.this.maxBytesPerSec)) {
+                logger.info("updating [{}] from [{}] to [{}]", INDICES_FLUSH_MAX_BYTES_PER_SEC, IndicesFlushScheduler.this.maxBytesPerSec, maxBytesPerSec);
+                IndicesFlushScheduler.this.maxBytesPerSec = maxBytesPerSec;
+                updateRateLimiter(maxBytesPerSec);
+            }
+        }
+    }
+
+    private final ThreadPool threadPool;
+
+    private final NodeSettingsService nodeSettingsService;
+
+    private volatile int maxConcurrent;
+
+    private volatile ByteSizeValue maxBytesPerSec;
+
+    private volatile RateLimiter.SimpleRateLimiter rateLimiter;
+
+    private final PriorityQueue<PendingFlush> pending = new PriorityQueue<PendingFlush>();
+
+    private int running;
+
+    private final ApplySettings applySettings = new ApplySettings();
+
+    @Inject
+    public IndicesFlushScheduler(Settings settings, ThreadPool threadPool, NodeSettingsService nodeSettingsService) {
+        super(settings);
+        this.threadPool = threadPool;
+        this.nodeSettingsService = nodeSettingsService;
+        this.maxConcurrent = componentSettings.getAsInt("max_concurrent", 0);
+        this.maxBytesPerSec = componentSettings.getAsBytesSize("max_bytes_per_sec", new ByteSizeValue(0));
+        updateRateLimiter(maxBytesPerSec);
+
+        logger.debug("using max_concurrent [{}], max_bytes_per_sec [{}]", maxConcurrent, maxBytesPerSec);
+
+        nodeSettingsService.addListener(applySettings);
+    }
+
+    public void close() {
+        nodeSettingsService.removeListener(applySettings);
+    }
+
+    /**
+     * Schedules the flush of a shard. The flush is executed on the flush thread pool once the concurrency and I/O
+     * budget of the node allow for it.
+     *
+     * @param translogSizeInBytes the size of the translog of the shard, used to order the pending flushes and
+     *                            charged against the I/O budget
+     */
+    public void flush(ShardId shardId, long translogSizeInBytes, Runnable flush) {
+        synchronized (pending) {
+            pending.add(new PendingFlush(shardId, translogSizeInBytes, flush));
+        }
+        dispatch();
+    }
+
+    /**
+     * The number of flushes waiting for a slot.
+     */
+    public int pendingFlushes() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    private void dispatch() {
+        while (true) {
+            final PendingFlush next;
+            synchronized (pending) {
+                int maxConcurrent = this.maxConcurrent;
+                if (pending.isEmpty() || (maxConcurrent > 0 && running >= maxConcurrent)) {
+                    return;
+                }
+                next = pending.poll();
+                running++;
+            }
+            try {
+                threadPool.executor(ThreadPool.Names.FLUSH).execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            RateLimiter.SimpleRateLimiter rateLimiter = IndicesFlushScheduler.this.rateLimiter;
+                            if (rateLimiter != null && next.translogSizeInBytes > 0) {
+                                rateLimiter.pause(next.translogSizeInBytes);
+                            }
+                            next.flush.run();
+                        } finally {
+                            synchronized (pending) {
+                                running--;
+                            }
+                            dispatch();
+                        }
+                    }
+                });
+            } catch (Throwable t) {
+                synchronized (pending) {
+                    running--;
+                }
+                // the flush pool is scaling, this only happens when the node shuts down
+                logger.debug("[{}][{}] failed to execute flush", t, next.shardId.index().name(), next.shardId.id());
+            }
+        }
+    }
+
+    private void updateRateLimiter(ByteSizeValue maxBytesPerSec) {
+        if (maxBytesPerSec.bytes() <= 0) {
+            rateLimiter = null;
+        } else if (rateLimiter == null) {
+            rateLimiter = new RateLimiter.SimpleRateLimiter(maxBytesPerSec.mbFrac());
+        } else {
+            rateLimiter.setMbPerSec(maxBytesPerSec.mbFrac());
+        }
+    }
+
+    static class PendingFlush implements Comparable<PendingFlush> {
+        final ShardId shardId;
+        final long translogSizeInBytes;
+        final Runnable flush;
+
+        PendingFlush(ShardId shardId, long translogSizeInBytes, Runnable flush) {
+            this.shardId = shardId;
+            this.translogSizeInBytes = translogSizeInBytes;
+            this.flush = flush;
+        }
+
+        @Override
+        public int compareTo(PendingFlush o) {
+            // largest translog first
+            return translogSizeInBytes > o.translogSizeInBytes ? -1 : (translogSizeInBytes == o.translogSizeInBytes ? 0 : 1);
+        }
+    }
+}
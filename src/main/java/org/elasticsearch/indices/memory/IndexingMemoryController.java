@@ -31,6 +31,7 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.EngineClosedException;
 import org.elasticsearch.index.engine.FlushNotAllowedEngineException;
+import org.elasticsearch.index.indexing.IndexingStats;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.service.IndexShard;
@@ -47,7 +48,11 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- *
+ * Divides the node indexing (and translog) buffer between the shards allocated on the node. By default the buffer
+ * is split evenly between the active shards. In <tt>adaptive</tt> mode the indexing buffer is split in proportion
+ * to the (smoothed) number of indexing operations each shard did over the last intervals: every active shard keeps
+ * <tt>min_shard_index_buffer_size</tt>, and shards that did not index since the last check fall back to it right
+ * away, the rest of the buffer going to the shards that are indexing.
  */
 public class IndexingMemoryController extends AbstractLifecycleComponent<IndexingMemoryController> {
 
@@ -62,6 +67,8 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
     private final ByteSizeValue minShardTranslogBufferSize;
     private final ByteSizeValue maxShardTranslogBufferSize;
 
+    private final boolean adaptive;
+
     private final TimeValue inactiveTime;
     private final TimeValue interval;
     private final AtomicBoolean shardsCreatedOrDeleted = new AtomicBoolean();
@@ -74,6 +81,11 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
 
     private final Object mutex = new Object();
 
+    // weight of the last interval in the smoothed indexing rate
+    private static final double ADAPTIVE_RATE_ALPHA = 0.5;
+    // relative change under which an adaptive buffer update is skipped
+    private static final double ADAPTIVE_MIN_CHANGE = 0.1;
+
     @Inject
     public IndexingMemoryController(Settings settings, ThreadPool threadPool, IndicesService indicesService) {
         super(settings);
@@ -123,11 +135,13 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
         this.minShardTranslogBufferSize = componentSettings.getAsBytesSize("min_shard_translog_buffer_size", new ByteSizeValue(2, ByteSizeUnit.KB));
         this.maxShardTranslogBufferSize = componentSettings.getAsBytesSize("max_shard_translog_buffer_size", new ByteSizeValue(64, ByteSizeUnit.KB));
 
+        this.adaptive = componentSettings.getAsBoolean("adaptive", false);
         this.inactiveTime = componentSettings.getAsTime("shard_inactive_time", TimeValue.timeValueMinutes(30));
-        // we need to have this relatively small to move a shard from inactive to active fast (enough)
-        this.interval = componentSettings.getAsTime("interval", TimeValue.timeValueSeconds(30));
+        // we need to have this relatively small to move a shard from inactive to active fast (enough), in adaptive
+        // mode it is also how fast buffers follow the indexing rate of shards
+        this.interval = componentSettings.getAsTime("interval", adaptive ? TimeValue.timeValueSeconds(5) : TimeValue.timeValueSeconds(30));
 
-        logger.debug("using index_buffer_size [{}], with min_shard_index_buffer_size [{}], max_shard_index_buffer_size [{}], shard_inactive_time [{}]", this.indexingBuffer, this.minShardIndexBufferSize, this.maxShardIndexBufferSize, this.inactiveTime);
+        logger.debug("using index_buffer_size [{}], with min_shard_index_buffer_size [{}], max_shard_index_buffer_size [{}], shard_inactive_time [{}], adaptive [{}]", this.indexingBuffer, this.minShardIndexBufferSize, this.maxShardIndexBufferSize, this.inactiveTime, this.adaptive);
 
     }
 
@@ -193,6 +207,13 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
                         }
                         status.translogId = translog.currentId();
                         status.translogNumberOfOperations = translog.estimatedNumberOfOperations();
+                        if (adaptive) {
+                            IndexingStats.Stats indexingStats = indexShard.indexingService().stats().getTotal();
+                            long operations = indexingStats.getIndexCount() + indexingStats.getDeleteCount();
+                            long delta = status.indexingOperations == -1 ? 0 : operations - status.indexingOperations;
+                            status.indexingOperations = operations;
+                            status.indexingRate = smoothedIndexingRate(status.indexingRate, delta);
+                        }
                     }
                 }
                 for (IndexShard indexShard : activeToInactiveIndexingShards) {
@@ -200,6 +221,12 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
                     try {
                         ((InternalIndexShard) indexShard).engine().updateIndexingBufferSize(Engine.INACTIVE_SHARD_INDEXING_BUFFER);
                         ((InternalIndexShard) indexShard).translog().updateBuffer(Translog.INACTIVE_SHARD_TRANSLOG_BUFFER);
+                        indexShard.indexingService().indexBufferSize(Engine.INACTIVE_SHARD_INDEXING_BUFFER);
+                        ShardIndexingStatus status = shardsIndicesStatus.get(indexShard.shardId());
+                        if (status != null) {
+                            status.indexBufferSize = Engine.INACTIVE_SHARD_INDEXING_BUFFER.bytes();
+                            status.translogBufferSize = Translog.INACTIVE_SHARD_TRANSLOG_BUFFER.bytes();
+                        }
                     } catch (EngineClosedException e) {
                         // ignore
                     } catch (FlushNotAllowedEngineException e) {
@@ -208,7 +235,9 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
                 }
                 boolean shardsCreatedOrDeleted = IndexingMemoryController.this.shardsCreatedOrDeleted.compareAndSet(true, false);
                 if (shardsCreatedOrDeleted || activeInactiveStatusChanges) {
-                    calcAndSetShardBuffers("active/inactive[" + activeInactiveStatusChanges + "] created/deleted[" + shardsCreatedOrDeleted + "]");
+                    calcAndSetShardBuffers("active/inactive[" + activeInactiveStatusChanges + "] created/deleted[" + shardsCreatedOrDeleted + "]", true);
+                } else if (adaptive) {
+                    calcAndSetShardBuffers("indexing rates", false);
                 }
             }
         }
@@ -234,7 +263,10 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
     }
 
 
-    private void calcAndSetShardBuffers(String reason) {
+    /**
+     * @param force if <tt>false</tt>, shards are only updated if their buffer changes significantly
+     */
+    private void calcAndSetShardBuffers(String reason, boolean force) {
         int shardsCount = countShards();
         if (shardsCount == 0) {
             return;
@@ -255,14 +287,41 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
             shardTranslogBufferSize = maxShardTranslogBufferSize;
         }
 
-        logger.debug("recalculating shard indexing buffer (reason={}), total is [{}] with [{}] active shards, each shard set to indexing=[{}], translog=[{}]", reason, indexingBuffer, shardsCount, shardIndexingBufferSize, shardTranslogBufferSize);
+        double totalIndexingRate = 0;
+        if (adaptive) {
+            for (ShardIndexingStatus status : shardsIndicesStatus.values()) {
+                if (!status.inactiveIndexing) {
+                    totalIndexingRate += status.indexingRate;
+                }
+            }
+        }
+        if (force) {
+            logger.debug("recalculating shard indexing buffer (reason={}), total is [{}] with [{}] active shards, each shard set to indexing=[{}], translog=[{}], adaptive [{}]", reason, indexingBuffer, shardsCount, adaptive && totalIndexingRate > 0 ? "by rate" : shardIndexingBufferSize, shardTranslogBufferSize, adaptive);
+        }
         for (IndexService indexService : indicesService) {
             for (IndexShard indexShard : indexService) {
                 ShardIndexingStatus status = shardsIndicesStatus.get(indexShard.shardId());
                 if (status == null || !status.inactiveIndexing) {
+                    ByteSizeValue indexBufferSize = shardIndexingBufferSize;
+                    if (adaptive && totalIndexingRate > 0) {
+                        indexBufferSize = new ByteSizeValue(adaptiveShardIndexBufferSize(indexingBuffer.bytes(), shardsCount, minShardIndexBufferSize.bytes(),
+                                maxShardIndexBufferSize.bytes(), status == null ? 0 : status.indexingRate, totalIndexingRate));
+                    }
+                    if (!force && status != null && status.translogBufferSize == shardTranslogBufferSize.bytes()
+                            && Math.abs(status.indexBufferSize - indexBufferSize.bytes()) <= status.indexBufferSize * ADAPTIVE_MIN_CHANGE) {
+                        continue;
+                    }
+                    if (!force) {
+                        logger.trace("setting shard [{}][{}] indexing buffer to [{}] (rate [{}])", indexShard.shardId().index().name(), indexShard.shardId().id(), indexBufferSize, status == null ? 0 : status.indexingRate);
+                    }
                     try {
-                        ((InternalIndexShard) indexShard).engine().updateIndexingBufferSize(shardIndexingBufferSize);
+                        ((InternalIndexShard) indexShard).engine().updateIndexingBufferSize(indexBufferSize);
                         ((InternalIndexShard) indexShard).translog().updateBuffer(shardTranslogBufferSize);
+                        indexShard.indexingService().indexBufferSize(indexBufferSize);
+                        if (status != null) {
+                            status.indexBufferSize = indexBufferSize.bytes();
+                            status.translogBufferSize = shardTranslogBufferSize.bytes();
+                        }
                     } catch (EngineClosedException e) {
                         // ignore
                         continue;
@@ -270,13 +329,37 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
                         // ignore
                         continue;
                     } catch (Exception e) {
-                        logger.warn("failed to set shard [{}][{}] index buffer to [{}]", indexShard.shardId().index().name(), indexShard.shardId().id(), shardIndexingBufferSize);
+                        logger.warn("failed to set shard [{}][{}] index buffer to [{}]", indexShard.shardId().index().name(), indexShard.shardId().id(), indexBufferSize);
                     }
                 }
             }
         }
     }
 
+    /**
+     * The indexing rate of a shard that did <tt>delta</tt> operations since the last check. A shard that did not index
+     * drops to <tt>0</tt> right away so that it gives its buffer back.
+     */
+    static double smoothedIndexingRate(double previousRate, long delta) {
+        if (delta <= 0) {
+            return 0;
+        } else if (previousRate == 0) {
+            return delta;
+        } else {
+            return ADAPTIVE_RATE_ALPHA * delta + (1 - ADAPTIVE_RATE_ALPHA) * previousRate;
+        }
+    }
+
+    /**
+     * The adaptive indexing buffer of an active shard: the minimum, plus its share by indexing rate of what is left of
+     * the indexing buffer once every active shard got the minimum, capped at the maximum.
+     */
+    static long adaptiveShardIndexBufferSize(long indexingBuffer, int activeShards, long minShardSize, long maxShardSize, double shardRate, double totalRate) {
+        final long adaptiveIndexingBuffer = Math.max(0, indexingBuffer - activeShards * minShardSize);
+        final double share = totalRate > 0 ? shardRate / totalRate : 0;
+        return Math.min(maxShardSize, minShardSize + (long) (adaptiveIndexingBuffer * share));
+    }
+
     private int countShards() {
         int shardsCount = 0;
         for (IndexService indexService : indicesService) {
@@ -295,5 +378,9 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
         int translogNumberOfOperations = -1;
         boolean inactiveIndexing = false;
         long time = -1; // contains the first time we saw this shard with no operations done on it
+        long indexingOperations = -1; // index and delete operations done on the shard, as of the last check
+        double indexingRate = 0; // smoothed number of operations per interval, used in adaptive mode
+        long indexBufferSize = -1;
+        long translogBufferSize = -1;
     }
 }
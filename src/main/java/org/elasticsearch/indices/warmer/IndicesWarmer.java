@@ -19,7 +19,9 @@
 
 package org.elasticsearch.indices.warmer;
 
+import org.apache.lucene.index.IndexReader;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.service.IndexShard;
@@ -44,9 +46,17 @@ public interface IndicesWarmer {
 
         private final Engine.Searcher newSearcher;
 
+        @Nullable
+        private final IndexReader topLevelReader;
+
         public WarmerContext(ShardId shardId, Engine.Searcher newSearcher) {
+            this(shardId, newSearcher, null);
+        }
+
+        public WarmerContext(ShardId shardId, Engine.Searcher newSearcher, @Nullable IndexReader topLevelReader) {
             this.shardId = shardId;
             this.newSearcher = newSearcher;
+            this.topLevelReader = topLevelReader;
         }
 
         public ShardId shardId() {
@@ -57,6 +67,12 @@ public interface IndicesWarmer {
         public Engine.Searcher newSearcher() {
             return newSearcher;
         }
+
+        /** Return the reader that is about to be exposed for search, or <tt>null</tt> when only merged segments are warmed. */
+        @Nullable
+        public IndexReader topLevelReader() {
+            return topLevelReader;
+        }
     }
 
     void addListener(Listener listener);
@@ -220,6 +220,7 @@ public class PercolateContext extends SearchContext {
     @Override
     public boolean release() throws ElasticSearchException {
         try {
+            releaseFieldData();
             if (docEngineSearcher != null) {
                 IndexReader indexReader = docEngineSearcher.reader();
                 fieldDataService.clear(indexReader);
@@ -356,7 +357,7 @@ public class PercolateContext extends SearchContext {
     }
 
     @Override
-    public long nowInMillis() {
+    protected long nowInMillisImpl() {
         throw new UnsupportedOperationException();
     }
 
@@ -515,6 +516,16 @@ public class PercolateContext extends SearchContext {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public SearchContext searchAfter(Object[] searchAfter) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object[] searchAfter() {
+        return null;
+    }
+
     @Override
     public SearchContext parsedFilter(ParsedFilter filter) {
         throw new UnsupportedOperationException();
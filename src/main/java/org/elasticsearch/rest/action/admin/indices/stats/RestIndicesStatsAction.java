@@ -81,6 +81,9 @@ public class RestIndicesStatsAction extends BaseRestHandler {
         controller.registerHandler(GET, "/_stats/filter_cache", new RestFilterCacheStatsHandler());
         controller.registerHandler(GET, "/{index}/_stats/filter_cache", new RestFilterCacheStatsHandler());
 
+        controller.registerHandler(GET, "/_stats/query_cache", new RestQueryCacheStatsHandler());
+        controller.registerHandler(GET, "/{index}/_stats/query_cache", new RestQueryCacheStatsHandler());
+
         controller.registerHandler(GET, "/_stats/id_cache", new RestIdCacheStatsHandler());
         controller.registerHandler(GET, "/{index}/_stats/id_cache", new RestIdCacheStatsHandler());
 
@@ -131,6 +134,7 @@ public class RestIndicesStatsAction extends BaseRestHandler {
         indicesStatsRequest.flush(request.paramAsBoolean("flush", indicesStatsRequest.flush()));
         indicesStatsRequest.warmer(request.paramAsBoolean("warmer", indicesStatsRequest.warmer()));
         indicesStatsRequest.filterCache(request.paramAsBoolean("filter_cache", indicesStatsRequest.filterCache()));
+        indicesStatsRequest.queryCache(request.paramAsBoolean("query_cache", indicesStatsRequest.queryCache()));
         indicesStatsRequest.idCache(request.paramAsBoolean("id_cache", indicesStatsRequest.idCache()));
         indicesStatsRequest.fieldData(request.paramAsBoolean("fielddata", indicesStatsRequest.fieldData()));
         indicesStatsRequest.fieldDataFields(request.paramAsStringArray("fielddata_fields", defaultIncludedFields));
@@ -518,6 +522,44 @@ public class RestIndicesStatsAction extends BaseRestHandler {
         }
     }
 
+    class RestQueryCacheStatsHandler implements RestHandler {
+
+        @Override
+        public void handleRequest(final RestRequest request, final RestChannel channel) {
+            IndicesStatsRequest indicesStatsRequest = new IndicesStatsRequest();
+            indicesStatsRequest.listenerThreaded(false);
+            indicesStatsRequest.clear().queryCache(true);
+            indicesStatsRequest.indices(Strings.splitStringByCommaToArray(request.param("index")));
+            indicesStatsRequest.types(Strings.splitStringByCommaToArray(request.param("types")));
+
+            client.admin().indices().stats(indicesStatsRequest, new ActionListener<IndicesStatsResponse>() {
+                @Override
+                public void onResponse(IndicesStatsResponse response) {
+                    try {
+                        XContentBuilder builder = RestXContentBuilder.restContentBuilder(request);
+                        builder.startObject();
+                        builder.field("ok", true);
+                        buildBroadcastShardsHeader(builder, response);
+                        response.toXContent(builder, request);
+                        builder.endObject();
+                        channel.sendResponse(new XContentRestResponse(request, OK, builder));
+                    } catch (Throwable e) {
+                        onFailure(e);
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    try {
+                        channel.sendResponse(new XContentThrowableRestResponse(request, e));
+                    } catch (IOException e1) {
+                        logger.error("Failed to send failure response", e1);
+                    }
+                }
+            });
+        }
+    }
+
     class RestIdCacheStatsHandler implements RestHandler {
 
         @Override
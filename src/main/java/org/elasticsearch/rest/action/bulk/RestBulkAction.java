@@ -50,6 +50,7 @@ import static org.elasticsearch.rest.action.support.RestXContentBuilder.restCont
  * { "create" : { "_index" : "test", "_type" : "type1", "_id" : "1" }
  * { "type1" : { "field1" : "value1" } }
  * </pre>
+ * The body can also be sent in the {@link org.elasticsearch.action.bulk.BulkBinaryFormat}.
  */
 public class RestBulkAction extends BaseRestHandler {
 
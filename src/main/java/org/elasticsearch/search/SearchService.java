@@ -21,6 +21,7 @@ package org.elasticsearch.search;
 
 import com.google.common.collect.ImmutableMap;
 import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.TopDocs;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.ExceptionsHelper;
@@ -41,6 +42,7 @@ import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.fielddata.FieldDataType;
+import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldDataService;
 import org.elasticsearch.index.mapper.DocumentMapper;
 import org.elasticsearch.index.mapper.FieldMapper;
@@ -51,6 +53,7 @@ import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.indices.IndicesLifecycle;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.cache.query.IndicesQueryCache;
 import org.elasticsearch.indices.warmer.IndicesWarmer;
 import org.elasticsearch.indices.warmer.IndicesWarmer.WarmerContext;
 import org.elasticsearch.script.ScriptService;
@@ -66,7 +69,9 @@ import org.elasticsearch.search.query.*;
 import org.elasticsearch.search.warmer.IndexWarmersMetaData;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ScheduledFuture;
@@ -97,6 +102,8 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     private final FetchPhase fetchPhase;
 
+    private final IndicesQueryCache indicesQueryCache;
+
     private final long defaultKeepAlive;
 
     private final ScheduledFuture<?> keepAliveReaper;
@@ -109,7 +116,8 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     @Inject
     public SearchService(Settings settings, ClusterService clusterService, IndicesService indicesService, IndicesLifecycle indicesLifecycle, IndicesWarmer indicesWarmer, ThreadPool threadPool,
-                         ScriptService scriptService, CacheRecycler cacheRecycler, DfsPhase dfsPhase, QueryPhase queryPhase, FetchPhase fetchPhase) {
+                         ScriptService scriptService, CacheRecycler cacheRecycler, DfsPhase dfsPhase, QueryPhase queryPhase, FetchPhase fetchPhase,
+                         IndicesQueryCache indicesQueryCache) {
         super(settings);
         this.threadPool = threadPool;
         this.clusterService = clusterService;
@@ -120,6 +128,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         this.dfsPhase = dfsPhase;
         this.queryPhase = queryPhase;
         this.fetchPhase = fetchPhase;
+        this.indicesQueryCache = indicesQueryCache;
 
         TimeValue keepAliveInterval = componentSettings.getAsTime("keep_alive_interval", timeValueMinutes(1));
         // we can have 5 minutes here, since we make sure to clean with search requests and when shard/index closes
@@ -227,7 +236,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
             context.indexShard().searchService().onPreQueryPhase(context);
             long time = System.nanoTime();
             contextProcessing(context);
-            queryPhase.execute(context);
+            loadOrExecuteQueryPhase(request, context);
             if (context.searchType() == SearchType.COUNT) {
                 freeContext(context.id());
             } else {
@@ -245,6 +254,17 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         }
     }
 
+    /**
+     * Executes the query phase, unless the result of the same request on the same reader can be loaded from the query cache.
+     */
+    private void loadOrExecuteQueryPhase(ShardSearchRequest request, SearchContext context) throws Exception {
+        if (indicesQueryCache.canCache(request, context)) {
+            indicesQueryCache.loadIntoContext(request, context, queryPhase);
+        } else {
+            queryPhase.execute(context);
+        }
+    }
+
     public ScrollQuerySearchResult executeQueryPhase(InternalScrollSearchRequest request) throws ElasticSearchException {
         SearchContext context = findContext(request.id());
         try {
@@ -634,6 +654,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         public void warm(final IndexShard indexShard, IndexMetaData indexMetaData, final WarmerContext context, ThreadPool threadPool) {
             final MapperService mapperService = indexShard.mapperService();
             final Map<String, FieldMapper<?>> warmUp = new HashMap<String, FieldMapper<?>>();
+            final List<FieldMapper<?>> warmUpGlobalOrdinals = new ArrayList<FieldMapper<?>>();
             boolean parentChild = false;
             for (DocumentMapper docMapper : mapperService) {
                 for (FieldMapper<?> fieldMapper : docMapper.mappers().mappers()) {
@@ -644,7 +665,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
                     if (fieldDataType == null) {
                         continue;
                     }
-                    if (fieldDataType.getLoading() != FieldDataType.Loading.EAGER) {
+                    if (fieldDataType.getLoading() == FieldDataType.Loading.LAZY) {
                         continue;
                     }
                     final String indexName = fieldMapper.names().indexName();
@@ -652,6 +673,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
                         continue;
                     }
                     warmUp.put(indexName, fieldMapper);
+                    if (fieldDataType.getLoading() == FieldDataType.Loading.EAGER_GLOBAL_ORDINALS) {
+                        warmUpGlobalOrdinals.add(fieldMapper);
+                    }
                 }
             }
             final IndexFieldDataService indexFieldDataService = indexShard.indexFieldDataService();
@@ -706,6 +730,41 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
+
+            // the segments are loaded now, build the global ordinals for the reader that is about to be exposed
+            final IndexReader topLevelReader = context.topLevelReader();
+            if (topLevelReader == null || warmUpGlobalOrdinals.isEmpty()) {
+                return;
+            }
+            final CountDownLatch globalOrdinalsLatch = new CountDownLatch(warmUpGlobalOrdinals.size());
+            for (final FieldMapper<?> fieldMapper : warmUpGlobalOrdinals) {
+                threadPool.executor(executor()).execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            final long start = System.nanoTime();
+                            IndexFieldData<?> indexFieldData = indexFieldDataService.getForField(fieldMapper);
+                            if (indexFieldData instanceof IndexFieldData.WithOrdinals) {
+                                indexFieldDataService.getGlobalOrdinals((IndexFieldData.WithOrdinals<?>) indexFieldData, topLevelReader);
+                            }
+                            if (indexShard.warmerService().logger().isTraceEnabled()) {
+                                indexShard.warmerService().logger().trace("warmed global ordinals for [{}], took [{}]", fieldMapper.names().name(), TimeValue.timeValueNanos(System.nanoTime() - start));
+                            }
+                        } catch (Throwable t) {
+                            indexShard.warmerService().logger().warn("failed to warm-up global ordinals for [{}]", t, fieldMapper.names().name());
+                        } finally {
+                            globalOrdinalsLatch.countDown();
+                        }
+                    }
+
+                });
+            }
+            try {
+                globalOrdinalsLatch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
 
     }
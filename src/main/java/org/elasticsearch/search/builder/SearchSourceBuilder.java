@@ -92,6 +92,8 @@ public class SearchSourceBuilder implements ToXContent {
 
     private boolean trackScores = false;
 
+    private Object[] searchAfter;
+
     private Float minScore;
 
     private long timeoutInMillis = -1;
@@ -340,6 +342,16 @@ public class SearchSourceBuilder implements ToXContent {
         return this;
     }
 
+    /**
+     * Sets the sort values of the last hit of the previous page. Only hits that sort after these
+     * values are returned, one value per sort field, which allows to page through sorted results
+     * without collecting <tt>from + size</tt> hits on each shard.
+     */
+    public SearchSourceBuilder searchAfter(Object... searchAfter) {
+        this.searchAfter = searchAfter;
+        return this;
+    }
+
     /**
      * Add a facet to perform as part of the search.
      */
@@ -759,6 +771,14 @@ public class SearchSourceBuilder implements ToXContent {
             builder.field("track_scores", trackScores);
         }
 
+        if (searchAfter != null) {
+            builder.startArray("search_after");
+            for (Object value : searchAfter) {
+                builder.value(value);
+            }
+            builder.endArray();
+        }
+
         if (indexBoost != null) {
             builder.startObject("indices_boost");
             final boolean[] states = indexBoost.allocated;
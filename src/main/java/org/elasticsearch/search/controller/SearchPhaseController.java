@@ -195,21 +195,18 @@ public class SearchPhaseController extends AbstractComponent {
         Arrays.sort(sortedResults, QUERY_RESULT_ORDERING);
         QuerySearchResultProvider firstResult = sortedResults[0].value;
 
-        int totalNumDocs = 0;
-
-        int queueSize = firstResult.queryResult().from() + firstResult.queryResult().size();
+        int from = firstResult.queryResult().from();
+        int size = firstResult.queryResult().size();
         if (firstResult.includeFetch()) {
             // if we did both query and fetch on the same go, we have fetched all the docs from each shards already, use them...
             // this is also important since we shortcut and fetch only docs from "from" and up to "size"
-            queueSize *= sortedResults.length;
+            from *= sortedResults.length;
+            size *= sortedResults.length;
         }
 
-        // we don't use TopDocs#merge here because with TopDocs#merge, when pagination, we need to ask for "from + size" topN
-        // hits, which ends up creating a "from + size" ScoreDoc[], while in our implementation, we can actually get away with
-        // just create "size" ScoreDoc (the reverse order in the queue). would be nice to improve TopDocs#merge to allow for
-        // it in which case we won't need this logic...
-
-        PriorityQueue queue;
+        // each shard already returns its docs sorted, so instead of pushing "from + size" docs through a priority queue
+        // we merge the shard results lazily, skipping the first "from" docs and only materializing the requested page
+        final ScoreDocOrdering ordering;
         if (firstResult.queryResult().topDocs() instanceof TopFieldDocs) {
             // sorting, first if the type is a String, chance CUSTOM to STRING so we handle nulls properly (since our CUSTOM String sorting might return null)
             TopFieldDocs fieldDocs = (TopFieldDocs) firstResult.queryResult().topDocs();
@@ -237,59 +234,116 @@ public class SearchPhaseController extends AbstractComponent {
                     fieldDocs.fields[i] = new SortField(fieldDocs.fields[i].getField(), SortField.Type.STRING, fieldDocs.fields[i].getReverse());
                 }
             }
-            queue = new ShardFieldDocSortedHitQueue(fieldDocs.fields, queueSize);
-
-            // we need to accumulate for all and then filter the from
-            for (AtomicArray.Entry<? extends QuerySearchResultProvider> entry : sortedResults) {
-                QuerySearchResult result = entry.value.queryResult();
-                ScoreDoc[] scoreDocs = result.topDocs().scoreDocs;
-                totalNumDocs += scoreDocs.length;
-                for (ScoreDoc doc : scoreDocs) {
-                    doc.shardIndex = entry.index;
-                    if (queue.insertWithOverflow(doc) == doc) {
-                        // filled the queue, break
-                        break;
-                    }
+            final ShardFieldDocSortedHitQueue queue = new ShardFieldDocSortedHitQueue(fieldDocs.fields, 1);
+            ordering = new ScoreDocOrdering() {
+                @Override
+                public boolean before(ScoreDoc a, ScoreDoc b) {
+                    return queue.lessThan((FieldDoc) b, (FieldDoc) a);
                 }
-            }
+            };
         } else {
-            queue = new ScoreDocQueue(queueSize); // we need to accumulate for all and then filter the from
-            for (AtomicArray.Entry<? extends QuerySearchResultProvider> entry : sortedResults) {
-                QuerySearchResult result = entry.value.queryResult();
-                ScoreDoc[] scoreDocs = result.topDocs().scoreDocs;
-                totalNumDocs += scoreDocs.length;
-                for (ScoreDoc doc : scoreDocs) {
-                    doc.shardIndex = entry.index;
-                    if (queue.insertWithOverflow(doc) == doc) {
-                        // filled the queue, break
-                        break;
-                    }
+            final ScoreDocQueue queue = new ScoreDocQueue(1);
+            ordering = new ScoreDocOrdering() {
+                @Override
+                public boolean before(ScoreDoc a, ScoreDoc b) {
+                    return queue.lessThan(b, a);
                 }
-            }
-
+            };
         }
 
-        int resultDocsSize = firstResult.queryResult().size();
-        if (firstResult.includeFetch()) {
-            // if we did both query and fetch on the same go, we have fetched all the docs from each shards already, use them...
-            resultDocsSize *= sortedResults.length;
-        }
-        if (totalNumDocs < queueSize) {
-            resultDocsSize = totalNumDocs - firstResult.queryResult().from();
+        long totalNumDocs = 0;
+        ShardDocsMergeQueue mergeQueue = new ShardDocsMergeQueue(ordering, sortedResults.length);
+        for (AtomicArray.Entry<? extends QuerySearchResultProvider> entry : sortedResults) {
+            ShardDocs shardDocs = new ShardDocs(entry.index, entry.value.queryResult().topDocs().scoreDocs);
+            totalNumDocs += shardDocs.docs.length;
+            if (shardDocs.next()) {
+                mergeQueue.add(shardDocs);
+            }
         }
 
+        int resultDocsSize = (int) Math.min(size, totalNumDocs - from);
         if (resultDocsSize <= 0) {
             return EMPTY_DOCS;
         }
 
-        // we only pop the first, this handles "from" nicely since the "from" are down the queue
-        // that we already fetched, so we are actually popping the "from" and up to "size"
+        for (int i = 0; i < from; i++) {
+            mergeQueue.nextDoc();
+        }
         ScoreDoc[] shardDocs = new ScoreDoc[resultDocsSize];
-        for (int i = resultDocsSize - 1; i >= 0; i--)      // put docs in array
-            shardDocs[i] = (ScoreDoc) queue.pop();
+        for (int i = 0; i < resultDocsSize; i++) {
+            shardDocs[i] = mergeQueue.nextDoc();
+        }
         return shardDocs;
     }
 
+    /**
+     * The order docs of different shards are merged in, mirroring the tie breaking of the shard level queues.
+     */
+    static interface ScoreDocOrdering {
+
+        /**
+         * Returns <tt>true</tt> if <tt>a</tt> comes before <tt>b</tt>.
+         */
+        boolean before(ScoreDoc a, ScoreDoc b);
+    }
+
+    /**
+     * A cursor over the (sorted) docs returned by a shard.
+     */
+    static final class ShardDocs {
+
+        final int shardIndex;
+        final ScoreDoc[] docs;
+        int position = -1;
+        ScoreDoc current;
+
+        ShardDocs(int shardIndex, ScoreDoc[] docs) {
+            this.shardIndex = shardIndex;
+            this.docs = docs;
+        }
+
+        boolean next() {
+            if (++position >= docs.length) {
+                return false;
+            }
+            current = docs[position];
+            current.shardIndex = shardIndex;
+            return true;
+        }
+    }
+
+    /**
+     * A k-way merge over the shard docs, holding one entry per shard.
+     */
+    static final class ShardDocsMergeQueue extends PriorityQueue<ShardDocs> {
+
+        private final ScoreDocOrdering ordering;
+
+        ShardDocsMergeQueue(ScoreDocOrdering ordering, int numShards) {
+            super(numShards);
+            this.ordering = ordering;
+        }
+
+        @Override
+        protected boolean lessThan(ShardDocs a, ShardDocs b) {
+            return ordering.before(a.current, b.current);
+        }
+
+        /**
+         * Returns the next doc in order and moves its shard forward.
+         */
+        ScoreDoc nextDoc() {
+            ShardDocs top = top();
+            ScoreDoc doc = top.current;
+            if (top.next()) {
+                updateTop();
+            } else {
+                pop();
+            }
+            return doc;
+        }
+    }
+
     /**
      * Builds an array, with potential null elements, with docs to load.
      */
@@ -157,4 +157,18 @@ public abstract class FacetExecutor {
     public Post post() {
         return new Post.Collector(collector());
     }
+
+    /**
+     * Implemented by executors whose facet can be collected on slices of the segments of a shard in parallel.
+     * Executors that don't implement it are always collected sequentially, with the main query.
+     */
+    public static interface ParallelCollectable {
+
+        /**
+         * A collector for a single slice of segments, used concurrently with the collectors of the other slices.
+         * Its {@link Collector#postCollection()} merges what it collected into the executor, and might be called
+         * concurrently as well.
+         */
+        Collector sliceCollector();
+    }
 }
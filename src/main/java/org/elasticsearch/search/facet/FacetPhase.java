@@ -29,12 +29,16 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.docset.AllDocIdSet;
 import org.elasticsearch.common.lucene.docset.ContextDocIdSet;
 import org.elasticsearch.common.lucene.search.*;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.search.SearchParseElement;
 import org.elasticsearch.search.SearchPhase;
 import org.elasticsearch.search.facet.nested.NestedFacetExecutor;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.query.QueryPhaseExecutionException;
+import org.elasticsearch.threadpool.ThreadPool;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -48,10 +52,17 @@ public class FacetPhase implements SearchPhase {
 
     private final FacetBinaryParseElement facetBinaryParseElement;
 
+    private final ThreadPool threadPool;
+
+    private final int parallelSlices;
+
     @Inject
-    public FacetPhase(FacetParseElement facetParseElement, FacetBinaryParseElement facetBinaryParseElement) {
+    public FacetPhase(Settings settings, ThreadPool threadPool, FacetParseElement facetParseElement, FacetBinaryParseElement facetBinaryParseElement) {
+        this.threadPool = threadPool;
         this.facetParseElement = facetParseElement;
         this.facetBinaryParseElement = facetBinaryParseElement;
+        // opt-in, the number of slices of segments collector based facets are collected on in parallel
+        this.parallelSlices = settings.getAsInt("search.facet.parallel_slices", 1);
     }
 
     @Override
@@ -66,6 +77,10 @@ public class FacetPhase implements SearchPhase {
                 if (entry.isGlobal()) {
                     continue;
                 }
+                if (entry.getMode() == FacetExecutor.Mode.COLLECTOR && collectInParallel(context, entry)) {
+                    // collected on its own in execute
+                    continue;
+                }
                 if (entry.getMode() == FacetExecutor.Mode.COLLECTOR) {
                     // TODO: We can pass the filter as param to collector method, then this filter wrapper logic can
                     // be moved to NestedFacetExecutor impl, the other implementations would just wrap it into
@@ -106,7 +121,23 @@ public class FacetPhase implements SearchPhase {
 
         Map<Filter, List<Collector>> filtersByCollector = null;
         List<ContextDocIdSet> globalDocSets = null;
+        List<SearchContextFacets.Entry> parallelEntries = null;
+        List<SearchContextFacets.Entry> parallelGlobalEntries = null;
         for (SearchContextFacets.Entry entry : context.facets().entries()) {
+            if (entry.getMode() == FacetExecutor.Mode.COLLECTOR && collectInParallel(context, entry)) {
+                if (entry.isGlobal()) {
+                    if (parallelGlobalEntries == null) {
+                        parallelGlobalEntries = new ArrayList<SearchContextFacets.Entry>();
+                    }
+                    parallelGlobalEntries.add(entry);
+                } else {
+                    if (parallelEntries == null) {
+                        parallelEntries = new ArrayList<SearchContextFacets.Entry>();
+                    }
+                    parallelEntries.add(entry);
+                }
+                continue;
+            }
             if (!entry.isGlobal()) {
                 if (entry.getMode() == FacetExecutor.Mode.POST) {
                     FacetExecutor.Post post = entry.getFacetExecutor().post();
@@ -195,10 +226,108 @@ public class FacetPhase implements SearchPhase {
             }
         }
 
+        if (parallelEntries != null) {
+            try {
+                context.searcher().searchInParallel(context.query(), parallelSlices, new SliceCollectorFactory(parallelEntries), threadPool.executor(ThreadPool.Names.SEARCH));
+            } catch (Exception e) {
+                throw new QueryPhaseExecutionException(context, "Failed to execute facets in parallel", e);
+            }
+        }
+        if (parallelGlobalEntries != null) {
+            Query query = new XConstantScoreQuery(Queries.MATCH_ALL_FILTER);
+            Filter searchFilter = context.searchFilter(context.types());
+            if (searchFilter != null) {
+                query = new XFilteredQuery(query, searchFilter);
+            }
+            try {
+                context.searcher().searchInParallel(query, parallelSlices, new SliceCollectorFactory(parallelGlobalEntries), threadPool.executor(ThreadPool.Names.SEARCH));
+            } catch (Exception e) {
+                throw new QueryPhaseExecutionException(context, "Failed to execute global facets in parallel", e);
+            }
+        }
+
         List<Facet> facets = new ArrayList<Facet>(context.facets().entries().size());
         for (SearchContextFacets.Entry entry : context.facets().entries()) {
             facets.add(entry.getFacetExecutor().buildFacet(entry.getFacetName()));
         }
         context.queryResult().facets(new InternalFacets(facets));
     }
+
+    /**
+     * Collector based facets are collected on their own, on slices of the segments in parallel, when enabled and
+     * supported by the facet. Facets that depend on the main query collection (minimum score, timeout) are not.
+     */
+    private boolean collectInParallel(SearchContext context, SearchContextFacets.Entry entry) {
+        return parallelSlices > 1
+                && entry.getFacetExecutor() instanceof FacetExecutor.ParallelCollectable
+                && context.minimumScore() == null
+                && context.timeoutInMillis() == -1
+                && context.searcher().getIndexReader().leaves().size() > 1;
+    }
+
+    static class SliceCollectorFactory implements ContextIndexSearcher.SliceCollectorFactory {
+
+        private final List<SearchContextFacets.Entry> entries;
+
+        SliceCollectorFactory(List<SearchContextFacets.Entry> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public Collector newCollector() throws IOException {
+            Collector[] collectors = new Collector[entries.size()];
+            for (int i = 0; i < collectors.length; i++) {
+                SearchContextFacets.Entry entry = entries.get(i);
+                Collector collector = ((FacetExecutor.ParallelCollectable) entry.getFacetExecutor()).sliceCollector();
+                if (entry.getFilter() != null) {
+                    collector = new FilteredCollector(collector, entry.getFilter());
+                }
+                collectors[i] = collector;
+            }
+            return new SliceCollector(collectors);
+        }
+    }
+
+    /**
+     * Collects all the facets of a slice, and merges them into their executors once the slice is done.
+     */
+    static class SliceCollector extends XCollector {
+
+        private final Collector[] collectors;
+        private final Collector collector;
+
+        SliceCollector(Collector[] collectors) {
+            this.collectors = collectors;
+            this.collector = MultiCollector.wrap(collectors);
+        }
+
+        @Override
+        public void setScorer(Scorer scorer) throws IOException {
+            collector.setScorer(scorer);
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            collector.collect(doc);
+        }
+
+        @Override
+        public void setNextReader(AtomicReaderContext context) throws IOException {
+            collector.setNextReader(context);
+        }
+
+        @Override
+        public boolean acceptsDocsOutOfOrder() {
+            return collector.acceptsDocsOutOfOrder();
+        }
+
+        @Override
+        public void postCollection() {
+            for (Collector collector : collectors) {
+                if (collector instanceof XCollector) {
+                    ((XCollector) collector).postCollection();
+                }
+            }
+        }
+    }
 }
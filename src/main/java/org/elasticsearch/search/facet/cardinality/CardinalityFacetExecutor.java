@@ -0,0 +1,126 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.cardinality;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.hash.MurmurHash3;
+import org.elasticsearch.index.fielddata.*;
+import org.elasticsearch.search.facet.FacetExecutor;
+import org.elasticsearch.search.facet.InternalFacet;
+
+import java.io.IOException;
+
+/**
+ * Estimates the number of distinct values of a field by adding the hashes of its field data values to
+ * a {@link HyperLogLogPlusPlus} sketch.
+ */
+public class CardinalityFacetExecutor extends FacetExecutor implements FacetExecutor.ParallelCollectable {
+
+    private final IndexFieldData indexFieldData;
+    private final HyperLogLogPlusPlus sketch;
+
+    public CardinalityFacetExecutor(IndexFieldData indexFieldData, int precision) {
+        this.indexFieldData = indexFieldData;
+        this.sketch = new HyperLogLogPlusPlus(precision);
+    }
+
+    @Override
+    public Collector collector() {
+        return new Collector(sketch);
+    }
+
+    @Override
+    public Collector sliceCollector() {
+        return new SliceCollector();
+    }
+
+    @Override
+    public InternalFacet buildFacet(String facetName) {
+        return new InternalCardinalityFacet(facetName, sketch);
+    }
+
+    class Collector extends FacetExecutor.Collector {
+
+        final HyperLogLogPlusPlus sketch;
+        final MurmurHash3.Hash128 hash = new MurmurHash3.Hash128();
+
+        private LongValues longValues;
+        private DoubleValues doubleValues;
+        private BytesValues bytesValues;
+
+        Collector(HyperLogLogPlusPlus sketch) {
+            this.sketch = sketch;
+        }
+
+        @Override
+        public void setNextReader(AtomicReaderContext context) throws IOException {
+            AtomicFieldData fieldData = indexFieldData.load(context);
+            if (indexFieldData instanceof IndexNumericFieldData) {
+                if (((IndexNumericFieldData) indexFieldData).getNumericType().isFloatingPoint()) {
+                    doubleValues = ((AtomicNumericFieldData) fieldData).getDoubleValues();
+                } else {
+                    longValues = ((AtomicNumericFieldData) fieldData).getLongValues();
+                }
+            } else {
+                bytesValues = fieldData.getBytesValues(false);
+            }
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            if (longValues != null) {
+                final int numValues = longValues.setDocument(doc);
+                for (int i = 0; i < numValues; i++) {
+                    sketch.add(MurmurHash3.fmix(longValues.nextValue()));
+                }
+            } else if (doubleValues != null) {
+                final int numValues = doubleValues.setDocument(doc);
+                for (int i = 0; i < numValues; i++) {
+                    sketch.add(MurmurHash3.fmix(Double.doubleToLongBits(doubleValues.nextValue())));
+                }
+            } else {
+                final int numValues = bytesValues.setDocument(doc);
+                for (int i = 0; i < numValues; i++) {
+                    final BytesRef value = bytesValues.nextValue();
+                    sketch.add(MurmurHash3.hash128(value.bytes, value.offset, value.length, 0, hash).h1);
+                }
+            }
+        }
+
+        @Override
+        public void postCollection() {
+        }
+    }
+
+    class SliceCollector extends Collector {
+
+        SliceCollector() {
+            super(new HyperLogLogPlusPlus(CardinalityFacetExecutor.this.sketch.precision()));
+        }
+
+        @Override
+        public void postCollection() {
+            synchronized (CardinalityFacetExecutor.this) {
+                CardinalityFacetExecutor.this.sketch.merge(sketch);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.cardinality;
+
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.search.facet.FacetExecutor;
+import org.elasticsearch.search.facet.FacetParser;
+import org.elasticsearch.search.facet.FacetPhaseExecutionException;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+
+/**
+ *
+ */
+public class CardinalityFacetParser extends AbstractComponent implements FacetParser {
+
+    @Inject
+    public CardinalityFacetParser(Settings settings) {
+        super(settings);
+        InternalCardinalityFacet.registerStreams();
+    }
+
+    @Override
+    public String[] types() {
+        return new String[]{CardinalityFacet.TYPE};
+    }
+
+    @Override
+    public FacetExecutor.Mode defaultMainMode() {
+        return FacetExecutor.Mode.COLLECTOR;
+    }
+
+    @Override
+    public FacetExecutor.Mode defaultGlobalMode() {
+        return FacetExecutor.Mode.COLLECTOR;
+    }
+
+    @Override
+    public FacetExecutor parse(String facetName, XContentParser parser, SearchContext context) throws IOException {
+        String field = null;
+        int precision = HyperLogLogPlusPlus.DEFAULT_PRECISION;
+
+        String currentFieldName = null;
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token.isValue()) {
+                if ("field".equals(currentFieldName)) {
+                    field = parser.text();
+                } else if ("precision".equals(currentFieldName)) {
+                    precision = parser.intValue();
+                }
+            }
+        }
+        if (field == null) {
+            throw new FacetPhaseExecutionException(facetName, "cardinality facet requires [field] to be set");
+        }
+        if (precision < HyperLogLogPlusPlus.MIN_PRECISION || precision > HyperLogLogPlusPlus.MAX_PRECISION) {
+            throw new FacetPhaseExecutionException(facetName, "[precision] must be between " + HyperLogLogPlusPlus.MIN_PRECISION + " and " + HyperLogLogPlusPlus.MAX_PRECISION + ", got " + precision);
+        }
+        FieldMapper fieldMapper = context.smartNameFieldMapper(field);
+        if (fieldMapper == null) {
+            throw new FacetPhaseExecutionException(facetName, "No mapping found for field [" + field + "]");
+        }
+        IndexFieldData indexFieldData = context.fieldData().getForField(fieldMapper);
+        return new CardinalityFacetExecutor(indexFieldData, precision);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.cardinality;
+
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+/**
+ * A HyperLogLog++ sketch that estimates the number of distinct 64-bits hashes that were added to it.
+ * <p/>
+ * The sketch uses <tt>2^precision</tt> one-byte registers, so its memory usage is fixed and independent
+ * of the number of values that are added. Two sketches with the same precision can be merged by keeping
+ * the maximum of each register, which is what makes it possible to compute one sketch per shard and to
+ * merge them on the node that reduces the facet. The relative error of the estimation is about
+ * <tt>1.04 / sqrt(2^precision)</tt>, which is 0.81% with the default precision.
+ * <p/>
+ * Low cardinalities are estimated with linear counting, either when the raw estimation is in the range where
+ * it is known to be biased or when it is under the thresholds from the HyperLogLog++ paper. The sparse
+ * representation and the empirical bias correction tables are not implemented.
+ */
+public final class HyperLogLogPlusPlus {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+    public static final int DEFAULT_PRECISION = 14;
+
+    /**
+     * Cardinalities under which linear counting is more accurate than the raw HyperLogLog estimation,
+     * indexed by precision.
+     */
+    private static final int[] THRESHOLDS = new int[]{
+            10, 20, 40, 80, 220, 400, 900, 1800, 3100, 6500, 11500, 20000, 50000, 120000, 350000
+    };
+
+    private int precision;
+    private byte[] registers;
+
+    HyperLogLogPlusPlus() {
+    }
+
+    public HyperLogLogPlusPlus(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new ElasticSearchIllegalArgumentException("precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION + ", got " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public int precision() {
+        return precision;
+    }
+
+    /**
+     * The number of bytes used by the registers of this sketch.
+     */
+    public int sizeInBytes() {
+        return registers.length;
+    }
+
+    /**
+     * Add a 64-bits hash to the sketch. Hashes need to be uniformly distributed for the estimation to be accurate.
+     */
+    public void add(long hash) {
+        final int index = (int) (hash >>> (64 - precision));
+        // the trailing one bit makes sure the run length never exceeds 64 - precision + 1
+        final long w = (hash << precision) | (1L << (precision - 1));
+        final byte runLength = (byte) (Long.numberOfLeadingZeros(w) + 1);
+        if (runLength > registers[index]) {
+            registers[index] = runLength;
+        }
+    }
+
+    /**
+     * Merge another sketch into this one.
+     */
+    public void merge(HyperLogLogPlusPlus other) {
+        if (other.precision != precision) {
+            throw new ElasticSearchIllegalArgumentException("cannot merge sketches with different precisions: " + precision + " and " + other.precision);
+        }
+        final byte[] otherRegisters = other.registers;
+        for (int i = 0; i < registers.length; ++i) {
+            if (otherRegisters[i] > registers[i]) {
+                registers[i] = otherRegisters[i];
+            }
+        }
+    }
+
+    /**
+     * The estimated number of distinct hashes that have been added to this sketch.
+     */
+    public long cardinality() {
+        final int m = registers.length;
+        int zeros = 0;
+        double inverseSum = 0;
+        for (int i = 0; i < m; ++i) {
+            final byte register = registers[i];
+            if (register == 0) {
+                ++zeros;
+            }
+            inverseSum += 1d / (1L << register);
+        }
+        final double raw = alpha(m) * m * m / inverseSum;
+        if (zeros != 0) {
+            final double linearCount = m * Math.log((double) m / zeros);
+            // the raw estimation is strongly biased up to a few times the number of registers
+            if (raw <= 2.5 * m || linearCount <= THRESHOLDS[precision - MIN_PRECISION]) {
+                return Math.round(linearCount);
+            }
+        }
+        return Math.round(raw);
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    public static HyperLogLogPlusPlus readFrom(StreamInput in) throws IOException {
+        HyperLogLogPlusPlus sketch = new HyperLogLogPlusPlus();
+        sketch.precision = in.readVInt();
+        sketch.registers = new byte[1 << sketch.precision];
+        in.readBytes(sketch.registers, 0, sketch.registers.length);
+        return sketch;
+    }
+
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(precision);
+        out.writeBytes(registers);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.cardinality;
+
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.HashedBytesArray;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.search.facet.Facet;
+import org.elasticsearch.search.facet.InternalFacet;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ *
+ */
+public class InternalCardinalityFacet extends InternalFacet implements CardinalityFacet {
+
+    private static final BytesReference STREAM_TYPE = new HashedBytesArray(Strings.toUTF8Bytes("cardinality"));
+
+    public static void registerStreams() {
+        Streams.registerStream(STREAM, STREAM_TYPE);
+    }
+
+    static Stream STREAM = new Stream() {
+        @Override
+        public Facet readFacet(StreamInput in) throws IOException {
+            return readCardinalityFacet(in);
+        }
+    };
+
+    @Override
+    public BytesReference streamType() {
+        return STREAM_TYPE;
+    }
+
+    private HyperLogLogPlusPlus sketch;
+
+    private InternalCardinalityFacet() {
+    }
+
+    public InternalCardinalityFacet(String name, HyperLogLogPlusPlus sketch) {
+        super(name);
+        this.sketch = sketch;
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public long getCount() {
+        return sketch.cardinality();
+    }
+
+    @Override
+    public int getPrecision() {
+        return sketch.precision();
+    }
+
+    @Override
+    public Facet reduce(ReduceContext context) {
+        List<Facet> facets = context.facets();
+        if (facets.size() == 1) {
+            return facets.get(0);
+        }
+        HyperLogLogPlusPlus reduced = new HyperLogLogPlusPlus(sketch.precision());
+        for (Facet facet : facets) {
+            reduced.merge(((InternalCardinalityFacet) facet).sketch);
+        }
+        return new InternalCardinalityFacet(getName(), reduced);
+    }
+
+    static final class Fields {
+        static final XContentBuilderString _TYPE = new XContentBuilderString("_type");
+        static final XContentBuilderString COUNT = new XContentBuilderString("count");
+        static final XContentBuilderString PRECISION = new XContentBuilderString("precision");
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(getName());
+        builder.field(Fields._TYPE, CardinalityFacet.TYPE);
+        builder.field(Fields.COUNT, getCount());
+        builder.field(Fields.PRECISION, getPrecision());
+        builder.endObject();
+        return builder;
+    }
+
+    public static CardinalityFacet readCardinalityFacet(StreamInput in) throws IOException {
+        InternalCardinalityFacet facet = new InternalCardinalityFacet();
+        facet.readFrom(in);
+        return facet;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        sketch = HyperLogLogPlusPlus.readFrom(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        sketch.writeTo(out);
+    }
+}
@@ -22,6 +22,7 @@ package org.elasticsearch.search.facet.datehistogram;
 import com.carrotsearch.hppc.LongLongOpenHashMap;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.elasticsearch.cache.recycler.CacheRecycler;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.joda.TimeZoneRounding;
 import org.elasticsearch.common.recycler.Recycler;
 import org.elasticsearch.index.fielddata.IndexNumericFieldData;
@@ -35,19 +36,33 @@ import java.io.IOException;
 /**
  * A date histogram facet collector that uses the same field as the key as well as the
  * value.
+ * <p/>
+ * When the bounds of the values are known, values within the bounds are counted in a dense array of
+ * {@link PreRoundedBuckets pre-rounded buckets} instead of being rounded and hashed one by one.
  */
-public class CountDateHistogramFacetExecutor extends FacetExecutor {
+public class CountDateHistogramFacetExecutor extends FacetExecutor implements FacetExecutor.ParallelCollectable {
 
     private final TimeZoneRounding tzRounding;
     private final IndexNumericFieldData indexFieldData;
     final DateHistogramFacet.ComparatorType comparatorType;
+    private final CacheRecycler cacheRecycler;
 
     final Recycler.V<LongLongOpenHashMap> counts;
 
+    private final PreRoundedBuckets buckets;
+    final long[] bucketCounts;
+
     public CountDateHistogramFacetExecutor(IndexNumericFieldData indexFieldData, TimeZoneRounding tzRounding, DateHistogramFacet.ComparatorType comparatorType, CacheRecycler cacheRecycler) {
+        this(indexFieldData, tzRounding, null, comparatorType, cacheRecycler);
+    }
+
+    CountDateHistogramFacetExecutor(IndexNumericFieldData indexFieldData, TimeZoneRounding tzRounding, @Nullable PreRoundedBuckets buckets, DateHistogramFacet.ComparatorType comparatorType, CacheRecycler cacheRecycler) {
         this.comparatorType = comparatorType;
         this.indexFieldData = indexFieldData;
         this.tzRounding = tzRounding;
+        this.cacheRecycler = cacheRecycler;
+        this.buckets = buckets;
+        this.bucketCounts = buckets == null ? null : new long[buckets.size()];
 
         this.counts = cacheRecycler.longLongMap(-1);
     }
@@ -57,8 +72,21 @@ public class CountDateHistogramFacetExecutor extends FacetExecutor {
         return new Collector();
     }
 
+    @Override
+    public Collector sliceCollector() {
+        return new SliceCollector(cacheRecycler.longLongMap(-1));
+    }
+
     @Override
     public InternalFacet buildFacet(String facetName) {
+        if (buckets != null) {
+            // values out of the bounds might have been rounded to the same keys as the dense buckets
+            for (int i = 0; i < bucketCounts.length; i++) {
+                if (bucketCounts[i] != 0) {
+                    counts.v().addTo(buckets.key(i), bucketCounts[i]);
+                }
+            }
+        }
         InternalCountDateHistogramFacet.CountEntry[] countEntries = new InternalCountDateHistogramFacet.CountEntry[counts.v().size()];
         final boolean[] states = counts.v().allocated;
         final long[] keys = counts.v().keys;
@@ -80,7 +108,11 @@ public class CountDateHistogramFacetExecutor extends FacetExecutor {
         private final DateHistogramProc histoProc;
 
         public Collector() {
-            this.histoProc = new DateHistogramProc(counts.v(), tzRounding);
+            this(counts.v(), bucketCounts);
+        }
+
+        Collector(LongLongOpenHashMap counts, long[] bucketCounts) {
+            this.histoProc = new DateHistogramProc(counts, tzRounding, buckets, bucketCounts);
         }
 
         @Override
@@ -98,18 +130,69 @@ public class CountDateHistogramFacetExecutor extends FacetExecutor {
         }
     }
 
+    class SliceCollector extends Collector {
+
+        private final Recycler.V<LongLongOpenHashMap> sliceCounts;
+        private final long[] sliceBucketCounts;
+
+        SliceCollector(Recycler.V<LongLongOpenHashMap> sliceCounts) {
+            this(sliceCounts, buckets == null ? null : new long[buckets.size()]);
+        }
+
+        private SliceCollector(Recycler.V<LongLongOpenHashMap> sliceCounts, long[] sliceBucketCounts) {
+            super(sliceCounts.v(), sliceBucketCounts);
+            this.sliceCounts = sliceCounts;
+            this.sliceBucketCounts = sliceBucketCounts;
+        }
+
+        @Override
+        public void postCollection() {
+            final boolean[] states = sliceCounts.v().allocated;
+            final long[] keys = sliceCounts.v().keys;
+            final long[] values = sliceCounts.v().values;
+            synchronized (counts) {
+                for (int i = 0; i < states.length; i++) {
+                    if (states[i]) {
+                        counts.v().addTo(keys[i], values[i]);
+                    }
+                }
+                if (sliceBucketCounts != null) {
+                    for (int i = 0; i < sliceBucketCounts.length; i++) {
+                        bucketCounts[i] += sliceBucketCounts[i];
+                    }
+                }
+            }
+            sliceCounts.release();
+        }
+    }
+
     public static class DateHistogramProc extends LongFacetAggregatorBase {
 
         private final LongLongOpenHashMap counts;
         private final TimeZoneRounding tzRounding;
+        private final PreRoundedBuckets buckets;
+        private final long[] bucketCounts;
 
         public DateHistogramProc(LongLongOpenHashMap counts, TimeZoneRounding tzRounding) {
+            this(counts, tzRounding, null, null);
+        }
+
+        DateHistogramProc(LongLongOpenHashMap counts, TimeZoneRounding tzRounding, @Nullable PreRoundedBuckets buckets, @Nullable long[] bucketCounts) {
             this.counts = counts;
             this.tzRounding = tzRounding;
+            this.buckets = buckets;
+            this.bucketCounts = bucketCounts;
         }
 
         @Override
         public void onValue(int docId, long value) {
+            if (buckets != null) {
+                final int bucket = buckets.bucket(value);
+                if (bucket >= 0) {
+                    bucketCounts[bucket]++;
+                    return;
+                }
+            }
             counts.addTo(tzRounding.calc(value), 1);
         }
 
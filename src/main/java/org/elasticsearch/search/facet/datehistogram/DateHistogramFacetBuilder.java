@@ -43,6 +43,8 @@ public class DateHistogramFacetBuilder extends FacetBuilder {
     long postOffset = 0;
     float factor = 1.0f;
     private DateHistogramFacet.ComparatorType comparatorType;
+    private Object minBound;
+    private Object maxBound;
 
     private String valueScript;
     private Map<String, Object> params;
@@ -177,6 +179,17 @@ public class DateHistogramFacetBuilder extends FacetBuilder {
         return this;
     }
 
+    /**
+     * Sets the bounds (dates or millis, both inclusive) that most values are expected to fall in, typically
+     * the ones of a range filter on the same field. The buckets between the bounds are computed once
+     * so that values can be counted without being rounded, values out of the bounds are still counted.
+     */
+    public DateHistogramFacetBuilder bounds(Object min, Object max) {
+        this.minBound = min;
+        this.maxBound = max;
+        return this;
+    }
+
     /**
      * Should the facet run in global mode (not bounded by the search query) or not (bounded by
      * the search query). Defaults to <tt>false</tt>.
@@ -254,6 +267,12 @@ public class DateHistogramFacetBuilder extends FacetBuilder {
         if (comparatorType != null) {
             builder.field("comparator", comparatorType.description());
         }
+        if (minBound != null && maxBound != null) {
+            builder.startObject("bounds");
+            builder.field("min", minBound);
+            builder.field("max", maxBound);
+            builder.endObject();
+        }
         builder.endObject();
 
         addFilterFacetAndGlobal(builder, params);
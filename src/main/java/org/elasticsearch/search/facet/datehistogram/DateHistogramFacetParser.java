@@ -30,6 +30,7 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.fielddata.IndexNumericFieldData;
 import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.index.mapper.core.DateFieldMapper;
 import org.elasticsearch.script.SearchScript;
 import org.elasticsearch.search.facet.FacetExecutor;
 import org.elasticsearch.search.facet.FacetParser;
@@ -105,6 +106,8 @@ public class DateHistogramFacetParser extends AbstractComponent implements Facet
         float factor = 1.0f;
         Chronology chronology = ISOChronology.getInstanceUTC();
         DateHistogramFacet.ComparatorType comparatorType = DateHistogramFacet.ComparatorType.TIME;
+        Object minBound = null;
+        Object maxBound = null;
         XContentParser.Token token;
         String fieldName = null;
         while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
@@ -113,6 +116,19 @@ public class DateHistogramFacetParser extends AbstractComponent implements Facet
             } else if (token == XContentParser.Token.START_OBJECT) {
                 if ("params".equals(fieldName)) {
                     params = parser.map();
+                } else if ("bounds".equals(fieldName)) {
+                    String boundName = null;
+                    while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                        if (token == XContentParser.Token.FIELD_NAME) {
+                            boundName = parser.currentName();
+                        } else if (token.isValue()) {
+                            if ("min".equals(boundName)) {
+                                minBound = parser.objectText();
+                            } else if ("max".equals(boundName)) {
+                                maxBound = parser.objectText();
+                            }
+                        }
+                    }
                 }
             } else if (token.isValue()) {
                 if ("field".equals(fieldName)) {
@@ -188,8 +204,23 @@ public class DateHistogramFacetParser extends AbstractComponent implements Facet
             IndexNumericFieldData valueIndexFieldData = context.fieldData().getForField(valueMapper);
             return new ValueDateHistogramFacetExecutor(keyIndexFieldData, valueIndexFieldData, tzRounding, comparatorType, context.cacheRecycler());
         } else {
-            return new CountDateHistogramFacetExecutor(keyIndexFieldData, tzRounding, comparatorType, context.cacheRecycler());
+            PreRoundedBuckets buckets = null;
+            if (minBound != null && maxBound != null) {
+                // the bounds are only a hint: values out of them are rounded one by one
+                buckets = PreRoundedBuckets.build(tzRounding, parseBound(keyMapper, minBound, false), parseBound(keyMapper, maxBound, true));
+            }
+            return new CountDateHistogramFacetExecutor(keyIndexFieldData, tzRounding, buckets, comparatorType, context.cacheRecycler());
+        }
+    }
+
+    private long parseBound(FieldMapper keyMapper, Object bound, boolean upper) {
+        if (keyMapper instanceof DateFieldMapper) {
+            return ((DateFieldMapper) keyMapper).parseToMilliseconds(bound, null, upper);
+        }
+        if (bound instanceof Number) {
+            return ((Number) bound).longValue();
         }
+        return Long.parseLong(bound.toString());
     }
 
     private long parseOffset(String offset) throws IOException {
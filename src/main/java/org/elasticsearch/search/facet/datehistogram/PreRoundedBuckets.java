@@ -0,0 +1,146 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.datehistogram;
+
+import com.carrotsearch.hppc.LongArrayList;
+import org.elasticsearch.common.joda.TimeZoneRounding;
+
+import java.util.Arrays;
+
+/**
+ * The buckets of a date histogram between known bounds, with their boundaries computed once per request so
+ * that values can be resolved to a dense bucket index without being rounded.
+ * <p/>
+ * Buckets can only be precomputed for {@link TimeZoneRounding#isMonotonic() monotonic} roundings. Buckets
+ * which all have the same width (fixed intervals, minutes, hours, days in UTC) are resolved with a division,
+ * others (months, quarters, years) with a binary search on their boundaries.
+ */
+final class PreRoundedBuckets {
+
+    /**
+     * The maximum number of buckets to precompute, more than a month of minutes.
+     */
+    static final int MAX_BUCKETS = 1 << 16;
+
+    private final long min;
+    private final long max;
+    private final long[] starts;
+    private final long[] keys;
+    // the width of all buckets but the first and the last ones, or -1 if they don't have the same width
+    private final long width;
+
+    private PreRoundedBuckets(long min, long max, long[] starts, long[] keys, long width) {
+        this.min = min;
+        this.max = max;
+        this.starts = starts;
+        this.keys = keys;
+        this.width = width;
+    }
+
+    /**
+     * Precomputes the buckets that the values between <tt>min</tt> and <tt>max</tt> (both inclusive) round to,
+     * or returns <tt>null</tt> if the rounding is not monotonic or if there are more than {@link #MAX_BUCKETS} buckets.
+     */
+    static PreRoundedBuckets build(TimeZoneRounding tzRounding, long min, long max) {
+        if (!tzRounding.isMonotonic() || min > max) {
+            return null;
+        }
+        LongArrayList starts = new LongArrayList();
+        LongArrayList keys = new LongArrayList();
+        final long maxKey = tzRounding.calc(max);
+        long start = min;
+        long key = tzRounding.calc(min);
+        long lastWidth = -1;
+        long width = -1;
+        boolean sameWidth = true;
+        while (true) {
+            starts.add(start);
+            keys.add(key);
+            if (starts.size() > MAX_BUCKETS) {
+                return null;
+            }
+            if (key == maxKey) {
+                break;
+            }
+            long next = -1;
+            if (lastWidth > 0 && max - start >= lastWidth
+                    && tzRounding.calc(start + lastWidth) != key && tzRounding.calc(start + lastWidth - 1) == key) {
+                // most buckets have the same width as the previous one
+                next = start + lastWidth;
+            } else {
+                // bisect between a value that rounds to key and one that doesn't
+                long lo = start;
+                long hi = max;
+                while (hi - lo > 1) {
+                    final long mid = lo + ((hi - lo) >>> 1);
+                    if (tzRounding.calc(mid) == key) {
+                        lo = mid;
+                    } else {
+                        hi = mid;
+                    }
+                }
+                next = hi;
+            }
+            if (starts.size() > 1) {
+                // the first bucket is truncated by min
+                if (width == -1) {
+                    width = next - start;
+                } else if (width != next - start) {
+                    sameWidth = false;
+                }
+            }
+            lastWidth = next - start;
+            start = next;
+            key = tzRounding.calc(next);
+        }
+        return new PreRoundedBuckets(min, max, starts.toArray(), keys.toArray(), sameWidth ? width : -1);
+    }
+
+    /**
+     * The number of buckets.
+     */
+    int size() {
+        return keys.length;
+    }
+
+    /**
+     * The key of the given bucket, as computed by the rounding.
+     */
+    long key(int bucket) {
+        return keys[bucket];
+    }
+
+    /**
+     * The index of the bucket of the given value, or <tt>-1</tt> if the value is out of the bounds.
+     */
+    int bucket(long value) {
+        if (value < min || value > max) {
+            return -1;
+        }
+        if (starts.length == 1 || value < starts[1]) {
+            return 0;
+        }
+        if (width > 0) {
+            return Math.min(starts.length - 1, 1 + (int) ((value - starts[1]) / width));
+        }
+        final int index = Arrays.binarySearch(starts, value);
+        return index >= 0 ? index : -2 - index;
+    }
+}
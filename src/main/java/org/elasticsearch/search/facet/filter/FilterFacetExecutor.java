@@ -36,7 +36,7 @@ import java.util.List;
 /**
  *
  */
-public class FilterFacetExecutor extends FacetExecutor {
+public class FilterFacetExecutor extends FacetExecutor implements FacetExecutor.ParallelCollectable {
 
     private final Filter filter;
 
@@ -56,6 +56,11 @@ public class FilterFacetExecutor extends FacetExecutor {
         return new Post();
     }
 
+    @Override
+    public Collector sliceCollector() {
+        return new SliceCollector();
+    }
+
     @Override
     public InternalFacet buildFacet(String facetName) {
         return new InternalFilterFacet(facetName, count);
@@ -82,7 +87,7 @@ public class FilterFacetExecutor extends FacetExecutor {
 
     class Collector extends FacetExecutor.Collector {
 
-        private long count = 0;
+        long count = 0;
         private Bits bits;
 
         @Override
@@ -103,4 +108,17 @@ public class FilterFacetExecutor extends FacetExecutor {
             FilterFacetExecutor.this.count = count;
         }
     }
+
+    class SliceCollector extends Collector {
+
+        @Override
+        public void postCollection() {
+            synchronized (FilterFacetExecutor.this) {
+                if (FilterFacetExecutor.this.count == -1) {
+                    FilterFacetExecutor.this.count = 0;
+                }
+                FilterFacetExecutor.this.count += count;
+            }
+        }
+    }
 }
@@ -0,0 +1,48 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.percentiles;
+
+import org.elasticsearch.search.facet.Facet;
+
+/**
+ * Approximate percentiles of a numeric field.
+ */
+public interface PercentilesFacet extends Facet {
+
+    /**
+     * The type of the percentiles facet.
+     */
+    public static final String TYPE = "percentiles";
+
+    /**
+     * The number of values the percentiles have been computed on.
+     */
+    long getCount();
+
+    /**
+     * The requested percents, between 0 and 100.
+     */
+    double[] getPercents();
+
+    /**
+     * The estimated value at the given percent, between 0 and 100.
+     */
+    double getPercentile(double percent);
+}
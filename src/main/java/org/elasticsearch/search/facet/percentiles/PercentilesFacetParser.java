@@ -0,0 +1,112 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.percentiles;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.index.mapper.core.NumberFieldMapper;
+import org.elasticsearch.search.facet.FacetExecutor;
+import org.elasticsearch.search.facet.FacetParser;
+import org.elasticsearch.search.facet.FacetPhaseExecutionException;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+
+/**
+ *
+ */
+public class PercentilesFacetParser extends AbstractComponent implements FacetParser {
+
+    public static final double[] DEFAULT_PERCENTS = new double[]{1, 5, 25, 50, 75, 95, 99};
+
+    @Inject
+    public PercentilesFacetParser(Settings settings) {
+        super(settings);
+        InternalPercentilesFacet.registerStreams();
+    }
+
+    @Override
+    public String[] types() {
+        return new String[]{PercentilesFacet.TYPE};
+    }
+
+    @Override
+    public FacetExecutor.Mode defaultMainMode() {
+        return FacetExecutor.Mode.COLLECTOR;
+    }
+
+    @Override
+    public FacetExecutor.Mode defaultGlobalMode() {
+        return FacetExecutor.Mode.COLLECTOR;
+    }
+
+    @Override
+    public FacetExecutor parse(String facetName, XContentParser parser, SearchContext context) throws IOException {
+        String field = null;
+        double[] percents = DEFAULT_PERCENTS;
+        double compression = TDigest.DEFAULT_COMPRESSION;
+
+        String currentFieldName = null;
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token == XContentParser.Token.START_ARRAY) {
+                if ("percents".equals(currentFieldName)) {
+                    DoubleArrayList values = new DoubleArrayList();
+                    while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                        double percent = parser.doubleValue();
+                        if (percent < 0 || percent > 100) {
+                            throw new FacetPhaseExecutionException(facetName, "percents must be between 0 and 100, got [" + percent + "]");
+                        }
+                        values.add(percent);
+                    }
+                    percents = values.toArray();
+                }
+            } else if (token.isValue()) {
+                if ("field".equals(currentFieldName)) {
+                    field = parser.text();
+                } else if ("compression".equals(currentFieldName)) {
+                    compression = parser.doubleValue();
+                }
+            }
+        }
+        if (field == null) {
+            throw new FacetPhaseExecutionException(facetName, "percentiles facet requires [field] to be set");
+        }
+        if (!(compression >= 1 && compression <= TDigest.MAX_COMPRESSION)) {
+            throw new FacetPhaseExecutionException(facetName, "[compression] must be between 1 and " + TDigest.MAX_COMPRESSION + ", got [" + compression + "]");
+        }
+        FieldMapper fieldMapper = context.smartNameFieldMapper(field);
+        if (fieldMapper == null) {
+            throw new FacetPhaseExecutionException(facetName, "No mapping found for field [" + field + "]");
+        }
+        if (!(fieldMapper instanceof NumberFieldMapper)) {
+            throw new FacetPhaseExecutionException(facetName, "field [" + field + "] isn't a number field, but a " + fieldMapper.fieldDataType().getType());
+        }
+        IndexNumericFieldData indexFieldData = context.fieldData().getForField(fieldMapper);
+        return new PercentilesFacetExecutor(indexFieldData, percents, compression);
+    }
+}
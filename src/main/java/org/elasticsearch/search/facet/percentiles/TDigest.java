@@ -0,0 +1,262 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.percentiles;
+
+import org.apache.lucene.util.InPlaceMergeSorter;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A T-Digest sketch that summarizes a distribution of doubles into a bounded number of weighted centroids
+ * in order to estimate its quantiles.
+ * <p/>
+ * Centroids are kept sorted by mean and are only allowed to grow up to <tt>4 * n * q * (1 - q) / compression</tt>
+ * values, where <tt>q</tt> is the quantile of the centroid, so that the centroids at the tails of the
+ * distribution stay small and extreme quantiles are accurate. The number of centroids is bounded by a small
+ * multiple of <tt>compression</tt>: higher compressions trade memory for accuracy.
+ * <p/>
+ * Added values are buffered and merged into the centroids in batches. Two digests are merged by adding
+ * the centroids of one as weighted values of the other.
+ */
+public final class TDigest {
+
+    public static final double DEFAULT_COMPRESSION = 100;
+    public static final double MAX_COMPRESSION = 10000;
+
+    private double compression;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    // merged centroids, sorted by mean
+    private int size;
+    private double[] means;
+    private long[] counts;
+    private long totalCount;
+
+    // values that have not been merged into the centroids yet
+    private int bufferSize;
+    private double[] bufferMeans;
+    private long[] bufferCounts;
+
+    public TDigest(double compression) {
+        if (!(compression >= 1 && compression <= MAX_COMPRESSION)) {
+            throw new ElasticSearchIllegalArgumentException("compression must be between 1 and " + MAX_COMPRESSION + ", got " + compression);
+        }
+        this.compression = compression;
+        this.means = new double[0];
+        this.counts = new long[0];
+        final int bufferCapacity = (int) Math.ceil(compression) * 5;
+        this.bufferMeans = new double[bufferCapacity];
+        this.bufferCounts = new long[bufferCapacity];
+    }
+
+    public double compression() {
+        return compression;
+    }
+
+    /**
+     * The number of values that have been added to this digest.
+     */
+    public long count() {
+        return totalCount;
+    }
+
+    public double min() {
+        return min;
+    }
+
+    public double max() {
+        return max;
+    }
+
+    /**
+     * Add a value to this digest.
+     */
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    private void add(double mean, long count) {
+        if (bufferSize == bufferMeans.length) {
+            compress();
+        }
+        bufferMeans[bufferSize] = mean;
+        bufferCounts[bufferSize] = count;
+        ++bufferSize;
+        totalCount += count;
+        min = Math.min(min, mean);
+        max = Math.max(max, mean);
+    }
+
+    /**
+     * Merge another digest into this one.
+     */
+    public void merge(TDigest other) {
+        other.compress();
+        for (int i = 0; i < other.size; ++i) {
+            add(other.means[i], other.counts[i]);
+        }
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Merge the buffered values into the centroids.
+     */
+    private void compress() {
+        if (bufferSize == 0) {
+            return;
+        }
+        // sort the buffer and merge it with the centroids, which are already sorted
+        new InPlaceMergeSorter() {
+            @Override
+            protected void swap(int i, int j) {
+                final double tmpMean = bufferMeans[i];
+                bufferMeans[i] = bufferMeans[j];
+                bufferMeans[j] = tmpMean;
+                final long tmpCount = bufferCounts[i];
+                bufferCounts[i] = bufferCounts[j];
+                bufferCounts[j] = tmpCount;
+            }
+
+            @Override
+            protected int compare(int i, int j) {
+                return Double.compare(bufferMeans[i], bufferMeans[j]);
+            }
+        }.sort(0, bufferSize);
+
+        final int maxSize = size + bufferSize;
+        final double[] newMeans = new double[maxSize];
+        final long[] newCounts = new long[maxSize];
+        int newSize = 0;
+        long countSoFar = 0;
+
+        int i = 0, j = 0;
+        while (i < size || j < bufferSize) {
+            final double mean;
+            final long count;
+            if (j == bufferSize || (i < size && means[i] <= bufferMeans[j])) {
+                mean = means[i];
+                count = counts[i];
+                ++i;
+            } else {
+                mean = bufferMeans[j];
+                count = bufferCounts[j];
+                ++j;
+            }
+            if (newSize > 0) {
+                final int last = newSize - 1;
+                final long proposedCount = newCounts[last] + count;
+                final double q = (countSoFar + proposedCount / 2d) / totalCount;
+                final double maxCount = 4 * totalCount * q * (1 - q) / compression;
+                if (proposedCount <= maxCount) {
+                    newMeans[last] += (mean - newMeans[last]) * count / proposedCount;
+                    newCounts[last] = proposedCount;
+                    continue;
+                }
+                countSoFar += newCounts[last];
+            }
+            newMeans[newSize] = mean;
+            newCounts[newSize] = count;
+            ++newSize;
+        }
+
+        means = newSize == maxSize ? newMeans : Arrays.copyOf(newMeans, newSize);
+        counts = newSize == maxSize ? newCounts : Arrays.copyOf(newCounts, newSize);
+        size = newSize;
+        bufferSize = 0;
+    }
+
+    /**
+     * The estimated value at the given quantile, between 0 and 1.
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new ElasticSearchIllegalArgumentException("quantile must be between 0 and 1, got " + q);
+        }
+        compress();
+        if (size == 0) {
+            return Double.NaN;
+        }
+        if (q == 0) {
+            return min;
+        } else if (q == 1) {
+            return max;
+        } else if (size == 1) {
+            return means[0];
+        }
+        final double index = q * totalCount;
+        // centroids are considered to be centered on their mean
+        double previousCenter = counts[0] / 2d;
+        if (index <= previousCenter) {
+            return min + (means[0] - min) * (index / previousCenter);
+        }
+        long countSoFar = counts[0];
+        for (int i = 1; i < size; ++i) {
+            final double center = countSoFar + counts[i] / 2d;
+            if (index <= center) {
+                return means[i - 1] + (means[i] - means[i - 1]) * (index - previousCenter) / (center - previousCenter);
+            }
+            countSoFar += counts[i];
+            previousCenter = center;
+        }
+        final double lastHalf = totalCount - previousCenter;
+        return means[size - 1] + (max - means[size - 1]) * ((index - previousCenter) / lastHalf);
+    }
+
+    /**
+     * The number of centroids of this digest.
+     */
+    public int centroidCount() {
+        compress();
+        return size;
+    }
+
+    public static TDigest readFrom(StreamInput in) throws IOException {
+        TDigest digest = new TDigest(in.readDouble());
+        digest.min = in.readDouble();
+        digest.max = in.readDouble();
+        digest.size = in.readVInt();
+        digest.means = new double[digest.size];
+        digest.counts = new long[digest.size];
+        for (int i = 0; i < digest.size; ++i) {
+            digest.means[i] = in.readDouble();
+            digest.counts[i] = in.readVLong();
+            digest.totalCount += digest.counts[i];
+        }
+        return digest;
+    }
+
+    public void writeTo(StreamOutput out) throws IOException {
+        compress();
+        out.writeDouble(compression);
+        out.writeDouble(min);
+        out.writeDouble(max);
+        out.writeVInt(size);
+        for (int i = 0; i < size; ++i) {
+            out.writeDouble(means[i]);
+            out.writeVLong(counts[i]);
+        }
+    }
+}
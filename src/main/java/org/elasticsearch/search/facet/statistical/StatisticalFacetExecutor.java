@@ -32,7 +32,7 @@ import java.io.IOException;
 /**
  *
  */
-public class StatisticalFacetExecutor extends FacetExecutor {
+public class StatisticalFacetExecutor extends FacetExecutor implements FacetExecutor.ParallelCollectable {
 
     private final IndexNumericFieldData indexFieldData;
 
@@ -52,6 +52,11 @@ public class StatisticalFacetExecutor extends FacetExecutor {
         return new Collector();
     }
 
+    @Override
+    public Collector sliceCollector() {
+        return new SliceCollector();
+    }
+
     @Override
     public InternalFacet buildFacet(String facetName) {
         return new InternalStatisticalFacet(facetName, min, max, total, sumOfSquares, count);
@@ -59,7 +64,7 @@ public class StatisticalFacetExecutor extends FacetExecutor {
 
     class Collector extends FacetExecutor.Collector {
 
-        private final StatsProc statsProc = new StatsProc();
+        final StatsProc statsProc = new StatsProc();
         private DoubleValues values;
 
         @Override
@@ -83,6 +88,21 @@ public class StatisticalFacetExecutor extends FacetExecutor {
         }
     }
 
+    class SliceCollector extends Collector {
+
+        @Override
+        public void postCollection() {
+            synchronized (StatisticalFacetExecutor.this) {
+                StatisticalFacetExecutor.this.min = Math.min(StatisticalFacetExecutor.this.min, statsProc.min);
+                StatisticalFacetExecutor.this.max = Math.max(StatisticalFacetExecutor.this.max, statsProc.max);
+                StatisticalFacetExecutor.this.total += statsProc.total;
+                StatisticalFacetExecutor.this.sumOfSquares += statsProc.sumOfSquares;
+                StatisticalFacetExecutor.this.count += statsProc.count;
+                StatisticalFacetExecutor.this.missing += statsProc.missing;
+            }
+        }
+    }
+
     public static class StatsProc extends DoubleFacetAggregatorBase {
 
         double min = Double.POSITIVE_INFINITY;
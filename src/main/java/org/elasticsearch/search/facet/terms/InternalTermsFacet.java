@@ -19,11 +19,15 @@
 
 package org.elasticsearch.search.facet.terms;
 
+import org.elasticsearch.search.facet.Facet;
 import org.elasticsearch.search.facet.InternalFacet;
 import org.elasticsearch.search.facet.terms.doubles.InternalDoubleTermsFacet;
 import org.elasticsearch.search.facet.terms.longs.InternalLongTermsFacet;
 import org.elasticsearch.search.facet.terms.strings.InternalStringTermsFacet;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  *
  */
@@ -46,4 +50,41 @@ public abstract class InternalTermsFacet extends InternalFacet implements TermsF
     public final String getType() {
         return TYPE;
     }
+
+    /**
+     * Computes the error of a shard level facet: if the shard returned <tt>shardSize</tt> entries ordered by
+     * count, any term that it did not return has at most the count of the last entry.
+     */
+    public static long shardDocCountError(ComparatorType comparatorType, int shardSize, Collection<? extends Entry> entries) {
+        if (comparatorType != ComparatorType.COUNT) {
+            return -1;
+        }
+        if (entries.isEmpty() || entries.size() < shardSize) {
+            return 0;
+        }
+        if (entries instanceof List) {
+            List<? extends Entry> list = (List<? extends Entry>) entries;
+            return list.get(list.size() - 1).getCount();
+        }
+        Entry last = null;
+        for (Entry entry : entries) {
+            last = entry;
+        }
+        return last.getCount();
+    }
+
+    /**
+     * Sums the errors of the facets to reduce, <tt>-1</tt> if any of them is unknown.
+     */
+    protected static long sumDocCountErrors(List<Facet> facets) {
+        long docCountError = 0;
+        for (Facet facet : facets) {
+            long error = ((TermsFacet) facet).getDocCountError();
+            if (error == -1) {
+                return -1;
+            }
+            docCountError += error;
+        }
+        return docCountError;
+    }
 }
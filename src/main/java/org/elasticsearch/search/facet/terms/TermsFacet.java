@@ -43,6 +43,13 @@ public interface TermsFacet extends Facet, Iterable<TermsFacet.Entry> {
         Number getTermAsNumber();
 
         int getCount();
+
+        /**
+         * An upper bound of the error on the count of this term, which is the sum of the lowest counts that
+         * were returned by the shards that did not return this term. <tt>-1</tt> if the error can't be bounded
+         * because the facet is not ordered by count.
+         */
+        long getCountError();
     }
 
     /**
@@ -156,6 +163,13 @@ public interface TermsFacet extends Facet, Iterable<TermsFacet.Entry> {
      */
     long getOtherCount();
 
+    /**
+     * An upper bound of the count of any term that was not returned, and of the error on the count of the
+     * returned terms. <tt>-1</tt> if the error can't be bounded because the facet is not ordered by count.
+     * Increasing <tt>shard_size</tt> reduces this error.
+     */
+    long getDocCountError();
+
     /**
      * The terms and counts.
      */
@@ -40,6 +40,7 @@ import org.elasticsearch.search.facet.terms.longs.TermsLongFacetExecutor;
 import org.elasticsearch.search.facet.terms.strings.FieldsTermsStringFacetExecutor;
 import org.elasticsearch.search.facet.terms.strings.ScriptTermsStringFieldFacetExecutor;
 import org.elasticsearch.search.facet.terms.strings.TermsStringFacetExecutor;
+import org.elasticsearch.search.facet.terms.strings.TermsStringGlobalOrdinalsFacetExecutor;
 import org.elasticsearch.search.facet.terms.strings.TermsStringOrdinalsFacetExecutor;
 import org.elasticsearch.search.facet.terms.unmapped.UnmappedFieldExecutor;
 import org.elasticsearch.search.internal.SearchContext;
@@ -56,12 +57,15 @@ import java.util.regex.Pattern;
 public class TermsFacetParser extends AbstractComponent implements FacetParser {
 
     private final int ordinalsCacheAbove;
+    private final int globalOrdinalsMinSegments;
 
     @Inject
     public TermsFacetParser(Settings settings) {
         super(settings);
         InternalTermsFacet.registerStreams();
         this.ordinalsCacheAbove = componentSettings.getAsInt("ordinals_cache_above", 10000); // above 40k we want to cache
+        // with many segments, merging the per segment counts by term costs more than mapping to global ordinals
+        this.globalOrdinalsMinSegments = componentSettings.getAsInt("global_ordinals_min_segments", 10);
     }
 
     @Override
@@ -216,6 +220,8 @@ public class TermsFacetParser extends AbstractComponent implements FacetParser {
         } else {
             if (script != null || "map".equals(executionHint)) {
                 return new TermsStringFacetExecutor(indexFieldData, size, shardSize, comparatorType, allTerms, context, excluded, pattern, searchScript);
+            } else if (indexFieldData instanceof IndexFieldData.WithOrdinals && useGlobalOrdinals(executionHint, context)) {
+                return new TermsStringGlobalOrdinalsFacetExecutor((IndexFieldData.WithOrdinals) indexFieldData, size, shardSize, comparatorType, allTerms, context, excluded, pattern);
             } else if (indexFieldData instanceof IndexFieldData.WithOrdinals) {
                 return new TermsStringOrdinalsFacetExecutor((IndexFieldData.WithOrdinals) indexFieldData, size, shardSize, comparatorType, allTerms, context, excluded, pattern, ordinalsCacheAbove);
             } else {
@@ -223,4 +229,13 @@ public class TermsFacetParser extends AbstractComponent implements FacetParser {
             }
         }
     }
+
+    private boolean useGlobalOrdinals(String executionHint, SearchContext context) {
+        if ("global_ordinals".equals(executionHint)) {
+            return true;
+        } else if ("ordinals".equals(executionHint)) {
+            return false;
+        }
+        return context.searcher().getIndexReader().leaves().size() >= globalOrdinalsMinSegments;
+    }
 }
@@ -20,7 +20,9 @@
 package org.elasticsearch.search.facet.terms.doubles;
 
 import com.carrotsearch.hppc.DoubleIntOpenHashMap;
+import com.carrotsearch.hppc.DoubleLongOpenHashMap;
 import com.google.common.collect.ImmutableList;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.HashedBytesArray;
@@ -69,6 +71,7 @@ public class InternalDoubleTermsFacet extends InternalTermsFacet {
 
         double term;
         int count;
+        long countError;
 
         public DoubleEntry(double term, int count) {
             this.term = term;
@@ -89,6 +92,11 @@ public class InternalDoubleTermsFacet extends InternalTermsFacet {
             return count;
         }
 
+        @Override
+        public long getCountError() {
+            return countError;
+        }
+
         @Override
         public int compareTo(Entry o) {
             double anotherVal = ((DoubleEntry) o).term;
@@ -109,6 +117,7 @@ public class InternalDoubleTermsFacet extends InternalTermsFacet {
     int requiredSize;
     long missing;
     long total;
+    long docCountError;
     Collection<DoubleEntry> entries = ImmutableList.of();
     ComparatorType comparatorType;
 
@@ -116,7 +125,12 @@ public class InternalDoubleTermsFacet extends InternalTermsFacet {
     }
 
     public InternalDoubleTermsFacet(String name, ComparatorType comparatorType, int requiredSize, Collection<DoubleEntry> entries, long missing, long total) {
+        this(name, comparatorType, requiredSize, entries, missing, total, 0);
+    }
+
+    public InternalDoubleTermsFacet(String name, ComparatorType comparatorType, int requiredSize, Collection<DoubleEntry> entries, long missing, long total, long docCountError) {
         super(name);
+        this.docCountError = docCountError;
         this.comparatorType = comparatorType;
         this.requiredSize = requiredSize;
         this.entries = entries;
@@ -148,6 +162,11 @@ public class InternalDoubleTermsFacet extends InternalTermsFacet {
         return this.total;
     }
 
+    @Override
+    public long getDocCountError() {
+        return this.docCountError;
+    }
+
     @Override
     public long getOtherCount() {
         long other = total;
@@ -173,6 +192,9 @@ public class InternalDoubleTermsFacet extends InternalTermsFacet {
         InternalDoubleTermsFacet first = null;
 
         Recycler.V<DoubleIntOpenHashMap> aggregated = context.cacheRecycler().doubleIntMap(-1);
+        // the error of a term is the sum of the errors of the shards that did not return it
+        long docCountError = sumDocCountErrors(facets);
+        DoubleLongOpenHashMap returnedErrors = docCountError > 0 ? new DoubleLongOpenHashMap() : null;
         long missing = 0;
         long total = 0;
         for (Facet facet : facets) {
@@ -185,6 +207,9 @@ public class InternalDoubleTermsFacet extends InternalTermsFacet {
             total += termsFacet.getTotalCount();
             for (Entry entry : termsFacet.getEntries()) {
                 aggregated.v().addTo(((DoubleEntry) entry).term, entry.getCount());
+                if (returnedErrors != null) {
+                    returnedErrors.addTo(((DoubleEntry) entry).term, termsFacet.getDocCountError());
+                }
             }
         }
 
@@ -194,13 +219,16 @@ public class InternalDoubleTermsFacet extends InternalTermsFacet {
         final int[] values = aggregated.v().values;
         for (int i = 0; i < states.length; i++) {
             if (states[i]) {
-                ordered.add(new DoubleEntry(keys[i], values[i]));
+                DoubleEntry entry = new DoubleEntry(keys[i], values[i]);
+                entry.countError = returnedErrors == null ? docCountError : docCountError - returnedErrors.get(keys[i]);
+                ordered.add(entry);
             }
         }
 
         first.entries = ordered;
         first.missing = missing;
         first.total = total;
+        first.docCountError = docCountError;
 
         aggregated.release();
 
@@ -231,9 +259,11 @@ public class InternalDoubleTermsFacet extends InternalTermsFacet {
         static final XContentBuilderString MISSING = new XContentBuilderString("missing");
         static final XContentBuilderString TOTAL = new XContentBuilderString("total");
         static final XContentBuilderString OTHER = new XContentBuilderString("other");
+        static final XContentBuilderString DOC_COUNT_ERROR_UPPER_BOUND = new XContentBuilderString("doc_count_error_upper_bound");
         static final XContentBuilderString TERMS = new XContentBuilderString("terms");
         static final XContentBuilderString TERM = new XContentBuilderString("term");
         static final XContentBuilderString COUNT = new XContentBuilderString("count");
+        static final XContentBuilderString COUNT_ERROR = new XContentBuilderString("count_error");
     }
 
     @Override
@@ -243,11 +273,17 @@ public class InternalDoubleTermsFacet extends InternalTermsFacet {
         builder.field(Fields.MISSING, missing);
         builder.field(Fields.TOTAL, total);
         builder.field(Fields.OTHER, getOtherCount());
+        if (docCountError != -1) {
+            builder.field(Fields.DOC_COUNT_ERROR_UPPER_BOUND, docCountError);
+        }
         builder.startArray(Fields.TERMS);
         for (DoubleEntry entry : entries) {
             builder.startObject();
             builder.field(Fields.TERM, entry.term);
             builder.field(Fields.COUNT, entry.getCount());
+            if (docCountError > 0) {
+                builder.field(Fields.COUNT_ERROR, entry.getCountError());
+            }
             builder.endObject();
         }
         builder.endArray();
@@ -269,10 +305,20 @@ public class InternalDoubleTermsFacet extends InternalTermsFacet {
         missing = in.readVLong();
         total = in.readVLong();
 
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            docCountError = in.readLong();
+        }
+
         int size = in.readVInt();
         entries = new ArrayList<DoubleEntry>(size);
         for (int i = 0; i < size; i++) {
-            entries.add(new DoubleEntry(in.readDouble(), in.readVInt()));
+            DoubleEntry entry = new DoubleEntry(in.readDouble(), in.readVInt());
+            if (docCountError > 0) {
+                entry.countError = in.readVLong();
+            } else {
+                entry.countError = docCountError;
+            }
+            entries.add(entry);
         }
     }
 
@@ -283,11 +329,17 @@ public class InternalDoubleTermsFacet extends InternalTermsFacet {
         out.writeVInt(requiredSize);
         out.writeVLong(missing);
         out.writeVLong(total);
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            out.writeLong(docCountError);
+        }
 
         out.writeVInt(entries.size());
         for (DoubleEntry entry : entries) {
             out.writeDouble(entry.term);
             out.writeVInt(entry.getCount());
+            if (docCountError > 0 && out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+                out.writeVLong(entry.getCountError());
+            }
         }
     }
 }
\ No newline at end of file
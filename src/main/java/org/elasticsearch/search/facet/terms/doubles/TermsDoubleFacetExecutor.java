@@ -36,12 +36,14 @@ import org.elasticsearch.script.SearchScript;
 import org.elasticsearch.search.facet.DoubleFacetAggregatorBase;
 import org.elasticsearch.search.facet.FacetExecutor;
 import org.elasticsearch.search.facet.InternalFacet;
+import org.elasticsearch.search.facet.terms.InternalTermsFacet;
 import org.elasticsearch.search.facet.terms.TermsFacet;
 import org.elasticsearch.search.facet.terms.support.EntryPriorityQueue;
 import org.elasticsearch.search.internal.SearchContext;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -120,7 +122,8 @@ public class TermsDoubleFacetExecutor extends FacetExecutor {
                     list[i] = (InternalDoubleTermsFacet.DoubleEntry) ordered.pop();
                 }
                 facets.release();
-                return new InternalDoubleTermsFacet(facetName, comparatorType, size, Arrays.asList(list), missing, total);
+                List<InternalDoubleTermsFacet.DoubleEntry> entries = Arrays.asList(list);
+                return new InternalDoubleTermsFacet(facetName, comparatorType, size, entries, missing, total, InternalTermsFacet.shardDocCountError(comparatorType, shardSize, entries));
             } else {
                 BoundedTreeSet<InternalDoubleTermsFacet.DoubleEntry> ordered = new BoundedTreeSet<InternalDoubleTermsFacet.DoubleEntry>(comparatorType.comparator(), shardSize);
                 for (int i = 0; i < states.length; i++) {
@@ -129,7 +132,7 @@ public class TermsDoubleFacetExecutor extends FacetExecutor {
                     }
                 }
                 facets.release();
-                return new InternalDoubleTermsFacet(facetName, comparatorType, size, ordered, missing, total);
+                return new InternalDoubleTermsFacet(facetName, comparatorType, size, ordered, missing, total, InternalTermsFacet.shardDocCountError(comparatorType, shardSize, ordered));
             }
         }
     }
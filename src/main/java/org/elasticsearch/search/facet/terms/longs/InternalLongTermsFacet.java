@@ -20,7 +20,9 @@
 package org.elasticsearch.search.facet.terms.longs;
 
 import com.carrotsearch.hppc.LongIntOpenHashMap;
+import com.carrotsearch.hppc.LongLongOpenHashMap;
 import com.google.common.collect.ImmutableList;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.HashedBytesArray;
@@ -69,6 +71,7 @@ public class InternalLongTermsFacet extends InternalTermsFacet {
 
         long term;
         int count;
+        long countError;
 
         public LongEntry(long term, int count) {
             this.term = term;
@@ -90,6 +93,11 @@ public class InternalLongTermsFacet extends InternalTermsFacet {
             return count;
         }
 
+        @Override
+        public long getCountError() {
+            return countError;
+        }
+
         @Override
         public int compareTo(Entry o) {
             long anotherVal = ((LongEntry) o).term;
@@ -110,6 +118,7 @@ public class InternalLongTermsFacet extends InternalTermsFacet {
     int requiredSize;
     long missing;
     long total;
+    long docCountError;
     Collection<LongEntry> entries = ImmutableList.of();
     ComparatorType comparatorType;
 
@@ -117,7 +126,12 @@ public class InternalLongTermsFacet extends InternalTermsFacet {
     }
 
     public InternalLongTermsFacet(String name, ComparatorType comparatorType, int requiredSize, Collection<LongEntry> entries, long missing, long total) {
+        this(name, comparatorType, requiredSize, entries, missing, total, 0);
+    }
+
+    public InternalLongTermsFacet(String name, ComparatorType comparatorType, int requiredSize, Collection<LongEntry> entries, long missing, long total, long docCountError) {
         super(name);
+        this.docCountError = docCountError;
         this.comparatorType = comparatorType;
         this.requiredSize = requiredSize;
         this.entries = entries;
@@ -149,6 +163,11 @@ public class InternalLongTermsFacet extends InternalTermsFacet {
         return this.total;
     }
 
+    @Override
+    public long getDocCountError() {
+        return this.docCountError;
+    }
+
     @Override
     public long getOtherCount() {
         long other = total;
@@ -174,6 +193,9 @@ public class InternalLongTermsFacet extends InternalTermsFacet {
         InternalLongTermsFacet first = null;
 
         Recycler.V<LongIntOpenHashMap> aggregated = context.cacheRecycler().longIntMap(-1);
+        // the error of a term is the sum of the errors of the shards that did not return it
+        long docCountError = sumDocCountErrors(facets);
+        LongLongOpenHashMap returnedErrors = docCountError > 0 ? new LongLongOpenHashMap() : null;
         long missing = 0;
         long total = 0;
         for (Facet facet : facets) {
@@ -186,6 +208,9 @@ public class InternalLongTermsFacet extends InternalTermsFacet {
             total += termsFacet.getTotalCount();
             for (Entry entry : termsFacet.getEntries()) {
                 aggregated.v().addTo(((LongEntry) entry).term, entry.getCount());
+                if (returnedErrors != null) {
+                    returnedErrors.addTo(((LongEntry) entry).term, termsFacet.getDocCountError());
+                }
             }
         }
 
@@ -196,12 +221,15 @@ public class InternalLongTermsFacet extends InternalTermsFacet {
         final int[] values = aggregated.v().values;
         for (int i = 0; i < entries.allocated.length; i++) {
             if (states[i]) {
-                ordered.add(new LongEntry(keys[i], values[i]));
+                LongEntry entry = new LongEntry(keys[i], values[i]);
+                entry.countError = returnedErrors == null ? docCountError : docCountError - returnedErrors.get(keys[i]);
+                ordered.add(entry);
             }
         }
         first.entries = ordered;
         first.missing = missing;
         first.total = total;
+        first.docCountError = docCountError;
 
         aggregated.release();
 
@@ -232,9 +260,11 @@ public class InternalLongTermsFacet extends InternalTermsFacet {
         static final XContentBuilderString MISSING = new XContentBuilderString("missing");
         static final XContentBuilderString TOTAL = new XContentBuilderString("total");
         static final XContentBuilderString OTHER = new XContentBuilderString("other");
+        static final XContentBuilderString DOC_COUNT_ERROR_UPPER_BOUND = new XContentBuilderString("doc_count_error_upper_bound");
         static final XContentBuilderString TERMS = new XContentBuilderString("terms");
         static final XContentBuilderString TERM = new XContentBuilderString("term");
         static final XContentBuilderString COUNT = new XContentBuilderString("count");
+        static final XContentBuilderString COUNT_ERROR = new XContentBuilderString("count_error");
     }
 
     @Override
@@ -244,11 +274,17 @@ public class InternalLongTermsFacet extends InternalTermsFacet {
         builder.field(Fields.MISSING, missing);
         builder.field(Fields.TOTAL, total);
         builder.field(Fields.OTHER, getOtherCount());
+        if (docCountError != -1) {
+            builder.field(Fields.DOC_COUNT_ERROR_UPPER_BOUND, docCountError);
+        }
         builder.startArray(Fields.TERMS);
         for (LongEntry entry : entries) {
             builder.startObject();
             builder.field(Fields.TERM, entry.term);
             builder.field(Fields.COUNT, entry.getCount());
+            if (docCountError > 0) {
+                builder.field(Fields.COUNT_ERROR, entry.getCountError());
+            }
             builder.endObject();
         }
         builder.endArray();
@@ -270,10 +306,20 @@ public class InternalLongTermsFacet extends InternalTermsFacet {
         missing = in.readVLong();
         total = in.readVLong();
 
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            docCountError = in.readLong();
+        }
+
         int size = in.readVInt();
         entries = new ArrayList<LongEntry>(size);
         for (int i = 0; i < size; i++) {
-            entries.add(new LongEntry(in.readLong(), in.readVInt()));
+            LongEntry entry = new LongEntry(in.readLong(), in.readVInt());
+            if (docCountError > 0) {
+                entry.countError = in.readVLong();
+            } else {
+                entry.countError = docCountError;
+            }
+            entries.add(entry);
         }
     }
 
@@ -284,11 +330,17 @@ public class InternalLongTermsFacet extends InternalTermsFacet {
         out.writeVInt(requiredSize);
         out.writeVLong(missing);
         out.writeVLong(total);
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            out.writeLong(docCountError);
+        }
 
         out.writeVInt(entries.size());
         for (LongEntry entry : entries) {
             out.writeLong(entry.term);
             out.writeVInt(entry.getCount());
+            if (docCountError > 0 && out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+                out.writeVLong(entry.getCountError());
+            }
         }
     }
 }
\ No newline at end of file
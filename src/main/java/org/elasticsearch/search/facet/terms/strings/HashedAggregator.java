@@ -27,10 +27,12 @@ import org.elasticsearch.common.collect.BoundedTreeSet;
 import org.elasticsearch.common.lucene.HashedBytesRef;
 import org.elasticsearch.index.fielddata.BytesValues;
 import org.elasticsearch.search.facet.InternalFacet;
+import org.elasticsearch.search.facet.terms.InternalTermsFacet;
 import org.elasticsearch.search.facet.terms.TermsFacet;
 import org.elasticsearch.search.facet.terms.support.EntryPriorityQueue;
 
 import java.util.Arrays;
+import java.util.List;
 
 public class HashedAggregator {
     private int missing;
@@ -116,7 +118,8 @@ public class HashedAggregator {
                 for (int i = ordered.size() - 1; i >= 0; i--) {
                     list[i] = ((InternalStringTermsFacet.TermEntry) ordered.pop());
                 }
-                return new InternalStringTermsFacet(facetName, comparatorType, size, Arrays.asList(list), missing, total);
+                List<InternalStringTermsFacet.TermEntry> entries = Arrays.asList(list);
+                return new InternalStringTermsFacet(facetName, comparatorType, size, entries, missing, total, InternalTermsFacet.shardDocCountError(comparatorType, shardSize, entries));
             } else {
                 BoundedTreeSet<InternalStringTermsFacet.TermEntry> ordered = new BoundedTreeSet<InternalStringTermsFacet.TermEntry>(comparatorType.comparator(), shardSize);
                 BytesRefCountIterator iter = aggregator.getIter();
@@ -125,7 +128,7 @@ public class HashedAggregator {
                     // maybe we can survive with a 0-copy here if we keep the
                     // bytes ref hash around?
                 }
-                return new InternalStringTermsFacet(facetName, comparatorType, size, ordered, missing, total);
+                return new InternalStringTermsFacet(facetName, comparatorType, size, ordered, missing, total, InternalTermsFacet.shardDocCountError(comparatorType, shardSize, ordered));
             }
         }
     }
@@ -20,8 +20,10 @@
 package org.elasticsearch.search.facet.terms.strings;
 
 import com.carrotsearch.hppc.ObjectIntOpenHashMap;
+import com.carrotsearch.hppc.ObjectLongOpenHashMap;
 import com.google.common.collect.ImmutableList;
 import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
@@ -72,6 +74,7 @@ public class InternalStringTermsFacet extends InternalTermsFacet {
 
         private Text term;
         private int count;
+        long countError;
 
         public TermEntry(String term, int count) {
             this.term = new StringText(term);
@@ -103,6 +106,11 @@ public class InternalStringTermsFacet extends InternalTermsFacet {
             return count;
         }
 
+        @Override
+        public long getCountError() {
+            return countError;
+        }
+
         @Override
         public int compareTo(Entry o) {
             int i = this.term.compareTo(o.getTerm());
@@ -119,6 +127,7 @@ public class InternalStringTermsFacet extends InternalTermsFacet {
     int requiredSize;
     long missing;
     long total;
+    long docCountError;
     Collection<TermEntry> entries = ImmutableList.of();
     ComparatorType comparatorType;
 
@@ -126,7 +135,12 @@ public class InternalStringTermsFacet extends InternalTermsFacet {
     }
 
     public InternalStringTermsFacet(String name, ComparatorType comparatorType, int requiredSize, Collection<TermEntry> entries, long missing, long total) {
+        this(name, comparatorType, requiredSize, entries, missing, total, 0);
+    }
+
+    public InternalStringTermsFacet(String name, ComparatorType comparatorType, int requiredSize, Collection<TermEntry> entries, long missing, long total, long docCountError) {
         super(name);
+        this.docCountError = docCountError;
         this.comparatorType = comparatorType;
         this.requiredSize = requiredSize;
         this.entries = entries;
@@ -158,6 +172,11 @@ public class InternalStringTermsFacet extends InternalTermsFacet {
         return this.total;
     }
 
+    @Override
+    public long getDocCountError() {
+        return this.docCountError;
+    }
+
     @Override
     public long getOtherCount() {
         long other = total;
@@ -179,6 +198,9 @@ public class InternalStringTermsFacet extends InternalTermsFacet {
         InternalStringTermsFacet first = null;
 
         Recycler.V<ObjectIntOpenHashMap<Text>> aggregated = context.cacheRecycler().objectIntMap(-1);
+        // the error of a term is the sum of the errors of the shards that did not return it
+        long docCountError = sumDocCountErrors(facets);
+        ObjectLongOpenHashMap<Text> returnedErrors = docCountError > 0 ? new ObjectLongOpenHashMap<Text>() : null;
         long missing = 0;
         long total = 0;
         for (Facet facet : facets) {
@@ -199,6 +221,9 @@ public class InternalStringTermsFacet extends InternalTermsFacet {
 
             for (Entry entry : termsFacet.getEntries()) {
                 aggregated.v().addTo(entry.getTerm(), entry.getCount());
+                if (returnedErrors != null) {
+                    returnedErrors.addTo(entry.getTerm(), termsFacet.getDocCountError());
+                }
             }
         }
 
@@ -211,12 +236,15 @@ public class InternalStringTermsFacet extends InternalTermsFacet {
         for (int i = 0; i < aggregatedEntries.allocated.length; i++) {
             if (states[i]) {
                 Text key = (Text) keys[i];
-                ordered.add(new TermEntry(key, values[i]));
+                TermEntry entry = new TermEntry(key, values[i]);
+                entry.countError = returnedErrors == null ? docCountError : docCountError - returnedErrors.get(key);
+                ordered.add(entry);
             }
         }
         first.entries = ordered;
         first.missing = missing;
         first.total = total;
+        first.docCountError = docCountError;
 
         aggregated.release();
 
@@ -247,9 +275,11 @@ public class InternalStringTermsFacet extends InternalTermsFacet {
         static final XContentBuilderString MISSING = new XContentBuilderString("missing");
         static final XContentBuilderString TOTAL = new XContentBuilderString("total");
         static final XContentBuilderString OTHER = new XContentBuilderString("other");
+        static final XContentBuilderString DOC_COUNT_ERROR_UPPER_BOUND = new XContentBuilderString("doc_count_error_upper_bound");
         static final XContentBuilderString TERMS = new XContentBuilderString("terms");
         static final XContentBuilderString TERM = new XContentBuilderString("term");
         static final XContentBuilderString COUNT = new XContentBuilderString("count");
+        static final XContentBuilderString COUNT_ERROR = new XContentBuilderString("count_error");
     }
 
     @Override
@@ -259,11 +289,17 @@ public class InternalStringTermsFacet extends InternalTermsFacet {
         builder.field(Fields.MISSING, missing);
         builder.field(Fields.TOTAL, total);
         builder.field(Fields.OTHER, getOtherCount());
+        if (docCountError != -1) {
+            builder.field(Fields.DOC_COUNT_ERROR_UPPER_BOUND, docCountError);
+        }
         builder.startArray(Fields.TERMS);
         for (Entry entry : entries) {
             builder.startObject();
             builder.field(Fields.TERM, entry.getTerm());
             builder.field(Fields.COUNT, entry.getCount());
+            if (docCountError > 0) {
+                builder.field(Fields.COUNT_ERROR, entry.getCountError());
+            }
             builder.endObject();
         }
         builder.endArray();
@@ -285,10 +321,20 @@ public class InternalStringTermsFacet extends InternalTermsFacet {
         missing = in.readVLong();
         total = in.readVLong();
 
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            docCountError = in.readLong();
+        }
+
         int size = in.readVInt();
         entries = new ArrayList<TermEntry>(size);
         for (int i = 0; i < size; i++) {
-            entries.add(new TermEntry(in.readText(), in.readVInt()));
+            TermEntry entry = new TermEntry(in.readText(), in.readVInt());
+            if (docCountError > 0) {
+                entry.countError = in.readVLong();
+            } else {
+                entry.countError = docCountError;
+            }
+            entries.add(entry);
         }
     }
 
@@ -299,11 +345,17 @@ public class InternalStringTermsFacet extends InternalTermsFacet {
         out.writeVInt(requiredSize);
         out.writeVLong(missing);
         out.writeVLong(total);
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            out.writeLong(docCountError);
+        }
 
         out.writeVInt(entries.size());
         for (Entry entry : entries) {
             out.writeText(entry.getTerm());
             out.writeVInt(entry.getCount());
+            if (docCountError > 0 && out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+                out.writeVLong(entry.getCountError());
+            }
         }
     }
 }
\ No newline at end of file
@@ -31,11 +31,13 @@ import org.elasticsearch.common.recycler.Recycler;
 import org.elasticsearch.script.SearchScript;
 import org.elasticsearch.search.facet.FacetExecutor;
 import org.elasticsearch.search.facet.InternalFacet;
+import org.elasticsearch.search.facet.terms.InternalTermsFacet;
 import org.elasticsearch.search.facet.terms.support.EntryPriorityQueue;
 import org.elasticsearch.search.internal.SearchContext;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -99,7 +101,8 @@ public class ScriptTermsStringFieldFacetExecutor extends FacetExecutor {
                     list[i] = ((InternalStringTermsFacet.TermEntry) ordered.pop());
                 }
                 facets.release();
-                return new InternalStringTermsFacet(facetName, comparatorType, size, Arrays.asList(list), missing, total);
+                List<InternalStringTermsFacet.TermEntry> entries = Arrays.asList(list);
+                return new InternalStringTermsFacet(facetName, comparatorType, size, entries, missing, total, InternalTermsFacet.shardDocCountError(comparatorType, shardSize, entries));
             } else {
                 BoundedTreeSet<InternalStringTermsFacet.TermEntry> ordered = new BoundedTreeSet<InternalStringTermsFacet.TermEntry>(comparatorType.comparator(), shardSize);
                 for (int i = 0; i < states.length; i++) {
@@ -109,7 +112,7 @@ public class ScriptTermsStringFieldFacetExecutor extends FacetExecutor {
                     }
                 }
                 facets.release();
-                return new InternalStringTermsFacet(facetName, comparatorType, size, ordered, missing, total);
+                return new InternalStringTermsFacet(facetName, comparatorType, size, ordered, missing, total, InternalTermsFacet.shardDocCountError(comparatorType, shardSize, ordered));
             }
         }
     }
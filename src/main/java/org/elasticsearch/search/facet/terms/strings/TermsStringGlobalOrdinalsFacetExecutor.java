@@ -0,0 +1,269 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.facet.terms.strings;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.CharsRef;
+import org.apache.lucene.util.PriorityQueue;
+import org.apache.lucene.util.UnicodeUtil;
+import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.IntArrays;
+import org.elasticsearch.index.fielddata.BytesValues;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinals;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
+import org.elasticsearch.search.facet.FacetExecutor;
+import org.elasticsearch.search.facet.InternalFacet;
+import org.elasticsearch.search.facet.terms.InternalTermsFacet;
+import org.elasticsearch.search.facet.terms.TermsFacet;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A terms facet executor counting into a single array indexed by the shard level {@link GlobalOrdinals} of the
+ * field, so that per segment counts don't need to be merged by term. Since global ordinals follow the term order,
+ * entries are ranked on their ordinals and only the terms that are returned get looked up.
+ */
+public class TermsStringGlobalOrdinalsFacetExecutor extends FacetExecutor implements FacetExecutor.ParallelCollectable {
+
+    private final IndexFieldData.WithOrdinals indexFieldData;
+    private final GlobalOrdinals globalOrdinals;
+    private final List<AtomicReaderContext> leaves;
+
+    private final TermsFacet.ComparatorType comparatorType;
+    private final int size;
+    private final int shardSize;
+    private final int minCount;
+    private final ImmutableSet<BytesRef> excluded;
+    private final Matcher matcher;
+
+    final IntArray counts;
+    long missing;
+    long total;
+
+    public TermsStringGlobalOrdinalsFacetExecutor(IndexFieldData.WithOrdinals indexFieldData, int size, int shardSize, TermsFacet.ComparatorType comparatorType, boolean allTerms, SearchContext context,
+                                                  ImmutableSet<BytesRef> excluded, Pattern pattern) {
+        this.indexFieldData = indexFieldData;
+        this.size = size;
+        this.shardSize = shardSize;
+        this.comparatorType = comparatorType;
+
+        if (excluded == null || excluded.isEmpty()) {
+            this.excluded = null;
+        } else {
+            this.excluded = excluded;
+        }
+        this.matcher = pattern != null ? pattern.matcher("") : null;
+
+        // minCount is offset by -1
+        if (allTerms) {
+            minCount = -1;
+        } else {
+            minCount = 0;
+        }
+
+        this.leaves = context.searcher().getIndexReader().leaves();
+        this.globalOrdinals = context.fieldData().getGlobalOrdinals(indexFieldData, context.searcher().getIndexReader());
+        this.counts = IntArrays.allocate(globalOrdinals.getMaxOrd());
+    }
+
+    @Override
+    public Collector collector() {
+        return new Collector();
+    }
+
+    /**
+     * Each slice counts into its own array, which is added to the shared counts once the slice is done.
+     */
+    @Override
+    public Collector sliceCollector() {
+        return new SliceCollector();
+    }
+
+    @Override
+    public InternalFacet buildFacet(String facetName) {
+        final BytesValues.WithOrdinals[] segmentValues = new BytesValues.WithOrdinals[globalOrdinals.getNumSegments()];
+        final CharsRef spare = new CharsRef();
+        final OrdinalPriorityQueue ordered = new OrdinalPriorityQueue((int) Math.min(shardSize, globalOrdinals.getNumOrds()), comparatorType);
+        final long maxOrd = globalOrdinals.getMaxOrd();
+        for (long globalOrd = Ordinals.MIN_ORDINAL; globalOrd < maxOrd; globalOrd++) {
+            final int count = counts.get(globalOrd);
+            if (count <= minCount) {
+                continue;
+            }
+            if (excluded != null || matcher != null) {
+                BytesRef value = term(globalOrd, segmentValues);
+                if (excluded != null && excluded.contains(value)) {
+                    continue;
+                }
+                if (matcher != null) {
+                    UnicodeUtil.UTF8toUTF16(value, spare);
+                    if (!matcher.reset(spare).matches()) {
+                        continue;
+                    }
+                }
+            }
+            ordered.insertWithOverflow(new OrdinalEntry(globalOrd, count));
+        }
+
+        InternalStringTermsFacet.TermEntry[] list = new InternalStringTermsFacet.TermEntry[ordered.size()];
+        for (int i = ordered.size() - 1; i >= 0; i--) {
+            OrdinalEntry entry = ordered.pop();
+            list[i] = new InternalStringTermsFacet.TermEntry(BytesRef.deepCopyOf(term(entry.globalOrd, segmentValues)), entry.count);
+        }
+        List<InternalStringTermsFacet.TermEntry> entries = Arrays.asList(list);
+        return new InternalStringTermsFacet(facetName, comparatorType, size, entries, missing, total, InternalTermsFacet.shardDocCountError(comparatorType, shardSize, entries));
+    }
+
+    private BytesRef term(long globalOrd, BytesValues.WithOrdinals[] segmentValues) {
+        final int segment = globalOrdinals.getFirstSegment(globalOrd);
+        if (segmentValues[segment] == null) {
+            segmentValues[segment] = indexFieldData.load(leaves.get(segment)).getBytesValues(false);
+        }
+        return segmentValues[segment].getValueByOrd(globalOrdinals.getFirstSegmentOrd(globalOrd));
+    }
+
+    class Collector extends FacetExecutor.Collector {
+
+        final IntArray counts;
+        long missing;
+        long total;
+        private Ordinals.Docs ordinals;
+        private int segment;
+
+        Collector() {
+            this(TermsStringGlobalOrdinalsFacetExecutor.this.counts);
+        }
+
+        Collector(IntArray counts) {
+            this.counts = counts;
+        }
+
+        @Override
+        public void setNextReader(AtomicReaderContext context) throws IOException {
+            segment = context.ord;
+            ordinals = indexFieldData.load(context).getBytesValues(false).ordinals();
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            final int length = ordinals.setDocument(doc);
+            if (length == 0) {
+                missing++;
+                return;
+            }
+            for (int i = 0; i < length; i++) {
+                counts.increment(globalOrdinals.getGlobalOrd(segment, ordinals.nextOrd()), 1);
+            }
+            total += length;
+        }
+
+        @Override
+        public void postCollection() {
+            TermsStringGlobalOrdinalsFacetExecutor.this.missing = missing;
+            TermsStringGlobalOrdinalsFacetExecutor.this.total = total;
+        }
+    }
+
+    class SliceCollector extends Collector {
+
+        SliceCollector() {
+            super(IntArrays.allocate(globalOrdinals.getMaxOrd()));
+        }
+
+        @Override
+        public void postCollection() {
+            final IntArray sharedCounts = TermsStringGlobalOrdinalsFacetExecutor.this.counts;
+            final long maxOrd = globalOrdinals.getMaxOrd();
+            synchronized (sharedCounts) {
+                for (long globalOrd = Ordinals.MIN_ORDINAL; globalOrd < maxOrd; globalOrd++) {
+                    final int count = counts.get(globalOrd);
+                    if (count != 0) {
+                        sharedCounts.increment(globalOrd, count);
+                    }
+                }
+                TermsStringGlobalOrdinalsFacetExecutor.this.missing += missing;
+                TermsStringGlobalOrdinalsFacetExecutor.this.total += total;
+            }
+        }
+    }
+
+    static final class OrdinalEntry {
+
+        final long globalOrd;
+        final int count;
+
+        OrdinalEntry(long globalOrd, int count) {
+            this.globalOrd = globalOrd;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Same ordering as {@link TermsFacet.ComparatorType#comparator()}, with global ordinals standing in for terms.
+     */
+    static final class OrdinalPriorityQueue extends PriorityQueue<OrdinalEntry> {
+
+        private final TermsFacet.ComparatorType comparatorType;
+
+        OrdinalPriorityQueue(int size, TermsFacet.ComparatorType comparatorType) {
+            super(size);
+            this.comparatorType = comparatorType;
+        }
+
+        @Override
+        protected boolean lessThan(OrdinalEntry a, OrdinalEntry b) {
+            return compare(a, b) > 0; // reverse, since we reverse again when adding to a list
+        }
+
+        private int compare(OrdinalEntry a, OrdinalEntry b) {
+            switch (comparatorType) {
+                case COUNT:
+                    return compareCount(a, b);
+                case REVERSE_COUNT:
+                    return -compareCount(a, b);
+                case TERM:
+                    return compareOrd(a.globalOrd, b.globalOrd);
+                case REVERSE_TERM:
+                    return -compareOrd(a.globalOrd, b.globalOrd);
+                default:
+                    throw new UnsupportedOperationException("Unsupported comparator type: " + comparatorType);
+            }
+        }
+
+        private static int compareCount(OrdinalEntry a, OrdinalEntry b) {
+            int i = b.count - a.count;
+            if (i == 0) {
+                i = compareOrd(b.globalOrd, a.globalOrd);
+            }
+            return i;
+        }
+
+        private static int compareOrd(long a, long b) {
+            return a < b ? -1 : (a == b ? 0 : 1);
+        }
+    }
+}
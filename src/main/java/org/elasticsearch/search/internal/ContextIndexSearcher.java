@@ -21,17 +21,25 @@ package org.elasticsearch.search.internal;
 
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.search.*;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.lucene.MinimumScoreCollector;
 import org.elasticsearch.common.lucene.MultiCollector;
 import org.elasticsearch.common.lucene.search.FilteredCollector;
 import org.elasticsearch.common.lucene.search.XCollector;
 import org.elasticsearch.common.lucene.search.XFilteredQuery;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.search.dfs.CachedDfSource;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Context-aware extension of {@link IndexSearcher}.
@@ -88,6 +96,14 @@ public class ContextIndexSearcher extends IndexSearcher {
         queryCollectors.add(collector);
     }
 
+    /**
+     * Returns <tt>true</tt> if other collectors than the one passed to the main query search need to see
+     * all the matching docs.
+     */
+    public boolean hasMainQueryCollectors() {
+        return enableMainDocIdSetCollector || (queryCollectors != null && !queryCollectors.isEmpty());
+    }
+
     public DocIdSetCollector mainDocIdSetCollector() {
         return this.mainDocIdSetCollector;
     }
@@ -191,6 +207,129 @@ public class ContextIndexSearcher extends IndexSearcher {
         }
     }
 
+    /**
+     * Creates a collector for a slice of segments, see {@link #searchInParallel(Query, int, SliceCollectorFactory, Executor)}.
+     */
+    public static interface SliceCollectorFactory {
+
+        Collector newCollector() throws IOException;
+    }
+
+    /**
+     * Collects the query on up to <tt>maxSlices</tt> slices of the segments of this searcher in parallel, each slice
+     * using its own collector. Slices are handed off to the executor, the calling thread collects the slices that
+     * were not picked up (yet), so this never waits on a queued task. Collectors implementing {@link XCollector}
+     * get their {@link XCollector#postCollection()} called on the thread that collected the slice.
+     * <p/>
+     * This bypasses the main query stage handling (main query collectors, post filter and minimum score), and is
+     * meant for collections that are independent of it.
+     */
+    public void searchInParallel(Query query, int maxSlices, final SliceCollectorFactory collectorFactory, Executor executor) throws IOException {
+        try {
+            final Weight weight = createNormalizedWeight(query);
+            final List<List<AtomicReaderContext>> slices = slices(getIndexReader().leaves(), maxSlices);
+            final AtomicInteger cursor = new AtomicInteger();
+            final CountDownLatch latch = new CountDownLatch(slices.size());
+            final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+            Runnable collector = new Runnable() {
+                @Override
+                public void run() {
+                    // queries and filters (eg. parent/child ones) look up the current search context, which is
+                    // thread local, so it needs to be set on the threads of the executor as well
+                    final SearchContext previous = SearchContext.current();
+                    final boolean setCurrent = previous != searchContext;
+                    if (setCurrent) {
+                        SearchContext.setCurrent(searchContext);
+                    }
+                    try {
+                        int i;
+                        while ((i = cursor.getAndIncrement()) < slices.size()) {
+                            try {
+                                if (failure.get() == null) {
+                                    Collector sliceCollector = collectorFactory.newCollector();
+                                    ContextIndexSearcher.super.search(slices.get(i), weight, sliceCollector);
+                                    if (sliceCollector instanceof XCollector) {
+                                        ((XCollector) sliceCollector).postCollection();
+                                    }
+                                }
+                            } catch (Throwable t) {
+                                failure.compareAndSet(null, t);
+                            } finally {
+                                latch.countDown();
+                            }
+                        }
+                    } finally {
+                        if (setCurrent) {
+                            if (previous == null) {
+                                SearchContext.removeCurrent();
+                            } else {
+                                SearchContext.setCurrent(previous);
+                            }
+                        }
+                    }
+                }
+            };
+            for (int i = 1; i < slices.size(); i++) {
+                try {
+                    executor.execute(collector);
+                } catch (EsRejectedExecutionException e) {
+                    // the pool is busy, the calling thread will collect what is left
+                    break;
+                }
+            }
+            collector.run();
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while collecting slices", e);
+            }
+            if (failure.get() != null) {
+                Throwable t = ExceptionsHelper.unwrapCause(failure.get());
+                if (t instanceof IOException) {
+                    throw (IOException) t;
+                }
+                if (t instanceof RuntimeException) {
+                    throw (RuntimeException) t;
+                }
+                throw new IOException("failed to collect slice", t);
+            }
+        } finally {
+            searchContext.clearReleasables();
+        }
+    }
+
+    /**
+     * Splits the leaves into at most <tt>maxSlices</tt> slices holding about the same number of documents.
+     */
+    static List<List<AtomicReaderContext>> slices(List<AtomicReaderContext> leaves, int maxSlices) {
+        final int numSlices = Math.max(1, Math.min(maxSlices, leaves.size()));
+        final List<AtomicReaderContext> sorted = new ArrayList<AtomicReaderContext>(leaves);
+        // biggest segments first, each one goes to the slice with the least documents so far
+        Collections.sort(sorted, new Comparator<AtomicReaderContext>() {
+            @Override
+            public int compare(AtomicReaderContext o1, AtomicReaderContext o2) {
+                return o2.reader().maxDoc() - o1.reader().maxDoc();
+            }
+        });
+        final List<List<AtomicReaderContext>> slices = new ArrayList<List<AtomicReaderContext>>(numSlices);
+        final long[] sliceDocs = new long[numSlices];
+        for (int i = 0; i < numSlices; i++) {
+            slices.add(new ArrayList<AtomicReaderContext>());
+        }
+        for (AtomicReaderContext leaf : sorted) {
+            int smallest = 0;
+            for (int i = 1; i < numSlices; i++) {
+                if (sliceDocs[i] < sliceDocs[smallest]) {
+                    smallest = i;
+                }
+            }
+            slices.get(smallest).add(leaf);
+            sliceDocs[smallest] += leaf.reader().maxDoc();
+        }
+        return slices;
+    }
+
     @Override
     public Explanation explain(Query query, int doc) throws IOException {
         try {
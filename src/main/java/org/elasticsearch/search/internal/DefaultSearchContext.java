@@ -132,6 +132,8 @@ public class DefaultSearchContext extends SearchContext {
 
     private boolean trackScores = false; // when sorting, track scores as well...
 
+    private Object[] searchAfter;
+
     private ParsedQuery originalQuery;
 
     private Query query;
@@ -192,6 +194,7 @@ public class DefaultSearchContext extends SearchContext {
         if (scanContext != null) {
             scanContext.clear();
         }
+        releaseFieldData();
         // clear and scope phase we  have
         searcher.release();
         engineSearcher.release();
@@ -284,7 +287,7 @@ public class DefaultSearchContext extends SearchContext {
         return this;
     }
 
-    public long nowInMillis() {
+    protected long nowInMillisImpl() {
         return request.nowInMillis();
     }
 
@@ -457,6 +460,15 @@ public class DefaultSearchContext extends SearchContext {
         return this.trackScores;
     }
 
+    public SearchContext searchAfter(Object[] searchAfter) {
+        this.searchAfter = searchAfter;
+        return this;
+    }
+
+    public Object[] searchAfter() {
+        return this.searchAfter;
+    }
+
     public SearchContext parsedFilter(ParsedFilter filter) {
         this.filter = filter;
         return this;
@@ -18,6 +18,7 @@
 
 package org.elasticsearch.search.internal;
 
+import com.google.common.collect.Sets;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
@@ -29,6 +30,7 @@ import org.elasticsearch.index.analysis.AnalysisService;
 import org.elasticsearch.index.cache.docset.DocSetCache;
 import org.elasticsearch.index.cache.filter.FilterCache;
 import org.elasticsearch.index.cache.id.IdCache;
+import org.elasticsearch.index.fielddata.AtomicFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldDataService;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.mapper.FieldMappers;
@@ -56,6 +58,7 @@ import org.elasticsearch.search.scan.ScanContext;
 import org.elasticsearch.search.suggest.SuggestionSearchContext;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  */
@@ -77,6 +80,10 @@ public abstract class SearchContext implements Releasable {
         return current.get();
     }
 
+    private boolean nowInMillisUsed;
+
+    private Set<AtomicFieldData.RefCounted> acquiredFieldData;
+
     public abstract boolean clearAndRelease();
 
     /**
@@ -108,7 +115,53 @@ public abstract class SearchContext implements Releasable {
 
     public abstract SearchContext queryBoost(float queryBoost);
 
-    public abstract long nowInMillis();
+    /**
+     * The time the request started at, what <tt>now</tt> resolves to. Marks the context as depending on it,
+     * see {@link #nowInMillisUsed()}.
+     */
+    public final long nowInMillis() {
+        nowInMillisUsed = true;
+        return nowInMillisImpl();
+    }
+
+    /**
+     * Returns <tt>true</tt> if {@link #nowInMillis()} was used, in which case the results depend on when
+     * the request was executed.
+     */
+    public final boolean nowInMillisUsed() {
+        return nowInMillisUsed;
+    }
+
+    protected abstract long nowInMillisImpl();
+
+    /**
+     * Holds a reference to the field data until the context is released, see {@link #releaseFieldData()}.
+     * Returns <tt>false</tt> if the field data has already been released, and should be loaded again.
+     */
+    public final synchronized boolean acquireFieldData(AtomicFieldData.RefCounted fieldData) {
+        if (acquiredFieldData == null) {
+            acquiredFieldData = Sets.newIdentityHashSet();
+        } else if (acquiredFieldData.contains(fieldData)) {
+            return true;
+        }
+        if (!fieldData.tryIncRef()) {
+            return false;
+        }
+        acquiredFieldData.add(fieldData);
+        return true;
+    }
+
+    /**
+     * Releases the field data acquired by this context, to be called when the context is released.
+     */
+    protected final synchronized void releaseFieldData() {
+        if (acquiredFieldData != null) {
+            for (AtomicFieldData.RefCounted fieldData : acquiredFieldData) {
+                fieldData.decRef();
+            }
+            acquiredFieldData = null;
+        }
+    }
 
     public abstract Scroll scroll();
 
@@ -194,6 +247,13 @@ public abstract class SearchContext implements Releasable {
 
     public abstract boolean trackScores();
 
+    public abstract SearchContext searchAfter(Object[] searchAfter);
+
+    /**
+     * The sort values of the last hit of the previous page, only hits sorting after them are collected.
+     */
+    public abstract Object[] searchAfter();
+
     public abstract SearchContext parsedFilter(ParsedFilter filter);
 
     public abstract ParsedFilter parsedFilter();
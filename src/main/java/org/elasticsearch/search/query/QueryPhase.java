@@ -20,12 +20,20 @@
 package org.elasticsearch.search.query;
 
 import com.google.common.collect.ImmutableMap;
+import org.apache.lucene.index.sorter.EarlyTerminatingSortingCollector;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
 import org.apache.lucene.search.TotalHitCountCollector;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.fielddata.fieldcomparator.LongValuesComparatorSource;
+import org.elasticsearch.index.fielddata.fieldcomparator.SortMode;
+import org.elasticsearch.index.merge.policy.NumericFieldSorter;
 import org.elasticsearch.search.SearchParseElement;
 import org.elasticsearch.search.SearchPhase;
 import org.elasticsearch.search.facet.FacetPhase;
@@ -72,6 +80,8 @@ public class QueryPhase implements SearchPhase {
                 .put("min_score", new MinScoreParseElement())
                 .put("minScore", new MinScoreParseElement())
                 .put("timeout", new TimeoutParseElement())
+                .put("search_after", new SearchAfterParseElement())
+                .put("searchAfter", new SearchAfterParseElement())
                 .putAll(facetPhase.parseElements())
                 .putAll(suggestPhase.parseElements())
                 .putAll(rescorePhase.parseElements());
@@ -87,6 +97,21 @@ public class QueryPhase implements SearchPhase {
     public void execute(SearchContext searchContext) throws QueryPhaseExecutionException {
         searchContext.queryResult().searchTimedOut(false);
 
+        FieldDoc searchAfter = null;
+        if (searchContext.searchAfter() != null && searchContext.searchType() != SearchType.COUNT && searchContext.searchType() != SearchType.SCAN) {
+            if (searchContext.sort() == null) {
+                throw new QueryPhaseExecutionException(searchContext, "search_after requires a sort to be specified", null);
+            }
+            if (searchContext.from() > 0) {
+                throw new QueryPhaseExecutionException(searchContext, "from must be set to 0 when search_after is used", null);
+            }
+            try {
+                searchAfter = SearchAfterParseElement.buildFieldDoc(searchContext.sort(), searchContext.searchAfter());
+            } catch (ElasticSearchIllegalArgumentException e) {
+                throw new QueryPhaseExecutionException(searchContext, "Failed to parse search_after", e);
+            }
+        }
+
         searchContext.searcher().inStage(ContextIndexSearcher.Stage.MAIN_QUERY);
         boolean rescore = false;
         try {
@@ -108,9 +133,23 @@ public class QueryPhase implements SearchPhase {
                 topDocs = new TopDocs(collector.getTotalHits(), Lucene.EMPTY_SCORE_DOCS, 0);
             } else if (searchContext.searchType() == SearchType.SCAN) {
                 topDocs = searchContext.scanContext().execute(searchContext);
-            } else if (searchContext.sort() != null) {
-                topDocs = searchContext.searcher().search(query, null, numDocs, searchContext.sort(),
+            } else if (searchAfter != null) {
+                // only the hits after the last one of the previous page are collected, so each shard
+                // needs to keep size hits regardless of how deep the client paged
+                topDocs = searchContext.searcher().searchAfter(searchAfter, query, null, numDocs, searchContext.sort(),
                         searchContext.trackScores(), searchContext.trackScores());
+            } else if (searchContext.sort() != null) {
+                NumericFieldSorter segmentSorter = earlyTerminationSorter(searchContext);
+                if (segmentSorter != null) {
+                    // segments sorted on merge in the same order as the request can stop once numDocs are collected
+                    TopFieldCollector collector = TopFieldCollector.create(searchContext.sort(), numDocs, true,
+                            searchContext.trackScores(), searchContext.trackScores(), false);
+                    searchContext.searcher().search(query, new EarlyTerminatingSortingCollector(collector, segmentSorter, numDocs));
+                    topDocs = collector.topDocs();
+                } else {
+                    topDocs = searchContext.searcher().search(query, null, numDocs, searchContext.sort(),
+                            searchContext.trackScores(), searchContext.trackScores());
+                }
             } else {
                 if (searchContext.rescore() != null) {
                     rescore = true;
@@ -130,4 +169,32 @@ public class QueryPhase implements SearchPhase {
         suggestPhase.execute(searchContext);
         facetPhase.execute(searchContext);
     }
+
+    /**
+     * Returns the sorter of the index if the request sorts the same way, and no other collector needs to see
+     * all the matching docs, <tt>null</tt> otherwise. The sorter orders documents by the lowest value ascending
+     * and the highest value descending, with missing values last, so only a plain sort using the default
+     * <tt>mode</tt> and <tt>missing</tt> without nested documents matches it.
+     */
+    private static NumericFieldSorter earlyTerminationSorter(SearchContext searchContext) {
+        NumericFieldSorter segmentSorter = NumericFieldSorter.fromSettings(searchContext.indexShard().indexSettings());
+        if (segmentSorter == null || searchContext.searcher().hasMainQueryCollectors()) {
+            return null;
+        }
+        SortField[] sortFields = searchContext.sort().getSort();
+        if (sortFields.length != 1 || !segmentSorter.field().equals(sortFields[0].getField())
+                || sortFields[0].getReverse() != segmentSorter.reverse()) {
+            return null;
+        }
+        // nested sorts use a NestedFieldComparatorSource, which is not a LongValuesComparatorSource
+        if (!(sortFields[0].getComparatorSource() instanceof LongValuesComparatorSource)) {
+            return null;
+        }
+        LongValuesComparatorSource comparatorSource = (LongValuesComparatorSource) sortFields[0].getComparatorSource();
+        SortMode defaultSortMode = segmentSorter.reverse() ? SortMode.MAX : SortMode.MIN;
+        if (comparatorSource.sortMode() != defaultSortMode || !comparatorSource.sortMissingLast()) {
+            return null;
+        }
+        return segmentSorter;
+    }
 }
@@ -0,0 +1,137 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.query;
+
+import com.google.common.collect.Lists;
+import org.apache.lucene.search.FieldComparatorSource;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.search.nested.NestedFieldComparatorSource;
+import org.elasticsearch.search.SearchParseElement;
+import org.elasticsearch.search.SearchParseException;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.util.List;
+
+/**
+ * Parses the <tt>search_after</tt> element, an array holding the sort values of the last hit
+ * of the previous page.
+ */
+public class SearchAfterParseElement implements SearchParseElement {
+
+    @Override
+    public void parse(XContentParser parser, SearchContext context) throws Exception {
+        XContentParser.Token token = parser.currentToken();
+        if (token != XContentParser.Token.START_ARRAY) {
+            throw new SearchParseException(context, "search_after is expected to be an array of sort values");
+        }
+        List<Object> values = Lists.newArrayList();
+        while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+            if (token == XContentParser.Token.VALUE_NULL) {
+                values.add(null);
+            } else if (token == XContentParser.Token.VALUE_STRING) {
+                values.add(parser.text());
+            } else if (token == XContentParser.Token.VALUE_NUMBER) {
+                values.add(parser.numberValue());
+            } else if (token == XContentParser.Token.VALUE_BOOLEAN) {
+                values.add(parser.booleanValue());
+            } else {
+                throw new SearchParseException(context, "search_after only supports values, got [" + token + "]");
+            }
+        }
+        context.searchAfter(values.toArray());
+    }
+
+    /**
+     * Builds the {@link FieldDoc} to start collecting after from the provided sort values. The doc id is
+     * set to the highest possible value so that docs with the same sort values as the last hit are
+     * considered as already returned, a unique tie breaker should be the last sort field to avoid
+     * skipping such docs. Nested sorts are rejected since their comparators can't compare to a value.
+     */
+    public static FieldDoc buildFieldDoc(Sort sort, Object[] values) {
+        SortField[] sortFields = sort.getSort();
+        for (SortField sortField : sortFields) {
+            if (sortField.getComparatorSource() instanceof NestedFieldComparatorSource) {
+                throw new ElasticSearchIllegalArgumentException("search_after is not supported for nested sort [" + sortField.getField() + "]");
+            }
+        }
+        if (sortFields.length != values.length) {
+            throw new ElasticSearchIllegalArgumentException("search_after has " + values.length + " value(s) but sort has " + sortFields.length);
+        }
+        Object[] fieldValues = new Object[sortFields.length];
+        for (int i = 0; i < sortFields.length; i++) {
+            fieldValues[i] = convertValue(sortFields[i], values[i]);
+        }
+        return new FieldDoc(Integer.MAX_VALUE, Float.NaN, fieldValues);
+    }
+
+    private static Object convertValue(SortField sortField, Object value) {
+        SortField.Type type = sortField.getType();
+        FieldComparatorSource comparatorSource = sortField.getComparatorSource();
+        if (comparatorSource instanceof IndexFieldData.XFieldComparatorSource) {
+            type = ((IndexFieldData.XFieldComparatorSource) comparatorSource).reducedType();
+        }
+        if (value == null) {
+            if (type == SortField.Type.STRING || type == SortField.Type.STRING_VAL) {
+                return null;
+            }
+            throw new ElasticSearchIllegalArgumentException("search_after value for [" + sortField + "] must not be null");
+        }
+        switch (type) {
+            case STRING:
+            case STRING_VAL:
+                return value instanceof BytesRef ? value : new BytesRef(value.toString());
+            case SCORE:
+                return toNumber(sortField, value).floatValue();
+            case DOC:
+            case INT:
+                return toNumber(sortField, value).intValue();
+            case LONG:
+                return toNumber(sortField, value).longValue();
+            case FLOAT:
+                return toNumber(sortField, value).floatValue();
+            case DOUBLE:
+                return toNumber(sortField, value).doubleValue();
+            default:
+                throw new ElasticSearchIllegalArgumentException("search_after is not supported for sort [" + sortField + "]");
+        }
+    }
+
+    private static Number toNumber(SortField sortField, Object value) {
+        if (value instanceof Number) {
+            return (Number) value;
+        }
+        String text = value.toString();
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            // not a long, try as a double
+        }
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw new ElasticSearchIllegalArgumentException("search_after value [" + value + "] for [" + sortField + "] is not a number");
+        }
+    }
+}
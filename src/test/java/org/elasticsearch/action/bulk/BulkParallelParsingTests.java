@@ -0,0 +1,128 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+/**
+ */
+public class BulkParallelParsingTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testAllItemsParsedOnce() throws Exception {
+        ThreadPool threadPool = new ThreadPool();
+        try {
+            final int numItems = randomIntBetween(1, 1000);
+            final AtomicIntegerArray parsed = new AtomicIntegerArray(numItems);
+            TransportShardBulkAction.parseInParallel(numItems, new TransportShardBulkAction.ItemParser() {
+                @Override
+                public void parse(int item) {
+                    parsed.incrementAndGet(item);
+                }
+            }, threadPool.executor(ThreadPool.Names.BULK_PARSE), randomIntBetween(1, 8));
+            for (int i = 0; i < numItems; i++) {
+                assertThat(parsed.get(i), equalTo(1));
+            }
+        } finally {
+            threadPool.shutdownNow();
+            threadPool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testSaturatedPoolParsesInline() throws Exception {
+        final int numItems = randomIntBetween(1, 100);
+        final AtomicIntegerArray parsed = new AtomicIntegerArray(numItems);
+        final Thread caller = Thread.currentThread();
+        Executor rejecting = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new EsRejectedExecutionException("saturated");
+            }
+        };
+        TransportShardBulkAction.parseInParallel(numItems, new TransportShardBulkAction.ItemParser() {
+            @Override
+            public void parse(int item) {
+                assertThat(Thread.currentThread(), equalTo(caller));
+                parsed.incrementAndGet(item);
+            }
+        }, rejecting, randomIntBetween(2, 8));
+        for (int i = 0; i < numItems; i++) {
+            assertThat(parsed.get(i), equalTo(1));
+        }
+    }
+
+    @Test
+    public void testNeverWaitsOnQueuedHelpers() throws Exception {
+        final int numItems = randomIntBetween(1, 100);
+        final AtomicIntegerArray parsed = new AtomicIntegerArray(numItems);
+        // a pool that queues helpers without ever running them, like a pool busy with other bulks
+        final List<Runnable> queued = new ArrayList<Runnable>();
+        Executor busy = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                queued.add(command);
+            }
+        };
+        TransportShardBulkAction.ItemParser itemParser = new TransportShardBulkAction.ItemParser() {
+            @Override
+            public void parse(int item) {
+                parsed.incrementAndGet(item);
+            }
+        };
+        final int concurrency = randomIntBetween(2, 8);
+        TransportShardBulkAction.parseInParallel(numItems, itemParser, busy, concurrency);
+        assertThat(queued.size(), equalTo(concurrency - 1));
+        // helpers that start late find nothing left to parse
+        for (Runnable helper : queued) {
+            helper.run();
+        }
+        for (int i = 0; i < numItems; i++) {
+            assertThat(parsed.get(i), equalTo(1));
+        }
+    }
+
+    @Test
+    public void testDedicatedBoundedPool() throws Exception {
+        ThreadPool threadPool = new ThreadPool();
+        try {
+            Executor bulkParse = threadPool.executor(ThreadPool.Names.BULK_PARSE);
+            assertThat(bulkParse, instanceOf(ThreadPoolExecutor.class));
+            assertThat(bulkParse == threadPool.executor(ThreadPool.Names.BULK), equalTo(false));
+            // bounded, so a saturated pool rejects helpers instead of queueing them behind other bulks
+            assertThat(((ThreadPoolExecutor) bulkParse).getQueue().remainingCapacity() < Integer.MAX_VALUE, equalTo(true));
+        } finally {
+            threadPool.shutdownNow();
+            threadPool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -20,10 +20,13 @@
 package org.elasticsearch.action.bulk;
 
 import com.google.common.base.Charsets;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.index.VersionType;
 import org.elasticsearch.test.ElasticsearchTestCase;
 import org.junit.Test;
 
@@ -31,6 +34,7 @@ import static org.elasticsearch.common.io.Streams.copyToStringFromClasspath;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
 
 public class BulkRequestTests extends ElasticsearchTestCase {
 
@@ -80,4 +84,66 @@ public class BulkRequestTests extends ElasticsearchTestCase {
         assertThat(((UpdateRequest) bulkRequest.requests().get(1)).upsertRequest().source().toUtf8(), equalTo("{\"counter\":1}"));
     }
 
+    @Test
+    public void testBinaryBulk() throws Exception {
+        BulkBinaryFormat.Builder builder = new BulkBinaryFormat.Builder()
+                .index("test", "type1", "1", new BytesArray("{ \"field1\" : \"value1\" }"))
+                .delete("test", "type1", "2")
+                .create(null, null, "3", new BytesArray("{ \"field1\" : \"value3\" }"))
+                .update("test", "type1", "4", new BytesArray("{ \"doc\" : { \"field\" : \"value\" } }"))
+                .add(BulkBinaryFormat.INDEX, null, null, null, "routing1", null, null, 1000, 2, VersionType.EXTERNAL, 0, new BytesArray("{}"));
+        BulkRequest bulkRequest = new BulkRequest();
+        bulkRequest.add(builder.bytes(), false, "default", "default_type");
+        assertThat(bulkRequest.numberOfActions(), equalTo(5));
+
+        IndexRequest indexRequest = (IndexRequest) bulkRequest.requests().get(0);
+        assertThat(indexRequest.index(), equalTo("test"));
+        assertThat(indexRequest.opType(), equalTo(IndexRequest.OpType.INDEX));
+        assertThat(indexRequest.source().toBytes(), equalTo(new BytesArray("{ \"field1\" : \"value1\" }").toBytes()));
+
+        DeleteRequest deleteRequest = (DeleteRequest) bulkRequest.requests().get(1);
+        assertThat(deleteRequest.id(), equalTo("2"));
+
+        IndexRequest createRequest = (IndexRequest) bulkRequest.requests().get(2);
+        assertThat(createRequest.index(), equalTo("default"));
+        assertThat(createRequest.type(), equalTo("default_type"));
+        assertThat(createRequest.opType(), equalTo(IndexRequest.OpType.CREATE));
+
+        UpdateRequest updateRequest = (UpdateRequest) bulkRequest.requests().get(3);
+        assertThat(updateRequest.id(), equalTo("4"));
+        assertThat(updateRequest.doc().source().toUtf8(), equalTo("{\"field\":\"value\"}"));
+
+        IndexRequest autoIdRequest = (IndexRequest) bulkRequest.requests().get(4);
+        assertThat(autoIdRequest.id(), nullValue());
+        assertThat(autoIdRequest.routing(), equalTo("routing1"));
+        assertThat(autoIdRequest.ttl(), equalTo(1000l));
+        assertThat(autoIdRequest.version(), equalTo(2l));
+        assertThat(autoIdRequest.versionType(), equalTo(VersionType.EXTERNAL));
+    }
+
+    @Test(expected = ElasticSearchIllegalArgumentException.class)
+    public void testBinaryBulkExplicitIndexNotAllowed() throws Exception {
+        BulkBinaryFormat.Builder builder = new BulkBinaryFormat.Builder().index("test", "type1", "1", new BytesArray("{}"));
+        new BulkRequest().add(builder.bytes(), false, null, null, false);
+    }
+
+    @Test(expected = ElasticSearchIllegalArgumentException.class)
+    public void testBinaryBulkNegativeSourceLength() throws Exception {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeBytes(new BulkBinaryFormat.Builder().index("test", "type1", "1", new BytesArray("{}")).bytes().toBytes());
+        out.writeByte(BulkBinaryFormat.INDEX);
+        out.writeOptionalString("test");
+        out.writeOptionalString("type1");
+        out.writeOptionalString("2");
+        out.writeOptionalString(null);
+        out.writeOptionalString(null);
+        out.writeOptionalString(null);
+        out.writeLong(-1);
+        out.writeLong(0);
+        out.writeByte(VersionType.INTERNAL.getValue());
+        out.writeVInt(0);
+        // a negative length must not move the parser back to the previous item
+        out.writeVInt(-randomIntBetween(1, out.size()));
+        new BulkRequest().add(out.bytes(), false, null, null);
+    }
 }
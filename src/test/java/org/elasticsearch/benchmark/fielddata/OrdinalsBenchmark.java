@@ -0,0 +1,177 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.fielddata;
+
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.index.fielddata.ordinals.DeltaPackedMultiOrdinals;
+import org.elasticsearch.index.fielddata.ordinals.MultiOrdinals;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
+import org.elasticsearch.index.fielddata.ordinals.OrdinalsBuilder;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the memory usage and the iteration speed of multi-valued {@link Ordinals} implementations.
+ */
+public class OrdinalsBenchmark {
+
+    private static final Random RANDOM = new Random();
+    private static final int NUM_ORDS = 100000;
+
+    // consumes the iteration results so that they can't be optimized away
+    private static volatile long dummy;
+
+    public static enum Data {
+        DENSE_FEW_VALUES {
+            @Override
+            public int numValues() {
+                return 1 + RANDOM.nextInt(3);
+            }
+        },
+        SKEWED_TAGS {
+            @Override
+            public int numValues() {
+                // most documents have a few tags, some have hundreds of them
+                return RANDOM.nextFloat() < 0.01f ? 100 + RANDOM.nextInt(900) : 1 + RANDOM.nextInt(5);
+            }
+        },
+        SPARSE {
+            @Override
+            public int numValues() {
+                return RANDOM.nextFloat() < 0.1f ? 1 + RANDOM.nextInt(10) : 0;
+            }
+        };
+
+        public abstract int numValues();
+    }
+
+    public static enum Implementation {
+        MULTI_FASTEST {
+            @Override
+            public Ordinals build(OrdinalsBuilder builder) {
+                return new MultiOrdinals(builder, PackedInts.FASTEST);
+            }
+        },
+        MULTI_COMPACT {
+            @Override
+            public Ordinals build(OrdinalsBuilder builder) {
+                return new MultiOrdinals(builder, PackedInts.COMPACT);
+            }
+        },
+        DELTA_PACKED_COMPACT {
+            @Override
+            public Ordinals build(OrdinalsBuilder builder) {
+                return new DeltaPackedMultiOrdinals(builder, PackedInts.COMPACT);
+            }
+        },
+        DELTA_PACKED_FAST {
+            @Override
+            public Ordinals build(OrdinalsBuilder builder) {
+                return new DeltaPackedMultiOrdinals(builder, PackedInts.FAST);
+            }
+        };
+
+        public abstract Ordinals build(OrdinalsBuilder builder);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int numDocs = 1000000;
+        final int iters = 10;
+        System.out.println("Data\tImplementation\tSize\tns per value (setDocument + nextOrd)");
+        for (Data data : Data.values()) {
+            final OrdinalsBuilder builder = build(data, numDocs);
+            for (Implementation implementation : Implementation.values()) {
+                final Ordinals ordinals = implementation.build(builder);
+                final Ordinals.Docs docs = ordinals.ordinals();
+                long sum = 0;
+                // warm up
+                for (int i = 0; i < iters; ++i) {
+                    sum += iterate(docs);
+                }
+                final long start = System.nanoTime();
+                for (int i = 0; i < iters; ++i) {
+                    sum += iterate(docs);
+                }
+                final long took = System.nanoTime() - start;
+                dummy = sum;
+                final long numValues = builder.getTotalNumOrds() * (long) iters;
+                System.out.println(data + "\t" + implementation + "\t" + RamUsageEstimator.humanReadableUnits(ordinals.getMemorySizeInBytes())
+                        + "\t" + ((double) took / numValues));
+            }
+            builder.close();
+        }
+    }
+
+    private static long iterate(Ordinals.Docs docs) {
+        long sum = 0;
+        for (int doc = 0; doc < docs.getNumDocs(); ++doc) {
+            final int numValues = docs.setDocument(doc);
+            for (int i = 0; i < numValues; ++i) {
+                sum += docs.nextOrd();
+            }
+        }
+        return sum;
+    }
+
+    private static OrdinalsBuilder build(Data data, int numDocs) throws Exception {
+        // pick the ordinals of every document, then feed them to the builder in ordinal order
+        final int[][] docOrds = new int[numDocs][];
+        final int[] docFreqs = new int[NUM_ORDS + 1];
+        for (int doc = 0; doc < numDocs; ++doc) {
+            final int numValues = data.numValues();
+            int[] ords = new int[numValues];
+            for (int i = 0; i < numValues; ++i) {
+                ords[i] = 1 + RANDOM.nextInt(NUM_ORDS);
+            }
+            Arrays.sort(ords);
+            int numUniqueValues = 0;
+            for (int i = 0; i < numValues; ++i) {
+                if (numUniqueValues == 0 || ords[i] != ords[numUniqueValues - 1]) {
+                    ords[numUniqueValues++] = ords[i];
+                }
+            }
+            ords = Arrays.copyOf(ords, numUniqueValues);
+            for (int ord : ords) {
+                docFreqs[ord]++;
+            }
+            docOrds[doc] = ords;
+        }
+        final int[][] postings = new int[NUM_ORDS + 1][];
+        for (int ord = 1; ord <= NUM_ORDS; ++ord) {
+            postings[ord] = new int[docFreqs[ord]];
+            docFreqs[ord] = 0;
+        }
+        for (int doc = 0; doc < numDocs; ++doc) {
+            for (int ord : docOrds[doc]) {
+                postings[ord][docFreqs[ord]++] = doc;
+            }
+        }
+        final OrdinalsBuilder builder = new OrdinalsBuilder(numDocs);
+        for (int ord = 1; ord <= NUM_ORDS; ++ord) {
+            builder.nextOrdinal();
+            for (int doc : postings[ord]) {
+                builder.addDoc(doc);
+            }
+        }
+        return builder;
+    }
+}
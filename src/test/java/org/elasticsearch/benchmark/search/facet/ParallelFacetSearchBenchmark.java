@@ -0,0 +1,138 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.search.facet;
+
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.SizeValue;
+import org.elasticsearch.node.Node;
+
+import java.util.Random;
+
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_REPLICAS;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_SHARDS;
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.node.NodeBuilder.nodeBuilder;
+import static org.elasticsearch.search.facet.FacetBuilders.*;
+
+/**
+ * Compares collector based facets on a single shard with many segments, collected on the search thread only
+ * and on slices of the segments in parallel (search.facet.parallel_slices).
+ */
+public class ParallelFacetSearchBenchmark {
+
+    static long COUNT = SizeValue.parseSizeValue("5m").singles();
+    static int BATCH = 1000;
+    static int REFRESH_EVERY = 100000; // keeps a good number of segments around
+    static int QUERY_WARMUP = 20;
+    static int QUERY_COUNT = 100;
+    static int NUMBER_OF_TERMS = 50000;
+    static int[] SLICES = new int[]{1, 2, 4, 8};
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(0);
+        String[] terms = new String[NUMBER_OF_TERMS];
+        for (int i = 0; i < NUMBER_OF_TERMS; i++) {
+            terms[i] = "term_" + Integer.toString(random.nextInt(Integer.MAX_VALUE), Character.MAX_RADIX);
+        }
+
+        for (int slices : SLICES) {
+            Settings settings = settingsBuilder()
+                    .put("index.refresh_interval", "-1")
+                    .put("index.merge.policy.segments_per_tier", 100)
+                    .put("gateway.type", "none")
+                    .put("search.facet.parallel_slices", slices)
+                    .put("search.facet.terms.global_ordinals_min_segments", 0)
+                    .put(SETTING_NUMBER_OF_SHARDS, 1)
+                    .put(SETTING_NUMBER_OF_REPLICAS, 0)
+                    .build();
+
+            String clusterName = ParallelFacetSearchBenchmark.class.getSimpleName() + "_" + slices;
+            Node node = nodeBuilder().clusterName(clusterName)
+                    .settings(settingsBuilder().put(settings).put("name", "node_" + slices)).node();
+            Client client = node.client();
+
+            index(client, terms, new Random(1));
+            client.admin().indices().prepareRefresh().execute().actionGet();
+            int numSegments = client.admin().indices().prepareSegments("test").execute().actionGet()
+                    .getIndices().get("test").getShards().get(0).getShards()[0].getSegments().size();
+            System.out.println("--> [" + slices + " slices] " + numSegments + " segments");
+
+            run(client, slices, "terms", client.prepareSearch().setQuery(matchAllQuery()).setSearchType("count")
+                    .addFacet(termsFacet("terms").field("s_value").executionHint("global_ordinals")));
+            run(client, slices, "statistical", client.prepareSearch().setQuery(matchAllQuery()).setSearchType("count")
+                    .addFacet(statisticalFacet("stats").field("l_value")));
+            run(client, slices, "date_histogram", client.prepareSearch().setQuery(matchAllQuery()).setSearchType("count")
+                    .addFacet(dateHistogramFacet("date").field("date").interval("hour")));
+            run(client, slices, "all", client.prepareSearch().setQuery(matchAllQuery()).setSearchType("count")
+                    .addFacet(termsFacet("terms").field("s_value").executionHint("global_ordinals"))
+                    .addFacet(statisticalFacet("stats").field("l_value"))
+                    .addFacet(dateHistogramFacet("date").field("date").interval("hour")));
+
+            node.close();
+        }
+    }
+
+    static void index(Client client, String[] terms, Random random) throws Exception {
+        client.admin().indices().prepareCreate("test").execute().actionGet();
+        StopWatch stopWatch = new StopWatch().start();
+        System.out.println("--> Indexing [" + COUNT + "] ...");
+        long startDate = System.currentTimeMillis() - COUNT * 1000;
+        for (long i = 0; i < COUNT; ) {
+            BulkRequestBuilder request = client.prepareBulk();
+            for (int j = 0; j < BATCH; j++, i++) {
+                request.add(client.prepareIndex("test", "type1").setSource(jsonBuilder().startObject()
+                        .field("s_value", terms[random.nextInt(terms.length)])
+                        .field("l_value", random.nextInt(1000))
+                        .field("date", startDate + i * 1000)
+                        .endObject()));
+            }
+            BulkResponse response = request.execute().actionGet();
+            if (response.hasFailures()) {
+                System.err.println("--> failures...");
+            }
+            if (i % REFRESH_EVERY == 0) {
+                client.admin().indices().prepareRefresh().execute().actionGet();
+            }
+        }
+        System.out.println("--> Indexing took " + stopWatch.stop().totalTime());
+    }
+
+    static void run(Client client, int slices, String name, SearchRequestBuilder request) {
+        for (int j = 0; j < QUERY_WARMUP; j++) {
+            request.execute().actionGet();
+        }
+        long totalQueryTime = 0;
+        for (int j = 0; j < QUERY_COUNT; j++) {
+            SearchResponse searchResponse = request.execute().actionGet();
+            if (searchResponse.getHits().totalHits() != COUNT) {
+                System.err.println("--> mismatch on hits");
+            }
+            totalQueryTime += searchResponse.getTookInMillis();
+        }
+        System.out.println("--> [" + slices + " slices] " + name + " facets " + (totalQueryTime / QUERY_COUNT) + "ms");
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.search.facet;
+
+import jsr166y.ThreadLocalRandom;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.SizeValue;
+import org.elasticsearch.search.facet.percentiles.TDigest;
+
+import java.util.Arrays;
+
+/**
+ * Compares the percentiles that are estimated by {@link TDigest} to the exact percentiles that are computed
+ * by sorting the values, both in terms of accuracy and speed.
+ */
+public class PercentilesBenchmark {
+
+    public static void main(String[] args) throws Exception {
+
+        int NUMBER_OF_VALUES = (int) SizeValue.parseSizeValue("5m").singles();
+        int ITERATIONS = 10;
+        double[] COMPRESSIONS = new double[]{20, 100, 500};
+        double[] PERCENTS = new double[]{0.1, 1, 5, 25, 50, 75, 95, 99, 99.9};
+
+        // log-normal values, which look like request latencies
+        double[] values = new double[NUMBER_OF_VALUES];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(ThreadLocalRandom.current().nextGaussian());
+        }
+
+        StopWatch stopWatch = new StopWatch().start();
+        double[] sorted = null;
+        for (int iter = 0; iter < ITERATIONS; iter++) {
+            sorted = Arrays.copyOf(values, values.length);
+            Arrays.sort(sorted);
+        }
+        stopWatch.stop();
+        System.out.println("Exact (sort): " + stopWatch.totalTime() + ", " + stopWatch.totalTime().millisFrac() / ITERATIONS + "ms, "
+                + new ByteSizeValue(8L * NUMBER_OF_VALUES) + " of values in memory");
+
+        for (double compression : COMPRESSIONS) {
+            TDigest digest = null;
+            stopWatch = new StopWatch().start();
+            for (int iter = 0; iter < ITERATIONS; iter++) {
+                digest = new TDigest(compression);
+                for (double value : values) {
+                    digest.add(value);
+                }
+                digest.quantile(0.5);
+            }
+            stopWatch.stop();
+
+            BytesStreamOutput out = new BytesStreamOutput();
+            digest.writeTo(out);
+            System.out.println("TDigest(" + compression + "): " + stopWatch.totalTime() + ", " + stopWatch.totalTime().millisFrac() / ITERATIONS + "ms, "
+                    + digest.centroidCount() + " centroids, " + out.size() + " bytes serialized");
+
+            for (double percent : PERCENTS) {
+                double exact = sorted[(int) Math.min(sorted.length - 1, percent / 100 * sorted.length)];
+                double estimated = digest.quantile(percent / 100);
+                int rank = Arrays.binarySearch(sorted, estimated);
+                if (rank < 0) {
+                    rank = -1 - rank;
+                }
+                System.out.println("    " + percent + "%: exact=" + exact + ", estimated=" + estimated
+                        + ", rank error=" + (Math.abs((double) rank / sorted.length - percent / 100) * 100) + "%");
+            }
+        }
+    }
+}
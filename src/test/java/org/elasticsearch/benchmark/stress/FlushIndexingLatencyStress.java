@@ -0,0 +1,158 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.stress;
+
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.engine.robin.RobinEngine;
+import org.elasticsearch.node.Node;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_REPLICAS;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_SHARDS;
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.node.NodeBuilder.nodeBuilder;
+
+/**
+ * Measures the indexing latency percentiles while full (new writer) flushes run in the background, once with
+ * the default blocking flush and once with {@link RobinEngine#INDEX_CONCURRENT_FLUSH} enabled.
+ */
+public class FlushIndexingLatencyStress {
+
+    static final int NUMBER_OF_THREADS = 8;
+    static final int NUMBER_OF_DOCS_PER_THREAD = 50000;
+    static final TimeValue FLUSH_INTERVAL = TimeValue.timeValueMillis(500);
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = settingsBuilder()
+                .put("gateway.type", "none")
+                .put("index.translog.disable_flush", true)
+                .put(SETTING_NUMBER_OF_SHARDS, 1)
+                .put(SETTING_NUMBER_OF_REPLICAS, 0)
+                .build();
+
+        Node node = nodeBuilder().settings(settingsBuilder().put(settings).put("name", "node1")).node();
+        Client client = node.client();
+
+        run(client, "blocking", false);
+        run(client, "concurrent", true);
+
+        client.close();
+        node.close();
+    }
+
+    private static void run(final Client client, final String index, boolean concurrentFlush) throws Exception {
+        client.admin().indices().prepareCreate(index)
+                .setSettings(settingsBuilder().put(RobinEngine.INDEX_CONCURRENT_FLUSH, concurrentFlush))
+                .execute().actionGet();
+        client.admin().cluster().prepareHealth(index).setWaitForGreenStatus().execute().actionGet();
+
+        final long[][] latencies = new long[NUMBER_OF_THREADS][NUMBER_OF_DOCS_PER_THREAD];
+        final boolean[][] duringFlush = new boolean[NUMBER_OF_THREADS][NUMBER_OF_DOCS_PER_THREAD];
+        final AtomicBoolean flushing = new AtomicBoolean();
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicInteger flushes = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(NUMBER_OF_THREADS);
+
+        Thread flusher = new Thread() {
+            @Override
+            public void run() {
+                while (!done.get()) {
+                    try {
+                        Thread.sleep(FLUSH_INTERVAL.millis());
+                        flushing.set(true);
+                        client.admin().indices().prepareFlush(index).setFull(true).execute().actionGet();
+                        flushes.incrementAndGet();
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    } finally {
+                        flushing.set(false);
+                    }
+                }
+            }
+        };
+
+        Thread[] threads = new Thread[NUMBER_OF_THREADS];
+        for (int t = 0; t < threads.length; t++) {
+            final int threadId = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < NUMBER_OF_DOCS_PER_THREAD; i++) {
+                        boolean flushingAtStart = flushing.get();
+                        long start = System.nanoTime();
+                        client.prepareIndex(index, "type1", threadId + "_" + i)
+                                .setSource("field1", "value" + i, "field2", i)
+                                .execute().actionGet();
+                        latencies[threadId][i] = System.nanoTime() - start;
+                        duringFlush[threadId][i] = flushingAtStart || flushing.get();
+                    }
+                    latch.countDown();
+                }
+            };
+        }
+
+        long start = System.currentTimeMillis();
+        flusher.start();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        latch.await();
+        long took = System.currentTimeMillis() - start;
+        done.set(true);
+        flusher.join();
+
+        int total = NUMBER_OF_THREADS * NUMBER_OF_DOCS_PER_THREAD;
+        long[] all = new long[total];
+        long[] flushed = new long[total];
+        int flushedCount = 0;
+        int pos = 0;
+        for (int t = 0; t < NUMBER_OF_THREADS; t++) {
+            for (int i = 0; i < NUMBER_OF_DOCS_PER_THREAD; i++) {
+                all[pos++] = latencies[t][i];
+                if (duringFlush[t][i]) {
+                    flushed[flushedCount++] = latencies[t][i];
+                }
+            }
+        }
+        flushed = Arrays.copyOf(flushed, flushedCount);
+        Arrays.sort(all);
+        Arrays.sort(flushed);
+
+        System.out.println("--> [" + index + "] indexed [" + total + "] in [" + TimeValue.timeValueMillis(took) + "], TPS [" + (total * 1000L / Math.max(1, took)) + "], flushes [" + flushes.get() + "]");
+        System.out.println("--> [" + index + "] all ops:           p50 [" + percentile(all, 0.50) + "], p99 [" + percentile(all, 0.99) + "], max [" + percentile(all, 1.0) + "]");
+        System.out.println("--> [" + index + "] ops during flush [" + flushedCount + "]: p50 [" + percentile(flushed, 0.50) + "], p99 [" + percentile(flushed, 0.99) + "], max [" + percentile(flushed, 1.0) + "]");
+
+        client.admin().indices().prepareDelete(index).execute().actionGet();
+    }
+
+    private static TimeValue percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return TimeValue.timeValueNanos(0);
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return TimeValue.timeValueNanos(sorted[Math.max(0, Math.min(index, sorted.length - 1))]);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.translog;
+
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.fs.FsTranslog;
+
+import java.io.File;
+import java.util.Random;
+
+/**
+ * Reports the bytes written to the translog per operation (and per source byte) with and without
+ * <tt>index.translog.fs.compress</tt>, for json like sources.
+ */
+public class TranslogCompressionBenchmark {
+
+    static final int NUMBER_OF_OPERATIONS = 200000;
+
+    public static void main(String[] args) throws Exception {
+        File location = new File("work/translog-compression");
+        for (boolean compress : new boolean[]{false, true}) {
+            FileSystemUtils.deleteRecursively(location);
+            run(location, compress);
+        }
+        FileSystemUtils.deleteRecursively(location);
+    }
+
+    private static void run(File location, boolean compress) throws Exception {
+        FsTranslog translog = new FsTranslog(new ShardId(new Index("test"), 0),
+                ImmutableSettings.settingsBuilder().put(FsTranslog.INDEX_TRANSLOG_FS_COMPRESS, compress).build(), location);
+        translog.newTranslog(1);
+
+        Random random = new Random(0);
+        long sourceBytes = 0;
+        StopWatch stopWatch = new StopWatch().start();
+        for (int i = 0; i < NUMBER_OF_OPERATIONS; i++) {
+            byte[] source = source(random, i);
+            sourceBytes += source.length;
+            translog.add(new Translog.Index("type1", Integer.toString(i), source));
+        }
+        translog.sync();
+        stopWatch.stop();
+
+        long translogBytes = translog.translogSizeInBytes();
+        System.out.println("--> compress [" + compress + "]: [" + NUMBER_OF_OPERATIONS + "] ops took " + stopWatch.totalTime()
+                + ", ops/sec [" + (NUMBER_OF_OPERATIONS / stopWatch.totalTime().secondsFrac()) + "], source [" + new ByteSizeValue(sourceBytes)
+                + "], translog [" + new ByteSizeValue(translogBytes) + "], bytes/op [" + (translogBytes / NUMBER_OF_OPERATIONS)
+                + "], write amplification [" + ((double) translogBytes / sourceBytes) + "]");
+
+        translog.closeWithDelete();
+    }
+
+    private static byte[] source(Random random, int i) {
+        StringBuilder sb = new StringBuilder("{\"user\":\"user").append(random.nextInt(1000))
+                .append("\",\"post_date\":\"2013-0").append(1 + random.nextInt(9)).append("-1").append(random.nextInt(10))
+                .append("T12:00:00\",\"counter\":").append(i)
+                .append(",\"message\":\"");
+        int words = 10 + random.nextInt(40);
+        for (int w = 0; w < words; w++) {
+            sb.append("word").append(random.nextInt(200)).append(' ');
+        }
+        return sb.append("\"}").toString().getBytes();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.translog;
+
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.fs.FsTranslog;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Compares the throughput of concurrent "bulk requests" appending to the translog with the <tt>async</tt>
+ * durability (sync on an interval) and the <tt>request</tt> durability (sync before acknowledging each request,
+ * concurrent requests being grouped on the same fsync).
+ */
+public class TranslogDurabilityBenchmark {
+
+    static final int NUMBER_OF_THREADS = 16;
+    static final int NUMBER_OF_REQUESTS_PER_THREAD = 2000;
+    static final int OPERATIONS_PER_REQUEST = 10;
+    static final int SOURCE_SIZE = 512;
+
+    public static void main(String[] args) throws Exception {
+        File location = new File("work/translog-durability");
+        for (Translog.Durability durability : Translog.Durability.values()) {
+            FileSystemUtils.deleteRecursively(location);
+            run(location, durability);
+        }
+        FileSystemUtils.deleteRecursively(location);
+    }
+
+    private static void run(File location, final Translog.Durability durability) throws Exception {
+        final FsTranslog translog = new FsTranslog(new ShardId(new Index("test"), 0),
+                ImmutableSettings.settingsBuilder().put(Translog.INDEX_TRANSLOG_DURABILITY, durability.name()).build(), location);
+        translog.newTranslog(1);
+
+        final byte[] source = new byte[SOURCE_SIZE];
+        new Random().nextBytes(source);
+
+        final CountDownLatch latch = new CountDownLatch(NUMBER_OF_THREADS);
+        Thread[] threads = new Thread[NUMBER_OF_THREADS];
+        for (int t = 0; t < threads.length; t++) {
+            final int threadId = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int r = 0; r < NUMBER_OF_REQUESTS_PER_THREAD; r++) {
+                            for (int i = 0; i < OPERATIONS_PER_REQUEST; i++) {
+                                translog.add(new Translog.Index("type1", threadId + "_" + r + "_" + i, source));
+                            }
+                            if (translog.durability() == Translog.Durability.REQUEST) {
+                                translog.ensureSynced();
+                            }
+                        }
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            };
+        }
+
+        StopWatch stopWatch = new StopWatch().start();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        latch.await();
+        stopWatch.stop();
+
+        long requests = NUMBER_OF_THREADS * NUMBER_OF_REQUESTS_PER_THREAD;
+        System.out.println("--> durability [" + durability + "]: [" + requests + "] requests of [" + OPERATIONS_PER_REQUEST + "] ops took " + stopWatch.totalTime()
+                + ", requests/sec [" + (requests / stopWatch.totalTime().secondsFrac()) + "], ops/sec [" + (requests * OPERATIONS_PER_REQUEST / stopWatch.totalTime().secondsFrac()) + "]");
+
+        translog.closeWithDelete();
+    }
+}
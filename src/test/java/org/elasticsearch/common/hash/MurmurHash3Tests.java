@@ -0,0 +1,131 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.hash;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class MurmurHash3Tests extends ElasticsearchTestCase {
+
+    private byte[] randomKey(int offset, int length) {
+        byte[] key = new byte[offset + length + randomInt(10)];
+        getRandom().nextBytes(key);
+        return key;
+    }
+
+    @Test
+    public void testHash128() {
+        for (int i = 0; i < 1000; i++) {
+            final int offset = randomInt(20);
+            final int length = randomInt(100);
+            final byte[] key = randomKey(offset, length);
+            final int seed = randomIntBetween(0, Integer.MAX_VALUE);
+            MurmurHash3.Hash128 hash = MurmurHash3.hash128(key, offset, length, seed, new MurmurHash3.Hash128());
+            HashCode expected = Hashing.murmur3_128(seed).hashBytes(key, offset, length);
+            ByteBuffer expectedBytes = ByteBuffer.wrap(expected.asBytes()).order(ByteOrder.LITTLE_ENDIAN);
+            assertThat(hash.h1, equalTo(expectedBytes.getLong(0)));
+            assertThat(hash.h2, equalTo(expectedBytes.getLong(8)));
+        }
+    }
+
+    @Test
+    public void testHash64SignExtendedTail() {
+        for (int i = 0; i < 1000; i++) {
+            final int offset = randomInt(20);
+            final int length = randomInt(100);
+            final byte[] key = randomKey(offset, length);
+            final long seed = randomIntBetween(0, Integer.MAX_VALUE);
+            assertThat(MurmurHash3.hash64SignExtendedTail(key, offset, length, seed), equalTo(signExtendedTailHash(key, offset, length, seed)));
+            // only the tail bytes with the highest bit set hash differently
+            final int tailStart = offset + (length & 0xFFFFFFF0);
+            for (int j = tailStart; j < offset + length; j++) {
+                key[j] &= 0x7F;
+            }
+            assertThat(MurmurHash3.hash64SignExtendedTail(key, offset, length, seed),
+                    equalTo(MurmurHash3.hash128(key, offset, length, seed, new MurmurHash3.Hash128()).h1));
+        }
+    }
+
+    /**
+     * The hash the bloom filters of the postings format used before it moved to {@link MurmurHash3}.
+     */
+    private static long signExtendedTailHash(byte[] key, int offset, int length, long seed) {
+        final int nblocks = length >> 4;
+        long h1 = seed;
+        long h2 = seed;
+        final long c1 = 0x87c37b91114253d5L;
+        final long c2 = 0x4cf5ad432745937fL;
+        for (int i = 0; i < nblocks; i++) {
+            long k1 = ByteBuffer.wrap(key, offset + i * 16, 8).order(ByteOrder.LITTLE_ENDIAN).getLong();
+            long k2 = ByteBuffer.wrap(key, offset + i * 16 + 8, 8).order(ByteOrder.LITTLE_ENDIAN).getLong();
+            k1 *= c1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= c2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+            k2 *= c2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= c1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        offset += nblocks * 16;
+        long k1 = 0;
+        long k2 = 0;
+        final int tail = length & 15;
+        for (int i = tail - 1; i >= 8; i--) {
+            k2 ^= ((long) key[offset + i]) << ((i - 8) * 8);
+        }
+        if (tail > 8) {
+            k2 *= c2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= c1;
+            h2 ^= k2;
+        }
+        for (int i = Math.min(tail, 8) - 1; i >= 0; i--) {
+            k1 ^= ((long) key[offset + i]) << (i * 8);
+        }
+        if (tail > 0) {
+            k1 *= c1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= c2;
+            h1 ^= k1;
+        }
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = MurmurHash3.fmix(h1);
+        h2 = MurmurHash3.fmix(h2);
+        h1 += h2;
+        return h1;
+    }
+}
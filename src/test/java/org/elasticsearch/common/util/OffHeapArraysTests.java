@@ -0,0 +1,108 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests for {@link OffHeapLongArray} and {@link OffHeapByteArray}
+ */
+public class OffHeapArraysTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testBytesPerValue() {
+        assertThat(new OffHeapLongArray(0, 0).bytesPerValue(), equalTo(1));
+        assertThat(new OffHeapLongArray(0, 255).bytesPerValue(), equalTo(1));
+        assertThat(new OffHeapLongArray(0, 256).bytesPerValue(), equalTo(2));
+        assertThat(new OffHeapLongArray(0, Integer.MAX_VALUE).bytesPerValue(), equalTo(4));
+        assertThat(new OffHeapLongArray(0, 1L << 32).bytesPerValue(), equalTo(8));
+        assertThat(new OffHeapLongArray(0, -1).bytesPerValue(), equalTo(8));
+    }
+
+    @Test
+    public void testLongArray() {
+        final long[] maxValues = {0, 1, 200, 255, 256, 65535, 1L << 20, 0xFFFFFFFFL, Long.MAX_VALUE, -1};
+        for (long maxValue : maxValues) {
+            // large enough to need several pages
+            final int size = (1 << AbstractOffHeapArray.PAGE_SHIFT) / 2 + randomInt(1000);
+            final long[] expected = new long[size];
+            final OffHeapLongArray array = new OffHeapLongArray(size, maxValue);
+            assertThat(array.size(), equalTo((long) size));
+            for (int i = 0; i < size; ++i) {
+                if (maxValue < 0) {
+                    expected[i] = getRandom().nextLong();
+                } else {
+                    expected[i] = maxValue == 0 ? 0 : Math.abs(getRandom().nextLong() % (maxValue + 1));
+                }
+                array.set(i, expected[i]);
+            }
+            for (int i = 0; i < size; ++i) {
+                assertThat(array.get(i), equalTo(expected[i]));
+            }
+            array.close();
+        }
+    }
+
+    @Test
+    public void testByteArrayAcrossPages() {
+        final int size = 3 * (1 << AbstractOffHeapArray.PAGE_SHIFT) + randomInt(100);
+        final OffHeapByteArray array = new OffHeapByteArray(size);
+        assertThat(array.sizeInBytes(), equalTo((long) size));
+        final byte[] expected = new byte[size];
+        getRandom().nextBytes(expected);
+        long index = 0;
+        while (index < size) {
+            final int len = (int) Math.min(size - index, randomIntBetween(1, 1 << 16));
+            array.set(index, expected, (int) index, len);
+            index += len;
+        }
+
+        final BytesRef ref = new BytesRef();
+        for (int i = 0; i < 100; ++i) {
+            final int len = randomIntBetween(0, 1 << 16);
+            final int start = randomInt(size - len);
+            array.get(start, len, ref);
+            assertThat(ref.length, equalTo(len));
+            for (int j = 0; j < len; ++j) {
+                assertThat(ref.bytes[ref.offset + j], equalTo(expected[start + j]));
+            }
+        }
+
+        // explicitly straddle the first page boundary
+        final long boundary = 1 << AbstractOffHeapArray.PAGE_SHIFT;
+        array.get(boundary - 3, 6, ref);
+        for (int j = 0; j < 6; ++j) {
+            assertThat(ref.bytes[ref.offset + j], equalTo(expected[(int) boundary - 3 + j]));
+        }
+        array.close();
+    }
+
+    @Test
+    public void testCloseTwice() {
+        final OffHeapLongArray array = new OffHeapLongArray(10, 1000);
+        array.close();
+        array.close();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.codec.postingformat;
+
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.lucene45.Lucene45Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LongsRef;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.codec.postingsformat.PersistedOrdinalsPostingsFormat;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
+import org.elasticsearch.index.fielddata.ordinals.OrdinalsBuilder;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+/**
+ * Tests that {@link PersistedOrdinalsPostingsFormat} persists the same ordinals as field data builds
+ */
+public class PersistedOrdinalsPostingsFormatTests extends ElasticsearchTestCase {
+
+    private final class TestCodec extends Lucene45Codec {
+
+        private final PostingsFormat postingsFormat = new PersistedOrdinalsPostingsFormat(PostingsFormat.forName("Lucene41"));
+
+        @Override
+        public PostingsFormat getPostingsFormatForField(String field) {
+            return postingsFormat;
+        }
+    }
+
+    @Test
+    public void testFlushAndMerge() throws IOException {
+        Directory d = new RAMDirectory();
+        IndexWriterConfig config = new IndexWriterConfig(Lucene.VERSION, new WhitespaceAnalyzer(Lucene.VERSION));
+        config.setCodec(new TestCodec());
+        IndexWriter writer = new IndexWriter(d, config);
+        final int numDocs = randomIntBetween(100, 1000);
+        for (int i = 0; i < numDocs; i++) {
+            Document doc = new Document();
+            doc.add(new StringField("id", Integer.toString(i), Store.NO));
+            if (randomBoolean()) {
+                doc.add(new StringField("single", Integer.toString(randomInt(50)), Store.NO));
+            }
+            final int numValues = randomInt(3);
+            for (int j = 0; j < numValues; j++) {
+                doc.add(new StringField("multi", Integer.toString(randomInt(100)), Store.NO));
+            }
+            writer.addDocument(doc);
+            if (rarely()) {
+                writer.commit();
+            }
+            if (rarely()) {
+                writer.deleteDocuments(new Term("id", Integer.toString(randomInt(i))));
+            }
+        }
+        writer.commit();
+        assertSameOrdinals(DirectoryReader.open(d));
+
+        writer.forceMerge(1);
+        writer.commit();
+        assertSameOrdinals(DirectoryReader.open(d));
+        writer.close();
+        d.close();
+    }
+
+    private void assertSameOrdinals(DirectoryReader reader) throws IOException {
+        for (AtomicReaderContext context : reader.leaves()) {
+            for (String field : new String[]{"single", "multi"}) {
+                final Terms terms = context.reader().terms(field);
+                if (terms == null) {
+                    continue;
+                }
+                assertThat(terms, instanceOf(PersistedOrdinalsPostingsFormat.PersistedOrdinalsTerms.class));
+                final Ordinals.Docs persisted = ((PersistedOrdinalsPostingsFormat.PersistedOrdinalsTerms) terms)
+                        .loadOrdinals(ImmutableSettings.EMPTY).ordinals();
+
+                final OrdinalsBuilder builder = new OrdinalsBuilder(context.reader().maxDoc());
+                final TermsEnum termsEnum = terms.iterator(null);
+                DocsEnum docsEnum = null;
+                for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                    builder.nextOrdinal();
+                    docsEnum = termsEnum.docs(null, docsEnum, DocsEnum.FLAG_NONE);
+                    for (int docId = docsEnum.nextDoc(); docId != DocsEnum.NO_MORE_DOCS; docId = docsEnum.nextDoc()) {
+                        builder.addDoc(docId);
+                    }
+                }
+                final Ordinals.Docs uninverted = builder.build(ImmutableSettings.EMPTY).ordinals();
+                builder.close();
+
+                assertThat(persisted.getNumOrds(), equalTo(uninverted.getNumOrds()));
+                assertThat(persisted.getNumDocs(), equalTo(uninverted.getNumDocs()));
+                assertThat(persisted.isMultiValued(), equalTo(uninverted.isMultiValued()));
+                for (int docId = 0; docId < context.reader().maxDoc(); docId++) {
+                    final LongsRef expected = LongsRef.deepCopyOf(uninverted.getOrds(docId));
+                    final LongsRef actual = persisted.getOrds(docId);
+                    assertThat(actual.length, equalTo(expected.length));
+                    for (int i = 0; i < expected.length; i++) {
+                        assertThat(actual.longs[actual.offset + i], equalTo(expected.longs[expected.offset + i]));
+                    }
+                }
+            }
+        }
+        reader.close();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine.robin;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class LiveVersionMapTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testPutAndGet() {
+        CounterMetric memory = new CounterMetric();
+        LiveVersionMap map = new LiveVersionMap(randomIntBetween(1, 10), memory);
+        BytesRef uid = new BytesRef("type#1");
+
+        assertThat(map.get(uid), nullValue());
+        map.put(uid, new RobinEngine.VersionValue(1, false, 1, null));
+        assertThat(map.get(new BytesRef("type#1")).version(), equalTo(1l));
+        long used = memory.count();
+        assertThat(used, equalTo(LiveVersionMap.BYTES_PER_ENTRY + uid.length));
+
+        // updating an existing uid should not account for it again
+        map.put(new BytesRef("type#1"), new RobinEngine.VersionValue(2, false, 2, null));
+        assertThat(map.get(uid).version(), equalTo(2l));
+        assertThat(memory.count(), equalTo(used));
+
+        // the key is copied, changing the original bytes does not affect the map
+        uid.bytes[uid.offset] = 'x';
+        assertThat(map.get(new BytesRef("type#1")).version(), equalTo(2l));
+
+        map.clear();
+        assertThat(map.get(new BytesRef("type#1")), nullValue());
+        assertThat(memory.count(), equalTo(0l));
+    }
+
+    @Test
+    public void testPrune() {
+        CounterMetric memory = new CounterMetric();
+        LiveVersionMap map = new LiveVersionMap(randomIntBetween(1, 10), memory);
+        int numDocs = randomIntBetween(10, 100);
+        for (int i = 0; i < numDocs; i++) {
+            map.put(new BytesRef("index#" + i), new RobinEngine.VersionValue(1, false, 10, null));
+            map.put(new BytesRef("delete#" + i), new RobinEngine.VersionValue(1, true, 10, null));
+            map.put(new BytesRef("newer#" + i), new RobinEngine.VersionValue(1, false, 20, null));
+        }
+
+        // values older than the refresh are removed, recent deletes and newer values are kept
+        map.prune(15, true, 100);
+        for (int i = 0; i < numDocs; i++) {
+            assertThat(map.get(new BytesRef("index#" + i)), nullValue());
+            assertThat(map.get(new BytesRef("delete#" + i)), notNullValue());
+            assertThat(map.get(new BytesRef("newer#" + i)), notNullValue());
+        }
+
+        // deletes are only removed once older than the gc deletes interval
+        map.prune(15, false, 1);
+        assertThat(map.get(new BytesRef("delete#0")), notNullValue());
+        map.prune(15, true, 1);
+        for (int i = 0; i < numDocs; i++) {
+            assertThat(map.get(new BytesRef("delete#" + i)), nullValue());
+        }
+
+        map.prune(25, true, 1);
+        assertThat(memory.count(), equalTo(0l));
+    }
+}
@@ -108,6 +108,7 @@ public class RobinEngineTests extends ElasticsearchTestCase {
         super.setUp();
         defaultSettings = ImmutableSettings.builder()
                 .put(RobinEngine.INDEX_COMPOUND_ON_FLUSH, getRandom().nextBoolean())
+                .put(RobinEngine.INDEX_CONCURRENT_FLUSH, getRandom().nextBoolean())
                 .build(); // TODO randomize more settings
         threadPool = new ThreadPool();
         store = createStore();
@@ -1016,6 +1017,34 @@ public class RobinEngineTests extends ElasticsearchTestCase {
         }
     }
 
+    @Test
+    public void testRetriedAutoGeneratedIdCreate() {
+        ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), Lucene.STANDARD_ANALYZER, B_1, false);
+        long timestamp = System.currentTimeMillis();
+        Engine.Create create = new Engine.Create(null, newUid("1"), doc).autoGeneratedIdTimestamp(timestamp);
+        engine.create(create);
+        assertThat(create.version(), equalTo(1l));
+
+        Engine.Create replicaCreate = new Engine.Create(null, newUid("1"), doc).version(create.version()).origin(REPLICA)
+                .autoGeneratedIdTimestamp(timestamp);
+        replicaEngine.create(replicaCreate);
+        assertThat(replicaCreate.version(), equalTo(1l));
+
+        // the retry finds the document from the first attempt instead of failing or adding it twice
+        create = new Engine.Create(null, newUid("1"), doc).autoGeneratedIdTimestamp(timestamp).canHaveDuplicates(true);
+        engine.create(create);
+        assertThat(create.version(), equalTo(1l));
+
+        replicaCreate = new Engine.Create(null, newUid("1"), doc).version(create.version()).origin(REPLICA)
+                .autoGeneratedIdTimestamp(timestamp).canHaveDuplicates(true);
+        replicaEngine.create(replicaCreate);
+
+        engine.refresh(new Engine.Refresh("test").force(false));
+        Engine.Searcher searchResult = engine.acquireSearcher("test");
+        MatcherAssert.assertThat(searchResult, EngineSearcherTotalHitsMatcher.engineSearcherTotalHits(1));
+        searchResult.release();
+    }
+
     @Test
     public void testVersioningCreateExistsExceptionWithFlush() {
         ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), Lucene.STANDARD_ANALYZER, B_1, false);
@@ -1150,6 +1179,48 @@ public class RobinEngineTests extends ElasticsearchTestCase {
         assertTrue(index.created());
     }
 
+    @Test
+    public void testConcurrentNewWriterFlush() throws Exception {
+        engineSettingsService.refreshSettings(ImmutableSettings.builder().put(RobinEngine.INDEX_CONCURRENT_FLUSH, true).build());
+        final int numThreads = 4;
+        final int numDocsPerThread = 200;
+        final CyclicBarrier barrier = new CyclicBarrier(numThreads + 1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            final int threadId = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        barrier.await();
+                        for (int i = 0; i < numDocsPerThread; i++) {
+                            String id = threadId + "_" + i;
+                            ParsedDocument doc = testParsedDocument(id, id, "test", null, -1, -1, testDocument(), Lucene.STANDARD_ANALYZER, B_1, false);
+                            engine.index(new Engine.Index(null, newUid(id), doc));
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        barrier.await();
+        for (int i = 0; i < 5; i++) {
+            engine.flush(new Engine.Flush().type(Engine.Flush.Type.NEW_WRITER).waitIfOngoing(true));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(failure.get(), nullValue());
+
+        engine.flush(new Engine.Flush().type(Engine.Flush.Type.NEW_WRITER).force(true));
+        Engine.Searcher searcher = engine.acquireSearcher("test");
+        MatcherAssert.assertThat(searcher, EngineSearcherTotalHitsMatcher.engineSearcherTotalHits(numThreads * numDocsPerThread));
+        searcher.release();
+    }
+
     protected Term newUid(String id) {
         return new Term("_uid", id);
     }
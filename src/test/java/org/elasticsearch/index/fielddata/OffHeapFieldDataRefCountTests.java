@@ -0,0 +1,107 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.StringField;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.test.TestSearchContext;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Tests that off heap field data is only released once the cache dropped it and the searches that acquired
+ * it are done.
+ */
+public class OffHeapFieldDataRefCountTests extends AbstractFieldDataTests {
+
+    @Override
+    protected FieldDataType getFieldDataType() {
+        return null;
+    }
+
+    private void indexDocs() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            Document d = new Document();
+            d.add(new StringField("str", "" + randomInt(20), Field.Store.NO));
+            d.add(new LongField("num", randomInt(20), Field.Store.NO));
+            writer.addDocument(d);
+        }
+        refreshReader();
+    }
+
+    private IndexFieldData<?> fieldData(String type, String field) {
+        return ifdService.getForField(new FieldMapper.Names(field), new FieldDataType(type, ImmutableSettings.builder().put("format", "off_heap")), false);
+    }
+
+    @Test
+    public void testReleasedWhenRemovedFromCache() throws Exception {
+        indexDocs();
+        for (IndexFieldData<?> indexFieldData : new IndexFieldData<?>[] {fieldData("string", "str"), fieldData("long", "num")}) {
+            AtomicFieldData fieldData = indexFieldData.load(readerContext);
+            assertThat(fieldData, instanceOf(AtomicFieldData.RefCounted.class));
+            indexFieldData.clear();
+            assertThat(((AtomicFieldData.RefCounted) fieldData).tryIncRef(), equalTo(false));
+        }
+    }
+
+    @Test
+    public void testReleasedWhenSearchIsDone() throws Exception {
+        indexDocs();
+        for (IndexFieldData<?> indexFieldData : new IndexFieldData<?>[] {fieldData("string", "str"), fieldData("long", "num")}) {
+            TestSearchContext searchContext = new TestSearchContext();
+            SearchContext.setCurrent(searchContext);
+            final AtomicFieldData fieldData;
+            try {
+                fieldData = indexFieldData.load(readerContext);
+                // loading it again during the same search doesn't acquire it twice
+                assertThat(indexFieldData.load(readerContext), sameInstance(fieldData));
+            } finally {
+                SearchContext.removeCurrent();
+            }
+            final AtomicFieldData.RefCounted refCounted = (AtomicFieldData.RefCounted) fieldData;
+
+            // the search still reads it after the cache dropped it
+            indexFieldData.clear();
+            assertThat(fieldData.getBytesValues(false).setDocument(0), equalTo(1));
+
+            searchContext.release();
+            assertThat(refCounted.tryIncRef(), equalTo(false));
+
+            // the next search loads it again
+            searchContext = new TestSearchContext();
+            SearchContext.setCurrent(searchContext);
+            try {
+                assertThat(indexFieldData.load(readerContext), instanceOf(AtomicFieldData.RefCounted.class));
+                assertThat(indexFieldData.load(readerContext) == fieldData, equalTo(false));
+            } finally {
+                SearchContext.removeCurrent();
+                searchContext.release();
+            }
+        }
+    }
+}
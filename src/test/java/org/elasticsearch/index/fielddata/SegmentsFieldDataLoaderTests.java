@@ -0,0 +1,100 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.*;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests for {@link SegmentsFieldDataLoader}
+ */
+public class SegmentsFieldDataLoaderTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testScheduledLoadsDoNotFanOut() throws Exception {
+        final RAMDirectory dir = new RAMDirectory();
+        final IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, new KeywordAnalyzer()).setMergePolicy(NoMergePolicy.COMPOUND_FILES));
+        final int numSegments = randomIntBetween(2, 10);
+        for (int i = 0; i < numSegments; i++) {
+            final Document doc = new Document();
+            doc.add(new StringField("field", "value" + i, Store.NO));
+            writer.addDocument(doc);
+            writer.commit();
+        }
+        writer.close();
+
+        // runs the scheduled loads on the calling thread, like a busy fielddata pool whose thread schedules its own loads
+        final AtomicInteger executed = new AtomicInteger();
+        final SegmentsFieldDataLoader loader = new SegmentsFieldDataLoader(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                executed.incrementAndGet();
+                command.run();
+            }
+        });
+        final Predicate<Object> isLoaded = Predicates.alwaysFalse();
+        // a field data whose loads miss the cache and fan out, like the field data caches do
+        final IndexFieldData<?> indexFieldData = (IndexFieldData<?>) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{IndexFieldData.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("load")) {
+                    loader.loadOtherSegments((AtomicReaderContext) args[0], (IndexFieldData<?>) proxy, isLoaded);
+                    return null;
+                } else if (method.getName().equals("getFieldNames")) {
+                    return new FieldMapper.Names("field");
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        final DirectoryReader reader = DirectoryReader.open(dir);
+        try {
+            final List<AtomicReaderContext> leaves = reader.leaves();
+            assertThat(leaves.size(), equalTo(numSegments));
+            indexFieldData.load(leaves.get(0));
+            assertThat(executed.get(), equalTo(numSegments - 1));
+
+            // the calling thread fans out again once the scheduled loads are done
+            indexFieldData.load(leaves.get(numSegments - 1));
+            assertThat(executed.get(), equalTo(2 * (numSegments - 1)));
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Runs the {@link MultiOrdinalsTests} against {@link DeltaPackedMultiOrdinals}
+ */
+public class DeltaPackedMultiOrdinalsTests extends MultiOrdinalsTests {
+
+    @Override
+    protected Ordinals creationMultiOrdinals(OrdinalsBuilder builder, ImmutableSettings.Builder settings) {
+        final float acceptableOverheadRatio = settings.build().getAsFloat("acceptable_overhead_ratio", PackedInts.COMPACT);
+        return new DeltaPackedMultiOrdinals(builder, acceptableOverheadRatio);
+    }
+
+    @Test
+    public void testBuildTrigger() throws IOException {
+        final int numDocs = 1000;
+        OrdinalsBuilder builder = new OrdinalsBuilder(numDocs);
+        // most documents have few values, a few documents have many values
+        for (int ord = 0; ord < 1000; ord++) {
+            builder.nextOrdinal();
+            for (int doc = ord % 10; doc < numDocs; doc += 10) {
+                builder.addDoc(doc);
+            }
+            if (ord % 10 != 0) {
+                builder.addDoc(0);
+            }
+        }
+
+        Ordinals ords = builder.build(ImmutableSettings.EMPTY);
+        assertThat(ords, instanceOf(MultiOrdinals.class));
+        final long multiOrdinalsSize = new MultiOrdinals(builder, PackedInts.COMPACT).getMemorySizeInBytes();
+
+        ords = builder.build(ImmutableSettings.builder().put("acceptable_overhead_ratio", PackedInts.COMPACT).build());
+        assertThat(ords, instanceOf(DeltaPackedMultiOrdinals.class));
+        assertThat(ords.getMemorySizeInBytes(), lessThan(multiOrdinalsSize));
+    }
+}
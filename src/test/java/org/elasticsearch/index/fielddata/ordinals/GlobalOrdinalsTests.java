@@ -0,0 +1,117 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.*;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.BytesValues;
+import org.elasticsearch.index.fielddata.FieldDataType;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class GlobalOrdinalsTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testGlobalOrdinals() throws Exception {
+        IndexWriter writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(Lucene.VERSION, new KeywordAnalyzer()).setMergePolicy(NoMergePolicy.NO_COMPOUND_FILES));
+        TreeSet<BytesRef> allTerms = new TreeSet<BytesRef>();
+        int numSegments = randomIntBetween(1, 10);
+        for (int i = 0; i < numSegments; i++) {
+            int numDocs = randomIntBetween(1, 50);
+            for (int j = 0; j < numDocs; j++) {
+                Document doc = new Document();
+                int numValues = randomIntBetween(0, 3);
+                for (int k = 0; k < numValues; k++) {
+                    String value = Integer.toString(randomIntBetween(0, 200));
+                    doc.add(new StringField("field", value, Field.Store.NO));
+                    allTerms.add(new BytesRef(value));
+                }
+                writer.addDocument(doc);
+            }
+            writer.commit();
+        }
+        DirectoryReader reader = DirectoryReader.open(writer, true);
+        IndexFieldDataService ifdService = new IndexFieldDataService(new Index("test"));
+        IndexFieldData.WithOrdinals<?> indexFieldData = ifdService.getForField(new FieldMapper.Names("field"), new FieldDataType("string"), false);
+
+        GlobalOrdinals globalOrdinals = ifdService.getGlobalOrdinals(indexFieldData, reader);
+        assertThat(globalOrdinals.getNumSegments(), equalTo(reader.leaves().size()));
+        assertThat(globalOrdinals.getNumOrds(), equalTo((long) allTerms.size()));
+        // cached for the same reader
+        assertThat(ifdService.getGlobalOrdinals(indexFieldData, reader), sameInstance(globalOrdinals));
+
+        List<BytesValues.WithOrdinals> segmentValues = new ArrayList<BytesValues.WithOrdinals>();
+        for (AtomicReaderContext leaf : reader.leaves()) {
+            segmentValues.add(indexFieldData.load(leaf).getBytesValues(false));
+        }
+
+        // global ordinals follow the term order
+        long globalOrd = Ordinals.MIN_ORDINAL;
+        for (BytesRef term : allTerms) {
+            BytesValues.WithOrdinals values = segmentValues.get(globalOrdinals.getFirstSegment(globalOrd));
+            assertThat(values.getValueByOrd(globalOrdinals.getFirstSegmentOrd(globalOrd)), equalTo(term));
+            globalOrd++;
+        }
+
+        // and every segment ordinal maps to the global ordinal of the same term
+        for (int segment = 0; segment < segmentValues.size(); segment++) {
+            BytesValues.WithOrdinals values = segmentValues.get(segment);
+            assertThat(globalOrdinals.getGlobalOrd(segment, Ordinals.MISSING_ORDINAL), equalTo(Ordinals.MISSING_ORDINAL));
+            long previous = Ordinals.MISSING_ORDINAL;
+            for (long ord = Ordinals.MIN_ORDINAL; ord < values.ordinals().getMaxOrd(); ord++) {
+                long global = globalOrdinals.getGlobalOrd(segment, ord);
+                assertThat(previous, lessThan(global));
+                BytesRef expected = BytesRef.deepCopyOf(values.getValueByOrd(ord));
+                BytesValues.WithOrdinals first = segmentValues.get(globalOrdinals.getFirstSegment(global));
+                assertThat(first.getValueByOrd(globalOrdinals.getFirstSegmentOrd(global)), equalTo(expected));
+                previous = global;
+            }
+        }
+
+        // another reader on the same segments gets its own, which outlive the first reader
+        DirectoryReader otherReader = DirectoryReader.open(writer, true);
+        GlobalOrdinals otherGlobalOrdinals = ifdService.getGlobalOrdinals(indexFieldData, otherReader);
+        assertThat(otherGlobalOrdinals == globalOrdinals, equalTo(false));
+        assertThat(otherGlobalOrdinals.getNumOrds(), equalTo(globalOrdinals.getNumOrds()));
+        reader.close();
+        assertThat(ifdService.getGlobalOrdinals(indexFieldData, otherReader), sameInstance(otherGlobalOrdinals));
+
+        otherReader.close();
+        writer.close();
+        ifdService.clear();
+    }
+}
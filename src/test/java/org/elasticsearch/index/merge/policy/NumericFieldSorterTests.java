@@ -0,0 +1,140 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.merge.policy;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.sorter.EarlyTerminatingSortingCollector;
+import org.apache.lucene.index.sorter.SortingMergePolicy;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+public class NumericFieldSorterTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testSortedOnMerge() throws Exception {
+        boolean reverse = randomBoolean();
+        NumericFieldSorter sorter = new NumericFieldSorter("ts", reverse);
+        Directory dir = new RAMDirectory();
+        IndexWriterConfig config = new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER);
+        config.setMergePolicy(new SortingMergePolicy(config.getMergePolicy(), sorter));
+        IndexWriter indexWriter = new IndexWriter(dir, config);
+
+        int numDocs = randomIntBetween(50, 500);
+        for (int i = 0; i < numDocs; i++) {
+            Document document = new Document();
+            document.add(new StringField("type", i % 3 == 0 ? "a" : "b", Field.Store.NO));
+            if (randomInt(10) != 0) {
+                document.add(new LongField("ts", randomIntBetween(0, 1000), Field.Store.NO));
+            }
+            indexWriter.addDocument(document);
+            if (i == numDocs / 2 || rarely()) {
+                indexWriter.commit();
+            }
+        }
+        indexWriter.forceMerge(1);
+
+        DirectoryReader reader = DirectoryReader.open(indexWriter, true);
+        assertThat(reader.leaves().size(), equalTo(1));
+        AtomicReader segmentReader = reader.leaves().get(0).reader();
+        assertThat(SortingMergePolicy.isSorted(segmentReader, sorter), equalTo(true));
+        // the merged segment is already in order
+        assertThat(sorter.sort(segmentReader), equalTo(null));
+
+        IndexSearcher searcher = new IndexSearcher(reader);
+        SortField sortField = new SortField("ts", FieldCache.NUMERIC_UTILS_LONG_PARSER, reverse);
+        // docs without a value go last, like in the sorted segment
+        sortField.setMissingValue(reverse ? Long.MIN_VALUE : Long.MAX_VALUE);
+        Sort sort = new Sort(sortField);
+        Query query = new TermQuery(new Term("type", "b"));
+        int size = randomIntBetween(1, 20);
+        TopFieldDocs expected = searcher.search(query, size, sort);
+
+        TopFieldCollector collector = TopFieldCollector.create(sort, size, true, false, false, false);
+        searcher.search(query, new EarlyTerminatingSortingCollector(collector, sorter, size));
+        TopDocs topDocs = collector.topDocs();
+        // the single sorted segment stops once size hits are collected
+        assertThat(topDocs.totalHits, equalTo(Math.min(size, expected.totalHits)));
+        assertThat(topDocs.scoreDocs.length, equalTo(expected.scoreDocs.length));
+        for (int i = 0; i < topDocs.scoreDocs.length; i++) {
+            assertThat(((FieldDoc) topDocs.scoreDocs[i]).fields[0], equalTo(((FieldDoc) expected.scoreDocs[i]).fields[0]));
+        }
+
+        reader.close();
+        indexWriter.close();
+        dir.close();
+    }
+
+    @Test
+    public void testValidate() throws Exception {
+        Settings settings = ImmutableSettings.builder().put(NumericFieldSorter.INDEX_MERGE_POLICY_SORT_FIELD, "obj.ts").build();
+        MappingMetaData longMapping = mapping("type1", "long");
+        MappingMetaData dateMapping = mapping("type2", "date");
+        MappingMetaData stringMapping = mapping("type3", "string");
+        MappingMetaData otherMapping = new MappingMetaData("type4", XContentHelper.convertToMap(jsonBuilder().startObject()
+                .startObject("type4").startObject("properties").startObject("other").field("type", "long").endObject().endObject().endObject()
+                .endObject().bytes(), true).v2());
+
+        NumericFieldSorter.validate(ImmutableSettings.EMPTY, Arrays.asList(stringMapping));
+        NumericFieldSorter.validate(settings, Arrays.asList(longMapping));
+        NumericFieldSorter.validate(settings, Arrays.asList(longMapping, dateMapping, otherMapping));
+        try {
+            NumericFieldSorter.validate(settings, Arrays.asList(longMapping, stringMapping));
+            fail("string fields can't be used to sort segments");
+        } catch (ElasticSearchIllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("is mapped as [string]"));
+        }
+        try {
+            NumericFieldSorter.validate(settings, Arrays.asList(otherMapping));
+            fail("the sort field must be mapped");
+        } catch (ElasticSearchIllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("is not mapped"));
+        }
+    }
+
+    private static MappingMetaData mapping(String type, String fieldType) throws Exception {
+        return new MappingMetaData(type, XContentHelper.convertToMap(jsonBuilder().startObject()
+                .startObject(type).startObject("properties")
+                .startObject("obj").startObject("properties").startObject("ts").field("type", fieldType).endObject().endObject().endObject()
+                .endObject().endObject()
+                .endObject().bytes(), true).v2());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.translog.fs;
+
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.translog.AbstractSimpleTranslogTests;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogStreams;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ *
+ */
+public class FsBufferedCompressedTranslogTests extends AbstractSimpleTranslogTests {
+
+    @Override
+    protected Translog create() {
+        return new FsTranslog(shardId,
+                ImmutableSettings.settingsBuilder().put("index.translog.fs.type", FsTranslogFile.Type.BUFFERED.name()).put("index.translog.fs.compress", true).build(),
+                new File("data/fs-compressed-translog"));
+    }
+
+    @AfterClass
+    public static void cleanup() {
+        FileSystemUtils.deleteRecursively(new File("data/fs-compressed-translog"), true);
+    }
+
+    @Test
+    public void testCompressedOperationRoundTrip() throws IOException {
+        byte[] source = new byte[randomIntBetween(1, 1024)];
+        BytesStreamOutput out = new BytesStreamOutput();
+        TranslogStreams.writeCompressedTranslogOperation(out, new Translog.Index("type", "1", source));
+        Translog.Index index = (Translog.Index) TranslogStreams.readTranslogOperation(new BytesStreamInput(out.bytes()));
+        assertThat(index.id(), equalTo("1"));
+        assertThat(index.source().toBytes(), equalTo(source));
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptedBlockIsDetected() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        TranslogStreams.writeCompressedTranslogOperation(out, new Translog.Index("type", "1", new byte[]{1, 2, 3}));
+        byte[] bytes = out.bytes().toBytes();
+        bytes[bytes.length - 1]++;
+        TranslogStreams.readTranslogOperation(new BytesStreamInput(bytes, false));
+    }
+
+    @Test
+    public void testCorruptedBlockLengthIsDetected() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        TranslogStreams.writeCompressedTranslogOperation(out, new Translog.Index("type", "1", new byte[]{1, 2, 3}));
+        byte[] bytes = out.bytes().toBytes();
+        BytesStreamOutput corrupted = new BytesStreamOutput();
+        corrupted.writeBytes(bytes, 0, 5); // the block marker and the checksum
+        corrupted.writeVInt(Integer.MAX_VALUE);
+        corrupted.writeBytes(bytes, 6, bytes.length - 6);
+        byte[] corruptedBytes = corrupted.bytes().toBytes();
+
+        try {
+            TranslogStreams.readTranslogOperation(new BytesStreamInput(corruptedBytes, false), corruptedBytes.length);
+            fail("the block length is larger than the operation");
+        } catch (IOException e) {
+            assertThat(e.getMessage(), containsString("out of bounds"));
+        }
+        // without the operation size the read fails on the missing bytes, not on allocating them
+        try {
+            TranslogStreams.readTranslogOperation(new BytesStreamInput(corruptedBytes, false));
+            fail("the block is truncated");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+}
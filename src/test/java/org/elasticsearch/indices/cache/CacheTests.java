@@ -23,9 +23,13 @@ import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsResponse;
 import org.elasticsearch.action.admin.indices.stats.CommonStatsFlags;
 import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.indices.cache.query.IndicesQueryCache;
+import org.elasticsearch.search.facet.FacetBuilders;
+import org.elasticsearch.search.facet.terms.TermsFacet;
 import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.test.AbstractIntegrationTest;
 import org.elasticsearch.test.AbstractIntegrationTest.ClusterScope;
@@ -72,6 +76,69 @@ public class CacheTests extends AbstractIntegrationTest {
         assertThat(indicesStats.getTotal().getFilterCache().getMemorySizeInBytes(), equalTo(0l));
     }
 
+    @Test
+    public void testQueryCacheStats() {
+        client().admin().indices().prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder()
+                .put("index.number_of_shards", 1).put(IndicesQueryCache.INDEX_CACHE_QUERY_ENABLE, true)).execute().actionGet();
+        client().prepareIndex("test", "type", "1").setSource("field", "value1").execute().actionGet();
+        client().prepareIndex("test", "type", "2").setSource("field", "value2").execute().actionGet();
+        client().admin().indices().prepareRefresh().execute().actionGet();
+
+        IndicesStatsResponse indicesStats = client().admin().indices().prepareStats("test").clear().setQueryCache(true).execute().actionGet();
+        assertThat(indicesStats.getTotal().getQueryCache().getMemorySizeInBytes(), equalTo(0l));
+
+        for (int i = 0; i < 3; i++) {
+            SearchResponse searchResponse = client().prepareSearch("test").setSearchType(SearchType.COUNT)
+                    .addFacet(FacetBuilders.termsFacet("terms").field("field")).execute().actionGet();
+            assertThat(searchResponse.getHits().getTotalHits(), equalTo(2l));
+            TermsFacet facet = searchResponse.getFacets().facet("terms");
+            assertThat(facet.getEntries().size(), equalTo(2));
+        }
+        indicesStats = client().admin().indices().prepareStats("test").clear().setQueryCache(true).execute().actionGet();
+        assertThat(indicesStats.getTotal().getQueryCache().getMissCount(), equalTo(1l));
+        assertThat(indicesStats.getTotal().getQueryCache().getHitCount(), equalTo(2l));
+        assertThat(indicesStats.getTotal().getQueryCache().getMemorySizeInBytes(), greaterThan(0l));
+
+        // a new reader is not served from the cache
+        client().prepareIndex("test", "type", "3").setSource("field", "value3").execute().actionGet();
+        client().admin().indices().prepareRefresh().execute().actionGet();
+        SearchResponse searchResponse = client().prepareSearch("test").setSearchType(SearchType.COUNT)
+                .addFacet(FacetBuilders.termsFacet("terms").field("field")).execute().actionGet();
+        assertThat(searchResponse.getHits().getTotalHits(), equalTo(3l));
+        indicesStats = client().admin().indices().prepareStats("test").clear().setQueryCache(true).execute().actionGet();
+        assertThat(indicesStats.getTotal().getQueryCache().getMissCount(), equalTo(2l));
+    }
+
+    @Test
+    public void testQueryCacheSkipsNow() {
+        client().admin().indices().prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder()
+                .put("index.number_of_shards", 1).put(IndicesQueryCache.INDEX_CACHE_QUERY_ENABLE, true))
+                .addMapping("type", "date", "type=date").execute().actionGet();
+        client().prepareIndex("test", "type", "1").setSource("date", "2013-01-01").execute().actionGet();
+        client().prepareIndex("test", "type", "2").setSource("date", "2013-06-01").execute().actionGet();
+        client().admin().indices().prepareRefresh().execute().actionGet();
+
+        // depends on when it runs, never cached
+        for (int i = 0; i < 2; i++) {
+            SearchResponse searchResponse = client().prepareSearch("test").setSearchType(SearchType.COUNT)
+                    .setQuery(filteredQuery(matchAllQuery(), FilterBuilders.rangeFilter("date").lte("now"))).execute().actionGet();
+            assertThat(searchResponse.getHits().getTotalHits(), equalTo(2l));
+        }
+        IndicesStatsResponse indicesStats = client().admin().indices().prepareStats("test").clear().setQueryCache(true).execute().actionGet();
+        assertThat(indicesStats.getTotal().getQueryCache().getHitCount(), equalTo(0l));
+        assertThat(indicesStats.getTotal().getQueryCache().getMemorySizeInBytes(), equalTo(0l));
+
+        // absolute dates are
+        for (int i = 0; i < 2; i++) {
+            SearchResponse searchResponse = client().prepareSearch("test").setSearchType(SearchType.COUNT)
+                    .setQuery(filteredQuery(matchAllQuery(), FilterBuilders.rangeFilter("date").lte("2013-03-01"))).execute().actionGet();
+            assertThat(searchResponse.getHits().getTotalHits(), equalTo(1l));
+        }
+        indicesStats = client().admin().indices().prepareStats("test").clear().setQueryCache(true).execute().actionGet();
+        assertThat(indicesStats.getTotal().getQueryCache().getHitCount(), equalTo(1l));
+        assertThat(indicesStats.getTotal().getQueryCache().getMemorySizeInBytes(), greaterThan(0l));
+    }
+
     @Test
     public void testFieldDataStats() {
                 client().admin().indices().prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1)).execute().actionGet();
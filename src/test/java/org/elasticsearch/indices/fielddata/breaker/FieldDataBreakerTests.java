@@ -0,0 +1,100 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.fielddata.breaker;
+
+import com.google.common.base.Predicate;
+import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsResponse;
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.AbstractIntegrationTest;
+import org.junit.Test;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.test.AbstractIntegrationTest.ClusterScope;
+import static org.elasticsearch.test.AbstractIntegrationTest.Scope;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+/**
+ * Tests that a search whose field data trips the circuit breaker fails cleanly and gives back what it reserved.
+ */
+@ClusterScope(scope = Scope.SUITE, numNodes = 1)
+public class FieldDataBreakerTests extends AbstractIntegrationTest {
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return ImmutableSettings.builder()
+                .put(super.nodeSettings(nodeOrdinal))
+                .put(CircuitBreakerService.FIELDDATA_BREAKER_LIMIT, "100b")
+                .build();
+    }
+
+    private long breakerUsed() {
+        NodesStatsResponse stats = client().admin().cluster().prepareNodesStats().clear().setBreaker(true).execute().actionGet();
+        long used = 0;
+        for (int i = 0; i < stats.getNodes().length; i++) {
+            used += stats.getNodes()[i].getBreaker().getEstimatedSizeInBytes();
+        }
+        return used;
+    }
+
+    @Test
+    public void testBreakerReleasedWhenLoadingFails() throws Exception {
+        assertAcked(prepareCreate("test").addMapping("type", jsonBuilder().startObject().startObject("type").startObject("properties")
+                .startObject("paged").field("type", "string").field("index", "not_analyzed").endObject()
+                .startObject("off_heap").field("type", "string").field("index", "not_analyzed")
+                .startObject("fielddata").field("format", "off_heap").endObject().endObject()
+                .endObject().endObject().endObject()));
+        ensureGreen();
+        IndexRequestBuilder[] builders = new IndexRequestBuilder[randomIntBetween(100, 500)];
+        for (int i = 0; i < builders.length; i++) {
+            String value = "value_" + randomInt(1000);
+            builders[i] = client().prepareIndex("test", "type", Integer.toString(i)).setSource("paged", value, "off_heap", value);
+        }
+        indexRandom(true, builders);
+
+        for (String field : new String[] {"paged", "off_heap"}) {
+            try {
+                client().prepareSearch("test").setQuery(matchAllQuery()).addSort(field, SortOrder.ASC).execute().actionGet();
+                fail("loading the field data of [" + field + "] should have tripped the breaker");
+            } catch (SearchPhaseExecutionException e) {
+                assertThat(e.shardFailures().length, greaterThan(0));
+                for (ShardSearchFailure failure : e.shardFailures()) {
+                    assertThat(failure.reason(), containsString("Data too large"));
+                }
+            }
+            // segments might still be loading in the background
+            assertTrue(awaitBusy(new Predicate<Object>() {
+                @Override
+                public boolean apply(Object input) {
+                    return breakerUsed() == 0;
+                }
+            }));
+            assertThat(breakerUsed(), equalTo(0L));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.fielddata.breaker;
+
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+/**
+ * Tests for {@link MemoryCircuitBreaker}
+ */
+public class MemoryCircuitBreakerTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testBreaks() {
+        MemoryCircuitBreaker breaker = new MemoryCircuitBreaker(new ByteSizeValue(100), 1.0, Loggers.getLogger(MemoryCircuitBreakerTests.class));
+        assertThat(breaker.addEstimateBytesAndMaybeBreak(60), equalTo(60l));
+        assertThat(breaker.addEstimateBytesAndMaybeBreak(40), equalTo(100l));
+        try {
+            breaker.addEstimateBytesAndMaybeBreak(1);
+            fail("expected the breaker to trip");
+        } catch (CircuitBreakingException e) {
+            // expected
+        }
+        assertThat(breaker.getUsed(), equalTo(100l));
+        assertThat(breaker.getTrippedCount(), equalTo(1l));
+
+        // releasing memory is always possible, and makes room for new reservations
+        assertThat(breaker.addWithoutBreaking(-50), equalTo(50l));
+        assertThat(breaker.addEstimateBytesAndMaybeBreak(50), equalTo(100l));
+    }
+
+    @Test
+    public void testOverheadAndLimitUpdates() {
+        MemoryCircuitBreaker breaker = new MemoryCircuitBreaker(new ByteSizeValue(100), 2.0, Loggers.getLogger(MemoryCircuitBreakerTests.class));
+        breaker.addEstimateBytesAndMaybeBreak(50);
+        try {
+            breaker.addEstimateBytesAndMaybeBreak(1);
+            fail("expected the breaker to trip because of the overhead");
+        } catch (CircuitBreakingException e) {
+            // expected
+        }
+        breaker.setOverhead(1.0);
+        breaker.addEstimateBytesAndMaybeBreak(1);
+        breaker.setLimit(new ByteSizeValue(-1));
+        assertThat(breaker.addEstimateBytesAndMaybeBreak(1000), equalTo(1051l));
+        assertThat(breaker.getTrippedCount(), equalTo(1l));
+    }
+
+    @Test
+    public void testConcurrentReservations() throws Exception {
+        final int limit = randomIntBetween(100, 10000);
+        final MemoryCircuitBreaker breaker = new MemoryCircuitBreaker(new ByteSizeValue(limit), 1.0, Loggers.getLogger(MemoryCircuitBreakerTests.class));
+        final AtomicInteger reserved = new AtomicInteger();
+        final AtomicInteger tripped = new AtomicInteger();
+        final int numThreads = randomIntBetween(2, 8);
+        final CountDownLatch latch = new CountDownLatch(numThreads);
+        Thread[] threads = new Thread[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < limit; j++) {
+                            try {
+                                breaker.addEstimateBytesAndMaybeBreak(1);
+                                reserved.incrementAndGet();
+                            } catch (CircuitBreakingException e) {
+                                tripped.incrementAndGet();
+                            }
+                        }
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        latch.await();
+        assertThat(breaker.getUsed(), lessThanOrEqualTo((long) limit));
+        assertThat(breaker.getUsed(), equalTo((long) reserved.get()));
+        assertThat(reserved.get(), equalTo(limit));
+        assertThat(breaker.getTrippedCount(), equalTo((long) tripped.get()));
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.fielddata.cache;
+
+import com.google.common.base.Predicate;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.*;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.FieldDataType;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+/**
+ * Tests for {@link IndicesFieldDataCache}
+ */
+public class IndicesFieldDataCacheTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testLoadSegmentsInParallel() throws Exception {
+        final RAMDirectory dir = new RAMDirectory();
+        final IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, new KeywordAnalyzer()).setMergePolicy(NoMergePolicy.COMPOUND_FILES));
+        final int numSegments = randomIntBetween(2, 10);
+        for (int i = 0; i < numSegments; i++) {
+            for (int j = 0; j < 10; j++) {
+                final Document doc = new Document();
+                doc.add(new StringField("field", "value" + randomInt(20), Store.NO));
+                writer.addDocument(doc);
+            }
+            writer.commit();
+        }
+        writer.close();
+
+        final ThreadPool threadPool = new ThreadPool();
+        final CircuitBreakerService breakerService = new CircuitBreakerService(ImmutableSettings.EMPTY);
+        final IndicesFieldDataCache indicesCache = new IndicesFieldDataCache(ImmutableSettings.EMPTY, breakerService, threadPool);
+        final IndexFieldDataService ifdService = new IndexFieldDataService(new Index("test"), ImmutableSettings.EMPTY, indicesCache, breakerService, threadPool);
+        final DirectoryReader reader = DirectoryReader.open(dir);
+        try {
+            final List<AtomicReaderContext> leaves = reader.leaves();
+            assertThat(leaves.size(), equalTo(numSegments));
+            final IndexFieldData<?> ifd = ifdService.getForField(new FieldMapper.Names("field"), new FieldDataType("string"), false);
+
+            // loading the first segment loads the other ones in the background
+            assertThat(ifd.load(leaves.get(0)).getNumDocs(), equalTo(10));
+            assertTrue(awaitBusy(new Predicate<Object>() {
+                @Override
+                public boolean apply(Object input) {
+                    return indicesCache.cache.size() == numSegments;
+                }
+            }));
+            for (AtomicReaderContext leaf : leaves) {
+                assertThat(ifd.load(leaf).getNumDocs(), equalTo(10));
+            }
+            assertThat(indicesCache.cache.size(), equalTo((long) numSegments));
+            assertThat(breakerService.getBreaker().getUsed(), greaterThan(0L));
+        } finally {
+            reader.close();
+            ifdService.clear();
+            threadPool.shutdownNow();
+            threadPool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        assertThat(indicesCache.cache.size(), equalTo(0L));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.flush;
+
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.settings.NodeSettingsService;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class IndicesFlushSchedulerTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testMaxConcurrentFlushes() throws Exception {
+        int maxConcurrent = randomIntBetween(1, 3);
+        Settings settings = ImmutableSettings.settingsBuilder().put(IndicesFlushScheduler.INDICES_FLUSH_MAX_CONCURRENT, maxConcurrent).build();
+        ThreadPool threadPool = new ThreadPool();
+        try {
+            IndicesFlushScheduler scheduler = new IndicesFlushScheduler(settings, threadPool, new NodeSettingsService(settings));
+            int numberOfFlushes = randomIntBetween(10, 50);
+            final CountDownLatch latch = new CountDownLatch(numberOfFlushes);
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maxRunning = new AtomicInteger();
+            for (int i = 0; i < numberOfFlushes; i++) {
+                scheduler.flush(new ShardId(new Index("test"), i), randomIntBetween(0, 1000), new Runnable() {
+                    @Override
+                    public void run() {
+                        int current = running.incrementAndGet();
+                        while (true) {
+                            int max = maxRunning.get();
+                            if (current <= max || maxRunning.compareAndSet(max, current)) {
+                                break;
+                            }
+                        }
+                        try {
+                            Thread.sleep(1);
+                        } catch (InterruptedException e) {
+                            // ignore
+                        }
+                        running.decrementAndGet();
+                        latch.countDown();
+                    }
+                });
+            }
+            assertThat(latch.await(30, TimeUnit.SECONDS), equalTo(true));
+            assertThat(maxRunning.get(), lessThanOrEqualTo(maxConcurrent));
+            assertThat(scheduler.pendingFlushes(), equalTo(0));
+            scheduler.close();
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLargestTranslogFlushedFirst() throws Exception {
+        Settings settings = ImmutableSettings.settingsBuilder().put(IndicesFlushScheduler.INDICES_FLUSH_MAX_CONCURRENT, 1).build();
+        ThreadPool threadPool = new ThreadPool();
+        try {
+            IndicesFlushScheduler scheduler = new IndicesFlushScheduler(settings, threadPool, new NodeSettingsService(settings));
+            final CountDownLatch blocker = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(3);
+            final StringBuffer order = new StringBuffer();
+            // occupies the only slot while the others are queued
+            scheduler.flush(new ShardId(new Index("test"), 0), 0, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        blocker.await();
+                    } catch (InterruptedException e) {
+                        // ignore
+                    }
+                    done.countDown();
+                }
+            });
+            scheduler.flush(new ShardId(new Index("test"), 1), 10, recorder(order, "small", done));
+            scheduler.flush(new ShardId(new Index("test"), 2), 1000, recorder(order, "large", done));
+            assertThat(scheduler.pendingFlushes(), equalTo(2));
+            blocker.countDown();
+            assertThat(done.await(30, TimeUnit.SECONDS), equalTo(true));
+            assertThat(order.toString(), equalTo("large,small,"));
+            scheduler.close();
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    private static Runnable recorder(final StringBuffer order, final String name, final CountDownLatch done) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                order.append(name).append(',');
+                done.countDown();
+            }
+        };
+    }
+}
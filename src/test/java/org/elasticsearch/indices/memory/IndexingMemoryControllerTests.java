@@ -0,0 +1,108 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.memory;
+
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Tests for the adaptive split of the indexing buffer of {@link IndexingMemoryController}.
+ */
+public class IndexingMemoryControllerTests extends ElasticsearchTestCase {
+
+    private static final long MIN = ByteSizeUnit.MB.toBytes(4);
+    private static final long MAX = ByteSizeUnit.MB.toBytes(512);
+
+    @Test
+    public void testSmoothedIndexingRate() {
+        assertThat(IndexingMemoryController.smoothedIndexingRate(0, 0), equalTo(0d));
+        assertThat(IndexingMemoryController.smoothedIndexingRate(0, 100), equalTo(100d));
+        assertThat(IndexingMemoryController.smoothedIndexingRate(100, 300), equalTo(200d));
+        // an idle shard gives its buffer back right away
+        assertThat(IndexingMemoryController.smoothedIndexingRate(200, 0), equalTo(0d));
+    }
+
+    @Test
+    public void testSkewedIndexingRates() {
+        final int numShards = randomIntBetween(2, 10);
+        final long indexingBuffer = ByteSizeUnit.MB.toBytes(randomIntBetween(256, 2048));
+        final double[] rates = new double[numShards];
+        final int hotShard = randomInt(numShards - 1);
+        final int idleShard = (hotShard + 1 + randomInt(numShards - 2)) % numShards;
+        final int intervals = randomIntBetween(1, 10);
+        for (int interval = 0; interval < intervals; interval++) {
+            for (int shard = 0; shard < numShards; shard++) {
+                final long delta;
+                if (shard == hotShard) {
+                    delta = randomIntBetween(10000, 20000);
+                } else if (shard == idleShard) {
+                    delta = interval == intervals - 1 ? 0 : randomIntBetween(0, 100);
+                } else {
+                    delta = randomIntBetween(1, 100);
+                }
+                rates[shard] = IndexingMemoryController.smoothedIndexingRate(rates[shard], delta);
+            }
+        }
+        double totalRate = 0;
+        for (double rate : rates) {
+            totalRate += rate;
+        }
+
+        long total = 0;
+        final long[] sizes = new long[numShards];
+        for (int shard = 0; shard < numShards; shard++) {
+            sizes[shard] = IndexingMemoryController.adaptiveShardIndexBufferSize(indexingBuffer, numShards, MIN, MAX, rates[shard], totalRate);
+            assertThat(sizes[shard], greaterThanOrEqualTo(MIN));
+            assertThat(sizes[shard], lessThanOrEqualTo(MAX));
+            total += sizes[shard];
+        }
+        assertThat(total, lessThanOrEqualTo(Math.max(indexingBuffer, numShards * MIN)));
+        // the idle shard is back to the minimum, and the hot shard gets the most
+        assertThat(sizes[idleShard], equalTo(MIN));
+        for (int shard = 0; shard < numShards; shard++) {
+            if (shard != hotShard) {
+                assertThat(sizes[shard], lessThan(sizes[hotShard]));
+            }
+            for (int other = 0; other < numShards; other++) {
+                if (rates[shard] < rates[other]) {
+                    assertThat(sizes[shard], lessThanOrEqualTo(sizes[other]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCappedAtMaxShardSize() {
+        final long indexingBuffer = ByteSizeUnit.GB.toBytes(4);
+        assertThat(IndexingMemoryController.adaptiveShardIndexBufferSize(indexingBuffer, 2, MIN, MAX, 1000, 1000), equalTo(MAX));
+        assertThat(IndexingMemoryController.adaptiveShardIndexBufferSize(indexingBuffer, 2, MIN, MAX, 0, 1000), equalTo(MIN));
+    }
+
+    @Test
+    public void testBufferSmallerThanMinimums() {
+        // every active shard keeps the minimum even if it doesn't fit the indexing buffer
+        final long indexingBuffer = 3 * MIN;
+        assertThat(IndexingMemoryController.adaptiveShardIndexBufferSize(indexingBuffer, 5, MIN, MAX, 1000, 1000), equalTo(MIN));
+        assertThat(IndexingMemoryController.adaptiveShardIndexBufferSize(indexingBuffer, 5, MIN, MAX, 0, 0), equalTo(MIN));
+    }
+}
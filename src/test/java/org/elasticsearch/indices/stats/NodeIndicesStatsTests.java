@@ -0,0 +1,73 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.stats;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.action.admin.indices.stats.CommonStats;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.NodeIndicesStats;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Serialization tests for {@link NodeIndicesStats}.
+ */
+public class NodeIndicesStatsTests extends ElasticsearchTestCase {
+
+    private static NodeIndicesStats roundTrip(NodeIndicesStats stats, Version version) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.setVersion(version);
+        stats.writeTo(out);
+        StreamInput in = new BytesStreamInput(out.bytes());
+        in.setVersion(version);
+        return NodeIndicesStats.readIndicesStats(in);
+    }
+
+    @Test
+    public void testShardIndexBuffersRoundTrip() throws IOException {
+        Map<ShardId, ByteSizeValue> shardIndexBuffers = new HashMap<ShardId, ByteSizeValue>();
+        int numShards = randomIntBetween(0, 10);
+        for (int i = 0; i < numShards; i++) {
+            shardIndexBuffers.put(new ShardId("index" + randomInt(3), i), new ByteSizeValue(randomIntBetween(0, Integer.MAX_VALUE)));
+        }
+
+        NodeIndicesStats read = roundTrip(new NodeIndicesStats(new CommonStats(), shardIndexBuffers), Version.CURRENT);
+        assertThat(read.getShardIndexBuffers().size(), equalTo(numShards));
+        for (Map.Entry<ShardId, ByteSizeValue> entry : shardIndexBuffers.entrySet()) {
+            assertThat(read.getShardIndexBuffers().get(entry.getKey()).bytes(), equalTo(entry.getValue().bytes()));
+        }
+
+        // not requested
+        assertThat(roundTrip(new NodeIndicesStats(new CommonStats()), Version.CURRENT).getShardIndexBuffers(), nullValue());
+        // not sent to older nodes
+        assertThat(roundTrip(new NodeIndicesStats(new CommonStats(), shardIndexBuffers), Version.V_0_90_6).getShardIndexBuffers(), nullValue());
+    }
+}
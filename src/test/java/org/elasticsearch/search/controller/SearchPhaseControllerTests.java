@@ -0,0 +1,92 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.elasticsearch.search.controller;
+
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class SearchPhaseControllerTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testSortDocsMergesShardResults() {
+        SearchPhaseController controller = new SearchPhaseController(ImmutableSettings.settingsBuilder()
+                .put("search.controller.optimize_single_shard", randomBoolean()).build(), null);
+        int numShards = randomIntBetween(1, 20);
+        int from = randomIntBetween(0, 50);
+        int size = randomIntBetween(1, 20);
+
+        AtomicArray<QuerySearchResult> results = new AtomicArray<QuerySearchResult>(numShards);
+        List<ScoreDoc> all = new ArrayList<ScoreDoc>();
+        for (int shard = 0; shard < numShards; shard++) {
+            ScoreDoc[] docs = new ScoreDoc[randomIntBetween(0, from + size)];
+            for (int i = 0; i < docs.length; i++) {
+                // few distinct scores to exercise the tie breaking
+                docs[i] = new ScoreDoc(i, randomIntBetween(0, 5));
+            }
+            Arrays.sort(docs, new Comparator<ScoreDoc>() {
+                @Override
+                public int compare(ScoreDoc o1, ScoreDoc o2) {
+                    int c = Float.compare(o2.score, o1.score);
+                    return c != 0 ? c : o1.doc - o2.doc;
+                }
+            });
+            for (ScoreDoc doc : docs) {
+                all.add(new ScoreDoc(doc.doc, doc.score, shard));
+            }
+            QuerySearchResult result = new QuerySearchResult(shard, new SearchShardTarget("node", "test", shard));
+            result.topDocs(new TopDocs(docs.length, docs, docs.length == 0 ? Float.NaN : docs[0].score));
+            result.from(from).size(size);
+            results.set(shard, result);
+        }
+
+        Collections.sort(all, new Comparator<ScoreDoc>() {
+            @Override
+            public int compare(ScoreDoc o1, ScoreDoc o2) {
+                int c = Float.compare(o2.score, o1.score);
+                if (c == 0) {
+                    c = o1.shardIndex - o2.shardIndex;
+                }
+                return c != 0 ? c : o1.doc - o2.doc;
+            }
+        });
+        List<ScoreDoc> expected = all.subList(Math.min(from, all.size()), Math.min(from + size, all.size()));
+
+        ScoreDoc[] sortedDocs = controller.sortDocs(results);
+        assertThat(sortedDocs.length, equalTo(expected.size()));
+        for (int i = 0; i < sortedDocs.length; i++) {
+            assertThat(sortedDocs[i].shardIndex, equalTo(expected.get(i).shardIndex));
+            assertThat(sortedDocs[i].doc, equalTo(expected.get(i).doc));
+            assertThat(sortedDocs[i].score, equalTo(expected.get(i).score));
+        }
+    }
+}
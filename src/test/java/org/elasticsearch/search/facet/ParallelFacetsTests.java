@@ -0,0 +1,176 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.facet;
+
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.merge.policy.MergePolicyModule;
+import org.elasticsearch.index.merge.policy.TieredMergePolicyProvider;
+import org.elasticsearch.index.query.FilterBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.facet.datehistogram.DateHistogramFacet;
+import org.elasticsearch.search.facet.filter.FilterFacet;
+import org.elasticsearch.search.facet.statistical.StatisticalFacet;
+import org.elasticsearch.search.facet.terms.TermsFacet;
+import org.elasticsearch.test.AbstractIntegrationTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.FilterBuilders.rangeFilter;
+import static org.elasticsearch.index.query.FilterBuilders.termFilter;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
+import static org.elasticsearch.search.facet.FacetBuilders.*;
+import static org.elasticsearch.test.AbstractIntegrationTest.ClusterScope;
+import static org.elasticsearch.test.AbstractIntegrationTest.Scope;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Compares the facets that support parallel collection when collected on slices of the segments in parallel with the
+ * same facets collected sequentially. Searches with a timeout are always collected sequentially.
+ */
+@ClusterScope(scope = Scope.SUITE, numNodes = 1)
+public class ParallelFacetsTests extends AbstractIntegrationTest {
+
+    private static final String[] TAGS = new String[]{"red", "green", "blue", "yellow", "black", "white", "purple"};
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return ImmutableSettings.builder()
+                .put(super.nodeSettings(nodeOrdinal))
+                .put("search.facet.parallel_slices", randomIntBetween(2, 4))
+                .build();
+    }
+
+    @Before
+    public void indexData() throws Exception {
+        client().admin().indices().prepareCreate("idx")
+                .setSettings(ImmutableSettings.builder()
+                        .put("index.number_of_shards", 1)
+                        .put("index.number_of_replicas", 0)
+                        .put("index.refresh_interval", -1)
+                        // keep the segments apart, facets are only collected in parallel with more than one
+                        .put(MergePolicyModule.MERGE_POLICY_TYPE_KEY, TieredMergePolicyProvider.class.getName())
+                        .put("index.merge.policy.segments_per_tier", 100))
+                .addMapping("type", "tag", "type=string,index=not_analyzed", "num", "type=long", "date", "type=date")
+                .execute().actionGet();
+        ensureGreen();
+
+        final int numSegments = randomIntBetween(4, 12);
+        int id = 0;
+        for (int i = 0; i < numSegments; i++) {
+            final int numDocs = randomIntBetween(1, 50);
+            BulkRequestBuilder bulk = client().prepareBulk();
+            for (int j = 0; j < numDocs; j++) {
+                bulk.add(client().prepareIndex("idx", "type", Integer.toString(id++)).setSource(jsonBuilder()
+                        .startObject()
+                        .field("tag", TAGS[randomInt(TAGS.length - 1)], TAGS[randomInt(TAGS.length - 1)])
+                        .field("num", randomIntBetween(-1000, 1000))
+                        .field("date", randomIntBetween(0, 30) * 24L * 60 * 60 * 1000)
+                        .endObject()));
+            }
+            assertThat(bulk.execute().actionGet().hasFailures(), equalTo(false));
+            // one segment per bulk
+            refresh();
+        }
+    }
+
+    @Test
+    public void testCountDateHistogram() throws Exception {
+        for (boolean global : new boolean[]{false, true}) {
+            SearchResponse[] responses = searchBoth(dateHistogramFacet("facet").field("date").interval("day").global(global));
+            DateHistogramFacet parallel = responses[0].getFacets().facet("facet");
+            DateHistogramFacet sequential = responses[1].getFacets().facet("facet");
+            assertThat(parallel.getEntries().size(), equalTo(sequential.getEntries().size()));
+            for (int i = 0; i < sequential.getEntries().size(); i++) {
+                assertThat(parallel.getEntries().get(i).getTime(), equalTo(sequential.getEntries().get(i).getTime()));
+                assertThat(parallel.getEntries().get(i).getCount(), equalTo(sequential.getEntries().get(i).getCount()));
+            }
+        }
+    }
+
+    @Test
+    public void testFilter() throws Exception {
+        for (boolean global : new boolean[]{false, true}) {
+            SearchResponse[] responses = searchBoth(filterFacet("facet", termFilter("tag", "red")).mode(FacetBuilder.Mode.COLLECTOR).global(global));
+            FilterFacet parallel = responses[0].getFacets().facet("facet");
+            FilterFacet sequential = responses[1].getFacets().facet("facet");
+            assertThat(parallel.getCount(), equalTo(sequential.getCount()));
+        }
+    }
+
+    @Test
+    public void testStatistical() throws Exception {
+        for (boolean global : new boolean[]{false, true}) {
+            SearchResponse[] responses = searchBoth(statisticalFacet("facet").field("num").global(global));
+            StatisticalFacet parallel = responses[0].getFacets().facet("facet");
+            StatisticalFacet sequential = responses[1].getFacets().facet("facet");
+            assertThat(parallel.getCount(), equalTo(sequential.getCount()));
+            assertThat(parallel.getMin(), equalTo(sequential.getMin()));
+            assertThat(parallel.getMax(), equalTo(sequential.getMax()));
+            // integer values, sums are exact whatever the order
+            assertThat(parallel.getTotal(), equalTo(sequential.getTotal()));
+            assertThat(parallel.getSumOfSquares(), equalTo(sequential.getSumOfSquares()));
+        }
+    }
+
+    @Test
+    public void testGlobalOrdinalsTerms() throws Exception {
+        for (boolean global : new boolean[]{false, true}) {
+            SearchResponse[] responses = searchBoth(termsFacet("facet").field("tag").size(TAGS.length).executionHint("global_ordinals").global(global));
+            assertTermsEqual((TermsFacet) responses[0].getFacets().facet("facet"), (TermsFacet) responses[1].getFacets().facet("facet"));
+        }
+    }
+
+    @Test
+    public void testFacetFilter() throws Exception {
+        FilterBuilder facetFilter = rangeFilter("num").gte(0);
+        SearchResponse[] responses = searchBoth(termsFacet("facet").field("tag").size(TAGS.length).executionHint("global_ordinals").facetFilter(facetFilter));
+        assertTermsEqual((TermsFacet) responses[0].getFacets().facet("facet"), (TermsFacet) responses[1].getFacets().facet("facet"));
+    }
+
+    private void assertTermsEqual(TermsFacet parallel, TermsFacet sequential) {
+        assertThat(parallel.getTotalCount(), equalTo(sequential.getTotalCount()));
+        assertThat(parallel.getOtherCount(), equalTo(sequential.getOtherCount()));
+        assertThat(parallel.getMissingCount(), equalTo(sequential.getMissingCount()));
+        assertThat(parallel.getEntries().size(), equalTo(sequential.getEntries().size()));
+        for (int i = 0; i < sequential.getEntries().size(); i++) {
+            assertThat(parallel.getEntries().get(i).getTerm(), equalTo(sequential.getEntries().get(i).getTerm()));
+            assertThat(parallel.getEntries().get(i).getCount(), equalTo(sequential.getEntries().get(i).getCount()));
+        }
+    }
+
+    /**
+     * Runs the facet once collected in parallel, and once sequentially, using a timeout.
+     */
+    private SearchResponse[] searchBoth(FacetBuilder facet) {
+        QueryBuilder query = randomBoolean() ? matchAllQuery() : rangeQuery("num").gte(-500);
+        SearchRequestBuilder parallel = client().prepareSearch("idx").setQuery(query).addFacet(facet);
+        SearchRequestBuilder sequential = client().prepareSearch("idx").setQuery(query).addFacet(facet).setTimeout("1h");
+        SearchResponse[] responses = new SearchResponse[]{parallel.execute().actionGet(), sequential.execute().actionGet()};
+        assertNoFailures(responses[0]);
+        assertNoFailures(responses[1]);
+        return responses;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.cardinality;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.test.AbstractIntegrationTest;
+import org.elasticsearch.test.AbstractIntegrationTest.ClusterScope;
+import org.elasticsearch.test.AbstractIntegrationTest.Scope;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.FilterBuilders.termFilter;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.search.facet.FacetBuilders.cardinalityFacet;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Integration tests for the cardinality facet. The shards of the indices are spread over two nodes so that the shard
+ * facets are streamed before being reduced.
+ */
+@ClusterScope(scope = Scope.SUITE, numNodes = 2)
+public class CardinalityFacetTests extends AbstractIntegrationTest {
+
+    private static final String[] FIELDS = new String[] {"str", "num", "dbl"};
+
+    private void createIndex(String index, int numShards) throws Exception {
+        XContentBuilder mapping = jsonBuilder().startObject().startObject("type").startObject("properties")
+                .startObject("str").field("type", "string").field("index", "not_analyzed").endObject()
+                .startObject("num").field("type", "long").endObject()
+                .startObject("dbl").field("type", "double").endObject()
+                .startObject("tag").field("type", "string").field("index", "not_analyzed").endObject()
+                .endObject().endObject().endObject();
+        assertAcked(prepareCreate(index)
+                .setSettings(ImmutableSettings.builder().put("index.number_of_shards", numShards).put("index.number_of_replicas", 0))
+                .addMapping("type", mapping));
+    }
+
+    private SearchResponse search(String index, int precision) {
+        SearchResponse response = client().prepareSearch(index).setQuery(matchAllQuery()).setSize(0)
+                .addFacet(cardinalityFacet("str").field("str").precision(precision))
+                .addFacet(cardinalityFacet("num").field("num").precision(precision))
+                .addFacet(cardinalityFacet("dbl").field("dbl").precision(precision))
+                .addFacet(cardinalityFacet("filtered").field("num").precision(precision).facetFilter(termFilter("tag", "a")))
+                .execute().actionGet();
+        assertNoFailures(response);
+        return response;
+    }
+
+    @Test
+    public void testMultiShardReduce() throws Exception {
+        createIndex("single", 1);
+        createIndex("multi", randomIntBetween(2, 8));
+        ensureGreen();
+
+        final int numDocs = randomIntBetween(100, 2000);
+        final int maxValue = randomIntBetween(1, 5000);
+        final Set<Long> values = new HashSet<Long>();
+        final Set<Long> filteredValues = new HashSet<Long>();
+        final List<IndexRequestBuilder> builders = new ArrayList<IndexRequestBuilder>();
+        for (int i = 0; i < numDocs; i++) {
+            final long[] docValues = new long[randomIntBetween(1, 3)];
+            for (int j = 0; j < docValues.length; j++) {
+                docValues[j] = randomInt(maxValue);
+                values.add(docValues[j]);
+            }
+            final String tag = randomBoolean() ? "a" : "b";
+            if (tag.equals("a")) {
+                for (long value : docValues) {
+                    filteredValues.add(value);
+                }
+            }
+            final String[] strValues = new String[docValues.length];
+            final double[] dblValues = new double[docValues.length];
+            for (int j = 0; j < docValues.length; j++) {
+                strValues[j] = "value_" + docValues[j];
+                dblValues[j] = docValues[j] + 0.5;
+            }
+            for (String index : new String[] {"single", "multi"}) {
+                builders.add(client().prepareIndex(index, "type", Integer.toString(i)).setSource(jsonBuilder().startObject()
+                        .field("str", strValues).field("num", docValues).field("dbl", dblValues).field("tag", tag).endObject()));
+            }
+        }
+        indexRandom(true, builders.toArray(new IndexRequestBuilder[builders.size()]));
+
+        final int precision = randomIntBetween(HyperLogLogPlusPlus.MIN_PRECISION, HyperLogLogPlusPlus.MAX_PRECISION);
+        final SearchResponse single = search("single", precision);
+        final SearchResponse multi = search("multi", precision);
+        for (String field : FIELDS) {
+            CardinalityFacet singleFacet = single.getFacets().facet(field);
+            CardinalityFacet multiFacet = multi.getFacets().facet(field);
+            assertThat(singleFacet.getPrecision(), equalTo(precision));
+            assertThat(multiFacet.getPrecision(), equalTo(precision));
+            // merging the sketches of the shards is lossless
+            assertThat(field, multiFacet.getCount(), equalTo(singleFacet.getCount()));
+            if (precision >= 14) {
+                assertThat(field, (double) multiFacet.getCount(), closeTo(values.size(), Math.max(2, values.size() * 0.05)));
+            }
+        }
+        CardinalityFacet filtered = multi.getFacets().facet("filtered");
+        assertThat(filtered.getCount(), equalTo(((CardinalityFacet) single.getFacets().facet("filtered")).getCount()));
+        if (precision >= 14) {
+            assertThat((double) filtered.getCount(), closeTo(filteredValues.size(), Math.max(2, filteredValues.size() * 0.05)));
+        }
+    }
+
+    @Test
+    public void testDefaultPrecision() throws Exception {
+        createIndex("default", randomIntBetween(1, 5));
+        ensureGreen();
+        indexRandom(true, client().prepareIndex("default", "type", "1").setSource("str", "a", "num", 1, "dbl", 1.5),
+                client().prepareIndex("default", "type", "2").setSource("str", "b", "num", 1, "dbl", 2.5));
+
+        SearchResponse response = client().prepareSearch("default").setQuery(matchAllQuery())
+                .addFacet(cardinalityFacet("str").field("str"))
+                .addFacet(cardinalityFacet("num").field("num"))
+                .execute().actionGet();
+        assertNoFailures(response);
+        CardinalityFacet str = response.getFacets().facet("str");
+        assertThat(str.getPrecision(), equalTo(HyperLogLogPlusPlus.DEFAULT_PRECISION));
+        assertThat(str.getCount(), equalTo(2L));
+        CardinalityFacet num = response.getFacets().facet("num");
+        assertThat(num.getCount(), equalTo(1L));
+    }
+
+    @Test
+    public void testParseErrors() throws Exception {
+        createIndex("errors", 1);
+        ensureGreen();
+        indexRandom(true, client().prepareIndex("errors", "type", "1").setSource("str", "a"));
+
+        assertFacetFailure("{\"facets\":{\"f\":{\"cardinality\":{\"precision\":10}}}}", "cardinality facet requires [field] to be set");
+        assertFacetFailure("{\"facets\":{\"f\":{\"cardinality\":{\"field\":\"str\",\"precision\":" + (HyperLogLogPlusPlus.MAX_PRECISION + 1) + "}}}}",
+                "[precision] must be between " + HyperLogLogPlusPlus.MIN_PRECISION + " and " + HyperLogLogPlusPlus.MAX_PRECISION);
+        assertFacetFailure("{\"facets\":{\"f\":{\"cardinality\":{\"field\":\"unknown\"}}}}", "No mapping found for field [unknown]");
+    }
+
+    private void assertFacetFailure(String source, String reason) {
+        try {
+            client().prepareSearch("errors").setSource(source).execute().actionGet();
+            fail("expected the facet to fail with [" + reason + "]");
+        } catch (SearchPhaseExecutionException e) {
+            assertThat(e.shardFailures().length, greaterThan(0));
+            for (ShardSearchFailure failure : e.shardFailures()) {
+                assertThat(failure.reason(), containsString(reason));
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.cardinality;
+
+import org.elasticsearch.common.hash.MurmurHash3;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Tests for {@link HyperLogLogPlusPlus}
+ */
+public class HyperLogLogPlusPlusTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testAccuracy() {
+        final int precision = randomIntBetween(HyperLogLogPlusPlus.MIN_PRECISION, HyperLogLogPlusPlus.MAX_PRECISION);
+        final int cardinality = randomIntBetween(1, 100000);
+        HyperLogLogPlusPlus sketch = new HyperLogLogPlusPlus(precision);
+        final long seed = randomLong();
+        for (int i = 0; i < cardinality; ++i) {
+            final long hash = MurmurHash3.fmix(seed + i);
+            // duplicates must not be counted
+            sketch.add(hash);
+            sketch.add(hash);
+        }
+        // 6 standard deviations
+        final double maxError = 6 * 1.04 / Math.sqrt(1 << precision);
+        assertThat(Math.abs(sketch.cardinality() - cardinality) / (double) cardinality, lessThan(maxError));
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        final int precision = randomIntBetween(HyperLogLogPlusPlus.MIN_PRECISION, HyperLogLogPlusPlus.MAX_PRECISION);
+        HyperLogLogPlusPlus single = new HyperLogLogPlusPlus(precision);
+        HyperLogLogPlusPlus[] shards = new HyperLogLogPlusPlus[randomIntBetween(2, 5)];
+        for (int i = 0; i < shards.length; ++i) {
+            shards[i] = new HyperLogLogPlusPlus(precision);
+        }
+        final int numValues = randomIntBetween(1, 50000);
+        for (int i = 0; i < numValues; ++i) {
+            final long hash = MurmurHash3.fmix(randomInt(numValues));
+            single.add(hash);
+            shards[randomInt(shards.length - 1)].add(hash);
+        }
+        HyperLogLogPlusPlus merged = new HyperLogLogPlusPlus(precision);
+        for (HyperLogLogPlusPlus shard : shards) {
+            BytesStreamOutput out = new BytesStreamOutput();
+            shard.writeTo(out);
+            merged.merge(HyperLogLogPlusPlus.readFrom(new BytesStreamInput(out.bytes())));
+        }
+        assertThat(merged.cardinality(), equalTo(single.cardinality()));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.datehistogram;
+
+import org.elasticsearch.common.joda.TimeZoneRounding;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.joda.time.DateTimeZone;
+import org.joda.time.chrono.ISOChronology;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Tests for {@link PreRoundedBuckets}
+ */
+public class PreRoundedBucketsTests extends ElasticsearchTestCase {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    @Test
+    public void testFixedInterval() {
+        TimeZoneRounding tzRounding = TimeZoneRounding.builder(TimeValue.timeValueMinutes(1)).build();
+        assertBuckets(tzRounding, between(0, 1000 * DAY), between(0, 31 * DAY));
+    }
+
+    @Test
+    public void testCalendarInterval() {
+        TimeZoneRounding tzRounding = TimeZoneRounding.builder(ISOChronology.getInstanceUTC().monthOfYear()).build();
+        assertBuckets(tzRounding, between(-1000 * DAY, 1000 * DAY), between(0, 3000 * DAY));
+    }
+
+    @Test
+    public void testOffsets() {
+        TimeZoneRounding tzRounding = TimeZoneRounding.builder(ISOChronology.getInstanceUTC().dayOfMonth())
+                .preOffset(between(-DAY, DAY)).postOffset(between(-DAY, DAY)).build();
+        assertBuckets(tzRounding, between(0, 1000 * DAY), between(0, 100 * DAY));
+    }
+
+    @Test
+    public void testNotMonotonic() {
+        TimeZoneRounding tzRounding = TimeZoneRounding.builder(ISOChronology.getInstanceUTC().hourOfDay())
+                .preZone(DateTimeZone.forID("Europe/Paris")).build();
+        assertThat(PreRoundedBuckets.build(tzRounding, 0, DAY), nullValue());
+    }
+
+    @Test
+    public void testTooManyBuckets() {
+        TimeZoneRounding tzRounding = TimeZoneRounding.builder(TimeValue.timeValueSeconds(1)).build();
+        assertThat(PreRoundedBuckets.build(tzRounding, 0, 365 * DAY), nullValue());
+    }
+
+    private void assertBuckets(TimeZoneRounding tzRounding, long min, long length) {
+        final long max = min + length;
+        PreRoundedBuckets buckets = PreRoundedBuckets.build(tzRounding, min, max);
+        assertThat(buckets, notNullValue());
+        assertThat(buckets.bucket(min - 1), equalTo(-1));
+        assertThat(buckets.bucket(max + 1), equalTo(-1));
+        assertThat(buckets.key(buckets.bucket(min)), equalTo(tzRounding.calc(min)));
+        assertThat(buckets.key(buckets.bucket(max)), equalTo(tzRounding.calc(max)));
+        for (int i = 0; i < 10000; i++) {
+            final long value = between(min, max);
+            final int bucket = buckets.bucket(value);
+            assertThat(bucket, greaterThanOrEqualTo(0));
+            assertThat(bucket, lessThan(buckets.size()));
+            assertThat(buckets.key(bucket), equalTo(tzRounding.calc(value)));
+        }
+    }
+
+    private static long between(long min, long max) {
+        return min + (long) (getRandom().nextDouble() * (max - min));
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.percentiles;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.test.AbstractIntegrationTest;
+import org.elasticsearch.test.AbstractIntegrationTest.ClusterScope;
+import org.elasticsearch.test.AbstractIntegrationTest.Scope;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.FilterBuilders.termFilter;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.search.facet.FacetBuilders.percentilesFacet;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Integration tests for the percentiles facet. The shards of the index are spread over two nodes so that the shard
+ * facets are streamed before being reduced.
+ */
+@ClusterScope(scope = Scope.SUITE, numNodes = 2)
+public class PercentilesFacetTests extends AbstractIntegrationTest {
+
+    private void createIndex(String index, int numShards) throws Exception {
+        XContentBuilder mapping = jsonBuilder().startObject().startObject("type").startObject("properties")
+                .startObject("num").field("type", "long").endObject()
+                .startObject("dbl").field("type", "double").endObject()
+                .startObject("str").field("type", "string").field("index", "not_analyzed").endObject()
+                .startObject("tag").field("type", "string").field("index", "not_analyzed").endObject()
+                .endObject().endObject().endObject();
+        assertAcked(prepareCreate(index)
+                .setSettings(ImmutableSettings.builder().put("index.number_of_shards", numShards).put("index.number_of_replicas", 0))
+                .addMapping("type", mapping));
+    }
+
+    /** The exact percentile of sorted values, interpolating between the two closest ranks. */
+    private static double percentile(double[] sorted, double percent) {
+        final double rank = percent / 100 * (sorted.length - 1);
+        final int low = (int) Math.floor(rank);
+        final int high = Math.min(low + 1, sorted.length - 1);
+        return sorted[low] + (rank - low) * (sorted[high] - sorted[low]);
+    }
+
+    @Test
+    public void testMultiShardReduce() throws Exception {
+        createIndex("test", randomIntBetween(2, 8));
+        ensureGreen();
+
+        final int numDocs = randomIntBetween(500, 3000);
+        final double[] values = new double[numDocs];
+        final List<Double> filteredValues = new ArrayList<Double>();
+        final List<IndexRequestBuilder> builders = new ArrayList<IndexRequestBuilder>();
+        for (int i = 0; i < numDocs; i++) {
+            values[i] = randomInt(10000);
+            final String tag = randomBoolean() ? "a" : "b";
+            if (tag.equals("a")) {
+                filteredValues.add(values[i]);
+            }
+            builders.add(client().prepareIndex("test", "type", Integer.toString(i)).setSource(jsonBuilder().startObject()
+                    .field("num", (long) values[i]).field("dbl", values[i] + 0.5).field("tag", tag).endObject()));
+        }
+        indexRandom(true, builders.toArray(new IndexRequestBuilder[builders.size()]));
+
+        final double[] percents = new double[] {0, 1, 10, 25, 50, 75, 90, 99, 100};
+        SearchResponse response = client().prepareSearch("test").setQuery(matchAllQuery()).setSize(0)
+                .addFacet(percentilesFacet("num").field("num").percents(percents))
+                .addFacet(percentilesFacet("dbl").field("dbl").percents(percents))
+                .addFacet(percentilesFacet("filtered").field("num").percents(percents).facetFilter(termFilter("tag", "a")))
+                .execute().actionGet();
+        assertNoFailures(response);
+
+        Arrays.sort(values);
+        // the error of a t-digest is the largest around the median, allow for 2% of the range of the values
+        final double tolerance = 200;
+        PercentilesFacet num = response.getFacets().facet("num");
+        PercentilesFacet dbl = response.getFacets().facet("dbl");
+        assertThat(num.getCount(), equalTo((long) numDocs));
+        assertThat(dbl.getCount(), equalTo((long) numDocs));
+        assertThat(num.getPercents(), equalTo(percents));
+        for (double percent : percents) {
+            assertThat(num.getPercentile(percent), closeTo(percentile(values, percent), tolerance));
+            assertThat(dbl.getPercentile(percent), closeTo(percentile(values, percent) + 0.5, tolerance));
+        }
+        assertThat(num.getPercentile(0), equalTo(values[0]));
+        assertThat(num.getPercentile(100), equalTo(values[values.length - 1]));
+
+        PercentilesFacet filtered = response.getFacets().facet("filtered");
+        assertThat(filtered.getCount(), equalTo((long) filteredValues.size()));
+        if (!filteredValues.isEmpty()) {
+            final double[] sortedFiltered = new double[filteredValues.size()];
+            for (int i = 0; i < sortedFiltered.length; i++) {
+                sortedFiltered[i] = filteredValues.get(i);
+            }
+            Arrays.sort(sortedFiltered);
+            assertThat(filtered.getPercentile(50), closeTo(percentile(sortedFiltered, 50), tolerance));
+        }
+    }
+
+    @Test
+    public void testDefaultPercents() throws Exception {
+        createIndex("default", randomIntBetween(1, 5));
+        ensureGreen();
+        indexRandom(true, client().prepareIndex("default", "type", "1").setSource("num", 1),
+                client().prepareIndex("default", "type", "2").setSource("num", 1));
+
+        SearchResponse response = client().prepareSearch("default").setQuery(matchAllQuery())
+                .addFacet(percentilesFacet("num").field("num"))
+                .execute().actionGet();
+        assertNoFailures(response);
+        PercentilesFacet num = response.getFacets().facet("num");
+        assertThat(num.getCount(), equalTo(2L));
+        assertThat(num.getPercents(), equalTo(PercentilesFacetParser.DEFAULT_PERCENTS));
+        for (double percent : PercentilesFacetParser.DEFAULT_PERCENTS) {
+            assertThat(num.getPercentile(percent), equalTo(1d));
+        }
+    }
+
+    @Test
+    public void testParseErrors() throws Exception {
+        createIndex("errors", 1);
+        ensureGreen();
+        indexRandom(true, client().prepareIndex("errors", "type", "1").setSource("num", 1, "str", "a"));
+
+        assertFacetFailure("{\"facets\":{\"f\":{\"percentiles\":{\"percents\":[50]}}}}", "percentiles facet requires [field] to be set");
+        assertFacetFailure("{\"facets\":{\"f\":{\"percentiles\":{\"field\":\"num\",\"percents\":[50,101]}}}}", "percents must be between 0 and 100, got [101.0]");
+        assertFacetFailure("{\"facets\":{\"f\":{\"percentiles\":{\"field\":\"num\",\"compression\":0.5}}}}", "[compression] must be between 1 and " + TDigest.MAX_COMPRESSION + ", got [0.5]");
+        assertFacetFailure("{\"facets\":{\"f\":{\"percentiles\":{\"field\":\"num\",\"compression\":1e8}}}}", "[compression] must be between 1 and " + TDigest.MAX_COMPRESSION + ", got [1.0E8]");
+        assertFacetFailure("{\"facets\":{\"f\":{\"percentiles\":{\"field\":\"num\",\"compression\":\"NaN\"}}}}", "[compression] must be between 1 and " + TDigest.MAX_COMPRESSION + ", got [NaN]");
+        assertFacetFailure("{\"facets\":{\"f\":{\"percentiles\":{\"field\":\"unknown\"}}}}", "No mapping found for field [unknown]");
+        assertFacetFailure("{\"facets\":{\"f\":{\"percentiles\":{\"field\":\"str\"}}}}", "field [str] isn't a number field");
+    }
+
+    private void assertFacetFailure(String source, String reason) {
+        try {
+            client().prepareSearch("errors").setSource(source).execute().actionGet();
+            fail("expected the facet to fail with [" + reason + "]");
+        } catch (SearchPhaseExecutionException e) {
+            assertThat(e.shardFailures().length, greaterThan(0));
+            for (ShardSearchFailure failure : e.shardFailures()) {
+                assertThat(failure.reason(), containsString(reason));
+            }
+        }
+    }
+}
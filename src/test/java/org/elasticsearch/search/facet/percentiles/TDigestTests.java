@@ -0,0 +1,111 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.percentiles;
+
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Tests for {@link TDigest}
+ */
+public class TDigestTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testAccuracy() {
+        final int numValues = randomIntBetween(1000, 100000);
+        final double[] values = new double[numValues];
+        TDigest digest = new TDigest(TDigest.DEFAULT_COMPRESSION);
+        for (int i = 0; i < numValues; ++i) {
+            values[i] = getRandom().nextGaussian();
+            digest.add(values[i]);
+        }
+        Arrays.sort(values);
+        assertThat(digest.count(), equalTo((long) numValues));
+        assertThat(digest.quantile(0), equalTo(values[0]));
+        assertThat(digest.quantile(1), equalTo(values[numValues - 1]));
+        for (double q : new double[]{0.01, 0.1, 0.5, 0.9, 0.99}) {
+            final double estimatedRank = Arrays.binarySearch(values, digest.quantile(q));
+            final double rank = estimatedRank >= 0 ? estimatedRank : -1 - estimatedRank;
+            // the error is on the rank of the estimated value
+            assertThat(Math.abs(rank / numValues - q), lessThan(0.01));
+        }
+        assertThat(digest.centroidCount(), lessThan(10 * (int) TDigest.DEFAULT_COMPRESSION));
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        final double compression = randomIntBetween(20, 200);
+        TDigest single = new TDigest(compression);
+        TDigest merged = new TDigest(compression);
+        final int numShards = randomIntBetween(2, 5);
+        for (int shard = 0; shard < numShards; ++shard) {
+            TDigest digest = new TDigest(compression);
+            final int numValues = randomIntBetween(0, 10000);
+            for (int i = 0; i < numValues; ++i) {
+                final double value = randomDouble() * 1000;
+                single.add(value);
+                digest.add(value);
+            }
+            BytesStreamOutput out = new BytesStreamOutput();
+            digest.writeTo(out);
+            merged.merge(TDigest.readFrom(new BytesStreamInput(out.bytes())));
+        }
+        assertThat(merged.count(), equalTo(single.count()));
+        if (single.count() > 0) {
+            assertThat(merged.min(), equalTo(single.min()));
+            assertThat(merged.max(), equalTo(single.max()));
+            assertThat(merged.quantile(0.5), closeTo(single.quantile(0.5), 20));
+        } else {
+            assertThat(Double.isNaN(merged.quantile(0.5)), equalTo(true));
+        }
+    }
+
+    @Test
+    public void testInvalidCompression() {
+        for (double compression : new double[] {0.5, TDigest.MAX_COMPRESSION + 1, Double.POSITIVE_INFINITY, Double.NaN}) {
+            try {
+                new TDigest(compression);
+                fail("expected compression [" + compression + "] to be rejected");
+            } catch (ElasticSearchIllegalArgumentException e) {
+                // expected
+            }
+        }
+        assertThat(new TDigest(TDigest.MAX_COMPRESSION).compression(), equalTo(TDigest.MAX_COMPRESSION));
+    }
+
+    @Test(expected = ElasticSearchIllegalArgumentException.class)
+    public void testInvalidCompressionIsRejectedWhenReading() throws Exception {
+        // the compression of a shard digest is read back before its buffers get allocated
+        BytesStreamOutput out = new BytesStreamOutput();
+        new TDigest(TDigest.DEFAULT_COMPRESSION).writeTo(out);
+        byte[] bytes = out.bytes().toBytes();
+        BytesStreamOutput corrupted = new BytesStreamOutput();
+        corrupted.writeDouble(1e8);
+        corrupted.writeBytes(bytes, 8, bytes.length - 8);
+        TDigest.readFrom(new BytesStreamInput(corrupted.bytes()));
+    }
+}
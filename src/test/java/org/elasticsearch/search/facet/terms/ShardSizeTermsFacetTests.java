@@ -87,6 +87,42 @@ public class ShardSizeTermsFacetTests extends AbstractIntegrationTest {
         }
     }
 
+    @Test
+    public void docCountError_string() throws Exception {
+
+        client().admin().indices().prepareCreate("idx")
+                .addMapping("type", "key", "type=string,index=not_analyzed")
+                .execute().actionGet();
+
+        indexData();
+
+        SearchResponse response = client().prepareSearch("idx").setTypes("type")
+                .setQuery(matchAllQuery())
+                .addFacet(termsFacet("keys").field("key").size(3).order(TermsFacet.ComparatorType.COUNT))
+                .execute().actionGet();
+
+        TermsFacet terms = response.getFacets().facet("keys");
+        // shard 1 returned "3" - 3 last and shard 2 returned "4" - 2 last
+        assertThat(terms.getDocCountError(), equalTo(5l));
+        Map<String, Long> expected = ImmutableMap.<String, Long>builder()
+                .put("1", 0l)
+                .put("3", 0l)
+                .put("2", 2l) // <-- not returned by shard 2, its real count is 5
+                .build();
+        for (TermsFacet.Entry entry : terms.getEntries()) {
+            assertThat(entry.getCountError(), equalTo(expected.get(entry.getTerm().string())));
+        }
+
+        response = client().prepareSearch("idx").setTypes("type")
+                .setQuery(matchAllQuery())
+                .addFacet(termsFacet("keys").field("key").size(3).order(TermsFacet.ComparatorType.TERM))
+                .execute().actionGet();
+
+        terms = response.getFacets().facet("keys");
+        // the error can't be bounded when not ordering by count
+        assertThat(terms.getDocCountError(), equalTo(-1l));
+    }
+
     @Test
     public void withShardSize_string() throws Exception {
 
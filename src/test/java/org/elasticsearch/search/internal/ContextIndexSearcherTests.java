@@ -0,0 +1,215 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.internal;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.search.XCollector;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.elasticsearch.test.TestSearchContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class ContextIndexSearcherTests extends ElasticsearchTestCase {
+
+    private Directory dir;
+    private DirectoryReader reader;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        dir = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, Lucene.KEYWORD_ANALYZER).setMergePolicy(NoMergePolicy.COMPOUND_FILES));
+        // a few segments of different sizes
+        final int numSegments = randomIntBetween(2, 10);
+        int id = 0;
+        for (int i = 0; i < numSegments; i++) {
+            final int numDocs = randomIntBetween(1, 100);
+            for (int j = 0; j < numDocs; j++) {
+                Document doc = new Document();
+                doc.add(new StringField("id", Integer.toString(id++), Field.Store.NO));
+                doc.add(new StringField("even", id % 2 == 0 ? "true" : "false", Field.Store.NO));
+                writer.addDocument(doc);
+            }
+            writer.commit();
+        }
+        writer.close();
+        reader = DirectoryReader.open(dir);
+        executor = Executors.newFixedThreadPool(randomIntBetween(1, 4));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        reader.close();
+        dir.close();
+        super.tearDown();
+    }
+
+    @Test
+    public void testSlices() {
+        final List<AtomicReaderContext> leaves = reader.leaves();
+        final int maxSlices = randomIntBetween(1, leaves.size() + 2);
+        final List<List<AtomicReaderContext>> slices = ContextIndexSearcher.slices(leaves, maxSlices);
+        assertThat(slices.size(), equalTo(Math.min(maxSlices, leaves.size())));
+
+        // each leaf is in exactly one slice, and no slice is empty
+        Set<AtomicReaderContext> seen = Collections.newSetFromMap(new IdentityHashMap<AtomicReaderContext, Boolean>());
+        int biggestLeaf = 0;
+        for (AtomicReaderContext leaf : leaves) {
+            biggestLeaf = Math.max(biggestLeaf, leaf.reader().maxDoc());
+        }
+        long minDocs = Long.MAX_VALUE;
+        long maxDocs = 0;
+        for (List<AtomicReaderContext> slice : slices) {
+            assertThat(slice.isEmpty(), equalTo(false));
+            long docs = 0;
+            for (AtomicReaderContext leaf : slice) {
+                assertTrue(seen.add(leaf));
+                docs += leaf.reader().maxDoc();
+            }
+            minDocs = Math.min(minDocs, docs);
+            maxDocs = Math.max(maxDocs, docs);
+        }
+        assertThat(seen.size(), equalTo(leaves.size()));
+        // slices are balanced up to the size of a single segment
+        assertThat(maxDocs - minDocs, lessThanOrEqualTo((long) biggestLeaf));
+    }
+
+    @Test
+    public void testSlicesAtLeastOne() {
+        final List<AtomicReaderContext> leaves = reader.leaves();
+        for (int maxSlices : new int[]{-1, 0, 1}) {
+            List<List<AtomicReaderContext>> slices = ContextIndexSearcher.slices(leaves, maxSlices);
+            assertThat(slices.size(), equalTo(1));
+            assertThat(slices.get(0).size(), equalTo(leaves.size()));
+        }
+        assertThat(ContextIndexSearcher.slices(Collections.<AtomicReaderContext>emptyList(), 4).size(), equalTo(1));
+    }
+
+    @Test
+    public void testSearchInParallel() throws Exception {
+        final TestSearchContext context = new TestSearchContext();
+        final ContextIndexSearcher searcher = new ContextIndexSearcher(context, new Engine.SimpleSearcher("test", new IndexSearcher(reader)));
+        context.searcher(searcher);
+        SearchContext.setCurrent(context);
+        try {
+            final Query query = new TermQuery(new Term("even", "true"));
+            final int expected = searcher.search(query, 1).totalHits;
+            final AtomicInteger count = new AtomicInteger();
+            final AtomicInteger slices = new AtomicInteger();
+            final AtomicInteger wrongContext = new AtomicInteger();
+            searcher.searchInParallel(query, randomIntBetween(1, reader.leaves().size() + 1), new ContextIndexSearcher.SliceCollectorFactory() {
+                @Override
+                public Collector newCollector() throws IOException {
+                    return new XCollector() {
+                        int sliceCount;
+
+                        @Override
+                        public void setScorer(Scorer scorer) throws IOException {
+                        }
+
+                        @Override
+                        public void collect(int doc) throws IOException {
+                            // parent/child queries and filters rely on the current search context
+                            if (SearchContext.current() != context) {
+                                wrongContext.incrementAndGet();
+                            }
+                            sliceCount++;
+                        }
+
+                        @Override
+                        public void setNextReader(AtomicReaderContext readerContext) throws IOException {
+                        }
+
+                        @Override
+                        public boolean acceptsDocsOutOfOrder() {
+                            return true;
+                        }
+
+                        @Override
+                        public void postCollection() {
+                            slices.incrementAndGet();
+                            count.addAndGet(sliceCount);
+                        }
+                    };
+                }
+            }, executor);
+            assertThat(count.get(), equalTo(expected));
+            assertThat(slices.get(), greaterThanOrEqualTo(1));
+            assertThat(wrongContext.get(), equalTo(0));
+            // the calling thread keeps its context
+            assertThat(SearchContext.current(), sameInstance((SearchContext) context));
+        } finally {
+            SearchContext.removeCurrent();
+        }
+    }
+
+    @Test
+    public void testSearchInParallelFailure() throws Exception {
+        final TestSearchContext context = new TestSearchContext();
+        final ContextIndexSearcher searcher = new ContextIndexSearcher(context, new Engine.SimpleSearcher("test", new IndexSearcher(reader)));
+        context.searcher(searcher);
+        try {
+            searcher.searchInParallel(new MatchAllDocsQuery(), reader.leaves().size(), new ContextIndexSearcher.SliceCollectorFactory() {
+                @Override
+                public Collector newCollector() throws IOException {
+                    return new TotalHitCountCollector() {
+                        @Override
+                        public void collect(int doc) {
+                            throw new IllegalStateException("boom");
+                        }
+                    };
+                }
+            }, executor);
+            fail("the failure of a slice should be rethrown");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), equalTo("boom"));
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.query;
+
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.merge.policy.NumericFieldSorter;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.AbstractIntegrationTest;
+import org.junit.Test;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Checks that searches sorted like the segments of the index, which stop collecting sorted segments early, return
+ * the same hits as full searches.
+ */
+public class SortedSegmentsEarlyTerminationTests extends AbstractIntegrationTest {
+
+    @Test
+    public void testSameHitsAsFullSearch() throws Exception {
+        final boolean reverse = randomBoolean();
+        client().admin().indices().prepareCreate("idx")
+                .setSettings(ImmutableSettings.builder()
+                        .put("index.number_of_shards", 1)
+                        .put("index.number_of_replicas", 0)
+                        .put(NumericFieldSorter.INDEX_MERGE_POLICY_SORT_FIELD, "ts")
+                        .put(NumericFieldSorter.INDEX_MERGE_POLICY_SORT_ORDER, reverse ? "desc" : "asc"))
+                .addMapping("type", "ts", "type=long", "group", "type=string,index=not_analyzed")
+                .execute().actionGet();
+        ensureGreen();
+
+        final int numBatches = randomIntBetween(2, 5);
+        int id = 0;
+        int numDocsA = 0;
+        for (int i = 0; i < numBatches; i++) {
+            final int numDocs = randomIntBetween(10, 100);
+            BulkRequestBuilder bulk = client().prepareBulk();
+            for (int j = 0; j < numDocs; j++) {
+                final boolean groupA = randomBoolean();
+                if (groupA) {
+                    numDocsA++;
+                }
+                XContentBuilder source = jsonBuilder().startObject().field("group", groupA ? "a" : "b");
+                if (rarely()) {
+                    // no value
+                } else if (randomBoolean()) {
+                    source.field("ts", randomIntBetween(0, 10000), randomIntBetween(0, 10000));
+                } else {
+                    source.field("ts", randomIntBetween(0, 10000));
+                }
+                bulk.add(client().prepareIndex("idx", "type", Integer.toString(id++)).setSource(source.endObject()));
+            }
+            assertThat(bulk.execute().actionGet().hasFailures(), equalTo(false));
+            refresh();
+        }
+        // a single merged, hence sorted, segment
+        client().admin().indices().prepareOptimize("idx").setFlush(true).setMaxNumSegments(1).execute().actionGet();
+        refresh();
+
+        final SortOrder order = reverse ? SortOrder.DESC : SortOrder.ASC;
+        final int size = randomIntBetween(1, 30);
+        for (boolean matchAll : new boolean[]{true, false}) {
+            final QueryBuilder query = matchAll ? matchAllQuery() : termQuery("group", "a");
+            final long expectedTotalHits = matchAll ? id : numDocsA;
+            // terminates early, the segment is sorted the same way
+            SearchResponse sorted = search(query, size, SortBuilders.fieldSort("ts").order(order));
+            assertSameHits(sorted, search(query, size, SortBuilders.fieldSort("ts").order(order), SortBuilders.fieldSort("_doc")));
+
+            // same field and order, but not the way the segment is sorted
+            FieldSortBuilder[] nonDefaultSorts = new FieldSortBuilder[]{
+                    SortBuilders.fieldSort("ts").order(order).missing("_first"),
+                    SortBuilders.fieldSort("ts").order(order).missing(5000),
+                    SortBuilders.fieldSort("ts").order(order).sortMode(reverse ? "min" : "max"),
+                    SortBuilders.fieldSort("ts").order(order).sortMode("avg")
+            };
+            for (FieldSortBuilder sort : nonDefaultSorts) {
+                SearchResponse response = search(query, size, sort);
+                // all docs are collected
+                assertThat(response.getHits().totalHits(), equalTo(expectedTotalHits));
+                assertSameHits(response, search(query, size, sort, SortBuilders.fieldSort("_doc")));
+            }
+        }
+    }
+
+    @Test
+    public void testSortFieldMustBeLongOrDate() throws Exception {
+        try {
+            client().admin().indices().prepareCreate("idx")
+                    .setSettings(ImmutableSettings.builder().put(NumericFieldSorter.INDEX_MERGE_POLICY_SORT_FIELD, "ts"))
+                    .addMapping("type", "ts", "type=string")
+                    .execute().actionGet();
+            fail("string fields can't be used to sort segments");
+        } catch (ElasticSearchException e) {
+            assertThat(ExceptionsHelper.detailedMessage(e), containsString("must be a long or date field"));
+        }
+        assertThat(indexExists("idx"), equalTo(false));
+
+        client().admin().indices().prepareCreate("idx")
+                .addMapping("type", "ts", "type=string", "date", "type=date")
+                .execute().actionGet();
+        ensureGreen();
+        client().admin().indices().prepareClose("idx").execute().actionGet();
+        try {
+            client().admin().indices().prepareUpdateSettings("idx")
+                    .setSettings(ImmutableSettings.builder().put(NumericFieldSorter.INDEX_MERGE_POLICY_SORT_FIELD, "ts"))
+                    .execute().actionGet();
+            fail("string fields can't be used to sort segments");
+        } catch (ElasticSearchException e) {
+            assertThat(ExceptionsHelper.detailedMessage(e), containsString("must be a long or date field"));
+        }
+        client().admin().indices().prepareUpdateSettings("idx")
+                .setSettings(ImmutableSettings.builder().put(NumericFieldSorter.INDEX_MERGE_POLICY_SORT_FIELD, "date"))
+                .execute().actionGet();
+    }
+
+    private SearchResponse search(QueryBuilder query, int size, FieldSortBuilder... sorts) {
+        SearchRequestBuilder request = client().prepareSearch("idx").setQuery(query).setSize(size);
+        for (FieldSortBuilder sort : sorts) {
+            request.addSort(sort);
+        }
+        SearchResponse response = request.execute().actionGet();
+        assertNoFailures(response);
+        return response;
+    }
+
+    private static void assertSameHits(SearchResponse actual, SearchResponse expected) {
+        SearchHit[] actualHits = actual.getHits().hits();
+        SearchHit[] expectedHits = expected.getHits().hits();
+        assertThat(actualHits.length, equalTo(expectedHits.length));
+        for (int i = 0; i < expectedHits.length; i++) {
+            assertThat(actualHits[i].id(), equalTo(expectedHits[i].id()));
+            assertThat(actualHits[i].sortValues()[0], equalTo(expectedHits[i].sortValues()[0]));
+        }
+    }
+}
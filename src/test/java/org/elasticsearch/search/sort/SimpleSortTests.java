@@ -26,6 +26,7 @@ import org.apache.lucene.util._TestUtil;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.action.search.SearchPhaseExecutionException;
+import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.ShardSearchFailure;
 import org.elasticsearch.common.settings.ImmutableSettings;
@@ -186,6 +187,71 @@ public class SimpleSortTests extends AbstractIntegrationTest {
     }
 
 
+    @Test
+    public void testSearchAfter() throws Exception {
+        createIndex("test");
+        ensureGreen();
+        int numDocs = randomIntBetween(20, 100);
+        List<IndexRequestBuilder> builders = new ArrayList<IndexRequestBuilder>();
+        for (int i = 0; i < numDocs; i++) {
+            builders.add(client().prepareIndex("test", "type", Integer.toString(i)).setSource("num", i % 7, "id", i));
+        }
+        indexRandom(true, builders.toArray(new IndexRequestBuilder[builders.size()]));
+
+        SearchResponse allResponse = client().prepareSearch("test").setQuery(matchAllQuery()).setSize(numDocs)
+                .addSort("num", SortOrder.DESC).addSort("id", SortOrder.ASC).execute().actionGet();
+        assertHitCount(allResponse, numDocs);
+
+        int size = randomIntBetween(1, 10);
+        Object[] searchAfter = null;
+        int collected = 0;
+        while (true) {
+            SearchRequestBuilder request = client().prepareSearch("test").setQuery(matchAllQuery()).setSize(size)
+                    .addSort("num", SortOrder.DESC).addSort("id", SortOrder.ASC);
+            if (searchAfter != null) {
+                request.setSearchAfter(searchAfter);
+            }
+            SearchResponse searchResponse = request.execute().actionGet();
+            assertNoFailures(searchResponse);
+            assertThat(searchResponse.getHits().getTotalHits(), equalTo((long) numDocs));
+            SearchHit[] hits = searchResponse.getHits().getHits();
+            if (hits.length == 0) {
+                break;
+            }
+            for (SearchHit hit : hits) {
+                assertThat(hit.getId(), equalTo(allResponse.getHits().getAt(collected++).getId()));
+            }
+            searchAfter = hits[hits.length - 1].sortValues();
+        }
+        assertThat(collected, equalTo(numDocs));
+    }
+
+    @Test
+    public void testSearchAfterNestedSort() throws Exception {
+        assertAcked(prepareCreate("test").addMapping("type", jsonBuilder().startObject().startObject("type").startObject("properties")
+                .startObject("nested1").field("type", "nested").startObject("properties")
+                .startObject("num").field("type", "long").endObject()
+                .endObject().endObject()
+                .endObject().endObject().endObject()));
+        ensureGreen();
+        indexRandom(true, client().prepareIndex("test", "type", "1").setSource(jsonBuilder().startObject()
+                .startArray("nested1").startObject().field("num", 1).endObject().startObject().field("num", 2).endObject().endArray()
+                .endObject()));
+
+        try {
+            client().prepareSearch("test").setQuery(matchAllQuery())
+                    .addSort(SortBuilders.fieldSort("nested1.num").setNestedPath("nested1").order(SortOrder.ASC))
+                    .setSearchAfter(new Object[] {1})
+                    .execute().actionGet();
+            fail("search_after should be rejected with a nested sort");
+        } catch (SearchPhaseExecutionException e) {
+            assertThat(e.shardFailures().length, greaterThan(0));
+            for (ShardSearchFailure shardSearchFailure : e.shardFailures()) {
+                assertThat(shardSearchFailure.reason(), containsString("search_after is not supported for nested sort [nested1.num]"));
+            }
+        }
+    }
+
     @Test
     public void test3078() {
         createIndex("test");
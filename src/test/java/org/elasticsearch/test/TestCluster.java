@@ -127,6 +127,11 @@ public class TestCluster implements Closeable, Iterable<Client> {
         .put("cluster.name", clusterName)
                 // decrease the routing schedule so new nodes will be added quickly - some random value between 30 and 80 ms
         .put("cluster.routing.schedule", (30 + random.nextInt(50)) + "ms")
+                // parse bulk items in parallel in some of the runs
+        .put("action.bulk.parallel_parsing", random.nextBoolean())
+        .put("action.bulk.parallel_parsing.min_items", 1 + random.nextInt(10))
+                // collect facets on slices of segments in parallel in some of the runs
+        .put("search.facet.parallel_slices", random.nextBoolean() ? 1 : 2 + random.nextInt(3))
                 // default to non gateway
         .put("gateway.type", "none");
         if (isLocalTransportConfigured()) {